@@ -0,0 +1,702 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Árbol B+ en disco con claves int y valores de tamaño fijo, guardado en páginas de 4 KiB. Las hojas contienen
+ * las claves ordenadas con sus valores y están enlazadas en orden, así que un recorrido por rango de claves baja
+ * una vez hasta la primera hoja y después solo sigue los enlaces. Los nodos internos, que son una pequeña parte
+ * del árbol, se guardan en memoria la primera vez que se leen: buscar, insertar o eliminar una clave lee una
+ * sola hoja del disco.
+ *
+ * Con valores de 56 bytes es la organización principal de GestionArbolBMas, que guarda en las hojas los registros
+ * de GestionAccesoAleatorio; con valores de 4 bytes sirve de índice de una clave a un número de registro.
+ * Las eliminaciones quitan la clave de su hoja sin fusionar nodos: las hojas vacías siguen enlazadas y se
+ * reutilizan si vuelven a llegar claves de su rango. cargarOrdenado construye un árbol vacío a partir de entradas
+ * ya ordenadas escribiendo las hojas llenas y consecutivas, sin divisiones.
+ *
+ * Formato: página 0 de cabecera (MAGIA, VERSION, tamaño de página, tamaño del valor, raíz, altura, número de páginas,
+ * primera hoja); hojas (tipo, número de entradas, siguiente hoja y pares clave-valor) e internos (tipo, número de
+ * claves, primer hijo y pares clave-hijo, donde cada hijo contiene las claves desde su separador hasta el siguiente).
+ * Las páginas se modifican en el sitio; sincronizar las fuerza a disco. Si el árbol se abre con un GrupoBuffers,
+ * las hojas y los internos se leen y escriben a través del grupo y llegan al archivo al expulsarse, en segundo
+ * plano o al sincronizar o cerrar; la cabecera y los bloques de la carga ordenada se escriben siempre directamente.
+ */
+final class ArbolBMas implements Closeable {
+
+    private static final int MAGIA = 0x4A425054;
+    private static final int VERSION = 1;
+    static final int TAMAÑO_PAGINA = 4096;
+    private static final int TAMAÑO_CABECERA_NODO = 4 * Integer.BYTES;
+    private static final int HOJA = 1;
+    private static final int INTERNO = 2;
+    private static final int OFFSET_TIPO = 0;
+    private static final int OFFSET_NUMERO = Integer.BYTES;
+    private static final int OFFSET_SIGUIENTE = 2 * Integer.BYTES;
+    private static final int OFFSET_PRIMER_HIJO = 2 * Integer.BYTES;
+    private static final int TAMAÑO_PAR_INTERNO = 2 * Integer.BYTES;
+    private static final int CAPACIDAD_INTERNO = (TAMAÑO_PAGINA - TAMAÑO_CABECERA_NODO) / TAMAÑO_PAR_INTERNO;
+    private static final int PAGINAS_POR_ESCRITURA = 64;
+
+    private final FileChannel canal;
+    private final GrupoBuffers grupo;
+    private final GrupoBuffers.ArchivoPaginado paginado;
+    private final int tamañoValor;
+    private final int tamañoEntrada;
+    private final int capacidadHoja;
+    private final Map<Integer, ByteBuffer> internos = new HashMap<>();
+    private final ByteBuffer hoja = ByteBuffer.allocate(TAMAÑO_PAGINA);
+    private int raiz;
+    private int altura;
+    private int numeroPaginas;
+    private int primeraHoja;
+
+    private ArbolBMas(FileChannel canal, int tamañoValor, GrupoBuffers grupo) {
+        this.canal = canal;
+        this.grupo = grupo;
+        this.paginado = grupo == null ? null : grupo.registrar(canal);
+        this.tamañoValor = tamañoValor;
+        this.tamañoEntrada = Integer.BYTES + tamañoValor;
+        this.capacidadHoja = (TAMAÑO_PAGINA - TAMAÑO_CABECERA_NODO) / tamañoEntrada;
+    }
+
+    /**
+     * Abre un árbol existente o crea uno vacío si el archivo no existe o está vacío.
+     *
+     * @param archivo     Archivo del árbol.
+     * @param tamañoValor Tamaño en bytes del valor de cada clave; debe coincidir con el del archivo.
+     * @return El árbol abierto.
+     * @throws IOException Si ocurre un error al acceder al archivo o si no tiene el formato esperado.
+     */
+    static ArbolBMas abrir(File archivo, int tamañoValor) throws IOException {
+        return abrir(archivo, tamañoValor, null);
+    }
+
+    /**
+     * Abre un árbol existente o crea uno vacío, leyendo y escribiendo sus páginas a través de un grupo de buffers.
+     *
+     * @param archivo     Archivo del árbol.
+     * @param tamañoValor Tamaño en bytes del valor de cada clave; debe coincidir con el del archivo.
+     * @param grupo       Grupo de buffers compartido, o null para leer y escribir directamente en el archivo.
+     * @return El árbol abierto.
+     * @throws IOException Si ocurre un error al acceder al archivo o si no tiene el formato esperado.
+     */
+    static ArbolBMas abrir(File archivo, int tamañoValor, GrupoBuffers grupo) throws IOException {
+        if (tamañoValor < 0 || Integer.BYTES + tamañoValor > (TAMAÑO_PAGINA - TAMAÑO_CABECERA_NODO) / 2) {
+            throw new IllegalArgumentException("Tamaño de valor no válido: " + tamañoValor);
+        }
+        FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ArbolBMas arbol = new ArbolBMas(canal, tamañoValor, grupo);
+        try {
+            if (canal.size() == 0) {
+                arbol.vaciar();
+            } else {
+                arbol.leerCabecera();
+            }
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+        return arbol;
+    }
+
+    /**
+     * Busca una clave y copia su valor en el buffer, a partir de su posición.
+     *
+     * @param clave Clave buscada.
+     * @param valor Buffer con sitio para el valor.
+     * @return true si la clave existe.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    boolean buscar(int clave, ByteBuffer valor) throws IOException {
+        leerPagina(hoja, buscarHoja(clave, null));
+        int indice = buscarEnHoja(hoja, clave);
+        if (indice < 0) {
+            return false;
+        }
+        valor.put(hoja.duplicate().position(posicionValor(indice)).limit(posicionValor(indice) + tamañoValor));
+        return true;
+    }
+
+    /**
+     * Inserta una clave nueva con su valor, dividiendo la hoja y los internos que se llenen.
+     *
+     * @param clave Clave a insertar.
+     * @param valor Buffer con el valor entre su posición y su límite.
+     * @return true si se insertó, false si la clave ya existía.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    boolean insertar(int clave, ByteBuffer valor) throws IOException {
+        int[] camino = new int[altura];
+        int numeroHoja = buscarHoja(clave, camino);
+        leerPagina(hoja, numeroHoja);
+        int indice = buscarEnHoja(hoja, clave);
+        if (indice >= 0) {
+            return false;
+        }
+        int posicion = -indice - 1;
+        int entradas = hoja.getInt(OFFSET_NUMERO);
+        if (entradas < capacidadHoja) {
+            desplazar(hoja, posicionEntrada(posicion), posicionEntrada(posicion + 1), (entradas - posicion) * tamañoEntrada);
+            ponerEntrada(hoja, posicion, clave, valor);
+            hoja.putInt(OFFSET_NUMERO, entradas + 1);
+            escribirPagina(hoja, numeroHoja);
+            return true;
+        }
+        ByteBuffer todas = ByteBuffer.allocate((entradas + 1) * tamañoEntrada);
+        todas.put(hoja.duplicate().position(posicionEntrada(0)).limit(posicionEntrada(posicion)));
+        todas.putInt(clave).put(valor.duplicate());
+        todas.put(hoja.duplicate().position(posicionEntrada(posicion)).limit(posicionEntrada(entradas)));
+        int izquierda = (entradas + 1) / 2;
+        int numeroNueva = reservarPagina();
+        ByteBuffer nueva = ByteBuffer.allocate(TAMAÑO_PAGINA);
+        nueva.putInt(OFFSET_TIPO, HOJA);
+        nueva.putInt(OFFSET_NUMERO, entradas + 1 - izquierda);
+        nueva.putInt(OFFSET_SIGUIENTE, hoja.getInt(OFFSET_SIGUIENTE));
+        nueva.put(posicionEntrada(0), todas, izquierda * tamañoEntrada, (entradas + 1 - izquierda) * tamañoEntrada);
+        hoja.put(posicionEntrada(0), todas, 0, izquierda * tamañoEntrada);
+        hoja.putInt(OFFSET_NUMERO, izquierda);
+        hoja.putInt(OFFSET_SIGUIENTE, numeroNueva);
+        escribirPagina(nueva, numeroNueva);
+        escribirPagina(hoja, numeroHoja);
+        insertarEnInterno(camino, altura - 2, nueva.getInt(posicionEntrada(0)), numeroNueva);
+        return true;
+    }
+
+    /**
+     * Sustituye el valor de una clave existente.
+     *
+     * @param clave Clave a modificar.
+     * @param valor Buffer con el nuevo valor entre su posición y su límite.
+     * @return true si la clave existía.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    boolean reemplazar(int clave, ByteBuffer valor) throws IOException {
+        int numeroHoja = buscarHoja(clave, null);
+        leerPagina(hoja, numeroHoja);
+        int indice = buscarEnHoja(hoja, clave);
+        if (indice < 0) {
+            return false;
+        }
+        ponerEntrada(hoja, indice, clave, valor);
+        escribirPagina(hoja, numeroHoja);
+        return true;
+    }
+
+    /**
+     * Quita una clave de su hoja.
+     *
+     * @param clave Clave a eliminar.
+     * @return true si la clave existía.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    boolean eliminar(int clave) throws IOException {
+        int numeroHoja = buscarHoja(clave, null);
+        leerPagina(hoja, numeroHoja);
+        int indice = buscarEnHoja(hoja, clave);
+        if (indice < 0) {
+            return false;
+        }
+        int entradas = hoja.getInt(OFFSET_NUMERO);
+        desplazar(hoja, posicionEntrada(indice + 1), posicionEntrada(indice), (entradas - indice - 1) * tamañoEntrada);
+        hoja.putInt(OFFSET_NUMERO, entradas - 1);
+        escribirPagina(hoja, numeroHoja);
+        return true;
+    }
+
+    /**
+     * Recorre en orden las claves de un rango siguiendo los enlaces entre hojas. El recorrido usa su propio buffer,
+     * así que el visitante puede modificar el árbol, aunque las hojas ya leídas no reflejan esos cambios.
+     *
+     * @param desde     Primera clave del rango.
+     * @param hasta     Última clave del rango, incluida.
+     * @param visitante Visitante que recibe cada entrada. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer el archivo o al visitar una entrada.
+     */
+    void recorrer(int desde, int hasta, Visitante visitante) throws IOException {
+        if (desde > hasta) {
+            return;
+        }
+        ByteBuffer actual = ByteBuffer.allocate(TAMAÑO_PAGINA);
+        int numero = buscarHoja(desde, null);
+        leerPagina(actual, numero);
+        int indice = buscarEnHoja(actual, desde);
+        indice = indice >= 0 ? indice : -indice - 1;
+        while (true) {
+            int entradas = actual.getInt(OFFSET_NUMERO);
+            for (; indice < entradas; indice++) {
+                if (actual.getInt(posicionEntrada(indice)) > hasta || !visitante.visitar(actual, posicionValor(indice))) {
+                    return;
+                }
+            }
+            numero = actual.getInt(OFFSET_SIGUIENTE);
+            if (numero == 0) {
+                return;
+            }
+            leerPagina(actual, numero);
+            indice = 0;
+        }
+    }
+
+    /**
+     * Construye el árbol a partir de entradas con claves estrictamente crecientes. Escribe las hojas llenas
+     * y consecutivas en bloques de páginas y después cada nivel de internos a partir del anterior.
+     *
+     * @param fuente Fuente de las entradas ordenadas.
+     * @return Número de entradas cargadas.
+     * @throws IOException Si el árbol no está vacío, si las claves no son crecientes o si ocurre un error al escribir.
+     */
+    long cargarOrdenado(Fuente fuente) throws IOException {
+        if (!estaVacio()) {
+            throw new IOException("Solo se puede cargar un árbol vacío");
+        }
+        truncar(TAMAÑO_PAGINA);
+        internos.clear();
+        numeroPaginas = 1;
+        NivelEnConstruccion nivel = new NivelEnConstruccion();
+        ByteBuffer bloque = ByteBuffer.allocate(TAMAÑO_PAGINA * PAGINAS_POR_ESCRITURA);
+        ByteBuffer entrada = ByteBuffer.allocate(tamañoEntrada);
+        long cargadas = 0;
+        long anterior = Long.MIN_VALUE;
+        int enHoja = 0;
+        int paginasEnBloque = 0;
+        int primeraDelBloque = 1;
+        while (true) {
+            entrada.clear();
+            boolean hay = fuente.siguiente(entrada);
+            if (hay) {
+                int clave = entrada.getInt(0);
+                if (clave <= anterior) {
+                    vaciar();
+                    throw new IOException("Las claves de la carga ordenada deben ser estrictamente crecientes");
+                }
+                anterior = clave;
+            }
+            if (enHoja == capacidadHoja || !hay && enHoja > 0) {
+                int inicio = paginasEnBloque * TAMAÑO_PAGINA;
+                bloque.putInt(inicio + OFFSET_TIPO, HOJA);
+                bloque.putInt(inicio + OFFSET_NUMERO, enHoja);
+                bloque.putInt(inicio + OFFSET_SIGUIENTE, hay ? numeroPaginas + 1 : 0);
+                nivel.agregar(bloque.getInt(inicio + posicionEntrada(0)), numeroPaginas++);
+                enHoja = 0;
+                if (++paginasEnBloque == PAGINAS_POR_ESCRITURA || !hay) {
+                    escribirBloque(bloque, paginasEnBloque, primeraDelBloque);
+                    primeraDelBloque = numeroPaginas;
+                    paginasEnBloque = 0;
+                }
+            }
+            if (!hay) {
+                break;
+            }
+            int inicio = paginasEnBloque * TAMAÑO_PAGINA;
+            if (enHoja == 0) {
+                bloque.put(inicio, new byte[TAMAÑO_PAGINA]);
+            }
+            bloque.put(inicio + posicionEntrada(enHoja++), entrada, 0, tamañoEntrada);
+            cargadas++;
+        }
+        if (cargadas == 0) {
+            vaciar();
+            return 0;
+        }
+        primeraHoja = 1;
+        altura = 1;
+        while (nivel.numero > 1) {
+            nivel = construirNivelInterno(nivel);
+            altura++;
+        }
+        raiz = nivel.paginas[0];
+        guardarCabecera();
+        return cargadas;
+    }
+
+    /**
+     * Indica si el árbol no tiene ninguna clave, lo que solo se comprueba en la primera hoja si el árbol
+     * tiene un único nivel.
+     */
+    boolean estaVacio() throws IOException {
+        if (altura > 1) {
+            return false;
+        }
+        leerPagina(hoja, raiz);
+        return hoja.getInt(OFFSET_NUMERO) == 0;
+    }
+
+    int getAltura() {
+        return altura;
+    }
+
+    int getNumeroPaginas() {
+        return numeroPaginas;
+    }
+
+    int getTamañoValor() {
+        return tamañoValor;
+    }
+
+    void sincronizar() throws IOException {
+        if (grupo != null) {
+            grupo.escribirModificadas(paginado);
+        }
+        canal.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (grupo != null) {
+                grupo.olvidar(paginado);
+            }
+        } finally {
+            canal.close();
+        }
+    }
+
+    /**
+     * Baja desde la raíz por los internos en memoria hasta la hoja que contiene o debería contener la clave.
+     *
+     * @param camino Si no es null, recibe la página de cada interno visitado, desde la raíz.
+     * @return Número de página de la hoja.
+     */
+    private int buscarHoja(int clave, int[] camino) throws IOException {
+        int numero = raiz;
+        for (int nivel = 0; nivel < altura - 1; nivel++) {
+            if (camino != null) {
+                camino[nivel] = numero;
+            }
+            ByteBuffer nodo = interno(numero);
+            int claves = nodo.getInt(OFFSET_NUMERO);
+            int hijo = limiteSuperior(nodo, claves, clave);
+            numero = hijoDe(nodo, hijo);
+        }
+        return numero;
+    }
+
+    /**
+     * Inserta en el interno de un nivel del camino el separador de un hijo nuevo, dividiendo el interno si está lleno.
+     * Si el nivel es -1 se ha dividido la raíz y se crea una nueva.
+     */
+    private void insertarEnInterno(int[] camino, int nivel, int clave, int hijoDerecho) throws IOException {
+        if (nivel < 0) {
+            int numeroRaiz = reservarPagina();
+            ByteBuffer nodo = ByteBuffer.allocate(TAMAÑO_PAGINA);
+            nodo.putInt(OFFSET_TIPO, INTERNO);
+            nodo.putInt(OFFSET_NUMERO, 1);
+            nodo.putInt(OFFSET_PRIMER_HIJO, raiz);
+            nodo.putInt(posicionPar(0), clave);
+            nodo.putInt(posicionPar(0) + Integer.BYTES, hijoDerecho);
+            escribirInterno(nodo, numeroRaiz);
+            raiz = numeroRaiz;
+            altura++;
+            guardarCabecera();
+            return;
+        }
+        int numero = camino[nivel];
+        ByteBuffer nodo = interno(numero);
+        int claves = nodo.getInt(OFFSET_NUMERO);
+        int posicion = limiteSuperior(nodo, claves, clave);
+        if (claves < CAPACIDAD_INTERNO) {
+            desplazar(nodo, posicionPar(posicion), posicionPar(posicion + 1), (claves - posicion) * TAMAÑO_PAR_INTERNO);
+            nodo.putInt(posicionPar(posicion), clave);
+            nodo.putInt(posicionPar(posicion) + Integer.BYTES, hijoDerecho);
+            nodo.putInt(OFFSET_NUMERO, claves + 1);
+            escribirInterno(nodo, numero);
+            return;
+        }
+        ByteBuffer pares = ByteBuffer.allocate((claves + 1) * TAMAÑO_PAR_INTERNO);
+        pares.put(nodo.duplicate().position(posicionPar(0)).limit(posicionPar(posicion)));
+        pares.putInt(clave).putInt(hijoDerecho);
+        pares.put(nodo.duplicate().position(posicionPar(posicion)).limit(posicionPar(claves)));
+        int izquierda = (claves + 1) / 2;
+        int promovida = pares.getInt(izquierda * TAMAÑO_PAR_INTERNO);
+        int derecha = claves - izquierda;
+        int numeroNuevo = reservarPagina();
+        ByteBuffer nuevo = ByteBuffer.allocate(TAMAÑO_PAGINA);
+        nuevo.putInt(OFFSET_TIPO, INTERNO);
+        nuevo.putInt(OFFSET_NUMERO, derecha);
+        nuevo.putInt(OFFSET_PRIMER_HIJO, pares.getInt(izquierda * TAMAÑO_PAR_INTERNO + Integer.BYTES));
+        nuevo.put(posicionPar(0), pares, (izquierda + 1) * TAMAÑO_PAR_INTERNO, derecha * TAMAÑO_PAR_INTERNO);
+        nodo.put(posicionPar(0), pares, 0, izquierda * TAMAÑO_PAR_INTERNO);
+        nodo.putInt(OFFSET_NUMERO, izquierda);
+        escribirInterno(nuevo, numeroNuevo);
+        escribirInterno(nodo, numero);
+        insertarEnInterno(camino, nivel - 1, promovida, numeroNuevo);
+    }
+
+    /**
+     * Escribe un nivel de internos llenos sobre los nodos del nivel anterior y devuelve sus primeras claves y páginas.
+     */
+    private NivelEnConstruccion construirNivelInterno(NivelEnConstruccion inferior) throws IOException {
+        NivelEnConstruccion nivel = new NivelEnConstruccion();
+        int hijo = 0;
+        while (hijo < inferior.numero) {
+            int hijos = Math.min(CAPACIDAD_INTERNO + 1, inferior.numero - hijo);
+            if (inferior.numero - hijo - hijos == 1) {
+                hijos--;
+            }
+            ByteBuffer nodo = ByteBuffer.allocate(TAMAÑO_PAGINA);
+            nodo.putInt(OFFSET_TIPO, INTERNO);
+            nodo.putInt(OFFSET_NUMERO, hijos - 1);
+            nodo.putInt(OFFSET_PRIMER_HIJO, inferior.paginas[hijo]);
+            for (int i = 1; i < hijos; i++) {
+                nodo.putInt(posicionPar(i - 1), inferior.claves[hijo + i]);
+                nodo.putInt(posicionPar(i - 1) + Integer.BYTES, inferior.paginas[hijo + i]);
+            }
+            int numero = reservarPagina();
+            escribirInterno(nodo, numero);
+            nivel.agregar(inferior.claves[hijo], numero);
+            hijo += hijos;
+        }
+        return nivel;
+    }
+
+    /**
+     * Devuelve un interno desde la memoria o, la primera vez, desde el disco.
+     */
+    private ByteBuffer interno(int numero) throws IOException {
+        ByteBuffer nodo = internos.get(numero);
+        if (nodo == null) {
+            nodo = ByteBuffer.allocate(TAMAÑO_PAGINA);
+            leerPagina(nodo, numero);
+            if (nodo.getInt(OFFSET_TIPO) != INTERNO) {
+                throw new IOException("La página " + numero + " no es un nodo interno");
+            }
+            internos.put(numero, nodo);
+        }
+        return nodo;
+    }
+
+    private void escribirInterno(ByteBuffer nodo, int numero) throws IOException {
+        internos.put(numero, nodo);
+        escribirPagina(nodo, numero);
+    }
+
+    /**
+     * Busca una clave en una hoja con búsqueda binaria.
+     *
+     * @return Índice de la entrada, o -(posición de inserción) - 1 si no está.
+     */
+    private int buscarEnHoja(ByteBuffer pagina, int clave) {
+        int inferior = 0;
+        int superior = pagina.getInt(OFFSET_NUMERO) - 1;
+        while (inferior <= superior) {
+            int medio = (inferior + superior) >>> 1;
+            int valor = pagina.getInt(posicionEntrada(medio));
+            if (valor < clave) {
+                inferior = medio + 1;
+            } else if (valor > clave) {
+                superior = medio - 1;
+            } else {
+                return medio;
+            }
+        }
+        return -inferior - 1;
+    }
+
+    /**
+     * Devuelve el número de claves de un interno menores o iguales que la buscada, que es el índice del hijo
+     * que la contiene y la posición en la que se inserta un separador nuevo.
+     */
+    private static int limiteSuperior(ByteBuffer nodo, int claves, int clave) {
+        int inferior = 0;
+        int superior = claves;
+        while (inferior < superior) {
+            int medio = (inferior + superior) >>> 1;
+            if (nodo.getInt(posicionPar(medio)) <= clave) {
+                inferior = medio + 1;
+            } else {
+                superior = medio;
+            }
+        }
+        return inferior;
+    }
+
+    private static int hijoDe(ByteBuffer nodo, int indice) {
+        return indice == 0 ? nodo.getInt(OFFSET_PRIMER_HIJO) : nodo.getInt(posicionPar(indice - 1) + Integer.BYTES);
+    }
+
+    private static int posicionPar(int indice) {
+        return TAMAÑO_CABECERA_NODO + indice * TAMAÑO_PAR_INTERNO;
+    }
+
+    private int posicionEntrada(int indice) {
+        return TAMAÑO_CABECERA_NODO + indice * tamañoEntrada;
+    }
+
+    private int posicionValor(int indice) {
+        return posicionEntrada(indice) + Integer.BYTES;
+    }
+
+    private void ponerEntrada(ByteBuffer pagina, int indice, int clave, ByteBuffer valor) {
+        pagina.putInt(posicionEntrada(indice), clave);
+        pagina.put(posicionValor(indice), valor, valor.position(), tamañoValor);
+    }
+
+    private static void desplazar(ByteBuffer pagina, int origen, int destino, int longitud) {
+        if (longitud > 0) {
+            byte[] datos = pagina.array();
+            System.arraycopy(datos, origen, datos, destino, longitud);
+        }
+    }
+
+    private int reservarPagina() throws IOException {
+        int numero = numeroPaginas++;
+        guardarCabecera();
+        return numero;
+    }
+
+    /**
+     * Deja el árbol con una sola hoja vacía.
+     */
+    private void vaciar() throws IOException {
+        truncar(0);
+        internos.clear();
+        ByteBuffer vacia = ByteBuffer.allocate(TAMAÑO_PAGINA);
+        vacia.putInt(OFFSET_TIPO, HOJA);
+        escribirPagina(vacia, 1);
+        raiz = 1;
+        primeraHoja = 1;
+        altura = 1;
+        numeroPaginas = 2;
+        guardarCabecera();
+    }
+
+    private void guardarCabecera() throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(8 * Integer.BYTES);
+        cabecera.putInt(MAGIA).putInt(VERSION).putInt(TAMAÑO_PAGINA).putInt(tamañoValor)
+                .putInt(raiz).putInt(altura).putInt(numeroPaginas).putInt(primeraHoja);
+        cabecera.flip();
+        while (cabecera.hasRemaining()) {
+            canal.write(cabecera, cabecera.position());
+        }
+    }
+
+    private void leerCabecera() throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(8 * Integer.BYTES);
+        leer(cabecera, 0);
+        if (cabecera.getInt(0) != MAGIA || cabecera.getInt(4) != VERSION || cabecera.getInt(8) != TAMAÑO_PAGINA) {
+            throw new IOException("El archivo no tiene el formato de árbol B+ esperado");
+        }
+        if (cabecera.getInt(12) != tamañoValor) {
+            throw new IOException("El árbol guarda valores de " + cabecera.getInt(12) + " bytes, no de " + tamañoValor);
+        }
+        raiz = cabecera.getInt(16);
+        altura = cabecera.getInt(20);
+        numeroPaginas = cabecera.getInt(24);
+        primeraHoja = cabecera.getInt(28);
+        if (altura < 1 || raiz < 1 || raiz >= numeroPaginas || (long) numeroPaginas * TAMAÑO_PAGINA > canal.size()) {
+            throw new IOException("Cabecera de árbol B+ no válida");
+        }
+    }
+
+    /**
+     * Trunca el archivo después de quitar sus páginas del grupo, para que ninguna escritura pendiente
+     * lo vuelva a alargar.
+     */
+    private void truncar(long tamaño) throws IOException {
+        if (grupo != null) {
+            grupo.descartar(paginado);
+        }
+        canal.truncate(tamaño);
+    }
+
+    private void leerPagina(ByteBuffer pagina, int numero) throws IOException {
+        pagina.clear();
+        if (grupo != null) {
+            try (GrupoBuffers.Pagina enGrupo = grupo.fijar(paginado, numero)) {
+                pagina.put(enGrupo.datos());
+            }
+            return;
+        }
+        leer(pagina, (long) numero * TAMAÑO_PAGINA);
+    }
+
+    private void leer(ByteBuffer buffer, long posicion) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, posicion + buffer.position()) < 0) {
+                throw new IOException("Fin de archivo inesperado en el árbol B+");
+            }
+        }
+    }
+
+    private void escribirPagina(ByteBuffer pagina, int numero) throws IOException {
+        ByteBuffer datos = pagina.duplicate().clear();
+        if (grupo != null) {
+            try (GrupoBuffers.Pagina enGrupo = grupo.fijar(paginado, numero)) {
+                enGrupo.datos().put(datos);
+                enGrupo.modificada();
+            }
+            return;
+        }
+        long posicion = (long) numero * TAMAÑO_PAGINA;
+        while (datos.hasRemaining()) {
+            posicion += canal.write(datos, posicion);
+        }
+    }
+
+    private void escribirBloque(ByteBuffer bloque, int paginas, int primera) throws IOException {
+        ByteBuffer datos = bloque.duplicate().clear().limit(paginas * TAMAÑO_PAGINA);
+        long posicion = (long) primera * TAMAÑO_PAGINA;
+        while (datos.hasRemaining()) {
+            posicion += canal.write(datos, posicion);
+        }
+    }
+
+    /**
+     * Recibe las entradas de un recorrido.
+     */
+    @FunctionalInterface
+    interface Visitante {
+
+        /**
+         * Recibe una entrada.
+         *
+         * @param pagina        Página de la hoja, que solo es válida durante la llamada.
+         * @param posicionValor Posición del valor de la entrada dentro de la página.
+         * @return true para seguir con la entrada siguiente.
+         */
+        boolean visitar(ByteBuffer pagina, int posicionValor) throws IOException;
+    }
+
+    /**
+     * Entradas ordenadas para cargarOrdenado.
+     */
+    @FunctionalInterface
+    interface Fuente {
+
+        /**
+         * Escribe en el buffer la clave y el valor de la siguiente entrada.
+         *
+         * @param entrada Buffer vacío del tamaño de una entrada.
+         * @return true si había otra entrada, false si no quedan.
+         */
+        boolean siguiente(ByteBuffer entrada) throws IOException;
+    }
+
+    /**
+     * Primera clave y página de cada nodo de un nivel, mientras se construye el nivel superior.
+     */
+    private static final class NivelEnConstruccion {
+
+        private int[] claves = new int[64];
+        private int[] paginas = new int[64];
+        private int numero;
+
+        void agregar(int clave, int pagina) {
+            if (numero == claves.length) {
+                claves = Arrays.copyOf(claves, numero * 2);
+                paginas = Arrays.copyOf(paginas, numero * 2);
+            }
+            claves[numero] = clave;
+            paginas[numero++] = pagina;
+        }
+    }
+}
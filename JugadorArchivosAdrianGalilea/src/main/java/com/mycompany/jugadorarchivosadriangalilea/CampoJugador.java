@@ -0,0 +1,43 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+/**
+ * Enumeración con los campos de un Jugador que se pueden usar en consultas para filtrar, ordenar o proyectar.
+ */
+public enum CampoJugador {
+    ID,
+    NICK,
+    EXPERIENCE,
+    LIFE_LEVEL,
+    COINS;
+
+    /**
+     * Indica si el campo es numérico (todos salvo el nick).
+     *
+     * @return true si el campo es un entero.
+     */
+    public boolean esNumerico() {
+        return this != NICK;
+    }
+
+    /**
+     * Devuelve el valor entero del campo para un jugador.
+     *
+     * @param jugador Jugador del que se obtiene el valor.
+     * @return El valor del campo.
+     * @throws IllegalStateException Si el campo no es numérico.
+     */
+    public int valor(Jugador jugador) {
+        switch (this) {
+            case ID:
+                return jugador.getId();
+            case EXPERIENCE:
+                return jugador.getExperience();
+            case LIFE_LEVEL:
+                return jugador.getLifeLevel();
+            case COINS:
+                return jugador.getCoins();
+            default:
+                throw new IllegalStateException("El campo " + this + " no es numérico");
+        }
+    }
+}
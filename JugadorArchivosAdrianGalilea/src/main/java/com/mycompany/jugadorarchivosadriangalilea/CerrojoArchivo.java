@@ -0,0 +1,467 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cerrojo entre procesos sobre un almacén, hecho con los cerrojos de rango de FileChannel sobre un archivo junto al
+ * de datos con extensión ".lock". Se bloquea ese archivo y no el de datos porque los backends que reescriben el
+ * archivo completo lo sustituyen con un renombrado, y un cerrojo sobre la versión anterior no protegería a la nueva.
+ * El archivo ".lock" no se borra nunca: si se borrara mientras otro proceso lo tiene abierto, cada uno bloquearía
+ * un archivo distinto.
+ *
+ * Cada byte del archivo ".lock" a partir de INICIO_DATOS representa el byte del archivo de datos en la misma
+ * posición, de modo que GestionAccesoAleatorio bloquea solo los registros que toca y dos procesos que trabajan con
+ * jugadores distintos no se esperan; GestionConBloqueos bloquea el rango entero, compartido para leer y exclusivo
+ * para escribir. Los bytes anteriores guardan el torno del modo EQUITATIVO y un contador de bajas.
+ *
+ * En modo PREFERENCIA_LECTORES un lector entra siempre que no haya un escritor dentro, aunque haya escritores
+ * esperando, así que con lecturas continuas un escritor puede esperar indefinidamente. En modo EQUITATIVO todos
+ * pasan antes por un torno exclusivo y un escritor lo retiene hasta conseguir su cerrojo: los lectores que llegan
+ * después esperan detrás de él. Dentro del proceso, en modo EQUITATIVO las peticiones que se solapan se atienden
+ * en orden de llegada.
+ *
+ * La JVM no admite dos cerrojos solapados sobre el mismo archivo, ni siquiera desde hilos distintos, así que el
+ * propio cerrojo reparte los rangos dentro del proceso: los bloqueos compartidos de un mismo rango comparten el
+ * FileLock y el resto espera. Un hilo que ya tiene un rango puede pedir otro contenido en él, por ejemplo un registro
+ * mientras tiene bloqueado todo el archivo, sin esperarse a sí mismo; lo que no puede es pasar de compartido a
+ * exclusivo. Solo debe haber un CerrojoArchivo por almacén en cada proceso: en POSIX, cerrar cualquier descriptor
+ * del archivo ".lock" suelta todos los cerrojos que el proceso tiene sobre él.
+ *
+ * Mide el tiempo de espera de cada bloqueo, compartido o exclusivo, y cuenta los que tuvieron que esperar a otro
+ * hilo o a otro proceso.
+ */
+public final class CerrojoArchivo implements AutoCloseable {
+
+    /**
+     * Política de espera entre lectores y escritores.
+     */
+    public enum Modo {
+        PREFERENCIA_LECTORES,
+        EQUITATIVO
+    }
+
+    static final long INICIO_DATOS = 64;
+    private static final long POSICION_TORNO = 0;
+    private static final long POSICION_BAJAS = Long.BYTES;
+
+    private final File archivo;
+    private final FileChannel canal;
+    private final Modo modo;
+    private final ReentrantLock torno = new ReentrantLock(true);
+    private final List<Rango> concedidos = new ArrayList<>();
+    private final List<Rango> pendientes = new ArrayList<>();
+    private final ThreadLocal<List<Rango>> delHilo = ThreadLocal.withInitial(ArrayList::new);
+    private final HistogramaLatencias esperasCompartidas = new HistogramaLatencias();
+    private final HistogramaLatencias esperasExclusivas = new HistogramaLatencias();
+    private long disputados;
+
+    /**
+     * Constructor de la clase CerrojoArchivo. Abre el archivo ".lock" del almacén, o lo crea si no existe.
+     *
+     * @param rutaDatos Ruta del archivo de datos del almacén.
+     * @param modo      Política de espera entre lectores y escritores.
+     * @throws IOException Si ocurre un error al abrir o crear el archivo.
+     */
+    public CerrojoArchivo(String rutaDatos, Modo modo) throws IOException {
+        this.archivo = new File(rutaDatos + ".lock");
+        this.modo = modo;
+        this.canal = FileChannel.open(archivo.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Bloquea todo el archivo de datos en modo compartido.
+     *
+     * @return Bloqueo que se suelta al cerrarlo.
+     * @throws IOException Si ocurre un error al bloquear o si se interrumpe la espera.
+     */
+    public Bloqueo bloquearLectura() throws IOException {
+        return bloquearRegion(0, Long.MAX_VALUE, true);
+    }
+
+    /**
+     * Bloquea todo el archivo de datos en modo exclusivo.
+     *
+     * @return Bloqueo que se suelta al cerrarlo.
+     * @throws IOException Si ocurre un error al bloquear o si se interrumpe la espera.
+     */
+    public Bloqueo bloquearEscritura() throws IOException {
+        return bloquearRegion(0, Long.MAX_VALUE, false);
+    }
+
+    /**
+     * Bloquea un rango del archivo de datos. El rango puede ir más allá del final del archivo, por ejemplo
+     * para reservar el final antes de añadir registros.
+     *
+     * @param posicion   Posición del primer byte en el archivo de datos.
+     * @param tamaño     Número de bytes; se recorta si pasa del mayor rango posible.
+     * @param compartido true para un bloqueo compartido, false para uno exclusivo.
+     * @return Bloqueo que se suelta al cerrarlo.
+     * @throws IOException Si ocurre un error al bloquear o si se interrumpe la espera.
+     */
+    public Bloqueo bloquearRegion(long posicion, long tamaño, boolean compartido) throws IOException {
+        if (posicion < 0 || tamaño <= 0) {
+            throw new IllegalArgumentException("Rango no válido: " + posicion + ", " + tamaño);
+        }
+        long inicio = INICIO_DATOS + Math.min(posicion, Long.MAX_VALUE - INICIO_DATOS - 1);
+        return bloquear(inicio, inicio + Math.min(tamaño, Long.MAX_VALUE - inicio), compartido);
+    }
+
+    /**
+     * Ejecuta una operación con todo el archivo de datos bloqueado en modo compartido y suelta el bloqueo al terminar.
+     *
+     * @param operacion Operación a ejecutar.
+     * @return El resultado de la operación.
+     * @throws IOException Si ocurre un error al bloquear, si se interrumpe la espera o si falla la operación.
+     */
+    public <T> T conLectura(Operacion<T> operacion) throws IOException {
+        return conBloqueo(0, Long.MAX_VALUE, true, operacion);
+    }
+
+    /**
+     * Ejecuta una operación con todo el archivo de datos bloqueado en modo exclusivo y suelta el bloqueo al terminar.
+     *
+     * @param operacion Operación a ejecutar.
+     * @return El resultado de la operación.
+     * @throws IOException Si ocurre un error al bloquear, si se interrumpe la espera o si falla la operación.
+     */
+    public <T> T conEscritura(Operacion<T> operacion) throws IOException {
+        return conBloqueo(0, Long.MAX_VALUE, false, operacion);
+    }
+
+    /**
+     * Ejecuta una operación con un rango del archivo de datos bloqueado y suelta el bloqueo al terminar.
+     *
+     * @param posicion   Posición del primer byte en el archivo de datos.
+     * @param tamaño     Número de bytes; se recorta si pasa del mayor rango posible.
+     * @param compartido true para un bloqueo compartido, false para uno exclusivo.
+     * @param operacion  Operación a ejecutar.
+     * @return El resultado de la operación.
+     * @throws IOException Si ocurre un error al bloquear, si se interrumpe la espera o si falla la operación.
+     */
+    public <T> T conBloqueo(long posicion, long tamaño, boolean compartido, Operacion<T> operacion) throws IOException {
+        Bloqueo bloqueo = bloquearRegion(posicion, tamaño, compartido);
+        try {
+            return operacion.ejecutar();
+        } finally {
+            bloqueo.close();
+        }
+    }
+
+    /**
+     * Lee el contador de bajas que llevan los procesos que comparten el almacén. La lectura no se bloquea:
+     * sirve para saber si el contador ha cambiado desde la última vez que se leyó.
+     *
+     * @return Número de bajas anotadas, o 0 si no se ha anotado ninguna.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    long leerBajas() throws IOException {
+        ByteBuffer contador = ByteBuffer.allocate(Long.BYTES);
+        while (contador.hasRemaining()) {
+            if (canal.read(contador, POSICION_BAJAS + contador.position()) < 0) {
+                return 0;
+            }
+        }
+        return contador.getLong(0);
+    }
+
+    /**
+     * Suma una baja al contador con el rango del contador bloqueado en exclusiva.
+     *
+     * @return El valor del contador antes de sumar.
+     * @throws IOException Si ocurre un error al bloquear, leer o escribir el archivo.
+     */
+    long anotarBaja() throws IOException {
+        Bloqueo bloqueo = bloquear(POSICION_BAJAS, POSICION_BAJAS + Long.BYTES, false);
+        try {
+            long bajas = leerBajas();
+            ByteBuffer contador = ByteBuffer.allocate(Long.BYTES).putLong(0, bajas + 1);
+            while (contador.hasRemaining()) {
+                canal.write(contador, POSICION_BAJAS + contador.position());
+            }
+            return bajas;
+        } finally {
+            bloqueo.close();
+        }
+    }
+
+    public Modo getModo() {
+        return modo;
+    }
+
+    /**
+     * Devuelve una copia del histograma con las esperas de los bloqueos compartidos, en nanosegundos.
+     */
+    public synchronized HistogramaLatencias getEsperasCompartidas() {
+        HistogramaLatencias copia = new HistogramaLatencias();
+        copia.combinar(esperasCompartidas);
+        return copia;
+    }
+
+    /**
+     * Devuelve una copia del histograma con las esperas de los bloqueos exclusivos, en nanosegundos.
+     */
+    public synchronized HistogramaLatencias getEsperasExclusivas() {
+        HistogramaLatencias copia = new HistogramaLatencias();
+        copia.combinar(esperasExclusivas);
+        return copia;
+    }
+
+    /**
+     * Devuelve el número de bloqueos que no se concedieron al momento porque otro hilo u otro proceso
+     * tenía un rango que se solapaba.
+     */
+    public synchronized long getBloqueosDisputados() {
+        return disputados;
+    }
+
+    /**
+     * Cierra el archivo ".lock", lo que suelta los cerrojos que queden.
+     *
+     * @throws IOException Si ocurre un error al cerrar el archivo.
+     */
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    private Bloqueo bloquear(long inicio, long fin, boolean compartido) throws IOException {
+        List<Rango> propios = delHilo.get();
+        for (Rango propio : propios) {
+            if (propio.cubre(inicio, fin) && (compartido || !propio.compartido)) {
+                return Bloqueo.NINGUNO;
+            }
+            if (propio.solapa(inicio, fin)) {
+                throw new IllegalStateException("El hilo ya tiene un bloqueo que se solapa con el rango pedido de " + archivo);
+            }
+        }
+        long comienzo = System.nanoTime();
+        Rango peticion = new Rango(inicio, fin, compartido, !propios.isEmpty());
+        Rango rango;
+        synchronized (this) {
+            pendientes.add(peticion);
+            try {
+                while (true) {
+                    rango = compartible(peticion);
+                    if (rango != null) {
+                        rango.usos++;
+                        break;
+                    }
+                    if (!ocupado(peticion)) {
+                        rango = peticion;
+                        rango.usos = 1;
+                        concedidos.add(rango);
+                        break;
+                    }
+                    peticion.disputado = true;
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Espera interrumpida por el cerrojo de " + archivo);
+            } finally {
+                pendientes.remove(peticion);
+                notifyAll();
+            }
+        }
+        if (rango == peticion) {
+            FileLock bloqueo;
+            try {
+                bloqueo = adquirir(peticion);
+            } catch (IOException | RuntimeException | Error e) {
+                synchronized (this) {
+                    concedidos.remove(peticion);
+                    notifyAll();
+                }
+                throw e;
+            }
+            synchronized (this) {
+                peticion.bloqueo = bloqueo;
+                peticion.listo = true;
+                notifyAll();
+            }
+        }
+        propios.add(rango);
+        long espera = System.nanoTime() - comienzo;
+        synchronized (this) {
+            (compartido ? esperasCompartidas : esperasExclusivas).registrar(espera);
+            if (peticion.disputado) {
+                disputados++;
+            }
+        }
+        return new Bloqueo(this, rango);
+    }
+
+    /**
+     * Busca un bloqueo compartido ya concedido del mismo rango que la petición puede reutilizar. En modo
+     * EQUITATIVO no se reutiliza si antes de la petición espera otra que se solapa, para no adelantarla,
+     * salvo que el hilo ya tenga otro bloqueo: esa otra petición podría estar esperando a que lo suelte.
+     */
+    private Rango compartible(Rango peticion) {
+        if (!peticion.compartido || (modo == Modo.EQUITATIVO && esperaAnterior(peticion))) {
+            return null;
+        }
+        for (Rango rango : concedidos) {
+            if (rango.compartido && rango.listo && rango.inicio == peticion.inicio && rango.fin == peticion.fin) {
+                return rango;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Indica si la petición tiene que esperar porque se solapa con un bloqueo del proceso o, en modo EQUITATIVO,
+     * con una petición anterior que todavía espera.
+     */
+    private boolean ocupado(Rango peticion) {
+        for (Rango rango : concedidos) {
+            if (rango.solapa(peticion.inicio, peticion.fin)) {
+                return true;
+            }
+        }
+        return modo == Modo.EQUITATIVO && esperaAnterior(peticion);
+    }
+
+    private boolean esperaAnterior(Rango peticion) {
+        if (peticion.anidado) {
+            return false;
+        }
+        for (Rango anterior : pendientes) {
+            if (anterior == peticion) {
+                return false;
+            }
+            if (anterior.solapa(peticion.inicio, peticion.fin)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Toma el FileLock del rango. En modo EQUITATIVO pasa antes por el torno: un lector lo suelta en cuanto
+     * lo consigue y un escritor lo retiene hasta tener su cerrojo, de modo que los que lleguen detrás esperan.
+     * Un hilo que ya tiene otro bloqueo no pasa por el torno, porque el escritor que lo retiene podría estar
+     * esperando justo a ese bloqueo.
+     */
+    private FileLock adquirir(Rango rango) throws IOException {
+        long tamaño = rango.fin - rango.inicio;
+        if (modo == Modo.PREFERENCIA_LECTORES || rango.anidado) {
+            return tomar(rango, rango.inicio, tamaño, rango.compartido);
+        }
+        torno.lock();
+        try {
+            FileLock paso = tomar(rango, POSICION_TORNO, 1, false);
+            try {
+                if (!rango.compartido) {
+                    return tomar(rango, rango.inicio, tamaño, false);
+                }
+            } finally {
+                paso.release();
+            }
+        } finally {
+            torno.unlock();
+        }
+        return tomar(rango, rango.inicio, tamaño, true);
+    }
+
+    private FileLock tomar(Rango rango, long posicion, long tamaño, boolean compartido) throws IOException {
+        FileLock bloqueo = canal.tryLock(posicion, tamaño, compartido);
+        if (bloqueo == null) {
+            rango.disputado = true;
+            bloqueo = canal.lock(posicion, tamaño, compartido);
+        }
+        return bloqueo;
+    }
+
+    private void liberar(Rango rango) throws IOException {
+        delHilo.get().remove(rango);
+        synchronized (this) {
+            if (--rango.usos > 0) {
+                return;
+            }
+            try {
+                if (canal.isOpen()) {
+                    rango.bloqueo.release();
+                }
+            } finally {
+                concedidos.remove(rango);
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Bloqueo concedido. Se suelta al cerrarlo, desde el mismo hilo que lo pidió.
+     */
+    public static final class Bloqueo implements AutoCloseable {
+
+        /**
+         * Bloqueo que no retiene nada, para los almacenes que no se comparten entre procesos y para las peticiones
+         * que ya cubre otro bloqueo del hilo. Cerrarlo no hace nada.
+         */
+        public static final Bloqueo NINGUNO = new Bloqueo(null, null);
+
+        private final CerrojoArchivo cerrojo;
+        private Rango rango;
+
+        private Bloqueo(CerrojoArchivo cerrojo, Rango rango) {
+            this.cerrojo = cerrojo;
+            this.rango = rango;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (rango != null) {
+                Rango soltado = rango;
+                rango = null;
+                cerrojo.liberar(soltado);
+            }
+        }
+    }
+
+    /**
+     * Operación que se ejecuta con un rango bloqueado.
+     */
+    @FunctionalInterface
+    public interface Operacion<T> {
+        T ejecutar() throws IOException;
+    }
+
+    /**
+     * Rango [inicio, fin) del archivo ".lock" bloqueado o pedido por el proceso.
+     */
+    private static final class Rango {
+
+        final long inicio;
+        final long fin;
+        final boolean compartido;
+        final boolean anidado;
+        FileLock bloqueo;
+        int usos;
+        boolean listo;
+        boolean disputado;
+
+        Rango(long inicio, long fin, boolean compartido, boolean anidado) {
+            this.inicio = inicio;
+            this.fin = fin;
+            this.compartido = compartido;
+            this.anidado = anidado;
+        }
+
+        boolean solapa(long otroInicio, long otroFin) {
+            return inicio < otroFin && otroInicio < fin;
+        }
+
+        boolean cubre(long otroInicio, long otroFin) {
+            return inicio <= otroInicio && otroFin <= fin;
+        }
+    }
+}
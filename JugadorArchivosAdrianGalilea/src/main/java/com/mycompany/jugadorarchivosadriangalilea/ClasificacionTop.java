@@ -0,0 +1,153 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Clasificación acotada de los mejores jugadores según un campo numérico, de mayor a menor valor y, a igual valor,
+ * de menor a mayor ID. Guarda hasta el doble del tamaño pedido para que las bajas y las modificaciones que sacan
+ * a un jugador de la clasificación no obliguen a recorrer el almacén cada vez: solo hace falta reconstruirla
+ * cuando quedan menos jugadores que el tamaño pedido y el almacén tiene jugadores que no están en ella.
+ *
+ * La clasificación siempre contiene exactamente los primeros jugadores del almacén hasta su último elemento;
+ * si el almacén tiene más jugadores de los que caben, está truncada y solo admite jugadores que superen al último.
+ */
+final class ClasificacionTop {
+
+    private final CampoJugador campo;
+    private final int tamaño;
+    private final int capacidad;
+    private final TreeSet<Jugador> jugadores;
+    private final Map<Integer, Jugador> porId = new HashMap<>();
+    private boolean truncada;
+
+    /**
+     * @param campo  Campo numérico por el que se ordena.
+     * @param tamaño Número de jugadores que se pueden pedir.
+     */
+    ClasificacionTop(CampoJugador campo, int tamaño) {
+        if (!campo.esNumerico()) {
+            throw new IllegalArgumentException("El campo " + campo + " no es numérico");
+        }
+        if (tamaño < 1) {
+            throw new IllegalArgumentException("Tamaño de clasificación no válido: " + tamaño);
+        }
+        this.campo = campo;
+        this.tamaño = tamaño;
+        this.capacidad = 2 * tamaño;
+        Comparator<Jugador> orden = Comparator.comparingInt(campo::valor).reversed();
+        this.jugadores = new TreeSet<>(orden.thenComparingInt(Jugador::getId));
+    }
+
+    /**
+     * Tiene en cuenta un jugador nuevo o modificado, que no debe estar ya en la clasificación.
+     */
+    void agregar(Jugador jugador) {
+        if (truncada && (jugadores.isEmpty() || jugadores.comparator().compare(jugador, jugadores.last()) > 0)) {
+            return;
+        }
+        Jugador copia = new Jugador(jugador.getId(), jugador.getNick(), jugador.getExperience(), jugador.getLifeLevel(), jugador.getCoins());
+        jugadores.add(copia);
+        porId.put(copia.getId(), copia);
+        if (jugadores.size() > capacidad) {
+            porId.remove(jugadores.pollLast().getId());
+            truncada = true;
+        }
+    }
+
+    /**
+     * Quita un jugador eliminado o que se va a modificar, si está en la clasificación.
+     */
+    void quitar(int id) {
+        Jugador jugador = porId.remove(id);
+        if (jugador != null) {
+            jugadores.remove(jugador);
+        }
+    }
+
+    boolean contiene(int id) {
+        return porId.containsKey(id);
+    }
+
+    /**
+     * Devuelve el jugador guardado en la clasificación con ese ID, o null si no está. No se debe modificar.
+     */
+    Jugador obtener(int id) {
+        return porId.get(id);
+    }
+
+    /**
+     * Indica si la clasificación contiene todos los jugadores del almacén.
+     */
+    boolean esCompleta() {
+        return !truncada;
+    }
+
+    /**
+     * Indica si quedan menos jugadores que el tamaño pedido sin saber cuáles siguen, de modo que hay que
+     * reconstruir la clasificación recorriendo el almacén.
+     */
+    boolean necesitaReconstruir() {
+        return truncada && jugadores.size() < tamaño;
+    }
+
+    /**
+     * Devuelve los primeros jugadores de la clasificación, como mucho el tamaño pedido.
+     */
+    List<Jugador> primeros(int numero) {
+        List<Jugador> resultado = new ArrayList<>(Math.min(numero, jugadores.size()));
+        Iterator<Jugador> iterador = jugadores.iterator();
+        while (resultado.size() < numero && iterador.hasNext()) {
+            Jugador jugador = iterador.next();
+            resultado.add(new Jugador(jugador.getId(), jugador.getNick(), jugador.getExperience(), jugador.getLifeLevel(), jugador.getCoins()));
+        }
+        return resultado;
+    }
+
+    void vaciar() {
+        jugadores.clear();
+        porId.clear();
+        truncada = false;
+    }
+
+    CampoJugador getCampo() {
+        return campo;
+    }
+
+    int getTamaño() {
+        return tamaño;
+    }
+
+    void escribir(DataOutputStream salida) throws IOException {
+        salida.writeBoolean(truncada);
+        salida.writeInt(jugadores.size());
+        for (Jugador jugador : jugadores) {
+            salida.writeInt(jugador.getId());
+            salida.writeUTF(jugador.getNick());
+            salida.writeInt(jugador.getExperience());
+            salida.writeInt(jugador.getLifeLevel());
+            salida.writeInt(jugador.getCoins());
+        }
+    }
+
+    void leer(DataInputStream entrada) throws IOException {
+        vaciar();
+        boolean leidaTruncada = entrada.readBoolean();
+        int numero = entrada.readInt();
+        if (numero < 0 || numero > capacidad) {
+            throw new IOException("Número de jugadores de la clasificación no válido: " + numero);
+        }
+        for (int i = 0; i < numero; i++) {
+            agregar(new Jugador(entrada.readInt(), entrada.readUTF(), entrada.readInt(), entrada.readInt(), entrada.readInt()));
+        }
+        truncada = leidaTruncada;
+    }
+}
@@ -0,0 +1,335 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * La clase ClienteJugadores es un GestionFichero que trabaja sobre un almacén remoto servido por
+ * ServidorJugadores, de modo que el resto del programa lo usa igual que cualquier backend de archivo.
+ * Mantiene una única conexión abierta durante toda su vida; las operaciones se envían de una en una
+ * salvo en obtenerJugadores, que envía todas las peticiones seguidas y lee después las respuestas.
+ * Los métodos están sincronizados, así que varios hilos pueden compartir un mismo cliente.
+ */
+public class ClienteJugadores extends GestionFichero {
+
+    private final Socket conexion;
+    private final DataInputStream entrada;
+    private final DataOutputStream salida;
+
+    /**
+     * Constructor de la clase ClienteJugadores. Conecta con el servidor y comprueba la versión del protocolo.
+     *
+     * @param host   Nombre o dirección del servidor.
+     * @param puerto Puerto del servidor.
+     * @throws IOException Si no se puede conectar o el servidor no habla el mismo protocolo.
+     */
+    public ClienteJugadores(String host, int puerto) throws IOException {
+        conexion = new Socket();
+        try {
+            conexion.connect(new InetSocketAddress(host, puerto), 5000);
+            conexion.setTcpNoDelay(true);
+            entrada = new DataInputStream(new BufferedInputStream(conexion.getInputStream()));
+            salida = new DataOutputStream(new BufferedOutputStream(conexion.getOutputStream()));
+            salida.writeInt(ProtocoloJugadores.MAGIA);
+            salida.writeInt(ProtocoloJugadores.VERSION);
+            salida.flush();
+            if (entrada.readInt() != ProtocoloJugadores.MAGIA || entrada.readInt() != ProtocoloJugadores.VERSION) {
+                throw new IOException("El servidor " + host + ":" + puerto + " no es un servidor de jugadores compatible");
+            }
+        } catch (IOException e) {
+            conexion.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized Boolean agregarJugador(Jugador jugador) throws IOException {
+        salida.writeByte(ProtocoloJugadores.AGREGAR);
+        ProtocoloJugadores.escribirJugador(salida, jugador);
+        enviar();
+        return entrada.readBoolean();
+    }
+
+    @Override
+    public synchronized Boolean eliminarJugador(int id) throws IOException {
+        salida.writeByte(ProtocoloJugadores.ELIMINAR);
+        salida.writeInt(id);
+        enviar();
+        return entrada.readBoolean();
+    }
+
+    @Override
+    public synchronized void modificarJugador(int id, Jugador jugadorModificado) throws IOException {
+        salida.writeByte(ProtocoloJugadores.MODIFICAR);
+        salida.writeInt(id);
+        ProtocoloJugadores.escribirJugador(salida, jugadorModificado);
+        enviar();
+    }
+
+    @Override
+    public synchronized Jugador obtenerJugador(int id) throws IOException {
+        pedirJugador(id);
+        enviar();
+        return leerJugadorObtenido();
+    }
+
+    /**
+     * Obtiene varios jugadores por ID con una sola ida y vuelta: envía todas las peticiones sin esperar
+     * y después lee las respuestas, que el servidor devuelve en el mismo orden.
+     *
+     * @param ids IDs de los jugadores.
+     * @return Lista con un elemento por ID, null para los IDs que no existen.
+     * @throws IOException Si ocurre un error de comunicación o en el almacén remoto.
+     */
+    public synchronized List<Jugador> obtenerJugadores(int... ids) throws IOException {
+        for (int id : ids) {
+            pedirJugador(id);
+        }
+        salida.flush();
+        List<Jugador> jugadores = new ArrayList<>(ids.length);
+        IOException error = null;
+        for (int i = 0; i < ids.length; i++) {
+            try {
+                leerEstado();
+                jugadores.add(leerJugadorObtenido());
+            } catch (ErrorRemoto e) {
+                error = error == null ? e : error;
+                jugadores.add(null);
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+        return jugadores;
+    }
+
+    @Override
+    public synchronized List<Jugador> listarJugadores() throws IOException {
+        salida.writeByte(ProtocoloJugadores.LISTAR);
+        enviar();
+        return ProtocoloJugadores.leerLista(entrada);
+    }
+
+    @Override
+    public synchronized List<Jugador> consultar(ConsultaJugadores consulta) throws IOException {
+        salida.writeByte(ProtocoloJugadores.CONSULTAR);
+        consulta.escribir(salida);
+        enviar();
+        return ProtocoloJugadores.leerLista(entrada);
+    }
+
+    @Override
+    public synchronized long contar(ConsultaJugadores consulta) throws IOException {
+        salida.writeByte(ProtocoloJugadores.CONTAR);
+        consulta.escribir(salida);
+        enviar();
+        return entrada.readLong();
+    }
+
+    @Override
+    public synchronized List<Jugador> obtenerPorNick(String nick) throws IOException {
+        salida.writeByte(ProtocoloJugadores.OBTENER_POR_NICK);
+        salida.writeUTF(nick);
+        enviar();
+        return ProtocoloJugadores.leerLista(entrada);
+    }
+
+    @Override
+    public synchronized List<Jugador> buscarPorPrefijoNick(String prefijo, int limite) throws IOException {
+        salida.writeByte(ProtocoloJugadores.BUSCAR_PREFIJO);
+        salida.writeUTF(prefijo);
+        salida.writeInt(limite);
+        enviar();
+        return ProtocoloJugadores.leerLista(entrada);
+    }
+
+    @Override
+    public synchronized int agregarJugadores(List<Jugador> jugadores) throws IOException {
+        salida.writeByte(ProtocoloJugadores.AGREGAR_LOTE);
+        ProtocoloJugadores.escribirLista(salida, jugadores);
+        enviar();
+        return entrada.readInt();
+    }
+
+    @Override
+    public synchronized void sincronizar() throws IOException {
+        salida.writeByte(ProtocoloJugadores.SINCRONIZAR);
+        enviar();
+    }
+
+    @Override
+    public void recorrerJugadores(ProcesadorJugador procesador) throws IOException {
+        recorrerFiltrado(new ConsultaJugadores(), procesador);
+    }
+
+    /**
+     * Pide una página al servidor en una sola ida y vuelta. La continuación es la del almacén remoto.
+     *
+     * @param continuacion Texto de continuación de la página anterior, o null para la primera página.
+     * @param limite       Número máximo de jugadores de la página.
+     * @return La página.
+     * @throws IOException Si ocurre un error de comunicación o en el almacén remoto.
+     */
+    @Override
+    public synchronized PaginaJugadores listarPagina(String continuacion, int limite) throws IOException {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El límite de la página debe ser positivo");
+        }
+        salida.writeByte(ProtocoloJugadores.LISTAR_PAGINA);
+        ProtocoloJugadores.escribirTexto(salida, continuacion);
+        salida.writeInt(limite);
+        enviar();
+        List<Jugador> jugadores = ProtocoloJugadores.leerLista(entrada);
+        return new PaginaJugadores(jugadores, ProtocoloJugadores.leerTexto(entrada));
+    }
+
+    /**
+     * Abre un cursor que pide al servidor páginas de JUGADORES_POR_TRAMO jugadores a medida que se necesitan.
+     * Para poder reanudar a mitad de una página, la continuación es la de la página remota o, si ya se han
+     * devuelto algunos de sus jugadores, "n@continuación de la página" con el número de jugadores devueltos.
+     *
+     * @param continuacion Texto de continuación, o null para empezar desde el principio.
+     * @return Cursor abierto.
+     */
+    @Override
+    public CursorJugadores abrirCursor(String continuacion) {
+        String inicio = continuacion;
+        int saltar = 0;
+        int arroba = continuacion == null ? -1 : continuacion.indexOf('@');
+        if (arroba >= 0) {
+            try {
+                saltar = Integer.parseInt(continuacion.substring(0, arroba));
+            } catch (NumberFormatException e) {
+                saltar = -1;
+            }
+            if (saltar < 0) {
+                throw new IllegalArgumentException("Texto de continuación no válido: " + continuacion);
+            }
+            inicio = arroba + 1 < continuacion.length() ? continuacion.substring(arroba + 1) : null;
+        }
+        String primeraPagina = inicio;
+        int saltarPrimera = saltar;
+        return new CursorJugadores() {
+            private String continuacionPagina = primeraPagina;
+            private PaginaJugadores pagina;
+            private int actual = saltarPrimera;
+
+            @Override
+            public Jugador siguiente() throws IOException {
+                while (true) {
+                    if (pagina == null) {
+                        pagina = listarPagina(continuacionPagina, ProtocoloJugadores.JUGADORES_POR_TRAMO);
+                        actual = Math.min(actual, pagina.getJugadores().size());
+                    }
+                    if (actual < pagina.getJugadores().size()) {
+                        return pagina.getJugadores().get(actual++);
+                    }
+                    if (!pagina.hayMas()) {
+                        return null;
+                    }
+                    continuacionPagina = pagina.getContinuacion();
+                    pagina = null;
+                    actual = 0;
+                }
+            }
+
+            @Override
+            public String continuacion() {
+                if (actual == 0 && continuacionPagina != null) {
+                    return continuacionPagina;
+                }
+                return actual + "@" + (continuacionPagina == null ? "" : continuacionPagina);
+            }
+        };
+    }
+
+    /**
+     * Recorre los jugadores remotos que cumplen la consulta a medida que llegan los tramos del servidor.
+     * Si el procesador devuelve false se descartan los tramos restantes, porque el servidor ya los está enviando.
+     *
+     * @param consulta   Consulta con las condiciones de filtrado.
+     * @param procesador Procesador que recibe cada jugador aceptado. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error de comunicación, en el almacén remoto o al procesar un jugador.
+     */
+    @Override
+    protected synchronized void recorrerFiltrado(ConsultaJugadores consulta, ProcesadorJugador procesador) throws IOException {
+        salida.writeByte(ProtocoloJugadores.RECORRER);
+        consulta.escribir(salida);
+        salida.flush();
+        boolean seguir = true;
+        IOException errorProcesador = null;
+        int enTramo;
+        while ((enTramo = entrada.readInt()) > 0) {
+            for (int i = 0; i < enTramo; i++) {
+                Jugador jugador = ProtocoloJugadores.leerJugador(entrada);
+                if (seguir) {
+                    try {
+                        seguir = procesador.procesar(jugador);
+                    } catch (IOException e) {
+                        errorProcesador = e;
+                        seguir = false;
+                    }
+                }
+            }
+        }
+        leerEstado();
+        if (errorProcesador != null) {
+            throw errorProcesador;
+        }
+    }
+
+    /**
+     * Cierra la conexión con el servidor. El almacén remoto sigue abierto para los demás clientes.
+     *
+     * @throws IOException Si ocurre un error al cerrar la conexión.
+     */
+    @Override
+    public synchronized void cerrar() throws IOException {
+        conexion.close();
+    }
+
+    private void pedirJugador(int id) throws IOException {
+        salida.writeByte(ProtocoloJugadores.OBTENER);
+        salida.writeInt(id);
+    }
+
+    private Jugador leerJugadorObtenido() throws IOException {
+        return entrada.readBoolean() ? ProtocoloJugadores.leerJugador(entrada) : null;
+    }
+
+    /**
+     * Envía la petición escrita y lee el estado de la respuesta.
+     */
+    private void enviar() throws IOException {
+        salida.flush();
+        leerEstado();
+    }
+
+    private void leerEstado() throws IOException {
+        byte estado = entrada.readByte();
+        if (estado == ProtocoloJugadores.ERROR) {
+            throw new ErrorRemoto(entrada.readUTF());
+        } else if (estado != ProtocoloJugadores.OK) {
+            throw new IOException("Respuesta no válida del servidor: " + estado);
+        }
+    }
+
+    /**
+     * Error producido en el almacén del servidor. La conexión sigue siendo válida después de recibirlo.
+     */
+    public static class ErrorRemoto extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public ErrorRemoto(String mensaje) {
+            super("Error en el servidor: " + mensaje);
+        }
+    }
+}
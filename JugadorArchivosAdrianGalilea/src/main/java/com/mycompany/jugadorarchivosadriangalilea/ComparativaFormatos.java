@@ -0,0 +1,99 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Programa que compara los formatos de archivo con el mismo conjunto de jugadores generados: tamaño en disco
+ * (y su proporción respecto al formato binario), tiempo de escritura del lote, tiempo de un recorrido completo
+ * y tiempo medio de una búsqueda por ID.
+ *
+ * Uso: ComparativaFormatos [número de jugadores] [directorio de trabajo]
+ */
+public class ComparativaFormatos {
+
+    private static final String[] PREFIJOS = {"Dragon", "Shadow", "Knight", "Wizard", "Hunter", "Ninja", "Pirate", "Ghost"};
+    private static final int BUSQUEDAS = 50;
+
+    public static void main(String[] args) throws IOException {
+        int numJugadores = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        File directorio = new File(args.length > 1 ? args[1] : System.getProperty("java.io.tmpdir"));
+        List<Jugador> jugadores = generarJugadores(numJugadores, new Random(42));
+
+        FormatoFichero[] formatos = FormatoFichero.values();
+        long[][] resultados = new long[formatos.length][];
+        for (int f = 0; f < formatos.length; f++) {
+            resultados[f] = medir(formatos[f], new File(directorio, "comparativa." + formatos[f].name().toLowerCase()), jugadores);
+        }
+        long referencia = resultados[FormatoFichero.BINARIO.ordinal()][0];
+
+        System.out.printf("%d jugadores%n", numJugadores);
+        System.out.printf("%-20s %12s %8s %14s %14s %14s%n", "Formato", "Bytes", "Ratio", "Escritura ms", "Recorrido ms", "Búsqueda µs");
+        for (int f = 0; f < formatos.length; f++) {
+            long[] r = resultados[f];
+            System.out.printf("%-20s %12d %8.2f %14.1f %14.1f %14.1f%n", formatos[f].getNombre(), r[0], (double) r[0] / referencia,
+                    r[1] / 1e6, r[2] / 1e6, r[3] / 1e3);
+        }
+    }
+
+    /**
+     * Escribe los jugadores con un formato y mide el archivo resultante.
+     *
+     * @return Bytes del archivo, nanosegundos de escritura, de recorrido y de una búsqueda media.
+     */
+    private static long[] medir(FormatoFichero formato, File archivo, List<Jugador> jugadores) throws IOException {
+        borrar(formato, archivo);
+        long inicio = System.nanoTime();
+        GestionFichero gestion = formato.abrir(archivo.getPath());
+        gestion.agregarJugadores(jugadores);
+        gestion.cerrar();
+        long escritura = System.nanoTime() - inicio;
+        long bytes = formato == FormatoFichero.LSM ? GestionLSM.tamañoEnDisco(archivo.getPath()) : archivo.length();
+
+        gestion = formato.abrir(archivo.getPath());
+        long[] suma = {0};
+        inicio = System.nanoTime();
+        gestion.recorrerJugadores(j -> {
+            suma[0] += j.getCoins();
+            return true;
+        });
+        long recorrido = System.nanoTime() - inicio;
+
+        Random aleatorio = new Random(7);
+        inicio = System.nanoTime();
+        for (int i = 0; i < BUSQUEDAS; i++) {
+            gestion.obtenerJugador(jugadores.get(aleatorio.nextInt(jugadores.size())).getId());
+        }
+        long busqueda = (System.nanoTime() - inicio) / BUSQUEDAS;
+        gestion.cerrar();
+        borrar(formato, archivo);
+        return new long[]{bytes, escritura, recorrido, busqueda};
+    }
+
+    /**
+     * Borra el archivo de un formato junto con sus archivos auxiliares.
+     */
+    private static void borrar(FormatoFichero formato, File archivo) {
+        if (formato == FormatoFichero.LSM) {
+            GestionLSM.borrar(archivo.getPath());
+            return;
+        }
+        archivo.delete();
+        new File(archivo.getPath() + ".ids").delete();
+    }
+
+    /**
+     * Genera jugadores con nicks repetitivos y valores pequeños, parecidos a los de una plantilla real.
+     */
+    private static List<Jugador> generarJugadores(int numJugadores, Random aleatorio) {
+        List<Jugador> jugadores = new ArrayList<>(numJugadores);
+        for (int i = 1; i <= numJugadores; i++) {
+            String nick = PREFIJOS[aleatorio.nextInt(PREFIJOS.length)] + aleatorio.nextInt(1000);
+            jugadores.add(new Jugador(i, nick, aleatorio.nextInt(10000), 1 + aleatorio.nextInt(100), aleatorio.nextInt(5000)));
+        }
+        return jugadores;
+    }
+}
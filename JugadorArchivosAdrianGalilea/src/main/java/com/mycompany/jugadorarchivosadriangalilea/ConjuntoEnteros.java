@@ -0,0 +1,72 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+/**
+ * Conjunto de enteros positivos con direccionamiento abierto sobre un int[], sin objetos por elemento.
+ * Ocupa unos 5 a 11 bytes por elemento, frente a los más de 40 de un HashSet&lt;Integer&gt;, lo que permite
+ * llevar la cuenta de los IDs vistos en importaciones de millones de jugadores.
+ */
+final class ConjuntoEnteros {
+
+    private int[] tabla = new int[1024];
+    private int tamaño;
+
+    /**
+     * Añade un entero positivo al conjunto.
+     *
+     * @param valor Entero a añadir; debe ser mayor que 0.
+     * @return true si no estaba en el conjunto.
+     */
+    boolean añadir(int valor) {
+        if (valor <= 0) {
+            throw new IllegalArgumentException("Solo se admiten enteros positivos: " + valor);
+        }
+        if ((tamaño + 1) * 4L > tabla.length * 3L) {
+            ampliar();
+        }
+        int mascara = tabla.length - 1;
+        for (int i = posicion(valor, mascara); ; i = (i + 1) & mascara) {
+            if (tabla[i] == valor) {
+                return false;
+            }
+            if (tabla[i] == 0) {
+                tabla[i] = valor;
+                tamaño++;
+                return true;
+            }
+        }
+    }
+
+    boolean contiene(int valor) {
+        int mascara = tabla.length - 1;
+        for (int i = posicion(valor, mascara); tabla[i] != 0; i = (i + 1) & mascara) {
+            if (tabla[i] == valor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int tamaño() {
+        return tamaño;
+    }
+
+    private static int posicion(int valor, int mascara) {
+        int h = valor * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    private void ampliar() {
+        int[] anterior = tabla;
+        tabla = new int[anterior.length * 2];
+        int mascara = tabla.length - 1;
+        for (int valor : anterior) {
+            if (valor != 0) {
+                int i = posicion(valor, mascara);
+                while (tabla[i] != 0) {
+                    i = (i + 1) & mascara;
+                }
+                tabla[i] = valor;
+            }
+        }
+    }
+}
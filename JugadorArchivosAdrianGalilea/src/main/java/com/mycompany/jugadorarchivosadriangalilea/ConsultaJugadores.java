@@ -0,0 +1,480 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * La clase ConsultaJugadores describe una consulta sobre los jugadores de un GestionFichero:
+ * rangos sobre los campos numéricos (incluido el ID), condiciones sobre el nick, orden, límite y proyección.
+ * Se construye encadenando llamadas, por ejemplo:
+ * <pre>
+ *     new ConsultaJugadores().rango(CampoJugador.EXPERIENCE, 100, Integer.MAX_VALUE)
+ *                            .ordenarPor(CampoJugador.COINS, true)
+ *                            .limite(100);
+ * </pre>
+ * Los backends evalúan primero los campos numéricos con aceptaNumericos, antes de decodificar el nick
+ * o crear el objeto Jugador, de forma que los registros descartados no llegan a construirse.
+ */
+public class ConsultaJugadores {
+
+    private final int[] minimos = new int[CampoJugador.values().length];
+    private final int[] maximos = new int[CampoJugador.values().length];
+    private boolean tieneRangos;
+    private Set<Integer> ids;
+    private String nickIgual;
+    private String nickPrefijo;
+    private String nickContiene;
+    private CampoJugador orden;
+    private boolean descendente;
+    private int limite;
+    private Set<CampoJugador> proyeccion;
+
+    /**
+     * Crea una consulta sin condiciones, que acepta a todos los jugadores.
+     */
+    public ConsultaJugadores() {
+        Arrays.fill(minimos, Integer.MIN_VALUE);
+        Arrays.fill(maximos, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Restringe un campo numérico a un rango cerrado. Se puede llamar varias veces sobre el mismo campo
+     * y el resultado es la intersección de los rangos.
+     *
+     * @param campo  Campo numérico a filtrar.
+     * @param minimo Valor mínimo aceptado (incluido).
+     * @param maximo Valor máximo aceptado (incluido).
+     * @return Esta consulta, para encadenar llamadas.
+     */
+    public ConsultaJugadores rango(CampoJugador campo, int minimo, int maximo) {
+        if (!campo.esNumerico()) {
+            throw new IllegalArgumentException("El campo " + campo + " no es numérico");
+        }
+        int i = campo.ordinal();
+        minimos[i] = Math.max(minimos[i], minimo);
+        maximos[i] = Math.min(maximos[i], maximo);
+        tieneRangos = true;
+        return this;
+    }
+
+    /**
+     * Restringe los IDs a un rango cerrado.
+     *
+     * @param minimo ID mínimo (incluido).
+     * @param maximo ID máximo (incluido).
+     * @return Esta consulta, para encadenar llamadas.
+     */
+    public ConsultaJugadores idEntre(int minimo, int maximo) {
+        return rango(CampoJugador.ID, minimo, maximo);
+    }
+
+    /**
+     * Exige que el campo sea mayor o igual que el valor indicado.
+     *
+     * @param campo  Campo numérico a filtrar.
+     * @param minimo Valor mínimo aceptado (incluido).
+     * @return Esta consulta, para encadenar llamadas.
+     */
+    public ConsultaJugadores minimo(CampoJugador campo, int minimo) {
+        return rango(campo, minimo, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Exige que el campo sea menor o igual que el valor indicado.
+     *
+     * @param campo  Campo numérico a filtrar.
+     * @param maximo Valor máximo aceptado (incluido).
+     * @return Esta consulta, para encadenar llamadas.
+     */
+    public ConsultaJugadores maximo(CampoJugador campo, int maximo) {
+        return rango(campo, Integer.MIN_VALUE, maximo);
+    }
+
+    /**
+     * Restringe la consulta a un conjunto concreto de IDs. Lo usan los índices para pedir al backend
+     * solo los registros candidatos en un único recorrido.
+     *
+     * @param ids Conjunto de IDs aceptados.
+     * @return Esta consulta, para encadenar llamadas.
+     */
+    public ConsultaJugadores idsEn(Set<Integer> ids) {
+        this.ids = ids;
+        return this;
+    }
+
+    /**
+     * Exige que el nick sea exactamente el indicado.
+     *
+     * @param nick Nick buscado.
+     * @return Esta consulta, para encadenar llamadas.
+     */
+    public ConsultaJugadores nickIgual(String nick) {
+        this.nickIgual = nick;
+        return this;
+    }
+
+    /**
+     * Exige que el nick empiece por el prefijo indicado.
+     *
+     * @param prefijo Prefijo buscado.
+     * @return Esta consulta, para encadenar llamadas.
+     */
+    public ConsultaJugadores nickEmpiezaPor(String prefijo) {
+        this.nickPrefijo = prefijo;
+        return this;
+    }
+
+    /**
+     * Exige que el nick contenga el texto indicado.
+     *
+     * @param texto Texto buscado.
+     * @return Esta consulta, para encadenar llamadas.
+     */
+    public ConsultaJugadores nickContiene(String texto) {
+        this.nickContiene = texto;
+        return this;
+    }
+
+    /**
+     * Ordena el resultado por un campo. A igualdad de valor se ordena por ID.
+     *
+     * @param campo       Campo por el que se ordena.
+     * @param descendente true para ordenar de mayor a menor.
+     * @return Esta consulta, para encadenar llamadas.
+     */
+    public ConsultaJugadores ordenarPor(CampoJugador campo, boolean descendente) {
+        this.orden = campo;
+        this.descendente = descendente;
+        return this;
+    }
+
+    /**
+     * Limita el número de jugadores devueltos. Junto con ordenarPor devuelve los N primeros
+     * sin ordenar el resultado completo.
+     *
+     * @param limite Número máximo de jugadores, o 0 para no limitar.
+     * @return Esta consulta, para encadenar llamadas.
+     */
+    public ConsultaJugadores limite(int limite) {
+        if (limite < 0) {
+            throw new IllegalArgumentException("El límite no puede ser negativo");
+        }
+        this.limite = limite;
+        return this;
+    }
+
+    /**
+     * Indica qué campos se devuelven. Los campos no proyectados quedan a 0 (o null en el caso del nick).
+     *
+     * @param campos Campos a devolver.
+     * @return Esta consulta, para encadenar llamadas.
+     */
+    public ConsultaJugadores proyectar(CampoJugador... campos) {
+        this.proyeccion = campos.length == 0 ? null : EnumSet.copyOf(Arrays.asList(campos));
+        return this;
+    }
+
+    /**
+     * Evalúa las condiciones sobre los campos numéricos. Los backends la llaman antes de decodificar el nick.
+     *
+     * @param id         ID del registro.
+     * @param experience Experiencia del registro.
+     * @param lifeLevel  Nivel de vida del registro.
+     * @param coins      Monedas del registro.
+     * @return true si el registro cumple todos los rangos.
+     */
+    public boolean aceptaNumericos(int id, int experience, int lifeLevel, int coins) {
+        if (ids != null && !ids.contains(id)) {
+            return false;
+        }
+        if (!tieneRangos) {
+            return true;
+        }
+        return enRango(CampoJugador.ID, id)
+                && enRango(CampoJugador.EXPERIENCE, experience)
+                && enRango(CampoJugador.LIFE_LEVEL, lifeLevel)
+                && enRango(CampoJugador.COINS, coins);
+    }
+
+    /**
+     * Evalúa las condiciones sobre el nick.
+     *
+     * @param nick Nick del registro.
+     * @return true si el nick cumple todas las condiciones.
+     */
+    public boolean aceptaNick(String nick) {
+        if (nickIgual != null && !nickIgual.equals(nick)) {
+            return false;
+        }
+        if (nickPrefijo != null && (nick == null || !nick.startsWith(nickPrefijo))) {
+            return false;
+        }
+        return nickContiene == null || (nick != null && nick.contains(nickContiene));
+    }
+
+    /**
+     * Evalúa las condiciones sobre el nick de una vista, comparando carácter a carácter sin crear el String.
+     *
+     * @param vista Vista del registro.
+     * @return true si el nick cumple todas las condiciones.
+     */
+    public boolean aceptaNick(VistaJugador vista) {
+        if (nickIgual != null && !vista.nickIgual(nickIgual)) {
+            return false;
+        }
+        if (nickPrefijo != null && !vista.nickEmpiezaPor(nickPrefijo)) {
+            return false;
+        }
+        return nickContiene == null || vista.nickContiene(nickContiene);
+    }
+
+    /**
+     * Evalúa todas las condiciones de la consulta sobre un jugador ya construido.
+     *
+     * @param jugador Jugador a evaluar.
+     * @return true si el jugador cumple la consulta.
+     */
+    public boolean acepta(Jugador jugador) {
+        return aceptaNumericos(jugador.getId(), jugador.getExperience(), jugador.getLifeLevel(), jugador.getCoins())
+                && aceptaNick(jugador.getNick());
+    }
+
+    /**
+     * Indica si la consulta tiene alguna condición sobre el nick.
+     *
+     * @return true si hay que decodificar el nick para evaluar la consulta.
+     */
+    public boolean filtraNick() {
+        return nickIgual != null || nickPrefijo != null || nickContiene != null;
+    }
+
+    /**
+     * Indica si para responder la consulta hace falta el nick, ya sea para filtrar, ordenar o devolverlo.
+     *
+     * @return true si el resultado depende del nick.
+     */
+    public boolean necesitaNick() {
+        return filtraNick() || orden == CampoJugador.NICK || proyeccion == null || proyeccion.contains(CampoJugador.NICK);
+    }
+
+    /**
+     * Indica si la consulta restringe los IDs a un conjunto, condición que no se puede evaluar como rango.
+     *
+     * @return true si hay un conjunto de IDs.
+     */
+    boolean filtraIds() {
+        return ids != null;
+    }
+
+    public boolean tieneRango(CampoJugador campo) {
+        return minimos[campo.ordinal()] != Integer.MIN_VALUE || maximos[campo.ordinal()] != Integer.MAX_VALUE;
+    }
+
+    public int getMinimo(CampoJugador campo) {
+        return minimos[campo.ordinal()];
+    }
+
+    public int getMaximo(CampoJugador campo) {
+        return maximos[campo.ordinal()];
+    }
+
+    public String getNickIgual() {
+        return nickIgual;
+    }
+
+    public String getNickPrefijo() {
+        return nickPrefijo;
+    }
+
+    public CampoJugador getOrden() {
+        return orden;
+    }
+
+    public boolean isDescendente() {
+        return descendente;
+    }
+
+    public int getLimite() {
+        return limite;
+    }
+
+    /**
+     * Devuelve el comparador que corresponde al orden de la consulta, desempatando por ID.
+     *
+     * @return El comparador, o null si la consulta no está ordenada.
+     */
+    public Comparator<Jugador> comparador() {
+        if (orden == null) {
+            return null;
+        }
+        Comparator<Jugador> comparador = orden == CampoJugador.NICK
+                ? Comparator.comparing(Jugador::getNick, Comparator.nullsFirst(Comparator.naturalOrder()))
+                : Comparator.comparingInt(orden::valor);
+        comparador = comparador.thenComparingInt(Jugador::getId);
+        return descendente ? comparador.reversed() : comparador;
+    }
+
+    /**
+     * Aplica la proyección de la consulta a un jugador.
+     *
+     * @param jugador Jugador completo.
+     * @return Un jugador con solo los campos proyectados, o el mismo jugador si no hay proyección.
+     */
+    public Jugador proyectar(Jugador jugador) {
+        if (proyeccion == null) {
+            return jugador;
+        }
+        return new Jugador(
+                proyeccion.contains(CampoJugador.ID) ? jugador.getId() : 0,
+                proyeccion.contains(CampoJugador.NICK) ? jugador.getNick() : null,
+                proyeccion.contains(CampoJugador.EXPERIENCE) ? jugador.getExperience() : 0,
+                proyeccion.contains(CampoJugador.LIFE_LEVEL) ? jugador.getLifeLevel() : 0,
+                proyeccion.contains(CampoJugador.COINS) ? jugador.getCoins() : 0);
+    }
+
+    /**
+     * Crea el acumulador que recoge los jugadores aceptados y aplica orden, límite y proyección.
+     *
+     * @return Un acumulador nuevo para esta consulta.
+     */
+    Resultado nuevoResultado() {
+        return new Resultado();
+    }
+
+    /**
+     * Escribe la consulta completa (filtros, orden, límite y proyección) para enviarla por el protocolo
+     * de ServidorJugadores.
+     *
+     * @param salida Flujo donde se escribe.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    void escribir(DataOutputStream salida) throws IOException {
+        for (int i = 0; i < minimos.length; i++) {
+            salida.writeInt(minimos[i]);
+            salida.writeInt(maximos[i]);
+        }
+        salida.writeInt(ids == null ? -1 : ids.size());
+        if (ids != null) {
+            for (int id : ids) {
+                salida.writeInt(id);
+            }
+        }
+        ProtocoloJugadores.escribirTexto(salida, nickIgual);
+        ProtocoloJugadores.escribirTexto(salida, nickPrefijo);
+        ProtocoloJugadores.escribirTexto(salida, nickContiene);
+        salida.writeByte(orden == null ? -1 : orden.ordinal());
+        salida.writeBoolean(descendente);
+        salida.writeInt(limite);
+        int campos = 0;
+        if (proyeccion != null) {
+            for (CampoJugador campo : proyeccion) {
+                campos |= 1 << campo.ordinal();
+            }
+        }
+        salida.writeInt(campos);
+    }
+
+    /**
+     * Lee una consulta escrita con escribir.
+     *
+     * @param entrada Flujo del que se lee.
+     * @return La consulta leída.
+     * @throws IOException Si ocurre un error al leer o la consulta no es válida.
+     */
+    static ConsultaJugadores leer(DataInputStream entrada) throws IOException {
+        ConsultaJugadores consulta = new ConsultaJugadores();
+        for (int i = 0; i < consulta.minimos.length; i++) {
+            consulta.minimos[i] = entrada.readInt();
+            consulta.maximos[i] = entrada.readInt();
+            consulta.tieneRangos |= consulta.minimos[i] != Integer.MIN_VALUE || consulta.maximos[i] != Integer.MAX_VALUE;
+        }
+        int numIds = entrada.readInt();
+        if (numIds >= 0) {
+            consulta.ids = new HashSet<>();
+            for (int i = 0; i < numIds; i++) {
+                consulta.ids.add(entrada.readInt());
+            }
+        }
+        consulta.nickIgual = ProtocoloJugadores.leerTexto(entrada);
+        consulta.nickPrefijo = ProtocoloJugadores.leerTexto(entrada);
+        consulta.nickContiene = ProtocoloJugadores.leerTexto(entrada);
+        int orden = entrada.readByte();
+        CampoJugador[] campos = CampoJugador.values();
+        if (orden >= campos.length) {
+            throw new IOException("Campo de orden no válido: " + orden);
+        }
+        consulta.orden = orden < 0 ? null : campos[orden];
+        consulta.descendente = entrada.readBoolean();
+        consulta.limite = Math.max(0, entrada.readInt());
+        int proyectados = entrada.readInt();
+        if (proyectados != 0) {
+            consulta.proyeccion = EnumSet.noneOf(CampoJugador.class);
+            for (CampoJugador campo : campos) {
+                if ((proyectados & (1 << campo.ordinal())) != 0) {
+                    consulta.proyeccion.add(campo);
+                }
+            }
+        }
+        return consulta;
+    }
+
+    private boolean enRango(CampoJugador campo, int valor) {
+        int i = campo.ordinal();
+        return valor >= minimos[i] && valor <= maximos[i];
+    }
+
+    /**
+     * Acumulador de los jugadores que cumplen la consulta. Sin orden se detiene al alcanzar el límite;
+     * con orden y límite mantiene un montículo con los N mejores, de modo que la memoria no depende del total.
+     */
+    final class Resultado implements ProcesadorJugador {
+
+        private final List<Jugador> jugadores = new ArrayList<>();
+        private final PriorityQueue<Jugador> mejores;
+
+        private Resultado() {
+            mejores = orden != null && limite > 0 ? new PriorityQueue<>(limite + 1, comparador().reversed()) : null;
+        }
+
+        @Override
+        public boolean procesar(Jugador jugador) {
+            if (mejores != null) {
+                mejores.offer(jugador);
+                if (mejores.size() > limite) {
+                    mejores.poll();
+                }
+                return true;
+            }
+            jugadores.add(jugador);
+            return orden != null || limite == 0 || jugadores.size() < limite;
+        }
+
+        /**
+         * Devuelve los jugadores acumulados ya ordenados, limitados y proyectados.
+         *
+         * @return Lista con el resultado de la consulta.
+         */
+        List<Jugador> finalizar() {
+            List<Jugador> resultado = mejores != null ? new ArrayList<>(mejores) : jugadores;
+            if (orden != null) {
+                resultado.sort(comparador());
+            }
+            if (limite > 0 && resultado.size() > limite) {
+                resultado = new ArrayList<>(resultado.subList(0, limite));
+            }
+            if (proyeccion != null) {
+                resultado.replaceAll(ConsultaJugadores.this::proyectar);
+            }
+            return resultado;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * La clase ConversorFormatos copia todos los jugadores de un GestionFichero de origen a otro de destino,
+ * normalmente con un formato distinto, sin cargar el almacén completo en memoria.
+ * La conversión se hace con una tubería de tres hilos (lectura, transformación y escritura) unidos por colas
+ * acotadas de lotes, por lo que la memoria usada depende del tamaño de lote y de las colas, no del número de jugadores.
+ * La excepción es el destino en formato Objeto: guarda todos los jugadores como una única lista serializada, así que
+ * cada lote lee la lista completa, le añade el lote y la vuelve a escribir, y la memoria y el tiempo de cada lote crecen
+ * con lo ya convertido. El destino XML se copia en streaming al añadir cada lote, sin cargar el documento.
+ * Tras escribir cada lote se guarda un punto de control, lo que permite reanudar una conversión interrumpida.
+ */
+public class ConversorFormatos {
+
+    private static final int TAMAÑO_LOTE_POR_DEFECTO = 1000;
+    private static final int CAPACIDAD_COLA_POR_DEFECTO = 4;
+    private static final Lote FIN = new Lote(new ArrayList<>(), 0);
+
+    private final GestionFichero origen;
+    private final GestionFichero destino;
+    private final File puntoControl;
+    private int tamañoLote = TAMAÑO_LOTE_POR_DEFECTO;
+    private int capacidadCola = CAPACIDAD_COLA_POR_DEFECTO;
+    private UnaryOperator<Jugador> transformacion = UnaryOperator.identity();
+
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    /**
+     * Constructor de la clase ConversorFormatos.
+     *
+     * @param origen       Almacén del que se leen los jugadores.
+     * @param destino      Almacén en el que se escriben. Debe estar vacío, salvo al reanudar desde un punto de control.
+     * @param puntoControl Archivo donde se guarda el progreso de la conversión. Puede ser null para no guardarlo.
+     */
+    public ConversorFormatos(GestionFichero origen, GestionFichero destino, File puntoControl) {
+        this.origen = origen;
+        this.destino = destino;
+        this.puntoControl = puntoControl;
+    }
+
+    /**
+     * Establece cuántos jugadores viajan juntos en cada lote de la tubería.
+     *
+     * @param tamañoLote Número de jugadores por lote.
+     * @return Este conversor, para encadenar llamadas.
+     */
+    public ConversorFormatos setTamañoLote(int tamañoLote) {
+        if (tamañoLote <= 0) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser positivo");
+        }
+        this.tamañoLote = tamañoLote;
+        return this;
+    }
+
+    /**
+     * Establece cuántos lotes pueden esperar en cada cola entre dos etapas de la tubería.
+     *
+     * @param capacidadCola Número máximo de lotes pendientes por cola.
+     * @return Este conversor, para encadenar llamadas.
+     */
+    public ConversorFormatos setCapacidadCola(int capacidadCola) {
+        if (capacidadCola <= 0) {
+            throw new IllegalArgumentException("La capacidad de la cola debe ser positiva");
+        }
+        this.capacidadCola = capacidadCola;
+        return this;
+    }
+
+    /**
+     * Establece la transformación que se aplica a cada jugador antes de escribirlo.
+     * Si la transformación devuelve null el jugador se descarta.
+     *
+     * @param transformacion Función de transformación.
+     * @return Este conversor, para encadenar llamadas.
+     */
+    public ConversorFormatos setTransformacion(UnaryOperator<Jugador> transformacion) {
+        this.transformacion = transformacion;
+        return this;
+    }
+
+    /**
+     * Ejecuta la conversión completa. Si existe un punto de control de una ejecución anterior, se saltan
+     * los jugadores de origen que ya se habían convertido. Al terminar correctamente el punto de control se borra.
+     * Una conversión nueva solo se hace sobre un destino vacío: los lotes se añaden sin comprobar duplicados,
+     * así que sobre un destino con jugadores quedarían IDs repetidos. El punto de control se guarda antes
+     * del primer lote, para que una conversión interrumpida en ese lote también se reanude comprobando duplicados.
+     *
+     * @return Número de jugadores escritos en el destino durante esta ejecución.
+     * @throws IOException Si el destino ya tiene jugadores y no hay punto de control, o si ocurre un error al leer
+     *                     el origen, escribir el destino o guardar el punto de control.
+     */
+    public long convertir() throws IOException {
+        boolean reanudando = puntoControl != null && puntoControl.exists();
+        if (!reanudando && !destinoVacio()) {
+            throw new IOException("El destino ya contiene jugadores y no hay un punto de control de una conversión anterior");
+        }
+        long yaProcesados = leerPuntoControl();
+        guardarPuntoControl(yaProcesados);
+        BlockingQueue<Lote> leidos = new ArrayBlockingQueue<>(capacidadCola);
+        BlockingQueue<Lote> transformados = new ArrayBlockingQueue<>(capacidadCola);
+        long[] escritos = new long[1];
+
+        Thread lector = new Thread(() -> ejecutar(() -> leer(yaProcesados, leidos)), "conversor-lectura");
+        Thread transformador = new Thread(() -> ejecutar(() -> transformar(leidos, transformados)), "conversor-transformacion");
+        Thread escritor = new Thread(() -> ejecutar(() -> escritos[0] = escribir(yaProcesados, reanudando, transformados)), "conversor-escritura");
+
+        lector.start();
+        transformador.start();
+        escritor.start();
+        try {
+            lector.join();
+            transformador.join();
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error.compareAndSet(null, e);
+            lector.interrupt();
+            transformador.interrupt();
+            escritor.interrupt();
+        }
+
+        Throwable fallo = error.get();
+        if (fallo instanceof IOException) {
+            throw (IOException) fallo;
+        } else if (fallo != null) {
+            throw new IOException("Error durante la conversión: " + fallo.getMessage(), fallo);
+        }
+        if (puntoControl != null) {
+            Files.deleteIfExists(puntoControl.toPath());
+        }
+        return escritos[0];
+    }
+
+    /**
+     * Etapa de lectura: recorre el origen y agrupa los jugadores en lotes.
+     */
+    private void leer(long saltar, BlockingQueue<Lote> salida) throws Exception {
+        List<Jugador> actual = new ArrayList<>(tamañoLote);
+        long[] vistos = new long[1];
+        origen.recorrerJugadores(jugador -> {
+            if (error.get() != null) {
+                return false;
+            }
+            if (vistos[0]++ < saltar) {
+                return true;
+            }
+            actual.add(jugador);
+            if (actual.size() == tamañoLote) {
+                try {
+                    poner(salida, new Lote(new ArrayList<>(actual), actual.size()));
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException(e.getMessage());
+                }
+                actual.clear();
+            }
+            return true;
+        });
+        if (!actual.isEmpty()) {
+            poner(salida, new Lote(new ArrayList<>(actual), actual.size()));
+        }
+        poner(salida, FIN);
+    }
+
+    /**
+     * Etapa de transformación: aplica la transformación a cada jugador del lote.
+     */
+    private void transformar(BlockingQueue<Lote> entrada, BlockingQueue<Lote> salida) throws Exception {
+        Lote lote;
+        while ((lote = tomar(entrada)) != FIN) {
+            List<Jugador> resultado = new ArrayList<>(lote.jugadores.size());
+            for (Jugador jugador : lote.jugadores) {
+                Jugador transformado = transformacion.apply(jugador);
+                if (transformado != null) {
+                    resultado.add(transformado);
+                }
+            }
+            poner(salida, new Lote(resultado, lote.leidos));
+        }
+        poner(salida, FIN);
+    }
+
+    /**
+     * Etapa de escritura: añade cada lote al destino y guarda el punto de control.
+     * El primer lote tras reanudar se agrega comprobando duplicados, porque el destino puede contener
+     * jugadores escritos después del último punto de control guardado.
+     */
+    private long escribir(long yaProcesados, boolean reanudando, BlockingQueue<Lote> entrada) throws Exception {
+        long procesados = yaProcesados;
+        long escritos = 0;
+        boolean comprobarDuplicados = reanudando;
+        Lote lote;
+        while ((lote = tomar(entrada)) != FIN) {
+            if (comprobarDuplicados) {
+                escritos += destino.agregarJugadores(lote.jugadores);
+                comprobarDuplicados = false;
+            } else {
+                destino.anexarJugadores(lote.jugadores);
+                escritos += lote.jugadores.size();
+            }
+            procesados += lote.leidos;
+            guardarPuntoControl(procesados);
+        }
+        return escritos;
+    }
+
+    /**
+     * Indica si el destino no tiene ningún jugador. El recorrido se detiene en el primero que encuentra.
+     */
+    private boolean destinoVacio() throws IOException {
+        boolean[] vacio = {true};
+        destino.recorrerJugadores(jugador -> {
+            vacio[0] = false;
+            return false;
+        });
+        return vacio[0];
+    }
+
+    /**
+     * Lee del punto de control el número de jugadores de origen ya convertidos.
+     *
+     * @return Número de jugadores ya procesados, o 0 si no hay punto de control.
+     * @throws IOException Si el punto de control existe pero no se puede leer.
+     */
+    private long leerPuntoControl() throws IOException {
+        if (puntoControl == null || !puntoControl.exists()) {
+            return 0;
+        }
+        String contenido = new String(Files.readAllBytes(puntoControl.toPath()), StandardCharsets.UTF_8).trim();
+        try {
+            return Long.parseLong(contenido.substring(contenido.indexOf('=') + 1).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Punto de control no válido: " + puntoControl, e);
+        }
+    }
+
+    /**
+     * Guarda el punto de control escribiendo un archivo temporal y renombrándolo,
+     * de modo que nunca queda un punto de control a medio escribir.
+     *
+     * @param procesados Número de jugadores de origen ya convertidos.
+     * @throws IOException Si ocurre un error al escribir el archivo.
+     */
+    private void guardarPuntoControl(long procesados) throws IOException {
+        if (puntoControl == null) {
+            return;
+        }
+        File temporal = new File(puntoControl.getPath() + ".tmp");
+        Files.write(temporal.toPath(), ("procesados=" + procesados).getBytes(StandardCharsets.UTF_8));
+        Files.move(temporal.toPath(), puntoControl.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void poner(BlockingQueue<Lote> cola, Lote lote) throws InterruptedException {
+        while (!cola.offer(lote, 100, TimeUnit.MILLISECONDS)) {
+            if (error.get() != null) {
+                throw new InterruptedException("Conversión cancelada");
+            }
+        }
+    }
+
+    private Lote tomar(BlockingQueue<Lote> cola) throws InterruptedException {
+        Lote lote;
+        while ((lote = cola.poll(100, TimeUnit.MILLISECONDS)) == null) {
+            if (error.get() != null) {
+                throw new InterruptedException("Conversión cancelada");
+            }
+        }
+        return lote;
+    }
+
+    private void ejecutar(Etapa etapa) {
+        try {
+            etapa.ejecutar();
+        } catch (Throwable e) {
+            error.compareAndSet(null, e);
+        }
+    }
+
+    /**
+     * Etapa de la tubería que puede lanzar excepciones comprobadas.
+     */
+    @FunctionalInterface
+    private interface Etapa {
+        void ejecutar() throws Exception;
+    }
+
+    /**
+     * Lote de jugadores que circula por la tubería junto con el número de jugadores de origen que representa.
+     */
+    private static final class Lote {
+        private final List<Jugador> jugadores;
+        private final int leidos;
+
+        private Lote(List<Jugador> jugadores, int leidos) {
+            this.jugadores = jugadores;
+            this.leidos = leidos;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * La clase CursorJugadores recorre los jugadores de un GestionFichero bajo demanda: cada llamada a siguiente lee
+ * solo lo necesario para devolver el jugador siguiente, de modo que recorrer un almacén grande no exige tenerlo
+ * entero en memoria ni esperar a leerlo completo. Lo crea GestionFichero.abrirCursor y hay que cerrarlo al terminar.
+ *
+ * En cualquier momento continuacion devuelve un texto opaco que, pasado a abrirCursor, crea un cursor que sigue
+ * justo después del último jugador devuelto. Cada backend codifica en él su posición en el archivo (número de
+ * registro, desplazamiento, ID...), así que si el almacén se modifica entre dos páginas un jugador puede
+ * aparecer dos veces o ninguna, como en cualquier paginación por posición.
+ */
+public abstract class CursorJugadores implements Closeable {
+
+    /**
+     * Devuelve el jugador siguiente.
+     *
+     * @return El jugador siguiente, o null si no quedan más.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public abstract Jugador siguiente() throws IOException;
+
+    /**
+     * Devuelve el texto de continuación que reanuda el recorrido después del último jugador devuelto.
+     *
+     * @return Texto de continuación para GestionFichero.abrirCursor.
+     */
+    public abstract String continuacion();
+
+    /**
+     * Libera los recursos del cursor. La implementación por defecto no hace nada.
+     *
+     * @throws IOException Si ocurre un error al cerrar el archivo.
+     */
+    @Override
+    public void close() throws IOException {
+    }
+
+    /**
+     * Devuelve un Stream secuencial con los jugadores restantes del cursor. Cerrar el Stream cierra el cursor,
+     * por lo que debe usarse en un try-with-resources. Los errores de lectura se lanzan como UncheckedIOException.
+     *
+     * @return Stream perezoso de jugadores.
+     */
+    public Stream<Jugador> stream() {
+        Spliterator<Jugador> spliterator = new Spliterators.AbstractSpliterator<Jugador>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Jugador> accion) {
+                Jugador jugador;
+                try {
+                    jugador = siguiente();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (jugador == null) {
+                    return false;
+                }
+                accion.accept(jugador);
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Convierte un texto de continuación numérico en la posición que representa.
+     *
+     * @param continuacion Texto de continuación, o null para empezar desde el principio.
+     * @return La posición, 0 si el texto es null.
+     * @throws IllegalArgumentException Si el texto no es una posición válida.
+     */
+    static long posicion(String continuacion) {
+        if (continuacion == null || continuacion.isEmpty()) {
+            return 0;
+        }
+        try {
+            long posicion = Long.parseLong(continuacion);
+            if (posicion < 0) {
+                throw new IllegalArgumentException("Texto de continuación no válido: " + continuacion);
+            }
+            return posicion;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Texto de continuación no válido: " + continuacion);
+        }
+    }
+
+    /**
+     * Envuelve un cursor para que cada llamada se haga con el cerrojo de un objeto, el mismo que usan
+     * las demás operaciones del almacén que lo creó.
+     */
+    static CursorJugadores sincronizado(CursorJugadores cursor, Object cerrojo) {
+        return new CursorJugadores() {
+            @Override
+            public Jugador siguiente() throws IOException {
+                synchronized (cerrojo) {
+                    return cursor.siguiente();
+                }
+            }
+
+            @Override
+            public String continuacion() {
+                synchronized (cerrojo) {
+                    return cursor.continuacion();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                synchronized (cerrojo) {
+                    cursor.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Cursor sobre una lista ya cargada, para los formatos que no pueden leerse de forma incremental.
+     * La continuación es el índice del siguiente jugador de la lista.
+     */
+    static CursorJugadores deLista(List<Jugador> jugadores, String continuacion) {
+        long desde = posicion(continuacion);
+        return new CursorJugadores() {
+            private int siguiente = (int) Math.min(desde, jugadores.size());
+
+            @Override
+            public Jugador siguiente() {
+                return siguiente < jugadores.size() ? jugadores.get(siguiente++) : null;
+            }
+
+            @Override
+            public String continuacion() {
+                return Integer.toString(siguiente);
+            }
+        };
+    }
+}
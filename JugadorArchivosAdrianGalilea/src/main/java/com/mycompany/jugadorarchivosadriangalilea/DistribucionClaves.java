@@ -0,0 +1,84 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.util.Random;
+
+/**
+ * Distribución de las claves que elige el generador de carga, como posición entre 0 y n - 1 dentro
+ * del conjunto de jugadores precargados. Las implementaciones no guardan estado entre llamadas,
+ * así que varios hilos pueden compartirlas usando cada uno su propio Random.
+ */
+interface DistribucionClaves {
+
+    /**
+     * Elige la siguiente clave.
+     *
+     * @param aleatorio Generador de números aleatorios del hilo que llama.
+     * @return Posición de la clave, entre 0 y n - 1.
+     */
+    int siguiente(Random aleatorio);
+
+    /**
+     * Todas las claves con la misma probabilidad.
+     *
+     * @param n Número de claves.
+     * @return La distribución uniforme.
+     */
+    static DistribucionClaves uniforme(int n) {
+        return aleatorio -> aleatorio.nextInt(n);
+    }
+
+    /**
+     * Distribución de Zipf: la clave de rango k se elige con probabilidad proporcional a 1 / k^theta, como en
+     * los accesos reales en que unos pocos jugadores concentran la mayoría de las operaciones. Se usa el método
+     * de Gray et al. ("Quickly generating billion-record synthetic databases"), que calcula la constante
+     * zeta(n) una sola vez y después genera cada clave en tiempo constante. Los rangos se dispersan con un hash
+     * para que las claves más frecuentes no sean los IDs consecutivos más bajos.
+     *
+     * @param n     Número de claves.
+     * @param theta Exponente, mayor que 0 y menor que 1 (0.99 es el valor habitual).
+     * @return La distribución de Zipf.
+     */
+    static DistribucionClaves zipf(int n, double theta) {
+        if (theta <= 0 || theta >= 1) {
+            throw new IllegalArgumentException("El exponente de Zipf debe estar entre 0 y 1: " + theta);
+        }
+        double zetaN = zeta(n, theta);
+        double zeta2 = zeta(2, theta);
+        double alfa = 1 / (1 - theta);
+        double eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta2 / zetaN);
+        double umbralSegundo = 1 + Math.pow(0.5, theta);
+        return aleatorio -> {
+            double u = aleatorio.nextDouble();
+            double uz = u * zetaN;
+            long rango;
+            if (uz < 1) {
+                rango = 0;
+            } else if (uz < umbralSegundo) {
+                rango = 1;
+            } else {
+                rango = Math.min(n - 1, (long) (n * Math.pow(eta * u - eta + 1, alfa)));
+            }
+            return (int) Math.floorMod(dispersar(rango), (long) n);
+        };
+    }
+
+    private static double zeta(int n, double theta) {
+        double suma = 0;
+        for (int i = 1; i <= n; i++) {
+            suma += 1 / Math.pow(i, theta);
+        }
+        return suma;
+    }
+
+    /**
+     * Hash FNV-1a de 64 bits sobre los bytes del rango.
+     */
+    private static long dispersar(long rango) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < 8; i++) {
+            hash ^= (rango >>> (8 * i)) & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+}
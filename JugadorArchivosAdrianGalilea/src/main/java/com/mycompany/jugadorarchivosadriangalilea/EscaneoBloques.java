@@ -0,0 +1,159 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * La clase EscaneoBloques recorre un archivo de registros de tamaño fijo de GestionAccesoAleatorio por bloques.
+ * Cada bloque se lee con una lectura posicional, se copia de una vez a un array de int (el registro de 56 bytes
+ * son 14 enteros y los campos numéricos caen en posiciones enteras fijas) y los rangos de la consulta se evalúan
+ * sobre todo el bloque con un EvaluadorRangos, vectorial si la JVM tiene el módulo jdk.incubator.vector y escalar
+ * si no. Solo los registros seleccionados llegan al procesador, de modo que los descartados no cuestan ningún salto
+ * por registro ni ninguna decodificación.
+ */
+final class EscaneoBloques {
+
+    static final int INTS_POR_REGISTRO = GestionAccesoAleatorio.TAMAÑO_REGISTRO / Integer.BYTES;
+    static final int INT_ID = 0;
+    static final int INT_EXPERIENCE = GestionAccesoAleatorio.OFFSET_EXPERIENCE / Integer.BYTES;
+    static final int INT_LIFE_LEVEL = GestionAccesoAleatorio.OFFSET_LIFE_LEVEL / Integer.BYTES;
+    static final int INT_COINS = GestionAccesoAleatorio.OFFSET_COINS / Integer.BYTES;
+
+    private static final int REGISTROS_POR_BLOQUE = 4096;
+    private static final EvaluadorRangos EVALUADOR = EvaluadorRangos.crear();
+
+    private final FileChannel canal;
+    private final ByteBuffer bloque;
+    private final int[] registros;
+    private final int[] seleccion;
+    private final int[] minimos = new int[4];
+    private final int[] maximos = new int[4];
+
+    /**
+     * Crea un escaneo sobre el canal de un archivo de acceso aleatorio. Reserva los buffers de un bloque,
+     * que se reutilizan en todos los recorridos de este escaneo.
+     *
+     * @param canal Canal del archivo de registros.
+     */
+    EscaneoBloques(FileChannel canal) {
+        this.canal = canal;
+        this.bloque = ByteBuffer.allocate(GestionAccesoAleatorio.TAMAÑO_REGISTRO * REGISTROS_POR_BLOQUE);
+        this.registros = new int[INTS_POR_REGISTRO * REGISTROS_POR_BLOQUE];
+        this.seleccion = new int[REGISTROS_POR_BLOQUE];
+    }
+
+    /**
+     * Devuelve el nombre del evaluador que usan los escaneos de esta JVM.
+     *
+     * @return "escalar" o "vectorial (N carriles)".
+     */
+    static String getEvaluador() {
+        return EVALUADOR.getNombre();
+    }
+
+    /**
+     * Recorre los registros no eliminados que cumplen los rangos numéricos y el conjunto de IDs de la consulta.
+     * Las condiciones sobre el nick no se evalúan aquí.
+     *
+     * @param consulta   Consulta con las condiciones de filtrado.
+     * @param longitud   Longitud del archivo en bytes.
+     * @param procesador Procesador de cada registro seleccionado. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    void recorrer(ConsultaJugadores consulta, long longitud, ProcesadorRegistro procesador) throws IOException {
+        prepararRangos(consulta);
+        boolean filtraIds = consulta.filtraIds();
+        long pos = 0;
+        while (pos < longitud) {
+            int numRegistros = leerBloque(pos, longitud);
+            if (numRegistros == 0) {
+                return;
+            }
+            pos += bloque.limit();
+            int seleccionados = EVALUADOR.evaluar(registros, numRegistros, minimos, maximos, seleccion);
+            for (int i = 0; i < seleccionados; i++) {
+                int r = seleccion[i];
+                int base = r * INTS_POR_REGISTRO;
+                if (filtraIds && !consulta.aceptaNumericos(registros[base + INT_ID], registros[base + INT_EXPERIENCE],
+                        registros[base + INT_LIFE_LEVEL], registros[base + INT_COINS])) {
+                    continue;
+                }
+                if (!procesador.procesar(bloque, r * GestionAccesoAleatorio.TAMAÑO_REGISTRO)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Cuenta los registros no eliminados que cumplen los rangos numéricos y el conjunto de IDs de la consulta,
+     * sin llamar a ningún procesador.
+     *
+     * @param consulta Consulta con las condiciones de filtrado.
+     * @param longitud Longitud del archivo en bytes.
+     * @return Número de registros seleccionados.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    long contar(ConsultaJugadores consulta, long longitud) throws IOException {
+        if (consulta.filtraIds()) {
+            long[] cuenta = {0};
+            recorrer(consulta, longitud, (b, base) -> {
+                cuenta[0]++;
+                return true;
+            });
+            return cuenta[0];
+        }
+        prepararRangos(consulta);
+        long cuenta = 0;
+        long pos = 0;
+        while (pos < longitud) {
+            int numRegistros = leerBloque(pos, longitud);
+            if (numRegistros == 0) {
+                break;
+            }
+            pos += bloque.limit();
+            cuenta += EVALUADOR.evaluar(registros, numRegistros, minimos, maximos, seleccion);
+        }
+        return cuenta;
+    }
+
+    /**
+     * Copia los rangos de los campos numéricos de la consulta en el orden que espera el evaluador.
+     * El conjunto de IDs se comprueba aparte porque no es un rango.
+     */
+    private void prepararRangos(ConsultaJugadores consulta) {
+        CampoJugador[] campos = {CampoJugador.ID, CampoJugador.EXPERIENCE, CampoJugador.LIFE_LEVEL, CampoJugador.COINS};
+        for (int i = 0; i < campos.length; i++) {
+            minimos[i] = consulta.getMinimo(campos[i]);
+            maximos[i] = consulta.getMaximo(campos[i]);
+        }
+    }
+
+    /**
+     * Lee el bloque que empieza en una posición y lo copia al array de enteros.
+     *
+     * @return Número de registros completos leídos.
+     */
+    private int leerBloque(long pos, long longitud) throws IOException {
+        bloque.clear();
+        bloque.limit((int) Math.min(bloque.capacity(), longitud - pos));
+        while (bloque.hasRemaining()) {
+            if (canal.read(bloque, pos + bloque.position()) < 0) {
+                break;
+            }
+        }
+        bloque.flip();
+        int numRegistros = bloque.limit() / GestionAccesoAleatorio.TAMAÑO_REGISTRO;
+        bloque.asIntBuffer().get(registros, 0, numRegistros * INTS_POR_REGISTRO);
+        return numRegistros;
+    }
+
+    /**
+     * Procesa un registro de tamaño fijo que se encuentra dentro de un bloque leído del archivo.
+     */
+    @FunctionalInterface
+    interface ProcesadorRegistro {
+        boolean procesar(ByteBuffer bloque, int base) throws IOException;
+    }
+}
@@ -0,0 +1,111 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Utilidades para que los backends que reescriben el archivo completo no lo dejen a medias si el proceso
+ * termina durante la escritura. El contenido nuevo se escribe en un archivo temporal junto al original,
+ * se fuerza a disco y después sustituye al original con un renombrado atómico, de modo que tras una caída
+ * el archivo contiene el estado anterior o el nuevo, nunca una mezcla ni un archivo truncado.
+ */
+final class EscrituraAtomica {
+
+    private EscrituraAtomica() {
+    }
+
+    /**
+     * Escribe el contenido de un archivo de forma atómica.
+     *
+     * @param destino  Archivo que se sustituye.
+     * @param escritor Escritor que genera el contenido completo en el flujo que recibe.
+     * @throws IOException Si ocurre un error al escribir o al renombrar el archivo temporal.
+     */
+    static void escribir(File destino, Escritor escritor) throws IOException {
+        sustituir(escribirTemporal(destino, escritor), destino);
+        sincronizarDirectorio(destino);
+    }
+
+    /**
+     * Escribe el contenido nuevo de un archivo en un temporal junto a él y lo fuerza a disco, sin tocar todavía
+     * el original. Permite a quien reescribe el archivo generar el contenido fuera de su cerrojo y tomarlo
+     * solo para la sustitución.
+     *
+     * @param destino  Archivo que se va a sustituir.
+     * @param escritor Escritor que genera el contenido completo en el flujo que recibe.
+     * @return El archivo temporal escrito.
+     * @throws IOException Si ocurre un error al escribir el archivo temporal.
+     */
+    static File escribirTemporal(File destino, Escritor escritor) throws IOException {
+        File temporal = new File(destino.getPath() + ".tmp");
+        try (FileOutputStream salida = new FileOutputStream(temporal)) {
+            BufferedOutputStream buffer = new BufferedOutputStream(salida);
+            escritor.escribir(buffer);
+            buffer.flush();
+            salida.getFD().sync();
+        } catch (IOException | RuntimeException e) {
+            temporal.delete();
+            throw e;
+        }
+        return temporal;
+    }
+
+    /**
+     * Sustituye un archivo por un temporal escrito con escribirTemporal mediante un renombrado atómico.
+     * Si el renombrado falla, el temporal se borra.
+     *
+     * @param temporal Archivo temporal con el contenido nuevo.
+     * @param destino  Archivo que se sustituye.
+     * @throws IOException Si ocurre un error al renombrar.
+     */
+    static void sustituir(File temporal, File destino) throws IOException {
+        try {
+            Files.move(temporal.toPath(), destino.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            temporal.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Fuerza a disco el contenido de un archivo que se ha modificado añadiendo datos al final.
+     *
+     * @param archivo Archivo a sincronizar.
+     * @throws IOException Si ocurre un error al sincronizar.
+     */
+    static void sincronizar(File archivo) throws IOException {
+        if (!archivo.exists()) {
+            return;
+        }
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.WRITE)) {
+            canal.force(true);
+        }
+    }
+
+    /**
+     * Fuerza a disco la entrada de directorio del renombrado. No todos los sistemas permiten abrir
+     * un directorio como canal, así que si falla se ignora: el contenido del archivo ya está en disco.
+     */
+    static void sincronizarDirectorio(File archivo) {
+        File directorio = archivo.getAbsoluteFile().getParentFile();
+        if (directorio == null) {
+            return;
+        }
+        try (FileChannel canal = FileChannel.open(directorio.toPath(), StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException e) {
+            // El sistema de archivos no admite sincronizar directorios.
+        }
+    }
+
+    /**
+     * Genera el contenido completo de un archivo.
+     */
+    @FunctionalInterface
+    interface Escritor {
+        void escribir(OutputStream salida) throws IOException;
+    }
+}
@@ -0,0 +1,47 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+/**
+ * Evalúa los rangos de una consulta sobre un bloque de registros de tamaño fijo ya convertido a enteros.
+ * Cada registro ocupa EscaneoBloques.INTS_POR_REGISTRO enteros consecutivos y los campos numéricos están
+ * en posiciones fijas dentro de él. Hay una implementación escalar y otra con la Vector API de Java,
+ * que solo se usa si el módulo jdk.incubator.vector está cargado.
+ */
+interface EvaluadorRangos {
+
+    /**
+     * Selecciona los registros no eliminados (ID positivo) cuyos campos numéricos están dentro de los rangos.
+     *
+     * @param registros    Enteros del bloque, INTS_POR_REGISTRO por registro.
+     * @param numRegistros Número de registros completos en el bloque.
+     * @param minimos      Mínimos de ID, experiencia, nivel de vida y monedas, en ese orden.
+     * @param maximos      Máximos de los mismos campos.
+     * @param seleccion    Array donde se escriben los números de registro seleccionados.
+     * @return Número de registros seleccionados.
+     */
+    int evaluar(int[] registros, int numRegistros, int[] minimos, int[] maximos, int[] seleccion);
+
+    /**
+     * Nombre de la implementación, para trazas y comparativas.
+     *
+     * @return El nombre del evaluador.
+     */
+    String getNombre();
+
+    /**
+     * Crea el evaluador vectorial si el módulo jdk.incubator.vector está disponible en tiempo de ejecución
+     * (la JVM se lanzó con --add-modules jdk.incubator.vector), o el escalar en caso contrario.
+     *
+     * @return El evaluador más rápido disponible.
+     */
+    static EvaluadorRangos crear() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (EvaluadorRangos) Class.forName("com.mycompany.jugadorarchivosadriangalilea.EvaluadorRangosVectorial")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return new EvaluadorRangosEscalar();
+            }
+        }
+        return new EvaluadorRangosEscalar();
+    }
+}
@@ -0,0 +1,46 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import static com.mycompany.jugadorarchivosadriangalilea.EscaneoBloques.*;
+
+/**
+ * Implementación escalar de EvaluadorRangos. Evalúa todas las condiciones de cada registro con operadores
+ * sin cortocircuito y añade el registro a la selección sin saltos condicionales, de modo que el coste
+ * no depende de lo predecible que sea el filtro.
+ */
+final class EvaluadorRangosEscalar implements EvaluadorRangos {
+
+    @Override
+    public int evaluar(int[] registros, int numRegistros, int[] minimos, int[] maximos, int[] seleccion) {
+        return evaluarDesde(registros, 0, numRegistros, minimos, maximos, seleccion, 0);
+    }
+
+    /**
+     * Evalúa los registros desde un número de registro dado. La usa también el evaluador vectorial
+     * para los registros finales que no llenan un vector completo.
+     */
+    static int evaluarDesde(int[] registros, int desde, int hasta, int[] minimos, int[] maximos, int[] seleccion, int seleccionados) {
+        int minId = minimos[0], maxId = maximos[0];
+        int minExp = minimos[1], maxExp = maximos[1];
+        int minVida = minimos[2], maxVida = maximos[2];
+        int minMonedas = minimos[3], maxMonedas = maximos[3];
+        for (int r = desde; r < hasta; r++) {
+            int base = r * INTS_POR_REGISTRO;
+            int id = registros[base + INT_ID];
+            int exp = registros[base + INT_EXPERIENCE];
+            int vida = registros[base + INT_LIFE_LEVEL];
+            int monedas = registros[base + INT_COINS];
+            boolean acepta = (id > 0) & (id >= minId) & (id <= maxId)
+                    & (exp >= minExp) & (exp <= maxExp)
+                    & (vida >= minVida) & (vida <= maxVida)
+                    & (monedas >= minMonedas) & (monedas <= maxMonedas);
+            seleccion[seleccionados] = r;
+            seleccionados += acepta ? 1 : 0;
+        }
+        return seleccionados;
+    }
+
+    @Override
+    public String getNombre() {
+        return "escalar";
+    }
+}
@@ -0,0 +1,58 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static com.mycompany.jugadorarchivosadriangalilea.EscaneoBloques.*;
+
+/**
+ * Implementación de EvaluadorRangos con la Vector API (módulo incubado jdk.incubator.vector).
+ * Reúne en un vector el mismo campo de varios registros consecutivos con una lectura indexada
+ * (los registros están separados INTS_POR_REGISTRO enteros), compara todos los carriles a la vez contra
+ * el mínimo y el máximo y combina las máscaras de los cuatro campos. Solo se instancia desde
+ * EvaluadorRangos.crear() cuando el módulo está disponible.
+ */
+final class EvaluadorRangosVectorial implements EvaluadorRangos {
+
+    private static final VectorSpecies<Integer> ESPECIE = IntVector.SPECIES_PREFERRED;
+    private static final int CARRILES = ESPECIE.length();
+    private static final int[] MAPA = new int[CARRILES];
+
+    static {
+        for (int i = 0; i < CARRILES; i++) {
+            MAPA[i] = i * INTS_POR_REGISTRO;
+        }
+    }
+
+    @Override
+    public int evaluar(int[] registros, int numRegistros, int[] minimos, int[] maximos, int[] seleccion) {
+        int seleccionados = 0;
+        int r = 0;
+        for (; r + CARRILES <= numRegistros; r += CARRILES) {
+            int base = r * INTS_POR_REGISTRO;
+            VectorMask<Integer> mascara = enRango(registros, base + INT_ID, minimos[0], maximos[0])
+                    .and(IntVector.fromArray(ESPECIE, registros, base + INT_ID, MAPA, 0).compare(VectorOperators.GT, 0))
+                    .and(enRango(registros, base + INT_EXPERIENCE, minimos[1], maximos[1]))
+                    .and(enRango(registros, base + INT_LIFE_LEVEL, minimos[2], maximos[2]))
+                    .and(enRango(registros, base + INT_COINS, minimos[3], maximos[3]));
+            long bits = mascara.toLong();
+            while (bits != 0) {
+                seleccion[seleccionados++] = r + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        return EvaluadorRangosEscalar.evaluarDesde(registros, r, numRegistros, minimos, maximos, seleccion, seleccionados);
+    }
+
+    private static VectorMask<Integer> enRango(int[] registros, int desde, int minimo, int maximo) {
+        IntVector valores = IntVector.fromArray(ESPECIE, registros, desde, MAPA, 0);
+        return valores.compare(VectorOperators.GE, minimo).and(valores.compare(VectorOperators.LE, maximo));
+    }
+
+    @Override
+    public String getNombre() {
+        return "vectorial (" + CARRILES + " carriles)";
+    }
+}
@@ -0,0 +1,94 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Filtro de Bloom sobre IDs de jugador. Responde si un ID puede estar en un conjunto sin guardar el conjunto:
+ * si dice que no, el ID no está; si dice que sí, está con una probabilidad de error de alrededor del 1 %
+ * con los 10 bits por elemento que usa. GestionLSM lo guarda con cada tramo para no leer del disco los tramos
+ * que no contienen el ID buscado.
+ */
+final class FiltroBloom {
+
+    private static final int BITS_POR_ELEMENTO = 10;
+    private static final int FUNCIONES = 7;
+
+    private final long[] bits;
+    private final int numeroFunciones;
+
+    /**
+     * Crea un filtro vacío dimensionado para un número de elementos.
+     *
+     * @param elementos Número de elementos previsto; si se añaden más, aumenta la probabilidad de error.
+     */
+    FiltroBloom(int elementos) {
+        long numeroBits = Math.max(64, (long) elementos * BITS_POR_ELEMENTO);
+        this.bits = new long[(int) Math.min(Integer.MAX_VALUE - 8, (numeroBits + 63) / 64)];
+        this.numeroFunciones = FUNCIONES;
+    }
+
+    private FiltroBloom(long[] bits, int numeroFunciones) {
+        this.bits = bits;
+        this.numeroFunciones = numeroFunciones;
+    }
+
+    void añadir(int id) {
+        long h = mezclar(id);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        long numeroBits = (long) bits.length * 64;
+        for (int i = 0; i < numeroFunciones; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % numeroBits;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    boolean puedeContener(int id) {
+        long h = mezclar(id);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        long numeroBits = (long) bits.length * 64;
+        for (int i = 0; i < numeroFunciones; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % numeroBits;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void escribir(DataOutputStream salida) throws IOException {
+        salida.writeInt(numeroFunciones);
+        salida.writeInt(bits.length);
+        for (long palabra : bits) {
+            salida.writeLong(palabra);
+        }
+    }
+
+    static FiltroBloom leer(DataInputStream entrada) throws IOException {
+        int numeroFunciones = entrada.readInt();
+        int palabras = entrada.readInt();
+        if (numeroFunciones < 1 || palabras < 1) {
+            throw new IOException("Filtro de Bloom no válido");
+        }
+        long[] bits = new long[palabras];
+        for (int i = 0; i < palabras; i++) {
+            bits[i] = entrada.readLong();
+        }
+        return new FiltroBloom(bits, numeroFunciones);
+    }
+
+    /**
+     * Función de mezcla de 64 bits (la del final de MurmurHash3) para repartir IDs consecutivos por todo el filtro.
+     */
+    private static long mezclar(int id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
@@ -0,0 +1,139 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.IOException;
+
+/**
+ * Enumeración con los formatos de archivo disponibles para almacenar jugadores.
+ * Cada formato sabe crear la implementación de GestionFichero que le corresponde,
+ * de modo que el menú de configuración y el conversor de formatos comparten la misma lógica.
+ */
+public enum FormatoFichero {
+    TEXTO(1, "Texto"),
+    BINARIO(2, "Binario"),
+    OBJETO(3, "Objeto"),
+    ALEATORIO(4, "Aleatorio"),
+    XML(5, "XML"),
+    BINARIO_COMPRIMIDO(6, "Binario comprimido"),
+    LSM(7, "LSM"),
+    HASH_EXTENSIBLE(8, "Hash extensible"),
+    ARBOL_B_MAS(9, "Árbol B+");
+
+    private final int opcion;
+    private final String nombre;
+
+    FormatoFichero(int opcion, String nombre) {
+        this.opcion = opcion;
+        this.nombre = nombre;
+    }
+
+    public int getOpcion() {
+        return opcion;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * Abre (o crea si no existe) un archivo de jugadores con este formato.
+     *
+     * @param ruta Ruta del archivo.
+     * @return La implementación de GestionFichero correspondiente al formato.
+     * @throws IOException Si ocurre un error al crear o acceder al archivo.
+     */
+    public GestionFichero abrir(String ruta) throws IOException {
+        switch (this) {
+            case TEXTO:
+                return new GestionTexto(ruta);
+            case BINARIO:
+                return new GestionBinario(ruta);
+            case OBJETO:
+                return new GestionObjetos(ruta);
+            case ALEATORIO:
+                return new GestionAccesoAleatorio(ruta);
+            case XML:
+                return new GestionXML(ruta);
+            case BINARIO_COMPRIMIDO:
+                return new GestionBinarioComprimido(ruta);
+            case LSM:
+                return new GestionLSM(ruta);
+            case HASH_EXTENSIBLE:
+                return new GestionHashExtensible(ruta);
+            case ARBOL_B_MAS:
+                return new GestionArbolBMas(ruta);
+            default:
+                throw new IllegalStateException("Formato no soportado: " + this);
+        }
+    }
+
+    /**
+     * Abre (o crea si no existe) un archivo de jugadores con este formato para usarlo a la vez desde varios procesos:
+     * el de acceso aleatorio en modo compartido, que bloquea registro a registro, y el resto envuelto en
+     * GestionConBloqueos, que bloquea el archivo entero.
+     *
+     * @param ruta Ruta del archivo.
+     * @param modo Política de espera entre lectores y escritores.
+     * @return La implementación de GestionFichero correspondiente al formato, preparada para compartirse.
+     * @throws IOException Si ocurre un error al crear o acceder al archivo.
+     * @throws IllegalArgumentException Si el formato no se puede compartir entre procesos.
+     */
+    public GestionFichero abrirCompartido(String ruta, CerrojoArchivo.Modo modo) throws IOException {
+        if (this == ALEATORIO) {
+            return new GestionAccesoAleatorio(ruta, modo);
+        }
+        GestionFichero gestion = abrir(ruta);
+        try {
+            return new GestionConBloqueos(gestion, ruta, modo);
+        } catch (IOException | RuntimeException e) {
+            gestion.cerrar();
+            throw e;
+        }
+    }
+
+    /**
+     * Busca el formato asociado a una opción del menú.
+     *
+     * @param opcion Número de opción elegido por el usuario.
+     * @return El formato correspondiente, o null si la opción no es válida.
+     */
+    public static FormatoFichero porOpcion(int opcion) {
+        for (FormatoFichero formato : values()) {
+            if (formato.opcion == opcion) {
+                return formato;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Busca un formato por su nombre de constante (por ejemplo "aleatorio"), sin distinguir mayúsculas,
+     * o por su número de opción, para los programas que lo reciben como argumento.
+     *
+     * @param nombre Nombre o número de opción del formato.
+     * @return El formato correspondiente, o null si no existe.
+     */
+    public static FormatoFichero porNombre(String nombre) {
+        for (FormatoFichero formato : values()) {
+            if (formato.name().equalsIgnoreCase(nombre) || String.valueOf(formato.opcion).equals(nombre)) {
+                return formato;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Devuelve el texto con las opciones disponibles para mostrarlo en el menú.
+     *
+     * @return Cadena con el formato "1 Texto 2 Binario ...".
+     */
+    public static String descripcionOpciones() {
+        StringBuilder sb = new StringBuilder();
+        for (FormatoFichero formato : values()) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(formato.opcion).append(' ').append(formato.nombre);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,501 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * La clase GeneradorCarga lanza una carga configurable de operaciones contra cualquier GestionFichero, al estilo
+ * de YCSB, para comparar backends y dimensionar el hardware: mezcla de operaciones, distribución de las claves
+ * (uniforme o de Zipf), número de hilos y ritmo objetivo. Durante la prueba muestra el rendimiento de cada
+ * segundo y al final los percentiles de latencia de cada tipo de operación.
+ *
+ * Con un ritmo objetivo cada operación tiene un instante previsto y su latencia se mide desde ese instante,
+ * no desde que empieza de verdad, para que los retrasos acumulados cuando el almacén no da abasto aparezcan
+ * en los percentiles (omisión coordinada). También puede grabar las operaciones que genera y reproducir
+ * trazas, propias o grabadas con GestionConTraza sobre la aplicación real.
+ *
+ * Uso: GeneradorCarga clave=valor... (ver main)
+ */
+public class GeneradorCarga {
+
+    private static final Map<String, String> MEZCLAS = new HashMap<>();
+
+    static {
+        MEZCLAS.put("lectura", "obtener=95,modificar=5");
+        MEZCLAS.put("mixta", "obtener=50,modificar=50");
+        MEZCLAS.put("insercion", "agregar=90,obtener=10");
+        MEZCLAS.put("recorrido", "recorrer=95,agregar=5");
+    }
+
+    private final GestionFichero[] gestiones;
+    private final double[] pesos = pesosDeMezcla("lectura");
+    private int numJugadores = 10000;
+    private double theta = 0.99;
+    private int hilos = 1;
+    private double tasa;
+    private long operaciones = 100000;
+    private long duracionNanos;
+    private int longitudRecorrido = 100;
+    private long semilla = 42;
+    private TrazaOperaciones grabacion;
+    private List<TrazaOperaciones.Paso> reproduccion;
+    private double velocidad = 1;
+    private PrintStream salida = System.out;
+
+    /**
+     * Constructor de la clase GeneradorCarga.
+     *
+     * @param gestiones Almacén sobre el que se lanza la carga. Debe admitir llamadas desde varios hilos
+     *                  (por ejemplo envuelto en GestionSincronizada). Si se pasan varios, cada hilo usa uno
+     *                  de ellos, lo que permite dar a cada hilo su propia conexión con ClienteJugadores.
+     */
+    public GeneradorCarga(GestionFichero... gestiones) {
+        if (gestiones.length == 0) {
+            throw new IllegalArgumentException("Hace falta al menos un almacén");
+        }
+        this.gestiones = gestiones;
+    }
+
+    /**
+     * Uso: GeneradorCarga clave=valor...
+     * <ul>
+     *     <li>formato, ruta: almacén local (por defecto aleatorio y jugadores.carga en el directorio temporal).</li>
+     *     <li>particiones: reparte el almacén local en ese número de particiones con GestionParticionada.</li>
+     *     <li>servidor: host:puerto de un ServidorJugadores; se abre una conexión por hilo.</li>
+     *     <li>jugadores: número de jugadores precargados sobre los que se eligen las claves (10000).</li>
+     *     <li>precargar: false para no agregar los jugadores antes de empezar.</li>
+     *     <li>mezcla: lectura, mixta, insercion, recorrido o pesos como "obtener=95,modificar=5".</li>
+     *     <li>distribucion: zipf o uniforme; theta: exponente de Zipf (0.99).</li>
+     *     <li>hilos, tasa (operaciones por segundo en total, 0 sin límite), operaciones, duracion (segundos).</li>
+     *     <li>grabar: archivo donde se graba la traza; reproducir: traza a reproducir; velocidad: factor
+     *     de velocidad de la reproducción respecto a la traza, 0 para reproducir sin esperas.</li>
+     * </ul>
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> opciones = new HashMap<>();
+        for (String arg : args) {
+            int igual = arg.indexOf('=');
+            if (igual < 0) {
+                System.out.println("Argumento no válido, se esperaba clave=valor: " + arg);
+                return;
+            }
+            opciones.put(arg.substring(0, igual), arg.substring(igual + 1));
+        }
+        int hilos = Integer.parseInt(opciones.getOrDefault("hilos", "1"));
+        GestionFichero[] gestiones = abrirAlmacen(opciones, hilos);
+        TrazaOperaciones grabacion = null;
+        try {
+            GeneradorCarga generador = new GeneradorCarga(gestiones)
+                    .jugadores(Integer.parseInt(opciones.getOrDefault("jugadores", "10000")))
+                    .mezcla(opciones.getOrDefault("mezcla", "lectura"))
+                    .hilos(hilos)
+                    .tasa(Double.parseDouble(opciones.getOrDefault("tasa", "0")))
+                    .operaciones(Long.parseLong(opciones.getOrDefault("operaciones", "100000")));
+            if (opciones.containsKey("duracion")) {
+                generador.duracion(Integer.parseInt(opciones.get("duracion")));
+            }
+            if ("uniforme".equals(opciones.get("distribucion"))) {
+                generador.uniforme();
+            } else {
+                generador.zipf(Double.parseDouble(opciones.getOrDefault("theta", "0.99")));
+            }
+            if (opciones.containsKey("grabar")) {
+                grabacion = new TrazaOperaciones(new File(opciones.get("grabar")));
+                generador.grabar(grabacion);
+            }
+            if (opciones.containsKey("reproducir")) {
+                generador.reproducir(TrazaOperaciones.leer(new File(opciones.get("reproducir"))),
+                        Double.parseDouble(opciones.getOrDefault("velocidad", "1")));
+            }
+            if (!"false".equals(opciones.get("precargar"))) {
+                System.out.println("Precargados " + generador.precargar() + " jugadores");
+            }
+            generador.ejecutar();
+        } finally {
+            if (grabacion != null) {
+                grabacion.cerrar();
+            }
+            for (GestionFichero gestion : gestiones) {
+                gestion.cerrar();
+            }
+        }
+    }
+
+    private static GestionFichero[] abrirAlmacen(Map<String, String> opciones, int hilos) throws IOException {
+        if (opciones.containsKey("servidor")) {
+            String[] direccion = opciones.get("servidor").split(":");
+            GestionFichero[] clientes = new GestionFichero[hilos];
+            for (int i = 0; i < hilos; i++) {
+                clientes[i] = new ClienteJugadores(direccion[0], Integer.parseInt(direccion[1]));
+            }
+            return clientes;
+        }
+        FormatoFichero formato = FormatoFichero.porNombre(opciones.getOrDefault("formato", "aleatorio"));
+        if (formato == null) {
+            throw new IllegalArgumentException("Formato no válido: " + opciones.get("formato"));
+        }
+        String ruta = opciones.getOrDefault("ruta", new File(System.getProperty("java.io.tmpdir"), "jugadores.carga").getPath());
+        if (opciones.containsKey("particiones")) {
+            return new GestionFichero[]{new GestionParticionada(ruta, formato, Integer.parseInt(opciones.get("particiones")))};
+        }
+        return new GestionFichero[]{new GestionSincronizada(formato.abrir(ruta))};
+    }
+
+    /**
+     * Número de jugadores precargados. Las claves de las operaciones se eligen entre los IDs 1 a n
+     * y los jugadores nuevos reciben IDs a partir de n + 1.
+     */
+    public GeneradorCarga jugadores(int numJugadores) {
+        if (numJugadores < 1) {
+            throw new IllegalArgumentException("Hace falta al menos un jugador");
+        }
+        this.numJugadores = numJugadores;
+        return this;
+    }
+
+    /**
+     * Fija la mezcla de operaciones, por nombre (lectura, mixta, insercion, recorrido) o como lista de pesos
+     * "operacion=peso" separados por comas, por ejemplo "obtener=95,modificar=5".
+     *
+     * @param mezcla Nombre o lista de pesos.
+     * @return Este generador, para encadenar llamadas.
+     */
+    public GeneradorCarga mezcla(String mezcla) {
+        double[] nuevos = pesosDeMezcla(mezcla);
+        System.arraycopy(nuevos, 0, pesos, 0, pesos.length);
+        return this;
+    }
+
+    /**
+     * Convierte una mezcla, por nombre o como lista de pesos, en el peso de cada operación.
+     */
+    private static double[] pesosDeMezcla(String mezcla) {
+        String definicion = MEZCLAS.getOrDefault(mezcla.toLowerCase(), mezcla);
+        double[] nuevos = new double[OperacionCarga.values().length];
+        for (String parte : definicion.split(",")) {
+            String[] clavePeso = parte.trim().split("=");
+            if (clavePeso.length != 2) {
+                throw new IllegalArgumentException("Mezcla no válida: " + mezcla);
+            }
+            nuevos[OperacionCarga.valueOf(clavePeso[0].trim().toUpperCase()).ordinal()] = Double.parseDouble(clavePeso[1]);
+        }
+        double total = 0;
+        for (double peso : nuevos) {
+            if (peso < 0) {
+                throw new IllegalArgumentException("Los pesos no pueden ser negativos: " + mezcla);
+            }
+            total += peso;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("La mezcla no tiene ninguna operación: " + mezcla);
+        }
+        return nuevos;
+    }
+
+    public GeneradorCarga zipf(double theta) {
+        this.theta = theta;
+        return this;
+    }
+
+    public GeneradorCarga uniforme() {
+        this.theta = 0;
+        return this;
+    }
+
+    public GeneradorCarga hilos(int hilos) {
+        if (hilos < 1) {
+            throw new IllegalArgumentException("Hace falta al menos un hilo");
+        }
+        this.hilos = hilos;
+        return this;
+    }
+
+    /**
+     * Ritmo objetivo en operaciones por segundo entre todos los hilos, o 0 para ir tan rápido como se pueda.
+     */
+    public GeneradorCarga tasa(double tasa) {
+        this.tasa = Math.max(0, tasa);
+        return this;
+    }
+
+    public GeneradorCarga operaciones(long operaciones) {
+        this.operaciones = operaciones;
+        return this;
+    }
+
+    /**
+     * Duración de la prueba en segundos. Si se indica, tiene prioridad sobre el número de operaciones.
+     */
+    public GeneradorCarga duracion(int segundos) {
+        this.duracionNanos = TimeUnit.SECONDS.toNanos(segundos);
+        return this;
+    }
+
+    public GeneradorCarga longitudRecorrido(int longitudRecorrido) {
+        this.longitudRecorrido = longitudRecorrido;
+        return this;
+    }
+
+    public GeneradorCarga semilla(long semilla) {
+        this.semilla = semilla;
+        return this;
+    }
+
+    public GeneradorCarga salida(PrintStream salida) {
+        this.salida = salida;
+        return this;
+    }
+
+    /**
+     * Graba en la traza cada operación ejecutada.
+     */
+    public GeneradorCarga grabar(TrazaOperaciones grabacion) {
+        this.grabacion = grabacion;
+        return this;
+    }
+
+    /**
+     * Reproduce una traza en lugar de generar operaciones. Con velocidad 1 cada operación se lanza en el mismo
+     * instante relativo en que se grabó, con 2 al doble de ritmo y con 0 sin esperas.
+     */
+    public GeneradorCarga reproducir(List<TrazaOperaciones.Paso> pasos, double velocidad) {
+        this.reproduccion = pasos;
+        this.velocidad = Math.max(0, velocidad);
+        return this;
+    }
+
+    /**
+     * Agrega los jugadores con IDs 1 a n, por lotes. Los que ya existan se ignoran.
+     *
+     * @return Número de jugadores agregados.
+     * @throws IOException Si ocurre un error al escribir en el almacén.
+     */
+    public int precargar() throws IOException {
+        Random aleatorio = new Random(semilla);
+        int agregados = 0;
+        for (int desde = 1; desde <= numJugadores; desde += 10000) {
+            List<Jugador> lote = new ArrayList<>();
+            for (int id = desde; id < desde + 10000 && id <= numJugadores; id++) {
+                lote.add(nuevoJugador(id, aleatorio));
+            }
+            agregados += gestiones[0].agregarJugadores(lote);
+        }
+        return agregados;
+    }
+
+    /**
+     * Ejecuta la prueba, mostrando el rendimiento de cada segundo mientras dura y un informe al terminar.
+     *
+     * @return Histograma de latencias de cada tipo de operación ejecutado.
+     */
+    public Map<OperacionCarga, HistogramaLatencias> ejecutar() {
+        Ejecucion ejecucion = new Ejecucion();
+        Thread[] trabajadores = new Thread[hilos];
+        for (int i = 0; i < hilos; i++) {
+            int hilo = i;
+            trabajadores[i] = new Thread(() -> ejecucion.trabajar(hilo), "carga-" + i);
+            trabajadores[i].start();
+        }
+        long anteriores = 0;
+        int segundo = 0;
+        for (Thread trabajador : trabajadores) {
+            while (trabajador.isAlive()) {
+                long siguiente = ejecucion.inicio + TimeUnit.SECONDS.toNanos(segundo + 1);
+                try {
+                    TimeUnit.NANOSECONDS.timedJoin(trabajador, Math.max(1, siguiente - System.nanoTime()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    ejecucion.detenido = true;
+                }
+                if (System.nanoTime() >= siguiente) {
+                    segundo++;
+                    long completadas = ejecucion.completadas.sum();
+                    salida.printf("%5d s %10d op/s%n", segundo, completadas - anteriores);
+                    anteriores = completadas;
+                }
+            }
+        }
+        long duracion = System.nanoTime() - ejecucion.inicio;
+        Map<OperacionCarga, HistogramaLatencias> resultado = ejecucion.combinar();
+        informar(resultado, duracion, ejecucion.errores.sum(), ejecucion.primerError);
+        return resultado;
+    }
+
+    private void informar(Map<OperacionCarga, HistogramaLatencias> resultado, long duracion, long errores, String primerError) {
+        long total = 0;
+        salida.printf("%-10s %10s %10s %10s %10s %10s %10s %10s%n", "Operación", "Total", "Media µs", "p50 µs", "p90 µs",
+                "p99 µs", "p99.9 µs", "Máx µs");
+        for (Map.Entry<OperacionCarga, HistogramaLatencias> entrada : resultado.entrySet()) {
+            HistogramaLatencias h = entrada.getValue();
+            total += h.getTotal();
+            salida.printf("%-10s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n", entrada.getKey(), h.getTotal(), h.media() / 1e3,
+                    h.percentil(50) / 1e3, h.percentil(90) / 1e3, h.percentil(99) / 1e3, h.percentil(99.9) / 1e3, h.getMaximo() / 1e3);
+        }
+        salida.printf("%d operaciones en %.2f s: %.0f op/s con %d hilos%n", total, duracion / 1e9, total / (duracion / 1e9), hilos);
+        if (errores > 0) {
+            salida.println(errores + " operaciones fallidas, la primera: " + primerError);
+        }
+    }
+
+    private Jugador nuevoJugador(int id, Random aleatorio) {
+        return new Jugador(id, "Jugador" + id, aleatorio.nextInt(100000), 1 + aleatorio.nextInt(100), aleatorio.nextInt(10000));
+    }
+
+    private static void esperarHasta(long instante) {
+        long espera;
+        while ((espera = instante - System.nanoTime()) > 0) {
+            if (espera > 2_000_000) {
+                LockSupport.parkNanos(espera - 1_000_000);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Estado compartido por los hilos de una ejecución.
+     */
+    private final class Ejecucion {
+
+        final long inicio = System.nanoTime();
+        final long fin = duracionNanos > 0 ? inicio + duracionNanos : Long.MAX_VALUE;
+        final AtomicLong restantes = new AtomicLong(duracionNanos > 0 ? Long.MAX_VALUE : operaciones);
+        final AtomicInteger siguientePaso = new AtomicInteger();
+        final long desfaseInicial = reproduccion == null || reproduccion.isEmpty() ? 0 : reproduccion.get(0).getDesfase();
+        final AtomicInteger siguienteId = new AtomicInteger(numJugadores + 1);
+        final LongAdder completadas = new LongAdder();
+        final LongAdder errores = new LongAdder();
+        final DistribucionClaves distribucion = theta > 0 ? DistribucionClaves.zipf(numJugadores, theta) : DistribucionClaves.uniforme(numJugadores);
+        final double[] acumulados = new double[pesos.length];
+        final HistogramaLatencias[][] histogramas = new HistogramaLatencias[hilos][OperacionCarga.values().length];
+        volatile String primerError;
+        volatile boolean detenido;
+
+        Ejecucion() {
+            double suma = 0;
+            for (int i = 0; i < pesos.length; i++) {
+                suma += pesos[i];
+                acumulados[i] = suma;
+            }
+            for (HistogramaLatencias[] porHilo : histogramas) {
+                for (int i = 0; i < porHilo.length; i++) {
+                    porHilo[i] = new HistogramaLatencias();
+                }
+            }
+        }
+
+        void trabajar(int hilo) {
+            GestionFichero gestion = gestiones[hilo % gestiones.length];
+            Random aleatorio = new Random(semilla + hilo);
+            long intervalo = tasa > 0 ? (long) (hilos * 1e9 / tasa) : 0;
+            long previsto = inicio + intervalo * hilo / hilos;
+            OperacionCarga[] tipos = OperacionCarga.values();
+            while (!detenido) {
+                OperacionCarga operacion;
+                int id;
+                long comienzo;
+                if (reproduccion != null) {
+                    int indice = siguientePaso.getAndIncrement();
+                    if (indice >= reproduccion.size()) {
+                        return;
+                    }
+                    TrazaOperaciones.Paso paso = reproduccion.get(indice);
+                    operacion = paso.getOperacion();
+                    id = paso.getId();
+                    if (velocidad > 0) {
+                        comienzo = inicio + (long) ((paso.getDesfase() - desfaseInicial) / velocidad);
+                        esperarHasta(comienzo);
+                    } else {
+                        comienzo = System.nanoTime();
+                    }
+                } else {
+                    if (restantes.getAndDecrement() <= 0) {
+                        return;
+                    }
+                    if (intervalo > 0) {
+                        esperarHasta(previsto);
+                        comienzo = previsto;
+                        previsto += intervalo;
+                    } else {
+                        comienzo = System.nanoTime();
+                    }
+                    if (comienzo >= fin) {
+                        return;
+                    }
+                    operacion = tipos[elegir(aleatorio.nextDouble() * acumulados[acumulados.length - 1])];
+                    id = operacion == OperacionCarga.AGREGAR ? siguienteId.getAndIncrement() : distribucion.siguiente(aleatorio) + 1;
+                }
+                try {
+                    if (grabacion != null) {
+                        grabacion.anotar(operacion, id);
+                    }
+                    ejecutarOperacion(gestion, operacion, id, aleatorio);
+                } catch (IOException | RuntimeException e) {
+                    errores.increment();
+                    if (primerError == null) {
+                        primerError = operacion + " " + id + ": " + e;
+                    }
+                }
+                histogramas[hilo][operacion.ordinal()].registrar(System.nanoTime() - comienzo);
+                completadas.increment();
+            }
+        }
+
+        private int elegir(double valor) {
+            for (int i = 0; i < acumulados.length; i++) {
+                if (valor < acumulados[i]) {
+                    return i;
+                }
+            }
+            return acumulados.length - 1;
+        }
+
+        private void ejecutarOperacion(GestionFichero gestion, OperacionCarga operacion, int id, Random aleatorio) throws IOException {
+            switch (operacion) {
+                case OBTENER:
+                    gestion.obtenerJugador(id);
+                    break;
+                case MODIFICAR:
+                    gestion.modificarJugador(id, nuevoJugador(id, aleatorio));
+                    break;
+                case AGREGAR:
+                    gestion.agregarJugador(nuevoJugador(id, aleatorio));
+                    break;
+                case ELIMINAR:
+                    gestion.eliminarJugador(id);
+                    break;
+                case RECORRER:
+                    gestion.consultar(new ConsultaJugadores().idEntre(id, id + longitudRecorrido - 1));
+                    break;
+                default:
+                    throw new IllegalStateException("Operación no soportada: " + operacion);
+            }
+        }
+
+        Map<OperacionCarga, HistogramaLatencias> combinar() {
+            Map<OperacionCarga, HistogramaLatencias> resultado = new EnumMap<>(OperacionCarga.class);
+            for (OperacionCarga operacion : OperacionCarga.values()) {
+                HistogramaLatencias total = new HistogramaLatencias();
+                for (HistogramaLatencias[] porHilo : histogramas) {
+                    total.combinar(porHilo[operacion.ordinal()]);
+                }
+                if (total.getTotal() > 0) {
+                    resultado.put(operacion, total);
+                }
+            }
+            return resultado;
+        }
+    }
+}
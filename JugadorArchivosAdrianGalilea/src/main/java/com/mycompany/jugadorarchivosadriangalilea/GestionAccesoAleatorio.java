@@ -1,35 +1,130 @@
 package com.mycompany.jugadorarchivosadriangalilea;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 
     /**
      * La clase GestionAccesoAleatorio extiende de la clase abstracta GestionFichero y proporciona una implementación
      * para gestionar jugadores utilizando un archivo de acceso aleatorio. Esta clase permite realizar operaciones como
      * agregar, eliminar, modificar, obtener y listar jugadores almacenados en un archivo utilizando la clase RandomAccessFile.
      * Cada jugador se almacena con un tamaño de registro fijo para permitir el acceso aleatorio por posición.
+     * La posición de cada ID se guarda en un IndiceIdPosicion, que se persiste al cerrar en un archivo junto
+     * al de datos con extensión ".ids" y se proyecta en memoria al abrir, de modo que las operaciones por ID
+     * no recorren el archivo y abrir un almacén grande no exige leerlo entero.
+     * Con un GrupoBuffers, obtenerJugador lee el registro de las páginas del grupo; las escrituras siguen yendo
+     * directamente al archivo y actualizan las páginas que el grupo tenga cargadas, y los recorridos leen el
+     * archivo por bloques sin pasar por el grupo para no expulsar las páginas de otros almacenes.
+     *
+     * Abierto en modo compartido, varios procesos pueden usar el mismo archivo a la vez: cada operación por ID
+     * bloquea con un CerrojoArchivo solo el registro que toca, las altas bloquean el final del archivo y los recorridos
+     * todo el archivo en modo compartido, así que dos procesos que trabajan con jugadores distintos no se esperan.
+     * Cada proceso pone al día su índice de IDs con los registros que los demás han añadido al final y comprueba en
+     * el registro que el ID sigue ahí antes de usarlo, porque otro proceso puede haberlo eliminado. Para que eso
+     * baste, en modo compartido un cambio de ID elimina el registro y añade el jugador al final en lugar de
+     * reescribirlo en su sitio. Las bajas se cuentan en el archivo del cerrojo, y al cerrar se reconstruye el índice
+     * antes de guardarlo si otro proceso ha eliminado jugadores.
      */
     public class GestionAccesoAleatorio extends GestionFichero {
 
-        private static final int TAMAÑO_REGISTRO = 56;
-        private static final int TAMAÑO_NICK = 20;
+        static final int TAMAÑO_REGISTRO = 56;
+        static final int TAMAÑO_NICK = 20;
+        static final int OFFSET_EXPERIENCE = Integer.BYTES + TAMAÑO_NICK * Character.BYTES;
+        static final int OFFSET_LIFE_LEVEL = OFFSET_EXPERIENCE + Integer.BYTES;
+        static final int OFFSET_COINS = OFFSET_LIFE_LEVEL + Integer.BYTES;
+        private static final int REGISTROS_POR_BLOQUE_CURSOR = 1024;
+        private static final CampoJugador[] CAMPOS_SUMABLES = {CampoJugador.EXPERIENCE, CampoJugador.LIFE_LEVEL, CampoJugador.COINS};
         private RandomAccessFile archivo;
+        private final File archivoDatos;
+        private final File archivoIndice;
+        private IndiceIdPosicion indice;
+        private final GrupoBuffers grupo;
+        private final GrupoBuffers.ArchivoPaginado paginado;
+        private final CerrojoArchivo cerrojo;
+        private final ByteBuffer entero = ByteBuffer.allocate(Integer.BYTES);
+        private long registrosVistos;
+        private long bajasVistas;
 
         /**
          * Constructor de la clase GestionAccesoAleatorio.
-         * Inicializa el archivo de acceso aleatorio para lectura y escritura.
+         * Inicializa el archivo de acceso aleatorio para lectura y escritura y abre el índice de IDs,
+         * que solo se reconstruye recorriendo el archivo si su instantánea no es válida.
          *
          * @param nombreArchivo Nombre del archivo donde se almacenarán los datos de los jugadores.
          * @throws IOException Si ocurre un error al acceder o crear el archivo.
          */
         public GestionAccesoAleatorio(String nombreArchivo) throws IOException {
+            this(nombreArchivo, null, null);
+        }
+
+        /**
+         * Constructor de la clase GestionAccesoAleatorio que lee los jugadores por ID a través de un grupo de buffers.
+         *
+         * @param nombreArchivo Nombre del archivo donde se almacenarán los datos de los jugadores.
+         * @param grupo         Grupo de buffers compartido, o null para leer directamente del archivo.
+         * @throws IOException Si ocurre un error al acceder o crear el archivo.
+         */
+        public GestionAccesoAleatorio(String nombreArchivo, GrupoBuffers grupo) throws IOException {
+            this(nombreArchivo, grupo, null);
+        }
+
+        /**
+         * Constructor de la clase GestionAccesoAleatorio en modo compartido entre procesos. El índice de IDs
+         * se abre con todo el archivo bloqueado en exclusiva.
+         *
+         * @param nombreArchivo Nombre del archivo donde se almacenarán los datos de los jugadores.
+         * @param modo          Política de espera entre lectores y escritores del cerrojo.
+         * @throws IOException Si ocurre un error al acceder o crear el archivo o el de su cerrojo.
+         */
+        public GestionAccesoAleatorio(String nombreArchivo, CerrojoArchivo.Modo modo) throws IOException {
+            this(nombreArchivo, null, Objects.requireNonNull(modo));
+        }
+
+        private GestionAccesoAleatorio(String nombreArchivo, GrupoBuffers grupo, CerrojoArchivo.Modo modo) throws IOException {
             archivo = new RandomAccessFile(nombreArchivo, "rw");
+            this.grupo = grupo;
+            this.paginado = grupo == null ? null : grupo.registrar(archivo.getChannel());
+            archivoDatos = new File(nombreArchivo);
+            archivoIndice = new File(nombreArchivo + ".ids");
+            CerrojoArchivo abierto = null;
+            try {
+                abierto = modo == null ? null : new CerrojoArchivo(nombreArchivo, modo);
+                CerrojoArchivo.Bloqueo bloqueo = abierto == null ? CerrojoArchivo.Bloqueo.NINGUNO : abierto.bloquearEscritura();
+                try {
+                    indice = IndiceIdPosicion.abrir(archivoIndice, archivo.getChannel(), archivoDatos);
+                    registrosVistos = archivo.length() / TAMAÑO_REGISTRO;
+                    bajasVistas = abierto == null ? 0 : abierto.leerBajas();
+                } finally {
+                    bloqueo.close();
+                }
+            } catch (IOException | RuntimeException e) {
+                if (abierto != null) {
+                    abierto.close();
+                }
+                archivo.close();
+                throw e;
+            }
+            cerrojo = abierto;
+        }
+
+        /**
+         * Devuelve el cerrojo entre procesos, con las medidas de las esperas, o null si no se abrió en modo compartido.
+         */
+        public CerrojoArchivo getCerrojo() {
+            return cerrojo;
         }
 
         /**
          * Agrega un nuevo jugador al archivo de acceso aleatorio.
-         * Verifica que no exista un jugador con el mismo ID antes de agregarlo.
+         * Verifica en el índice que no exista un jugador con el mismo ID antes de agregarlo.
          *
          * @param jugador Objeto de la clase Jugador que representa al jugador a agregar.
          * @return true si el jugador se agrega correctamente, false si ya existe un jugador con el mismo ID.
@@ -37,20 +132,21 @@ import java.util.List;
          */
         @Override
         public Boolean agregarJugador(Jugador jugador) throws IOException {
-            archivo.seek(0);
-            while (archivo.getFilePointer() < archivo.length()) {
-                int idExistente = archivo.readInt();
-
-                if (idExistente == jugador.getId()) {
+            CerrojoArchivo.Bloqueo bloqueo = bloquearFinal();
+            try {
+                if (estaIndexado(jugador.getId())) {
                     return false;
                 }
-
-                archivo.skipBytes(4 * Integer.BYTES);
+                long pos = archivo.length();
+                archivo.seek(pos);
+                escribirJugador(jugador);
+                actualizarGrupo(pos, jugador);
+                indice.poner(jugador.getId(), (int) (pos / TAMAÑO_REGISTRO));
+                registrosVistos = archivo.length() / TAMAÑO_REGISTRO;
+                return true;
+            } finally {
+                bloqueo.close();
             }
-
-            archivo.seek(archivo.length());
-            escribirJugador(jugador);
-            return true;
         }
 
         /**
@@ -63,11 +159,25 @@ import java.util.List;
          */
         @Override
         public Boolean eliminarJugador(int id) throws IOException {
+            ponerAlDia();
             long pos = buscarPosicionJugador(id);
 
             if (pos != -1) {
-                archivo.seek(pos);
-                archivo.writeInt(-1);
+                CerrojoArchivo.Bloqueo bloqueo = bloquear(pos, TAMAÑO_REGISTRO, false);
+                try {
+                    if (!registroVigente(pos, id)) {
+                        return false;
+                    }
+                    archivo.seek(pos);
+                    archivo.writeInt(-1);
+                    if (grupo != null) {
+                        grupo.actualizar(paginado, pos, ByteBuffer.allocate(Integer.BYTES).putInt(0, -1));
+                    }
+                    indice.eliminar(id);
+                } finally {
+                    bloqueo.close();
+                }
+                anotarBaja();
                 return true;
             }
 
@@ -84,13 +194,76 @@ import java.util.List;
          */
         @Override
         public void modificarJugador(int id, Jugador jugadorModificado) throws IOException {
+            int nuevoId = jugadorModificado.getId();
+            if (cerrojo != null && nuevoId != id) {
+                moverJugador(id, jugadorModificado);
+                return;
+            }
+            ponerAlDia();
             long pos = buscarPosicionJugador(id);
             if (pos != -1) {
-                archivo.seek(pos);
-                escribirJugador(jugadorModificado);
+                CerrojoArchivo.Bloqueo bloqueo = bloquear(pos, TAMAÑO_REGISTRO, false);
+                try {
+                    if (!registroVigente(pos, id)) {
+                        return;
+                    }
+                    archivo.seek(pos);
+                    escribirJugador(jugadorModificado);
+                    actualizarGrupo(pos, jugadorModificado);
+                    if (nuevoId != id) {
+                        indice.eliminar(id);
+                        if (indice.buscar(nuevoId) < 0) {
+                            indice.poner(nuevoId, (int) (pos / TAMAÑO_REGISTRO));
+                        }
+                    }
+                } finally {
+                    bloqueo.close();
+                }
             }
         }
 
+        /**
+         * Cambia el ID de un jugador en modo compartido: añade al final el jugador con el ID nuevo y marca como
+         * eliminado el registro anterior, de modo que los demás procesos encuentran el ID nuevo al poner al día
+         * su índice con los registros añadidos. Bloquea el final del archivo antes que el registro, en el mismo orden
+         * que las altas, para que dos procesos no se esperen mutuamente.
+         *
+         * @param id                ID actual del jugador.
+         * @param jugadorModificado Nuevos datos del jugador, con el ID nuevo.
+         * @throws IOException Si ocurre un error al bloquear o al escribir en el archivo.
+         */
+        private void moverJugador(int id, Jugador jugadorModificado) throws IOException {
+            CerrojoArchivo.Bloqueo bloqueoFinal = bloquearFinal();
+            try {
+                long pos = buscarPosicionJugador(id);
+                if (pos == -1) {
+                    return;
+                }
+                CerrojoArchivo.Bloqueo bloqueo = bloquear(pos, TAMAÑO_REGISTRO, false);
+                try {
+                    if (!registroVigente(pos, id)) {
+                        return;
+                    }
+                    boolean indexar = !estaIndexado(jugadorModificado.getId());
+                    long nueva = archivo.length();
+                    archivo.seek(nueva);
+                    escribirJugador(jugadorModificado);
+                    archivo.seek(pos);
+                    archivo.writeInt(-1);
+                    indice.eliminar(id);
+                    if (indexar) {
+                        indice.poner(jugadorModificado.getId(), (int) (nueva / TAMAÑO_REGISTRO));
+                    }
+                    registrosVistos = archivo.length() / TAMAÑO_REGISTRO;
+                } finally {
+                    bloqueo.close();
+                }
+            } finally {
+                bloqueoFinal.close();
+            }
+            anotarBaja();
+        }
+
         /**
          * Obtiene la información de un jugador según su ID.
          * Busca en el archivo de acceso aleatorio y devuelve el jugador con el ID especificado.
@@ -101,12 +274,30 @@ import java.util.List;
          */
         @Override
         public Jugador obtenerJugador(int id) throws IOException {
+            ponerAlDia();
             long pos = buscarPosicionJugador(id);
-            if (pos != -1) {
+            if (pos == -1) {
+                return null;
+            }
+            if (grupo != null) {
+                ByteBuffer registro = ByteBuffer.allocate(TAMAÑO_REGISTRO);
+                grupo.leer(paginado, pos, registro);
+                VistaJugador.RegistroFijo vista = new VistaJugador.RegistroFijo();
+                vista.posicionar(registro, 0);
+                return vista.aJugador();
+            }
+            CerrojoArchivo.Bloqueo bloqueo = bloquear(pos, TAMAÑO_REGISTRO, true);
+            try {
                 archivo.seek(pos);
-                return leerJugador();
+                Jugador jugador = leerJugador();
+                if (jugador.getId() != id) {
+                    indice.eliminar(id);
+                    return null;
+                }
+                return jugador;
+            } finally {
+                bloqueo.close();
             }
-            return null;
         }
 
         /**
@@ -119,25 +310,424 @@ import java.util.List;
         @Override
         public List<Jugador> listarJugadores() throws IOException {
             List<Jugador> jugadores = new ArrayList<>();
-            archivo.seek(0);
-            while (archivo.getFilePointer() < archivo.length()) {
-                Jugador jugador = leerJugador();
-                if (jugador.getId() > 0) {
-                    jugadores.add(jugador);
+            CerrojoArchivo.Bloqueo bloqueo = bloquearTodo(true);
+            try {
+                archivo.seek(0);
+                while (archivo.getFilePointer() < archivo.length()) {
+                    Jugador jugador = leerJugador();
+                    if (jugador.getId() > 0) {
+                        jugadores.add(jugador);
+                    }
                 }
+            } finally {
+                bloqueo.close();
             }
             return jugadores;
         }
 
+        /**
+         * Recorre los jugadores del archivo leyendo bloques de registros completos con lecturas posicionales,
+         * de modo que no se modifica el puntero del archivo ni se cargan todos los jugadores en memoria.
+         * Ignora los jugadores marcados como eliminados (con ID negativo).
+         *
+         * @param procesador Procesador que recibe cada jugador. Si devuelve false el recorrido se detiene.
+         * @throws IOException Si ocurre un error al leer el archivo.
+         */
+        @Override
+        public void recorrerJugadores(ProcesadorJugador procesador) throws IOException {
+            recorrerFiltrado(new ConsultaJugadores(), procesador);
+        }
+
+        /**
+         * Recorre los registros por bloques con EscaneoBloques, que evalúa los rangos numéricos y descarta
+         * los registros eliminados sobre todo el bloque a la vez. Solo se decodifica el nick y se crea el Jugador
+         * para los registros que cumplen los rangos de la consulta.
+         *
+         * @param consulta   Consulta con las condiciones de filtrado.
+         * @param procesador Procesador que recibe cada jugador aceptado. Si devuelve false el recorrido se detiene.
+         * @throws IOException Si ocurre un error al leer el archivo.
+         */
+        @Override
+        protected void recorrerFiltrado(ConsultaJugadores consulta, ProcesadorJugador procesador) throws IOException {
+            recorrerVistas(consulta, vista -> procesador.procesar(vista.aJugador()));
+        }
+
+        /**
+         * Recorre los registros por bloques colocando una única vista sobre los bytes de cada registro aceptado,
+         * sin crear ningún objeto por registro. Las condiciones sobre el nick se comparan sobre la vista.
+         *
+         * @param consulta   Consulta con las condiciones de filtrado.
+         * @param procesador Procesador que recibe la vista de cada registro aceptado. Si devuelve false el recorrido se detiene.
+         * @throws IOException Si ocurre un error al leer el archivo.
+         */
+        @Override
+        public void recorrerVistas(ConsultaJugadores consulta, ProcesadorVista procesador) throws IOException {
+            VistaJugador.RegistroFijo vista = new VistaJugador.RegistroFijo();
+            boolean filtraNick = consulta.filtraNick();
+            CerrojoArchivo.Bloqueo bloqueo = bloquearTodo(true);
+            try {
+                nuevoEscaneo().recorrer(consulta, archivo.length(), (bloque, base) -> {
+                    vista.posicionar(bloque, base);
+                    return filtraNick && !consulta.aceptaNick(vista) || procesador.procesar(vista);
+                });
+            } finally {
+                bloqueo.close();
+            }
+        }
+
+        /**
+         * Abre un cursor que lee los registros por bloques con lecturas posicionales, así que solo mantiene en memoria
+         * un bloque y no interfiere con la posición del archivo que usan las demás operaciones.
+         * La continuación es el número del siguiente registro del archivo.
+         *
+         * @param continuacion Texto de continuación, o null para empezar por el primer registro.
+         * @return Cursor abierto.
+         * @throws IOException Si ocurre un error al acceder al archivo.
+         */
+        @Override
+        public CursorJugadores abrirCursor(String continuacion) throws IOException {
+            long inicio = CursorJugadores.posicion(continuacion);
+            FileChannel canal = archivo.getChannel();
+            return new CursorJugadores() {
+                private final ByteBuffer bloque = ByteBuffer.allocate(TAMAÑO_REGISTRO * REGISTROS_POR_BLOQUE_CURSOR);
+                private final VistaJugador.RegistroFijo vista = new VistaJugador.RegistroFijo();
+                private long primerRegistro = inicio;
+                private int enBloque;
+                private int actual;
+
+                @Override
+                public Jugador siguiente() throws IOException {
+                    while (true) {
+                        if (actual == enBloque && !leerBloque()) {
+                            return null;
+                        }
+                        int base = actual++ * TAMAÑO_REGISTRO;
+                        if (bloque.getInt(base) > 0) {
+                            vista.posicionar(bloque, base);
+                            return vista.aJugador();
+                        }
+                    }
+                }
+
+                @Override
+                public String continuacion() {
+                    return Long.toString(primerRegistro + actual);
+                }
+
+                private boolean leerBloque() throws IOException {
+                    primerRegistro += enBloque;
+                    actual = 0;
+                    enBloque = 0;
+                    long posicion = primerRegistro * TAMAÑO_REGISTRO;
+                    long restantes = (canal.size() - posicion) / TAMAÑO_REGISTRO;
+                    if (restantes <= 0) {
+                        return false;
+                    }
+                    bloque.clear();
+                    bloque.limit((int) Math.min(REGISTROS_POR_BLOQUE_CURSOR, restantes) * TAMAÑO_REGISTRO);
+                    CerrojoArchivo.Bloqueo bloqueo = bloquear(posicion, bloque.limit(), true);
+                    try {
+                        while (bloque.hasRemaining()) {
+                            if (canal.read(bloque, posicion + bloque.position()) < 0) {
+                                break;
+                            }
+                        }
+                    } finally {
+                        bloqueo.close();
+                    }
+                    enBloque = bloque.position() / TAMAÑO_REGISTRO;
+                    return enBloque > 0;
+                }
+            };
+        }
+
+        /**
+         * Carga la tabla columnar copiando los campos directamente desde los bytes de cada registro,
+         * sin crear objetos Jugador ni Strings para los nicks ASCII.
+         *
+         * @param consulta Consulta con las condiciones de filtrado.
+         * @return La tabla con los jugadores aceptados.
+         * @throws IOException Si ocurre un error al leer el archivo.
+         */
+        @Override
+        public TablaColumnar cargarTablaColumnar(ConsultaJugadores consulta) throws IOException {
+            TablaColumnar tabla = new TablaColumnar();
+            char[] nick = new char[TAMAÑO_NICK];
+            boolean filtraNick = consulta.filtraNick();
+            CerrojoArchivo.Bloqueo bloqueo = bloquearTodo(true);
+            try {
+                nuevoEscaneo().recorrer(consulta, archivo.length(), (bloque, base) -> {
+                    int id = bloque.getInt(base);
+                    int experience = bloque.getInt(base + OFFSET_EXPERIENCE);
+                    int lifeLevel = bloque.getInt(base + OFFSET_LIFE_LEVEL);
+                    int coins = bloque.getInt(base + OFFSET_COINS);
+                    int inicio = 0;
+                    int fin = TAMAÑO_NICK;
+                    for (int i = 0; i < TAMAÑO_NICK; i++) {
+                        nick[i] = bloque.getChar(base + Integer.BYTES + i * Character.BYTES);
+                    }
+                    while (inicio < fin && nick[inicio] <= ' ') {
+                        inicio++;
+                    }
+                    while (fin > inicio && nick[fin - 1] <= ' ') {
+                        fin--;
+                    }
+                    if (inicio > 0) {
+                        System.arraycopy(nick, inicio, nick, 0, fin - inicio);
+                    }
+                    if (filtraNick && !consulta.aceptaNick(new String(nick, 0, fin - inicio))) {
+                        return true;
+                    }
+                    tabla.agregarFila(id, nick, fin - inicio, experience, lifeLevel, coins);
+                    return true;
+                });
+            } finally {
+                bloqueo.close();
+            }
+            tabla.recortar();
+            return tabla;
+        }
+
+        /**
+         * Cuenta los jugadores que cumplen una consulta. Si la consulta no filtra por nick, los rangos se evalúan
+         * por bloques sin decodificar ningún registro; en caso contrario se cuenta sobre el recorrido filtrado.
+         *
+         * @param consulta Consulta con las condiciones de filtrado.
+         * @return Número de jugadores que cumplen la consulta.
+         * @throws IOException Si ocurre un error al leer el archivo.
+         */
+        @Override
+        public long contar(ConsultaJugadores consulta) throws IOException {
+            if (consulta.filtraNick()) {
+                return super.contar(consulta);
+            }
+            CerrojoArchivo.Bloqueo bloqueo = bloquearTodo(true);
+            try {
+                return nuevoEscaneo().contar(consulta, archivo.length());
+            } finally {
+                bloqueo.close();
+            }
+        }
+
+        /**
+         * Crea un escaneo por bloques sobre el canal del archivo. Las lecturas son posicionales,
+         * de modo que no se modifica el puntero del archivo.
+         *
+         * @return Un escaneo nuevo, con sus propios buffers.
+         */
+        private EscaneoBloques nuevoEscaneo() {
+            return new EscaneoBloques(archivo.getChannel());
+        }
+
+        /**
+         * Agrega un lote de jugadores comprobando los duplicados en el índice
+         * y escribiendo todos los registros nuevos al final con una sola escritura.
+         *
+         * @param jugadores Lista de jugadores a agregar.
+         * @return Número de jugadores agregados.
+         * @throws IOException Si ocurre un error al escribir el archivo.
+         */
+        @Override
+        public int agregarJugadores(List<Jugador> jugadores) throws IOException {
+            Set<Integer> ids = new HashSet<>();
+            List<Jugador> nuevos = new ArrayList<>();
+            CerrojoArchivo.Bloqueo bloqueo = bloquearFinal();
+            try {
+                for (Jugador jugador : jugadores) {
+                    if (!estaIndexado(jugador.getId()) && ids.add(jugador.getId())) {
+                        nuevos.add(jugador);
+                    }
+                }
+                anexarJugadores(nuevos);
+            } finally {
+                bloqueo.close();
+            }
+            return nuevos.size();
+        }
+
+        /**
+         * Añade un lote de jugadores al final del archivo con una sola escritura, sin comprobar duplicados.
+         *
+         * @param jugadores Lista de jugadores a añadir.
+         * @throws IOException Si ocurre un error al escribir en el archivo.
+         */
+        @Override
+        protected void anexarJugadores(List<Jugador> jugadores) throws IOException {
+            if (jugadores.isEmpty()) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(TAMAÑO_REGISTRO * jugadores.size());
+            for (Jugador jugador : jugadores) {
+                codificarJugador(buffer, jugador);
+            }
+            buffer.flip();
+            FileChannel canal = archivo.getChannel();
+            CerrojoArchivo.Bloqueo bloqueo = bloquearFinal();
+            try {
+                long inicio = archivo.length();
+                long pos = inicio;
+                while (buffer.hasRemaining()) {
+                    pos += canal.write(buffer, pos);
+                }
+                if (grupo != null) {
+                    grupo.actualizar(paginado, inicio, buffer.flip());
+                }
+                int registro = (int) (inicio / TAMAÑO_REGISTRO);
+                for (Jugador jugador : jugadores) {
+                    if (!estaIndexado(jugador.getId())) {
+                        indice.poner(jugador.getId(), registro);
+                    }
+                    registro++;
+                }
+                registrosVistos = archivo.length() / TAMAÑO_REGISTRO;
+            } finally {
+                bloqueo.close();
+            }
+        }
+
+        /**
+         * Suma sobre un campo leyendo y escribiendo solo el entero del campo, en su desplazamiento fijo dentro
+         * del registro, sin leer ni reescribir el resto del jugador.
+         *
+         * @param id    ID del jugador.
+         * @param campo Campo a modificar: EXPERIENCE, LIFE_LEVEL o COINS.
+         * @param delta Cantidad a sumar, negativa para restar.
+         * @throws IOException Si ocurre un error al leer o escribir el archivo.
+         */
+        @Override
+        public void sumarCampo(int id, CampoJugador campo, int delta) throws IOException {
+            ponerAlDia();
+            long pos = buscarPosicionJugador(id);
+            if (pos != -1) {
+                CerrojoArchivo.Bloqueo bloqueo = bloquear(pos, TAMAÑO_REGISTRO, false);
+                try {
+                    if (registroVigente(pos, id)) {
+                        sumarEnRegistro(pos + desplazamiento(campo), delta);
+                    }
+                } finally {
+                    bloqueo.close();
+                }
+            }
+        }
+
+        /**
+         * Aplica las sumas de cada jugador en su registro sin reescribir los registros: lee los tres campos sumables
+         * de cada jugador, calcula todos los valores nuevos y solo después los escribe, de modo que si alguna suma
+         * se desborda no se modifica ningún jugador, igual que con la implementación por defecto. En modo compartido
+         * los registros se bloquean en orden de posición y no se sueltan hasta haber escrito todos.
+         *
+         * @param incrementos Sumas a aplicar.
+         * @return Número de jugadores modificados.
+         * @throws IOException Si ocurre un error al leer o escribir el archivo.
+         * @throws ArithmeticException Si alguna suma se desborda; en ese caso no se aplica ninguna.
+         */
+        @Override
+        public int aplicarIncrementos(IncrementosJugadores incrementos) throws IOException {
+            ponerAlDia();
+            TreeMap<Long, Integer> posiciones = new TreeMap<>();
+            for (int id : incrementos.ids()) {
+                long pos = buscarPosicionJugador(id);
+                if (pos != -1) {
+                    posiciones.put(pos, id);
+                }
+            }
+            List<CerrojoArchivo.Bloqueo> bloqueos = new ArrayList<>();
+            try {
+                Map<Long, ByteBuffer> sumados = new LinkedHashMap<>();
+                for (Map.Entry<Long, Integer> posicion : posiciones.entrySet()) {
+                    long pos = posicion.getKey();
+                    int id = posicion.getValue();
+                    bloqueos.add(bloquear(pos, TAMAÑO_REGISTRO, false));
+                    if (!registroVigente(pos, id)) {
+                        continue;
+                    }
+                    ByteBuffer campos = leerSumables(pos);
+                    for (CampoJugador campo : CAMPOS_SUMABLES) {
+                        int desde = desplazamiento(campo) - OFFSET_EXPERIENCE;
+                        campos.putInt(desde, Math.addExact(campos.getInt(desde), incrementos.getSuma(id, campo)));
+                    }
+                    sumados.put(pos, campos);
+                }
+                FileChannel canal = archivo.getChannel();
+                for (Map.Entry<Long, ByteBuffer> sumado : sumados.entrySet()) {
+                    long pos = sumado.getKey() + OFFSET_EXPERIENCE;
+                    ByteBuffer campos = sumado.getValue();
+                    while (campos.hasRemaining()) {
+                        canal.write(campos, pos + campos.position());
+                    }
+                    if (grupo != null) {
+                        grupo.actualizar(paginado, pos, campos.clear());
+                    }
+                }
+                return sumados.size();
+            } finally {
+                for (int i = bloqueos.size() - 1; i >= 0; i--) {
+                    bloqueos.get(i).close();
+                }
+            }
+        }
+
+        /**
+         * Fuerza a disco los registros escritos en el archivo de acceso aleatorio.
+         *
+         * @throws IOException Si ocurre un error al sincronizar el archivo.
+         */
+        @Override
+        public void sincronizar() throws IOException {
+            archivo.getFD().sync();
+        }
+
+        /**
+         * En modo compartido aplica la transacción con todo el archivo bloqueado en exclusiva, para que la comprobación
+         * de los IDs y los cambios no se intercalen con los de otros procesos.
+         */
+        @Override
+        protected boolean confirmarTransaccion(Transaccion transaccion) throws IOException {
+            CerrojoArchivo.Bloqueo bloqueo = bloquearTodo(false);
+            try {
+                ponerAlDia();
+                return super.confirmarTransaccion(transaccion);
+            } finally {
+                bloqueo.close();
+            }
+        }
+
         /**
          * Cierra los recursos asociados a la gestión del archivo de acceso aleatorio.
-         * Cierra el RandomAccessFile si está abierto.
+         * Quita sus páginas del grupo de buffers, si lo usa, cierra el RandomAccessFile y guarda la instantánea
+         * del índice de IDs con la huella del archivo ya cerrado. En modo compartido lo hace con todo el archivo
+         * bloqueado en exclusiva, después de poner al día el índice y de reconstruirlo si otro proceso ha eliminado
+         * jugadores, y al final cierra el cerrojo.
          *
-         * @throws IOException Si ocurre un error al cerrar el recurso.
+         * @throws IOException Si ocurre un error al cerrar el recurso o al guardar el índice.
          */
         @Override
         public void cerrar() throws IOException {
-            archivo.close();
+            try {
+                CerrojoArchivo.Bloqueo bloqueo = bloquearTodo(false);
+                try {
+                    if (cerrojo != null) {
+                        ponerAlDia();
+                        if (cerrojo.leerBajas() != bajasVistas) {
+                            indice = IndiceIdPosicion.reconstruir(archivo.getChannel(), archivo.length());
+                        }
+                    }
+                    try {
+                        if (grupo != null) {
+                            grupo.descartar(paginado);
+                        }
+                    } finally {
+                        archivo.close();
+                    }
+                    indice.guardar(archivoIndice, archivoDatos);
+                } finally {
+                    bloqueo.close();
+                }
+            } finally {
+                if (cerrojo != null) {
+                    cerrojo.close();
+                }
+            }
         }
 
         /**
@@ -155,6 +745,20 @@ import java.util.List;
             archivo.writeInt(jugador.getCoins());
         }
 
+        /**
+         * Copia en las páginas del grupo de buffers, si lo usa, el registro que se acaba de escribir en el archivo.
+         *
+         * @param pos     Posición del registro en el archivo.
+         * @param jugador El jugador escrito.
+         */
+        private void actualizarGrupo(long pos, Jugador jugador) {
+            if (grupo != null) {
+                ByteBuffer registro = ByteBuffer.allocate(TAMAÑO_REGISTRO);
+                codificarJugador(registro, jugador);
+                grupo.actualizar(paginado, pos, registro.flip());
+            }
+        }
+
         /**
          * Lee un jugador del archivo utilizando RandomAccessFile.
          * Lee cada atributo del jugador de forma secuencial en el archivo y lo almacena en un nuevo objeto Jugador.
@@ -172,24 +776,224 @@ import java.util.List;
         }
 
         /**
-         * Busca la posición del jugador en el archivo según su ID.
-         * Recorre el archivo secuencialmente hasta encontrar el ID especificado.
+         * Codifica un jugador en el buffer con el mismo formato de tamaño fijo que escribirJugador.
+         * GestionHashExtensible lo usa para guardar los registros de sus cubetas con el mismo formato.
          *
-         * @param id ID del jugador que se desea buscar.
-         * @return La posición en el archivo donde se encuentra el jugador, o -1 si no se encuentra.
+         * @param buffer  Buffer donde se escribe el registro.
+         * @param jugador El jugador a codificar.
+         */
+        static void codificarJugador(ByteBuffer buffer, Jugador jugador) {
+            buffer.putInt(jugador.getId());
+            String nick = jugador.getNick();
+            for (int i = 0; i < TAMAÑO_NICK; i++) {
+                buffer.putChar(i < nick.length() ? nick.charAt(i) : '\0');
+            }
+            buffer.putInt(jugador.getExperience());
+            buffer.putInt(jugador.getLifeLevel());
+            buffer.putInt(jugador.getCoins());
+        }
+
+        /**
+         * Suma una cantidad al entero de una posición del archivo con una lectura y una escritura posicionales,
+         * leyendo a través del grupo de buffers si se usa.
+         *
+         * @param pos   Posición del entero en el archivo.
+         * @param delta Cantidad a sumar.
+         * @throws IOException Si ocurre un error al leer o escribir el archivo.
+         */
+        private void sumarEnRegistro(long pos, int delta) throws IOException {
+            FileChannel canal = archivo.getChannel();
+            entero.clear();
+            if (grupo != null) {
+                grupo.leer(paginado, pos, entero);
+            } else {
+                while (entero.hasRemaining()) {
+                    if (canal.read(entero, pos + entero.position()) < 0) {
+                        throw new EOFException("Fin de archivo inesperado al leer el registro");
+                    }
+                }
+            }
+            entero.putInt(0, Math.addExact(entero.getInt(0), delta));
+            entero.clear();
+            while (entero.hasRemaining()) {
+                canal.write(entero, pos + entero.position());
+            }
+            if (grupo != null) {
+                grupo.actualizar(paginado, pos, entero.clear());
+            }
+        }
+
+        /**
+         * Lee los tres campos sumables de un registro, que ocupan sus últimos bytes, a través del grupo de buffers
+         * si se usa.
+         *
+         * @param pos Posición del registro en el archivo.
+         * @return Buffer con experience, lifeLevel y coins, listo para escribirse de nuevo en la misma posición.
          * @throws IOException Si ocurre un error al leer el archivo.
          */
-        private long buscarPosicionJugador(int id) throws IOException {
-            archivo.seek(0);
-            while (archivo.getFilePointer() < archivo.length()) {
-                long posActual = archivo.getFilePointer();
-                int idLeido = archivo.readInt();
-                if (idLeido == id) {
-                    return posActual;
+        private ByteBuffer leerSumables(long pos) throws IOException {
+            ByteBuffer campos = ByteBuffer.allocate(TAMAÑO_REGISTRO - OFFSET_EXPERIENCE);
+            long inicio = pos + OFFSET_EXPERIENCE;
+            if (grupo != null) {
+                grupo.leer(paginado, inicio, campos);
+            } else {
+                FileChannel canal = archivo.getChannel();
+                while (campos.hasRemaining()) {
+                    if (canal.read(campos, inicio + campos.position()) < 0) {
+                        throw new EOFException("Fin de archivo inesperado al leer el registro");
+                    }
                 }
-                archivo.skipBytes(TAMAÑO_REGISTRO - 4);
             }
-            return -1;
+            return campos.clear();
+        }
+
+        /**
+         * Devuelve el desplazamiento de un campo sumable dentro del registro.
+         */
+        private static int desplazamiento(CampoJugador campo) {
+            switch (campo) {
+                case EXPERIENCE:
+                    return OFFSET_EXPERIENCE;
+                case LIFE_LEVEL:
+                    return OFFSET_LIFE_LEVEL;
+                case COINS:
+                    return OFFSET_COINS;
+                default:
+                    throw new IllegalArgumentException("No se puede sumar sobre el campo " + campo);
+            }
+        }
+
+        /**
+         * Bloquea entre procesos un rango del archivo si se abrió en modo compartido.
+         *
+         * @return El bloqueo, o Bloqueo.NINGUNO si no es compartido.
+         */
+        private CerrojoArchivo.Bloqueo bloquear(long pos, long tamaño, boolean compartido) throws IOException {
+            return cerrojo == null ? CerrojoArchivo.Bloqueo.NINGUNO : cerrojo.bloquearRegion(pos, tamaño, compartido);
+        }
+
+        private CerrojoArchivo.Bloqueo bloquearTodo(boolean compartido) throws IOException {
+            if (cerrojo == null) {
+                return CerrojoArchivo.Bloqueo.NINGUNO;
+            }
+            return compartido ? cerrojo.bloquearLectura() : cerrojo.bloquearEscritura();
+        }
+
+        /**
+         * Bloquea en exclusiva el final del archivo, desde el último registro en adelante, para añadir registros
+         * con el índice al día. Si otro proceso añade registros entre medias se vuelve a intentar desde el nuevo final.
+         *
+         * @return El bloqueo, o Bloqueo.NINGUNO si no es compartido.
+         * @throws IOException Si ocurre un error al bloquear o al leer los registros añadidos.
+         */
+        private CerrojoArchivo.Bloqueo bloquearFinal() throws IOException {
+            if (cerrojo == null) {
+                return CerrojoArchivo.Bloqueo.NINGUNO;
+            }
+            while (true) {
+                ponerAlDia();
+                long longitud = archivo.length();
+                CerrojoArchivo.Bloqueo bloqueo = cerrojo.bloquearRegion(longitud, Long.MAX_VALUE, false);
+                if (archivo.length() == longitud && registrosVistos == longitud / TAMAÑO_REGISTRO) {
+                    return bloqueo;
+                }
+                bloqueo.close();
+            }
+        }
+
+        /**
+         * En modo compartido, añade al índice los registros que otros procesos hayan añadido al final del archivo
+         * desde la última vez. Los lee con ese tramo bloqueado en modo compartido para no ver un alta a medias.
+         *
+         * @throws IOException Si ocurre un error al bloquear o al leer el archivo.
+         */
+        private void ponerAlDia() throws IOException {
+            if (cerrojo == null || archivo.length() / TAMAÑO_REGISTRO <= registrosVistos) {
+                return;
+            }
+            FileChannel canal = archivo.getChannel();
+            ByteBuffer bloque = ByteBuffer.allocate(TAMAÑO_REGISTRO * REGISTROS_POR_BLOQUE_CURSOR);
+            CerrojoArchivo.Bloqueo bloqueo = cerrojo.bloquearRegion(registrosVistos * TAMAÑO_REGISTRO, Long.MAX_VALUE, true);
+            try {
+                long registros = archivo.length() / TAMAÑO_REGISTRO;
+                while (registrosVistos < registros) {
+                    int enBloque = (int) Math.min(REGISTROS_POR_BLOQUE_CURSOR, registros - registrosVistos);
+                    long posicion = registrosVistos * TAMAÑO_REGISTRO;
+                    bloque.clear();
+                    bloque.limit(enBloque * TAMAÑO_REGISTRO);
+                    while (bloque.hasRemaining()) {
+                        if (canal.read(bloque, posicion + bloque.position()) < 0) {
+                            throw new EOFException("Fin de archivo inesperado al leer los registros añadidos");
+                        }
+                    }
+                    for (int i = 0; i < enBloque; i++) {
+                        int id = bloque.getInt(i * TAMAÑO_REGISTRO);
+                        if (id > 0 && !estaIndexado(id)) {
+                            indice.poner(id, (int) (registrosVistos + i));
+                        }
+                    }
+                    registrosVistos += enBloque;
+                }
+            } finally {
+                bloqueo.close();
+            }
+        }
+
+        /**
+         * Indica si un ID está en el índice. En modo compartido comprueba además que su registro sigue teniéndolo.
+         */
+        private boolean estaIndexado(int id) throws IOException {
+            long pos = buscarPosicionJugador(id);
+            return pos != -1 && registroVigente(pos, id);
+        }
+
+        /**
+         * Comprueba que el registro de una posición sigue teniendo el ID que el índice le atribuye. Sin modo
+         * compartido siempre es así; en modo compartido otro proceso puede haberlo eliminado, y entonces se quita
+         * el ID del índice.
+         *
+         * @param pos Posición del registro.
+         * @param id  ID que debería tener.
+         * @return true si el registro tiene el ID.
+         * @throws IOException Si ocurre un error al leer el archivo.
+         */
+        private boolean registroVigente(long pos, int id) throws IOException {
+            if (cerrojo == null) {
+                return true;
+            }
+            FileChannel canal = archivo.getChannel();
+            entero.clear();
+            while (entero.hasRemaining()) {
+                if (canal.read(entero, pos + entero.position()) < 0) {
+                    throw new EOFException("Fin de archivo inesperado al leer el registro");
+                }
+            }
+            if (entero.getInt(0) == id) {
+                return true;
+            }
+            indice.eliminar(id);
+            return false;
+        }
+
+        /**
+         * Suma una baja al contador del cerrojo en modo compartido. Si nadie más había anotado bajas desde
+         * la última vez, el índice sigue al día con respecto a ellas.
+         */
+        private void anotarBaja() throws IOException {
+            if (cerrojo != null && cerrojo.anotarBaja() == bajasVistas) {
+                bajasVistas++;
+            }
+        }
+
+        /**
+         * Busca la posición del jugador en el archivo según su ID, consultando el índice de IDs.
+         *
+         * @param id ID del jugador que se desea buscar.
+         * @return La posición en el archivo donde se encuentra el jugador, o -1 si no se encuentra.
+         */
+        private long buscarPosicionJugador(int id) {
+            int registro = indice.buscar(id);
+            return registro < 0 ? -1 : (long) registro * TAMAÑO_REGISTRO;
         }
 
         /**
@@ -222,4 +1026,3 @@ import java.util.List;
             return new String(chars).trim();
         }
     }
-
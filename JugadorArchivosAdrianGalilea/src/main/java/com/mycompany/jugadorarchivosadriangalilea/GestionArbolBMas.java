@@ -0,0 +1,271 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * La clase GestionArbolBMas extiende de la clase abstracta GestionFichero y guarda los jugadores ordenados por ID
+ * en un árbol B+ en disco (ArbolBMas), con el registro de 56 bytes de GestionAccesoAleatorio como valor de cada ID.
+ * Las operaciones por ID leen una sola hoja porque los nodos internos se mantienen en memoria, y los listados
+ * salen ya ordenados por ID: una consulta con rango de IDs baja hasta la primera hoja del rango y sigue los enlaces
+ * entre hojas hasta el final del rango, sin recorrer el resto del archivo ni ordenar.
+ * Agregar un lote a un almacén vacío lo ordena y construye el árbol con una carga ordenada.
+ */
+public class GestionArbolBMas extends GestionFichero {
+
+    private static final int JUGADORES_POR_LECTURA_CURSOR = 256;
+
+    private final ArbolBMas arbol;
+    private final ByteBuffer registro = ByteBuffer.allocate(GestionAccesoAleatorio.TAMAÑO_REGISTRO);
+
+    /**
+     * Constructor de la clase GestionArbolBMas.
+     * Abre el árbol del archivo, o crea uno vacío si no existe.
+     *
+     * @param nombreArchivo Nombre del archivo donde se almacenarán los datos de los jugadores.
+     * @throws IOException Si ocurre un error al acceder al archivo o si no tiene el formato esperado.
+     */
+    public GestionArbolBMas(String nombreArchivo) throws IOException {
+        this(nombreArchivo, null);
+    }
+
+    /**
+     * Constructor de la clase GestionArbolBMas que lee y escribe las páginas del árbol a través de un grupo de buffers.
+     *
+     * @param nombreArchivo Nombre del archivo donde se almacenarán los datos de los jugadores.
+     * @param grupo         Grupo de buffers compartido, o null para leer y escribir directamente en el archivo.
+     * @throws IOException Si ocurre un error al acceder al archivo o si no tiene el formato esperado.
+     */
+    public GestionArbolBMas(String nombreArchivo, GrupoBuffers grupo) throws IOException {
+        arbol = ArbolBMas.abrir(new File(nombreArchivo), GestionAccesoAleatorio.TAMAÑO_REGISTRO, grupo);
+    }
+
+    @Override
+    public Boolean agregarJugador(Jugador jugador) throws IOException {
+        return arbol.insertar(jugador.getId(), codificar(jugador));
+    }
+
+    @Override
+    public Boolean eliminarJugador(int id) throws IOException {
+        return arbol.eliminar(id);
+    }
+
+    /**
+     * Modifica un jugador sustituyendo su registro en la hoja. Si el jugador modificado tiene otro ID,
+     * se elimina el original y se guarda el modificado con su nuevo ID, sustituyendo al jugador
+     * que ya tuviera ese ID.
+     *
+     * @param id                ID del jugador a modificar.
+     * @param jugadorModificado Objeto de la clase Jugador con los nuevos datos del jugador.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    @Override
+    public void modificarJugador(int id, Jugador jugadorModificado) throws IOException {
+        if (jugadorModificado.getId() == id) {
+            arbol.reemplazar(id, codificar(jugadorModificado));
+            return;
+        }
+        if (arbol.eliminar(id) && !arbol.reemplazar(jugadorModificado.getId(), codificar(jugadorModificado))) {
+            arbol.insertar(jugadorModificado.getId(), codificar(jugadorModificado));
+        }
+    }
+
+    @Override
+    public Jugador obtenerJugador(int id) throws IOException {
+        registro.clear();
+        if (!arbol.buscar(id, registro)) {
+            return null;
+        }
+        VistaJugador.RegistroFijo vista = new VistaJugador.RegistroFijo();
+        vista.posicionar(registro, 0);
+        return vista.aJugador();
+    }
+
+    @Override
+    public List<Jugador> listarJugadores() throws IOException {
+        List<Jugador> jugadores = new ArrayList<>();
+        recorrerJugadores(jugador -> {
+            jugadores.add(jugador);
+            return true;
+        });
+        return jugadores;
+    }
+
+    /**
+     * Recorre los jugadores en orden de ID siguiendo los enlaces entre las hojas.
+     *
+     * @param procesador Procesador que recibe cada jugador. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    public void recorrerJugadores(ProcesadorJugador procesador) throws IOException {
+        recorrerFiltrado(new ConsultaJugadores(), procesador);
+    }
+
+    @Override
+    protected void recorrerFiltrado(ConsultaJugadores consulta, ProcesadorJugador procesador) throws IOException {
+        recorrerVistas(consulta, vista -> procesador.procesar(vista.aJugador()));
+    }
+
+    /**
+     * Recorre en orden de ID solo las hojas del rango de IDs de la consulta, si lo tiene, colocando una única
+     * vista sobre el registro de cada entrada y comprobando los campos numéricos antes que el nick.
+     *
+     * @param consulta   Consulta con las condiciones de filtrado.
+     * @param procesador Procesador que recibe la vista de cada registro aceptado. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    public void recorrerVistas(ConsultaJugadores consulta, ProcesadorVista procesador) throws IOException {
+        boolean conRango = consulta.tieneRango(CampoJugador.ID);
+        int desde = conRango ? consulta.getMinimo(CampoJugador.ID) : Integer.MIN_VALUE;
+        int hasta = conRango ? consulta.getMaximo(CampoJugador.ID) : Integer.MAX_VALUE;
+        VistaJugador.RegistroFijo vista = new VistaJugador.RegistroFijo();
+        boolean filtraNick = consulta.filtraNick();
+        arbol.recorrer(desde, hasta, (pagina, posicion) -> {
+            vista.posicionar(pagina, posicion);
+            if (!consulta.aceptaNumericos(vista.getId(), vista.getExperience(), vista.getLifeLevel(), vista.getCoins())
+                    || filtraNick && !consulta.aceptaNick(vista)) {
+                return true;
+            }
+            return procesador.procesar(vista);
+        });
+    }
+
+    /**
+     * Abre un cursor en orden de ID que lee los jugadores por tandas desde el árbol. La continuación es el ID
+     * del siguiente jugador, así que sigue siendo válida aunque se agreguen o eliminen jugadores entre tandas.
+     */
+    @Override
+    public CursorJugadores abrirCursor(String continuacion) throws IOException {
+        long desde;
+        try {
+            desde = continuacion == null || continuacion.isEmpty() ? Integer.MIN_VALUE : Long.parseLong(continuacion);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Texto de continuación no válido: " + continuacion);
+        }
+        return new CursorJugadores() {
+            private long siguienteId = desde;
+            private List<Jugador> tanda = List.of();
+            private int actual;
+
+            @Override
+            public Jugador siguiente() throws IOException {
+                if (actual == tanda.size()) {
+                    if (siguienteId > Integer.MAX_VALUE) {
+                        return null;
+                    }
+                    List<Jugador> leidos = new ArrayList<>(JUGADORES_POR_LECTURA_CURSOR);
+                    VistaJugador.RegistroFijo vista = new VistaJugador.RegistroFijo();
+                    arbol.recorrer((int) siguienteId, Integer.MAX_VALUE, (pagina, posicion) -> {
+                        vista.posicionar(pagina, posicion);
+                        leidos.add(vista.aJugador());
+                        return leidos.size() < JUGADORES_POR_LECTURA_CURSOR;
+                    });
+                    tanda = leidos;
+                    actual = 0;
+                    if (tanda.isEmpty()) {
+                        siguienteId = Integer.MAX_VALUE + 1L;
+                        return null;
+                    }
+                }
+                Jugador jugador = tanda.get(actual++);
+                siguienteId = jugador.getId() + 1L;
+                return jugador;
+            }
+
+            @Override
+            public String continuacion() {
+                return Long.toString(siguienteId);
+            }
+        };
+    }
+
+    /**
+     * Agrega un lote de jugadores. Si el almacén está vacío, ordena el lote por ID y construye el árbol con
+     * una carga ordenada; si no, los inserta uno a uno. En ambos casos se ignoran los IDs que ya existen y,
+     * dentro del lote, las repeticiones de un mismo ID.
+     *
+     * @param jugadores Lista de jugadores a agregar.
+     * @return Número de jugadores agregados.
+     * @throws IOException Si ocurre un error al escribir en el archivo.
+     */
+    @Override
+    public int agregarJugadores(List<Jugador> jugadores) throws IOException {
+        if (!arbol.estaVacio()) {
+            int agregados = 0;
+            for (Jugador jugador : jugadores) {
+                if (agregarJugador(jugador)) {
+                    agregados++;
+                }
+            }
+            return agregados;
+        }
+        List<Jugador> ordenados = new ArrayList<>(jugadores);
+        ordenados.sort(Comparator.comparingInt(Jugador::getId));
+        int[] siguiente = {0};
+        return (int) arbol.cargarOrdenado(entrada -> {
+            while (siguiente[0] < ordenados.size()) {
+                Jugador jugador = ordenados.get(siguiente[0]++);
+                if (siguiente[0] > 1 && ordenados.get(siguiente[0] - 2).getId() == jugador.getId()) {
+                    continue;
+                }
+                entrada.putInt(jugador.getId());
+                GestionAccesoAleatorio.codificarJugador(entrada, jugador);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @Override
+    protected void anexarJugadores(List<Jugador> jugadores) throws IOException {
+        agregarJugadores(jugadores);
+    }
+
+    /**
+     * Comprueba cada ID con una búsqueda en el árbol, en lugar de recorrer las hojas.
+     */
+    @Override
+    protected Set<Integer> idsExistentes(Set<Integer> ids) throws IOException {
+        Set<Integer> existentes = new HashSet<>();
+        for (int id : ids) {
+            registro.clear();
+            if (arbol.buscar(id, registro)) {
+                existentes.add(id);
+            }
+        }
+        return existentes;
+    }
+
+    /**
+     * Fuerza a disco las páginas escritas del árbol.
+     *
+     * @throws IOException Si ocurre un error al sincronizar el archivo.
+     */
+    @Override
+    public void sincronizar() throws IOException {
+        arbol.sincronizar();
+    }
+
+    @Override
+    public void cerrar() throws IOException {
+        arbol.close();
+    }
+
+    public int getAltura() {
+        return arbol.getAltura();
+    }
+
+    private ByteBuffer codificar(Jugador jugador) {
+        registro.clear();
+        GestionAccesoAleatorio.codificarJugador(registro, jugador);
+        return registro.flip();
+    }
+}
@@ -2,20 +2,26 @@ package com.mycompany.jugadorarchivosadriangalilea;
 
 import com.mycompany.jugadorarchivosadriangalilea.Jugador;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * La clase GestionBinario extiende de la clase abstracta GestionFichero y proporciona una implementación
  * para gestionar jugadores utilizando un archivo binario. Esta clase permite realizar operaciones como agregar,
  * eliminar, modificar, obtener y listar jugadores almacenados en un archivo utilizando la clase DataOutputStream
  * y DataInputStream para la lectura y escritura de datos binarios.
+ *
+ * Las lecturas se hacen sobre una instantánea del archivo (VersionesArchivo): un listado o un cursor ve siempre
+ * el archivo tal como estaba al empezar, aunque mientras tanto otro hilo añada jugadores o lo reescriba, y no
+ * bloquea esas escrituras. Las escrituras deben hacerse de una en una.
  */
 public class GestionBinario extends GestionFichero {
 
     private File archivo;
-    private DataOutputStream dataOutput;
-    private DataInputStream dataInput;
+    private final VersionesArchivo versiones;
 
     /**
      * Constructor de la clase GestionBinario.
@@ -29,6 +35,7 @@ public class GestionBinario extends GestionFichero {
         if (!archivo.exists()) {
             archivo.createNewFile();
         }
+        versiones = new VersionesArchivo(archivo);
     }
 
     /**
@@ -47,9 +54,7 @@ public class GestionBinario extends GestionFichero {
                 return false;
             }
         }
-        dataOutput = new DataOutputStream(new FileOutputStream(archivo, true));
-        escribirJugador(dataOutput, jugador);
-        dataOutput.close();
+        versiones.anexar(salida -> escribirJugador(new DataOutputStream(salida), jugador));
         return true;
     }
 
@@ -65,16 +70,17 @@ public class GestionBinario extends GestionFichero {
     public Boolean eliminarJugador(int id) throws IOException {
         List<Jugador> jugadores = listarJugadores();
         int noExiste = 0;
-        dataOutput = new DataOutputStream(new FileOutputStream(archivo));
+        List<Jugador> restantes = new ArrayList<>();
         for (Jugador j : jugadores) {
             if (j.getId() != id) {
-                escribirJugador(dataOutput, j);
+                restantes.add(j);
             } else {
                 noExiste++;
-                break;
             }
         }
-        dataOutput.close();
+        if (noExiste != 0) {
+            reescribir(restantes);
+        }
         return noExiste != 0;
     }
 
@@ -89,15 +95,12 @@ public class GestionBinario extends GestionFichero {
     @Override
     public void modificarJugador(int id, Jugador jugadorModificado) throws IOException {
         List<Jugador> jugadores = listarJugadores();
-        dataOutput = new DataOutputStream(new FileOutputStream(archivo));
-        for (Jugador j : jugadores) {
-            if (j.getId() == id) {
-                escribirJugador(dataOutput, jugadorModificado);
-            } else {
-                escribirJugador(dataOutput, j);
+        for (int i = 0; i < jugadores.size(); i++) {
+            if (jugadores.get(i).getId() == id) {
+                jugadores.set(i, jugadorModificado);
             }
         }
-        dataOutput.close();
+        reescribir(jugadores);
     }
 
     /**
@@ -110,20 +113,16 @@ public class GestionBinario extends GestionFichero {
      */
     @Override
     public Jugador obtenerJugador(int id) throws IOException {
-        dataInput = new DataInputStream(new FileInputStream(archivo));
-        Jugador jugador;
-        try {
+        try (DataInputStream dataInput = new DataInputStream(versiones.abrirLectura(0))) {
             while (true) {
-                jugador = leerJugador(dataInput);
+                Jugador jugador = leerJugador(dataInput);
                 if (jugador.getId() == id) {
-                    dataInput.close();
                     return jugador;
                 }
             }
         } catch (EOFException e) {
-            dataInput.close();
+            return null;
         }
-        return null;
     }
 
     /**
@@ -136,28 +135,295 @@ public class GestionBinario extends GestionFichero {
     @Override
     public List<Jugador> listarJugadores() throws IOException {
         List<Jugador> jugadores = new ArrayList<>();
-        dataInput = new DataInputStream(new FileInputStream(archivo));
-        try {
+        try (DataInputStream dataInput = new DataInputStream(versiones.abrirLectura(0))) {
             while (true) {
                 Jugador jugador = leerJugador(dataInput);
                 jugadores.add(jugador);
             }
         } catch (EOFException e) {
-            dataInput.close();
+            return jugadores;
+        }
+    }
+
+    /**
+     * Recorre los jugadores del archivo binario leyéndolos uno a uno a través de un stream con buffer,
+     * sin cargarlos todos en memoria.
+     *
+     * @param procesador Procesador que recibe cada jugador. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    public void recorrerJugadores(ProcesadorJugador procesador) throws IOException {
+        recorrerFiltrado(new ConsultaJugadores(), procesador);
+    }
+
+    /**
+     * Recorre el archivo binario a través de recorrerVistas. Solo se crea el Jugador de los registros
+     * que cumplen la consulta.
+     *
+     * @param consulta   Consulta con las condiciones de filtrado.
+     * @param procesador Procesador que recibe cada jugador aceptado. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    protected void recorrerFiltrado(ConsultaJugadores consulta, ProcesadorJugador procesador) throws IOException {
+        recorrerVistas(consulta, vista -> procesador.procesar(vista.aJugador()));
+    }
+
+    /**
+     * Recorre el archivo binario leyendo los campos de cada registro como valores primitivos y los bytes
+     * del nick en un array reutilizado, sobre los que se coloca una única vista. Los nicks ASCII no llegan
+     * a convertirse a String salvo que el procesador lo pida.
+     *
+     * @param consulta   Consulta con las condiciones de filtrado.
+     * @param procesador Procesador que recibe la vista de cada registro aceptado. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    public void recorrerVistas(ConsultaJugadores consulta, ProcesadorVista procesador) throws IOException {
+        VistaJugador.RegistroBinario vista = new VistaJugador.RegistroBinario();
+        boolean filtraNick = consulta.filtraNick();
+        try (DataInputStream entrada = new DataInputStream(versiones.abrirLectura(0))) {
+            while (true) {
+                int id, longitudNick, experience, lifeLevel, coins;
+                try {
+                    id = entrada.readInt();
+                    longitudNick = entrada.readUnsignedShort();
+                    entrada.readFully(vista.bufferNick(longitudNick), 0, longitudNick);
+                    experience = entrada.readInt();
+                    lifeLevel = entrada.readInt();
+                    coins = entrada.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                if (!consulta.aceptaNumericos(id, experience, lifeLevel, coins)) {
+                    continue;
+                }
+                vista.posicionar(id, longitudNick, experience, lifeLevel, coins);
+                if ((!filtraNick || consulta.aceptaNick(vista)) && !procesador.procesar(vista)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Abre un cursor que lee el archivo binario registro a registro. La continuación es el desplazamiento en bytes
+     * del siguiente registro, así que reanudar un recorrido no exige volver a leer los registros anteriores.
+     *
+     * @param continuacion Texto de continuación, o null para empezar por el primer registro.
+     * @return Cursor abierto, que lee la instantánea del archivo fijada al abrirlo hasta que se cierra.
+     * @throws IOException Si ocurre un error al abrir el archivo.
+     */
+    @Override
+    public CursorJugadores abrirCursor(String continuacion) throws IOException {
+        long inicio = CursorJugadores.posicion(continuacion);
+        DataInputStream entrada = new DataInputStream(versiones.abrirLectura(inicio));
+        return new CursorJugadores() {
+            private final VistaJugador.RegistroBinario vista = new VistaJugador.RegistroBinario();
+            private long posicion = inicio;
+
+            @Override
+            public Jugador siguiente() throws IOException {
+                int id, longitudNick, experience, lifeLevel, coins;
+                try {
+                    id = entrada.readInt();
+                    longitudNick = entrada.readUnsignedShort();
+                    entrada.readFully(vista.bufferNick(longitudNick), 0, longitudNick);
+                    experience = entrada.readInt();
+                    lifeLevel = entrada.readInt();
+                    coins = entrada.readInt();
+                } catch (EOFException e) {
+                    return null;
+                }
+                posicion += 4 * Integer.BYTES + Short.BYTES + longitudNick;
+                vista.posicionar(id, longitudNick, experience, lifeLevel, coins);
+                return vista.aJugador();
+            }
+
+            @Override
+            public String continuacion() {
+                return Long.toString(posicion);
+            }
+
+            @Override
+            public void close() throws IOException {
+                entrada.close();
+            }
+        };
+    }
+
+    /**
+     * Carga la tabla columnar desde el archivo binario. Los nicks ASCII se copian a la tabla con los mismos bytes
+     * leídos del archivo, ya que en ese caso el UTF-8 modificado de writeUTF coincide con UTF-8.
+     *
+     * @param consulta Consulta con las condiciones de filtrado.
+     * @return La tabla con los jugadores aceptados.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    public TablaColumnar cargarTablaColumnar(ConsultaJugadores consulta) throws IOException {
+        TablaColumnar tabla = new TablaColumnar();
+        boolean filtraNick = consulta.filtraNick();
+        try (DataInputStream entrada = new DataInputStream(versiones.abrirLectura(0))) {
+            byte[] nickBytes = new byte[64];
+            while (true) {
+                int id, longitudNick, experience, lifeLevel, coins;
+                try {
+                    id = entrada.readInt();
+                    longitudNick = entrada.readUnsignedShort();
+                    if (nickBytes.length < longitudNick) {
+                        nickBytes = new byte[longitudNick];
+                    }
+                    entrada.readFully(nickBytes, 0, longitudNick);
+                    experience = entrada.readInt();
+                    lifeLevel = entrada.readInt();
+                    coins = entrada.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (!consulta.aceptaNumericos(id, experience, lifeLevel, coins)) {
+                    continue;
+                }
+                if (esAscii(nickBytes, longitudNick)) {
+                    if (filtraNick && !consulta.aceptaNick(new String(nickBytes, 0, longitudNick, StandardCharsets.ISO_8859_1))) {
+                        continue;
+                    }
+                    tabla.agregarFila(id, nickBytes, 0, longitudNick, experience, lifeLevel, coins);
+                } else {
+                    String nick = decodificarNick(nickBytes, longitudNick);
+                    if (consulta.aceptaNick(nick)) {
+                        tabla.agregarFila(id, nick, experience, lifeLevel, coins);
+                    }
+                }
+            }
+        }
+        tabla.recortar();
+        return tabla;
+    }
+
+    /**
+     * Agrega un lote de jugadores comprobando los duplicados con un único recorrido del archivo
+     * y añadiendo todos los jugadores nuevos con una sola apertura del stream de salida.
+     *
+     * @param jugadores Lista de jugadores a agregar.
+     * @return Número de jugadores agregados.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    @Override
+    public int agregarJugadores(List<Jugador> jugadores) throws IOException {
+        Set<Integer> ids = new HashSet<>();
+        recorrerJugadores(j -> ids.add(j.getId()));
+        List<Jugador> nuevos = new ArrayList<>();
+        for (Jugador jugador : jugadores) {
+            if (ids.add(jugador.getId())) {
+                nuevos.add(jugador);
+            }
+        }
+        anexarJugadores(nuevos);
+        return nuevos.size();
+    }
+
+    /**
+     * Añade un lote de jugadores al final del archivo binario sin comprobar duplicados.
+     * Las lecturas que se abran después ven el lote completo; las que ya estaban abiertas no ven nada de él.
+     *
+     * @param jugadores Lista de jugadores a añadir.
+     * @throws IOException Si ocurre un error al escribir en el archivo.
+     */
+    @Override
+    protected void anexarJugadores(List<Jugador> jugadores) throws IOException {
+        versiones.anexar(salida -> {
+            DataOutputStream escritor = new DataOutputStream(salida);
+            for (Jugador jugador : jugadores) {
+                escribirJugador(escritor, jugador);
+            }
+        });
+    }
+
+    /**
+     * Aplica una transacción con una sola escritura. Si solo contiene altas, se comprueba en un recorrido que
+     * ninguna existe y se añaden al final; si no, se lee el archivo una vez, se aplican todos los cambios en
+     * memoria y se reescribe con una única sustitución atómica, así que un error deja el archivo como estaba.
+     *
+     * @param transaccion Transacción a aplicar.
+     * @return true si se aplicó, false si algún cambio no era válido.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo binario.
+     */
+    @Override
+    protected boolean confirmarTransaccion(Transaccion transaccion) throws IOException {
+        if (transaccion.soloAltas()) {
+            boolean[] existe = {false};
+            recorrerJugadores(j -> {
+                existe[0] = transaccion.ids().contains(j.getId());
+                return !existe[0];
+            });
+            if (existe[0]) {
+                return false;
+            }
+            anexarJugadores(transaccion.altas());
+            return true;
+        }
+        List<Jugador> jugadores = transaccion.aplicarA(listarJugadores());
+        if (jugadores == null) {
+            return false;
         }
-        return jugadores;
+        reescribir(jugadores);
+        return true;
+    }
+
+    /**
+     * Fuerza a disco los registros añadidos al final del archivo. Las reescrituras completas ya quedan
+     * en disco al terminar cada operación.
+     *
+     * @throws IOException Si ocurre un error al sincronizar el archivo.
+     */
+    @Override
+    public void sincronizar() throws IOException {
+        EscrituraAtomica.sincronizar(archivo);
     }
 
     /**
-     * Cierra los recursos asociados a la gestión de archivos.
-     * Cierra los streams de entrada y salida de datos si están abiertos.
+     * Reescribe el archivo completo con la lista de jugadores en un archivo temporal que después sustituye
+     * al original, de modo que una caída durante la escritura no deja el archivo truncado. Las lecturas abiertas
+     * siguen leyendo la versión anterior hasta que terminan.
+     *
+     * @param jugadores Jugadores que contendrá el archivo.
+     * @throws IOException Si ocurre un error al escribir el archivo.
+     */
+    private void reescribir(List<Jugador> jugadores) throws IOException {
+        versiones.reemplazar(salida -> {
+            DataOutputStream escritor = new DataOutputStream(salida);
+            for (Jugador j : jugadores) {
+                escribirJugador(escritor, j);
+            }
+            escritor.flush();
+        });
+    }
+
+    /**
+     * Cierra los recursos asociados a la gestión de archivos. Cada operación abre y cierra sus propios
+     * streams, así que no queda ninguno abierto entre operaciones.
      *
      * @throws IOException Si ocurre un error al cerrar los recursos.
      */
     @Override
     public void cerrar() throws IOException {
-        if (dataOutput != null) dataOutput.close();
-        if (dataInput != null) dataInput.close();
+    }
+
+    @Override
+    public boolean lecturasConcurrentes() {
+        return true;
+    }
+
+    /**
+     * Toma como confirmada la longitud actual del archivo, que incluye lo que otros procesos hayan añadido
+     * o la versión con la que lo hayan sustituido.
+     */
+    @Override
+    protected boolean recargarCambiosExternos() {
+        versiones.recargar();
+        return true;
     }
 
     /**
@@ -192,4 +458,36 @@ public class GestionBinario extends GestionFichero {
         int coins = dataInput.readInt();
         return new Jugador(id, nick, experience, lifeLevel, coins);
     }
+
+    /**
+     * Decodifica los bytes de un nick escritos con writeUTF (UTF-8 modificado).
+     * Los nicks en ASCII, que son la mayoría, se convierten directamente sin pasar por un stream.
+     *
+     * @param bytes    Buffer con los bytes del nick.
+     * @param longitud Número de bytes válidos en el buffer.
+     * @return El nick decodificado.
+     * @throws IOException Si los bytes no son UTF-8 modificado válido.
+     */
+    static String decodificarNick(byte[] bytes, int longitud) throws IOException {
+        if (esAscii(bytes, longitud)) {
+            return new String(bytes, 0, longitud, StandardCharsets.ISO_8859_1);
+        }
+        byte[] conLongitud = new byte[longitud + 2];
+        conLongitud[0] = (byte) (longitud >>> 8);
+        conLongitud[1] = (byte) longitud;
+        System.arraycopy(bytes, 0, conLongitud, 2, longitud);
+        return DataInputStream.readUTF(new DataInputStream(new ByteArrayInputStream(conLongitud)));
+    }
+
+    /**
+     * Indica si los bytes de un nick son todos ASCII (sin el bit alto activado).
+     */
+    static boolean esAscii(byte[] bytes, int longitud) {
+        for (int i = 0; i < longitud; i++) {
+            if (bytes[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -0,0 +1,719 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * La clase GestionBinarioComprimido extiende de la clase abstracta GestionFichero y guarda los jugadores en un archivo
+ * binario comprimido por bloques. Los jugadores se ordenan por ID y se agrupan en bloques de unos 32 KiB sin comprimir;
+ * cada bloque se comprime por separado con Deflater y al final del archivo hay un índice con la posición y el rango
+ * de IDs de cada bloque. Dentro de un bloque los enteros se codifican como varints (el ID como diferencia con el
+ * anterior) y los nicks en UTF-8, de modo que los valores pequeños y los nicks repetitivos ocupan muy poco.
+ * Buscar un jugador por ID solo descomprime un bloque, los recorridos con rango de IDs saltan los bloques que no
+ * lo cortan, y las modificaciones solo recomprimen los bloques afectados: el resto se copia comprimido tal cual
+ * al reescribir el archivo, que se sustituye de forma atómica.
+ *
+ * Formato: cabecera (MAGIA, VERSION), bloques comprimidos, índice con una entrada por bloque (posición, longitud
+ * comprimida, longitud original, registros, ID mínimo, ID máximo) y pie (número de bloques, posición del índice, MAGIA).
+ */
+public class GestionBinarioComprimido extends GestionFichero {
+
+    private static final int MAGIA = 0x4A424331;
+    private static final int VERSION = 1;
+    private static final int TAMAÑO_CABECERA = 2 * Integer.BYTES;
+    private static final int TAMAÑO_PIE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int TAMAÑO_BLOQUE = 32 * 1024;
+
+    private final File archivo;
+    private final Inflater descompresor = new Inflater();
+    private FileChannel canal;
+    private Object huella;
+    private List<EntradaIndice> indice = new ArrayList<>();
+
+    /**
+     * Constructor de la clase GestionBinarioComprimido.
+     * Abre el archivo y carga su índice de bloques, o crea un archivo vacío si no existe.
+     *
+     * @param nombreArchivo Nombre del archivo donde se almacenarán los datos de los jugadores.
+     * @throws IOException Si ocurre un error al acceder al archivo o si no tiene el formato esperado.
+     */
+    public GestionBinarioComprimido(String nombreArchivo) throws IOException {
+        archivo = new File(nombreArchivo);
+        if (!archivo.exists() || archivo.length() == 0) {
+            reescribir(Collections.emptyList(), Collections.emptySet());
+        } else {
+            abrirCanal();
+            leerIndice();
+        }
+    }
+
+    /**
+     * Agrega un nuevo jugador recomprimiendo solo el bloque que le corresponde por su ID.
+     *
+     * @param jugador Objeto de la clase Jugador que representa al jugador a agregar.
+     * @return true si el jugador se agrega correctamente, false si ya existe un jugador con el mismo ID.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    @Override
+    public Boolean agregarJugador(Jugador jugador) throws IOException {
+        if (obtenerJugador(jugador.getId()) != null) {
+            return false;
+        }
+        reescribir(Collections.singletonList(jugador), Collections.emptySet());
+        return true;
+    }
+
+    /**
+     * Elimina un jugador recomprimiendo solo el bloque que lo contiene.
+     *
+     * @param id ID del jugador que se desea eliminar.
+     * @return true si el jugador fue eliminado correctamente, false si no se encontró el jugador con el ID especificado.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    @Override
+    public Boolean eliminarJugador(int id) throws IOException {
+        if (obtenerJugador(id) == null) {
+            return false;
+        }
+        reescribir(Collections.emptyList(), Collections.singleton(id));
+        return true;
+    }
+
+    /**
+     * Modifica la información de un jugador recomprimiendo solo los bloques afectados.
+     *
+     * @param id ID del jugador a modificar.
+     * @param jugadorModificado Objeto de la clase Jugador con los nuevos datos del jugador.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    @Override
+    public void modificarJugador(int id, Jugador jugadorModificado) throws IOException {
+        if (obtenerJugador(id) == null) {
+            return;
+        }
+        Set<Integer> bajas = jugadorModificado.getId() == id ? Collections.emptySet() : Collections.singleton(id);
+        reescribir(Collections.singletonList(jugadorModificado), bajas);
+    }
+
+    /**
+     * Obtiene un jugador según su ID buscando su bloque en el índice y descomprimiendo solo ese bloque.
+     *
+     * @param id ID del jugador que se desea obtener.
+     * @return Un objeto Jugador con la información del jugador encontrado, o null si no se encontró.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    public Jugador obtenerJugador(int id) throws IOException {
+        int b = buscarBloque(id);
+        if (b < 0 || id > indice.get(b).maxId) {
+            return null;
+        }
+        Cursor cursor = new Cursor(leerBloque(b));
+        int previo = 0;
+        for (int r = 0; r < indice.get(b).registros; r++) {
+            previo += cursor.leerZigZag();
+            int longitudNick = cursor.leerVarint();
+            if (previo == id) {
+                String nick = new String(cursor.datos, cursor.pos, longitudNick, StandardCharsets.UTF_8);
+                cursor.pos += longitudNick;
+                return new Jugador(id, nick, cursor.leerZigZag(), cursor.leerZigZag(), cursor.leerZigZag());
+            }
+            cursor.pos += longitudNick;
+            cursor.saltarVarints(3);
+        }
+        return null;
+    }
+
+    /**
+     * Lista todos los jugadores almacenados, ordenados por ID.
+     *
+     * @return Una lista de objetos Jugador con todos los jugadores almacenados.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    public List<Jugador> listarJugadores() throws IOException {
+        List<Jugador> jugadores = new ArrayList<>();
+        recorrerJugadores(jugadores::add);
+        return jugadores;
+    }
+
+    /**
+     * Recorre los jugadores descomprimiendo un bloque cada vez, de modo que no se cargan todos en memoria.
+     *
+     * @param procesador Procesador que recibe cada jugador. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    public void recorrerJugadores(ProcesadorJugador procesador) throws IOException {
+        recorrerFiltrado(new ConsultaJugadores(), procesador);
+    }
+
+    /**
+     * Abre un cursor que descomprime un bloque cada vez. Como los jugadores están ordenados por ID, la continuación
+     * es el ID a partir del cual seguir y no una posición en el archivo: al reanudar se busca su bloque en el índice,
+     * y las altas y bajas hechas entre dos páginas no hacen que se repitan ni se salten jugadores.
+     *
+     * @param continuacion Texto de continuación, o null para empezar por el primer jugador.
+     * @return Cursor abierto.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    public CursorJugadores abrirCursor(String continuacion) throws IOException {
+        long desde;
+        try {
+            desde = continuacion == null || continuacion.isEmpty() ? Integer.MIN_VALUE : Long.parseLong(continuacion);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Texto de continuación no válido: " + continuacion);
+        }
+        return new CursorJugadores() {
+            private long siguienteId = desde;
+            private int bloque = desde > Integer.MAX_VALUE ? indice.size() : Math.max(0, buscarBloque((int) Math.max(desde, Integer.MIN_VALUE)));
+            private List<Jugador> jugadores = List.of();
+            private int actual;
+
+            @Override
+            public Jugador siguiente() throws IOException {
+                while (true) {
+                    while (actual < jugadores.size()) {
+                        Jugador jugador = jugadores.get(actual++);
+                        if (jugador.getId() >= siguienteId) {
+                            siguienteId = jugador.getId() + 1L;
+                            return jugador;
+                        }
+                    }
+                    if (bloque >= indice.size()) {
+                        return null;
+                    }
+                    jugadores = decodificarBloque(bloque++);
+                    actual = 0;
+                }
+            }
+
+            @Override
+            public String continuacion() {
+                return Long.toString(siguienteId);
+            }
+        };
+    }
+
+    /**
+     * Recorre los bloques cuyo rango de IDs corta el de la consulta y, dentro de cada bloque, evalúa los campos
+     * numéricos antes de decodificar el nick. Como los bloques están ordenados por ID, el recorrido termina en
+     * cuanto un bloque empieza por encima del ID máximo de la consulta.
+     *
+     * @param consulta   Consulta con las condiciones de filtrado.
+     * @param procesador Procesador que recibe cada jugador aceptado. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    protected void recorrerFiltrado(ConsultaJugadores consulta, ProcesadorJugador procesador) throws IOException {
+        recorrerBloques(consulta, (cursor, id, inicioNick, longitudNick, experience, lifeLevel, coins) -> {
+            String nick = new String(cursor.datos, inicioNick, longitudNick, StandardCharsets.UTF_8);
+            if (!consulta.aceptaNick(nick)) {
+                return true;
+            }
+            return procesador.procesar(new Jugador(id, nick, experience, lifeLevel, coins));
+        });
+    }
+
+    /**
+     * Carga la tabla columnar copiando los bytes UTF-8 de los nicks directamente desde el bloque descomprimido,
+     * sin crear objetos Jugador ni Strings.
+     *
+     * @param consulta Consulta con las condiciones de filtrado.
+     * @return La tabla con los jugadores aceptados.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    public TablaColumnar cargarTablaColumnar(ConsultaJugadores consulta) throws IOException {
+        TablaColumnar tabla = new TablaColumnar();
+        boolean filtraNick = consulta.filtraNick();
+        recorrerBloques(consulta, (cursor, id, inicioNick, longitudNick, experience, lifeLevel, coins) -> {
+            if (filtraNick && !consulta.aceptaNick(new String(cursor.datos, inicioNick, longitudNick, StandardCharsets.UTF_8))) {
+                return true;
+            }
+            tabla.agregarFila(id, cursor.datos, inicioNick, longitudNick, experience, lifeLevel, coins);
+            return true;
+        });
+        tabla.recortar();
+        return tabla;
+    }
+
+    /**
+     * Agrega un lote de jugadores comprobando los duplicados solo en los bloques donde caen sus IDs
+     * y reescribiendo el archivo una sola vez.
+     *
+     * @param jugadores Lista de jugadores a agregar.
+     * @return Número de jugadores agregados.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    @Override
+    public int agregarJugadores(List<Jugador> jugadores) throws IOException {
+        Map<Integer, Set<Integer>> idsPorBloque = new TreeMap<>();
+        for (Jugador jugador : jugadores) {
+            int b = buscarBloque(jugador.getId());
+            if (b >= 0 && jugador.getId() <= indice.get(b).maxId) {
+                idsPorBloque.computeIfAbsent(b, k -> new HashSet<>()).add(jugador.getId());
+            }
+        }
+        Set<Integer> existentes = new HashSet<>();
+        for (Map.Entry<Integer, Set<Integer>> bloque : idsPorBloque.entrySet()) {
+            for (Jugador jugador : decodificarBloque(bloque.getKey())) {
+                if (bloque.getValue().contains(jugador.getId())) {
+                    existentes.add(jugador.getId());
+                }
+            }
+        }
+        List<Jugador> nuevos = new ArrayList<>();
+        for (Jugador jugador : jugadores) {
+            if (existentes.add(jugador.getId())) {
+                nuevos.add(jugador);
+            }
+        }
+        anexarJugadores(nuevos);
+        return nuevos.size();
+    }
+
+    /**
+     * Añade un lote de jugadores sin comprobar duplicados, reescribiendo el archivo una sola vez.
+     * Si un ID ya existe, el jugador del lote sustituye al guardado.
+     *
+     * @param jugadores Lista de jugadores a añadir.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    @Override
+    protected void anexarJugadores(List<Jugador> jugadores) throws IOException {
+        if (!jugadores.isEmpty()) {
+            reescribir(jugadores, Collections.emptySet());
+        }
+    }
+
+    /**
+     * Vuelve a abrir el archivo y a leer su índice de bloques si otro proceso lo ha sustituido por una versión nueva.
+     *
+     * @return true, porque después de recargar se ven los cambios de otros procesos.
+     * @throws IOException Si ocurre un error al abrir el archivo o si no tiene el formato esperado.
+     */
+    @Override
+    protected boolean recargarCambiosExternos() throws IOException {
+        if (!huellaActual().equals(huella)) {
+            canal.close();
+            abrirCanal();
+            leerIndice();
+        }
+        return true;
+    }
+
+    /**
+     * Cierra el archivo y libera el descompresor.
+     *
+     * @throws IOException Si ocurre un error al cerrar el archivo.
+     */
+    @Override
+    public void cerrar() throws IOException {
+        if (canal != null) {
+            canal.close();
+        }
+        descompresor.end();
+    }
+
+    /**
+     * Número de bloques del archivo, para comparativas.
+     *
+     * @return El número de bloques comprimidos.
+     */
+    public int getNumeroBloques() {
+        return indice.size();
+    }
+
+    /**
+     * Recorre los registros de los bloques que pueden contener jugadores de la consulta, decodificando
+     * los campos numéricos y pasando al procesador la posición del nick sin decodificarlo.
+     */
+    private void recorrerBloques(ConsultaJugadores consulta, ProcesadorRegistro procesador) throws IOException {
+        int minId = consulta.getMinimo(CampoJugador.ID);
+        int maxId = consulta.getMaximo(CampoJugador.ID);
+        for (int b = 0; b < indice.size(); b++) {
+            EntradaIndice entrada = indice.get(b);
+            if (entrada.minId > maxId) {
+                return;
+            }
+            if (entrada.maxId < minId) {
+                continue;
+            }
+            Cursor cursor = new Cursor(leerBloque(b));
+            int id = 0;
+            for (int r = 0; r < entrada.registros; r++) {
+                id += cursor.leerZigZag();
+                int longitudNick = cursor.leerVarint();
+                int inicioNick = cursor.pos;
+                cursor.pos += longitudNick;
+                int experience = cursor.leerZigZag();
+                int lifeLevel = cursor.leerZigZag();
+                int coins = cursor.leerZigZag();
+                if (consulta.aceptaNumericos(id, experience, lifeLevel, coins)
+                        && !procesador.procesar(cursor, id, inicioNick, longitudNick, experience, lifeLevel, coins)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Busca el último bloque cuyo ID mínimo es menor o igual que el ID dado, que es el único que puede contenerlo
+     * y donde se inserta si no existe.
+     *
+     * @return Número de bloque, o -1 si el ID es menor que el de todos los bloques (o no hay bloques).
+     */
+    private int buscarBloque(int id) {
+        int bajo = 0;
+        int alto = indice.size() - 1;
+        int encontrado = -1;
+        while (bajo <= alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (indice.get(medio).minId <= id) {
+                encontrado = medio;
+                bajo = medio + 1;
+            } else {
+                alto = medio - 1;
+            }
+        }
+        return encontrado;
+    }
+
+    /**
+     * Reescribe el archivo aplicando altas y bajas. Solo se descomprimen y recomprimen los bloques donde caen
+     * los IDs afectados; los demás se copian comprimidos. El archivo nuevo sustituye al anterior de forma atómica.
+     *
+     * @param altas Jugadores que se añaden o sustituyen al guardado con el mismo ID.
+     * @param bajas IDs que se eliminan.
+     */
+    private void reescribir(Collection<Jugador> altas, Set<Integer> bajas) throws IOException {
+        Map<Integer, List<Jugador>> altasPorBloque = new TreeMap<>();
+        Map<Integer, Set<Integer>> bajasPorBloque = new TreeMap<>();
+        for (Jugador jugador : altas) {
+            altasPorBloque.computeIfAbsent(Math.max(0, buscarBloque(jugador.getId())), k -> new ArrayList<>()).add(jugador);
+        }
+        for (int id : bajas) {
+            int b = buscarBloque(id);
+            if (b >= 0) {
+                bajasPorBloque.computeIfAbsent(b, k -> new HashSet<>()).add(id);
+            }
+        }
+        List<EntradaIndice> nuevoIndice = new ArrayList<>();
+        int bloques = Math.max(indice.size(), altas.isEmpty() ? 0 : 1);
+        EscrituraAtomica.escribir(archivo, salida -> {
+            EscritorBloques escritor = new EscritorBloques(new DataOutputStream(salida), nuevoIndice);
+            try {
+                for (int b = 0; b < bloques; b++) {
+                    if (!altasPorBloque.containsKey(b) && !bajasPorBloque.containsKey(b)) {
+                        escritor.copiar(indice.get(b), leerComprimido(indice.get(b)));
+                        continue;
+                    }
+                    TreeMap<Integer, Jugador> contenido = new TreeMap<>();
+                    if (b < indice.size()) {
+                        for (Jugador jugador : decodificarBloque(b)) {
+                            contenido.put(jugador.getId(), jugador);
+                        }
+                    }
+                    for (int id : bajasPorBloque.getOrDefault(b, Collections.emptySet())) {
+                        contenido.remove(id);
+                    }
+                    for (Jugador jugador : altasPorBloque.getOrDefault(b, Collections.emptyList())) {
+                        contenido.put(jugador.getId(), jugador);
+                    }
+                    for (Jugador jugador : contenido.values()) {
+                        escritor.agregar(jugador);
+                    }
+                }
+                escritor.terminar();
+            } finally {
+                escritor.compresor.end();
+            }
+        });
+        if (canal != null) {
+            canal.close();
+        }
+        abrirCanal();
+        indice = nuevoIndice;
+    }
+
+    private void abrirCanal() throws IOException {
+        canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ);
+        huella = huellaActual();
+    }
+
+    /**
+     * Identifica la versión del archivo que hay ahora en la ruta: su clave en el sistema de archivos, que cambia
+     * con cada sustitución atómica, o su longitud y fecha de modificación donde el sistema no la da.
+     */
+    private Object huellaActual() throws IOException {
+        BasicFileAttributes atributos = Files.readAttributes(archivo.toPath(), BasicFileAttributes.class);
+        Object clave = atributos.fileKey();
+        return clave != null ? clave : List.of(atributos.size(), atributos.lastModifiedTime().toMillis());
+    }
+
+    private void leerIndice() throws IOException {
+        long longitud = canal.size();
+        if (longitud < TAMAÑO_CABECERA + TAMAÑO_PIE) {
+            throw new IOException("El archivo " + archivo + " no es un archivo binario comprimido válido");
+        }
+        ByteBuffer cabecera = leer(0, TAMAÑO_CABECERA);
+        ByteBuffer pie = leer(longitud - TAMAÑO_PIE, TAMAÑO_PIE);
+        int numBloques = pie.getInt();
+        long posIndice = pie.getLong();
+        if (cabecera.getInt() != MAGIA || cabecera.getInt() != VERSION || pie.getInt() != MAGIA) {
+            throw new IOException("El archivo " + archivo + " no es un archivo binario comprimido válido");
+        }
+        ByteBuffer datos = leer(posIndice, numBloques * EntradaIndice.TAMAÑO);
+        List<EntradaIndice> leido = new ArrayList<>(numBloques);
+        for (int i = 0; i < numBloques; i++) {
+            leido.add(new EntradaIndice(datos.getLong(), datos.getInt(), datos.getInt(), datos.getInt(), datos.getInt(), datos.getInt()));
+        }
+        indice = leido;
+    }
+
+    private ByteBuffer leer(long posicion, int longitud) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(longitud);
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, posicion + buffer.position()) < 0) {
+                throw new EOFException("Fin de archivo inesperado en " + archivo);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private byte[] leerComprimido(EntradaIndice entrada) throws IOException {
+        return leer(entrada.posicion, entrada.longitudComprimida).array();
+    }
+
+    /**
+     * Lee y descomprime un bloque.
+     */
+    private byte[] leerBloque(int b) throws IOException {
+        EntradaIndice entrada = indice.get(b);
+        byte[] datos = new byte[entrada.longitudOriginal];
+        descompresor.reset();
+        descompresor.setInput(leerComprimido(entrada));
+        try {
+            int leidos = 0;
+            while (leidos < datos.length && !descompresor.finished()) {
+                int n = descompresor.inflate(datos, leidos, datos.length - leidos);
+                if (n == 0 && (descompresor.needsInput() || descompresor.needsDictionary())) {
+                    break;
+                }
+                leidos += n;
+            }
+            if (leidos != datos.length) {
+                throw new IOException("Bloque " + b + " incompleto en " + archivo);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Bloque " + b + " corrupto en " + archivo, e);
+        }
+        return datos;
+    }
+
+    private List<Jugador> decodificarBloque(int b) throws IOException {
+        List<Jugador> jugadores = new ArrayList<>(indice.get(b).registros);
+        Cursor cursor = new Cursor(leerBloque(b));
+        int id = 0;
+        for (int r = 0; r < indice.get(b).registros; r++) {
+            id += cursor.leerZigZag();
+            int longitudNick = cursor.leerVarint();
+            String nick = new String(cursor.datos, cursor.pos, longitudNick, StandardCharsets.UTF_8);
+            cursor.pos += longitudNick;
+            jugadores.add(new Jugador(id, nick, cursor.leerZigZag(), cursor.leerZigZag(), cursor.leerZigZag()));
+        }
+        return jugadores;
+    }
+
+    /**
+     * Entrada del índice de bloques.
+     */
+    private static final class EntradaIndice {
+
+        static final int TAMAÑO = Long.BYTES + 5 * Integer.BYTES;
+
+        final long posicion;
+        final int longitudComprimida;
+        final int longitudOriginal;
+        final int registros;
+        final int minId;
+        final int maxId;
+
+        EntradaIndice(long posicion, int longitudComprimida, int longitudOriginal, int registros, int minId, int maxId) {
+            this.posicion = posicion;
+            this.longitudComprimida = longitudComprimida;
+            this.longitudOriginal = longitudOriginal;
+            this.registros = registros;
+            this.minId = minId;
+            this.maxId = maxId;
+        }
+    }
+
+    /**
+     * Posición de lectura dentro de un bloque descomprimido.
+     */
+    private static final class Cursor {
+
+        final byte[] datos;
+        int pos;
+
+        Cursor(byte[] datos) {
+            this.datos = datos;
+        }
+
+        int leerVarint() {
+            int valor = 0;
+            int desplazamiento = 0;
+            byte b;
+            do {
+                b = datos[pos++];
+                valor |= (b & 0x7F) << desplazamiento;
+                desplazamiento += 7;
+            } while (b < 0);
+            return valor;
+        }
+
+        int leerZigZag() {
+            int valor = leerVarint();
+            return (valor >>> 1) ^ -(valor & 1);
+        }
+
+        void saltarVarints(int cuantos) {
+            for (int i = 0; i < cuantos; i++) {
+                while (datos[pos++] < 0) {
+                    // Byte de continuación del varint.
+                }
+            }
+        }
+    }
+
+    /**
+     * Procesa un registro de un bloque descomprimido con el nick todavía sin decodificar.
+     */
+    @FunctionalInterface
+    private interface ProcesadorRegistro {
+        boolean procesar(Cursor cursor, int id, int inicioNick, int longitudNick, int experience, int lifeLevel, int coins) throws IOException;
+    }
+
+    /**
+     * Escribe el archivo nuevo: acumula registros codificados hasta llenar un bloque, lo comprime y lo escribe,
+     * copia bloques ya comprimidos y al final escribe el índice y el pie.
+     */
+    private static final class EscritorBloques {
+
+        final DataOutputStream salida;
+        final List<EntradaIndice> indice;
+        final Deflater compresor = new Deflater();
+        final ByteArrayOutputStream bloque = new ByteArrayOutputStream(TAMAÑO_BLOQUE + 256);
+        byte[] comprimido = new byte[TAMAÑO_BLOQUE];
+        long posicion;
+        int registros;
+        int minId;
+        int previo;
+
+        EscritorBloques(DataOutputStream salida, List<EntradaIndice> indice) throws IOException {
+            this.salida = salida;
+            this.indice = indice;
+            salida.writeInt(MAGIA);
+            salida.writeInt(VERSION);
+            posicion = TAMAÑO_CABECERA;
+        }
+
+        void agregar(Jugador jugador) throws IOException {
+            if (registros == 0) {
+                minId = jugador.getId();
+                previo = 0;
+            }
+            escribirZigZag(jugador.getId() - previo);
+            byte[] nick = jugador.getNick() == null ? new byte[0] : jugador.getNick().getBytes(StandardCharsets.UTF_8);
+            escribirVarint(nick.length);
+            bloque.write(nick);
+            escribirZigZag(jugador.getExperience());
+            escribirZigZag(jugador.getLifeLevel());
+            escribirZigZag(jugador.getCoins());
+            previo = jugador.getId();
+            registros++;
+            if (bloque.size() >= TAMAÑO_BLOQUE) {
+                cerrarBloque();
+            }
+        }
+
+        void copiar(EntradaIndice entrada, byte[] datos) throws IOException {
+            cerrarBloque();
+            salida.write(datos);
+            indice.add(new EntradaIndice(posicion, datos.length, entrada.longitudOriginal, entrada.registros, entrada.minId, entrada.maxId));
+            posicion += datos.length;
+        }
+
+        void terminar() throws IOException {
+            cerrarBloque();
+            long posIndice = posicion;
+            for (EntradaIndice entrada : indice) {
+                salida.writeLong(entrada.posicion);
+                salida.writeInt(entrada.longitudComprimida);
+                salida.writeInt(entrada.longitudOriginal);
+                salida.writeInt(entrada.registros);
+                salida.writeInt(entrada.minId);
+                salida.writeInt(entrada.maxId);
+            }
+            salida.writeInt(indice.size());
+            salida.writeLong(posIndice);
+            salida.writeInt(MAGIA);
+            salida.flush();
+        }
+
+        private void cerrarBloque() throws IOException {
+            if (registros == 0) {
+                return;
+            }
+            byte[] original = bloque.toByteArray();
+            compresor.reset();
+            compresor.setInput(original);
+            compresor.finish();
+            int longitud = 0;
+            while (!compresor.finished()) {
+                if (longitud == comprimido.length) {
+                    comprimido = Arrays.copyOf(comprimido, comprimido.length * 2);
+                }
+                longitud += compresor.deflate(comprimido, longitud, comprimido.length - longitud);
+            }
+            salida.write(comprimido, 0, longitud);
+            indice.add(new EntradaIndice(posicion, longitud, original.length, registros, minId, previo));
+            posicion += longitud;
+            bloque.reset();
+            registros = 0;
+        }
+
+        private void escribirZigZag(int valor) {
+            escribirVarint((valor << 1) ^ (valor >> 31));
+        }
+
+        private void escribirVarint(int valor) {
+            while ((valor & ~0x7F) != 0) {
+                bloque.write((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            bloque.write(valor);
+        }
+    }
+}
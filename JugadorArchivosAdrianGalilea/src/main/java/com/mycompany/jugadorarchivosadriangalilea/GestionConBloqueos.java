@@ -0,0 +1,232 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * La clase GestionConBloqueos coordina entre procesos el acceso a un almacén de los backends que reescriben o
+ * amplían el archivo completo (texto, binario, objetos, XML y binario comprimido), para que la importación,
+ * los informes y el menú puedan trabajar a la vez sobre el mismo archivo. Las lecturas bloquean el archivo en modo
+ * compartido y las escrituras en exclusiva con un CerrojoArchivo, y después de bloquearlo el backend recarga lo
+ * que hayan escrito otros procesos. Las sumas de sumarCampo y aplicarIncrementos leen y escriben con el bloqueo
+ * exclusivo, así que no se pierden sumas de procesos distintos.
+ *
+ * GestionAccesoAleatorio no la necesita: abierto en modo compartido bloquea solo los registros que toca.
+ * Los backends que guardan en memoria un estado que no saben recargar (LSM, hash extensible, árbol B+) no se
+ * admiten, y las capas con estado propio (índices, clasificaciones, registro de escritura) no ven los cambios de
+ * otros procesos, así que no se deben usar sobre un almacén compartido.
+ */
+public class GestionConBloqueos extends GestionDelegada {
+
+    private final CerrojoArchivo cerrojo;
+
+    /**
+     * Constructor de la clase GestionConBloqueos.
+     *
+     * @param delegada  GestionFichero ya abierto sobre el archivo de datos.
+     * @param rutaDatos Ruta del archivo de datos. El cerrojo se toma sobre la misma ruta con extensión ".lock".
+     * @param modo      Política de espera entre lectores y escritores.
+     * @throws IOException Si ocurre un error al abrir el archivo del cerrojo o al recargar el almacén.
+     * @throws IllegalArgumentException Si el backend no puede ver los cambios de otros procesos.
+     */
+    public GestionConBloqueos(GestionFichero delegada, String rutaDatos, CerrojoArchivo.Modo modo) throws IOException {
+        super(delegada);
+        cerrojo = new CerrojoArchivo(rutaDatos, modo);
+        boolean recargable;
+        try {
+            recargable = cerrojo.conLectura(delegada::recargarCambiosExternos);
+        } catch (IOException | RuntimeException e) {
+            cerrojo.close();
+            throw e;
+        }
+        if (!recargable) {
+            cerrojo.close();
+            throw new IllegalArgumentException("El almacén " + delegada.getClass().getSimpleName()
+                    + " no puede compartirse entre procesos");
+        }
+    }
+
+    /**
+     * Devuelve el cerrojo del almacén, con las medidas de las esperas.
+     */
+    public CerrojoArchivo getCerrojo() {
+        return cerrojo;
+    }
+
+    @Override
+    public Boolean agregarJugador(Jugador jugador) throws IOException {
+        return escribir(() -> delegada.agregarJugador(jugador));
+    }
+
+    @Override
+    public Boolean eliminarJugador(int id) throws IOException {
+        return escribir(() -> delegada.eliminarJugador(id));
+    }
+
+    @Override
+    public void modificarJugador(int id, Jugador jugadorModificado) throws IOException {
+        escribir(() -> {
+            delegada.modificarJugador(id, jugadorModificado);
+            return null;
+        });
+    }
+
+    @Override
+    public Jugador obtenerJugador(int id) throws IOException {
+        return leer(() -> delegada.obtenerJugador(id));
+    }
+
+    @Override
+    public List<Jugador> listarJugadores() throws IOException {
+        return leer(delegada::listarJugadores);
+    }
+
+    @Override
+    public void recorrerJugadores(ProcesadorJugador procesador) throws IOException {
+        leer(() -> {
+            delegada.recorrerJugadores(procesador);
+            return null;
+        });
+    }
+
+    /**
+     * Abre el cursor del almacén envuelto y lo devuelve envuelto a su vez, de modo que cada lectura del cursor
+     * bloquea el archivo en modo compartido y recarga antes los cambios de otros procesos. Entre dos lecturas
+     * el archivo queda libre para los escritores.
+     */
+    @Override
+    public CursorJugadores abrirCursor(String continuacion) throws IOException {
+        CursorJugadores cursor = leer(() -> delegada.abrirCursor(continuacion));
+        return new CursorJugadores() {
+            @Override
+            public Jugador siguiente() throws IOException {
+                return leer(cursor::siguiente);
+            }
+
+            @Override
+            public String continuacion() {
+                return cursor.continuacion();
+            }
+
+            @Override
+            public void close() throws IOException {
+                cursor.close();
+            }
+        };
+    }
+
+    @Override
+    public List<Jugador> consultar(ConsultaJugadores consulta) throws IOException {
+        return leer(() -> delegada.consultar(consulta));
+    }
+
+    @Override
+    public List<Jugador> obtenerPorNick(String nick) throws IOException {
+        return leer(() -> delegada.obtenerPorNick(nick));
+    }
+
+    @Override
+    public List<Jugador> buscarPorPrefijoNick(String prefijo, int limite) throws IOException {
+        return leer(() -> delegada.buscarPorPrefijoNick(prefijo, limite));
+    }
+
+    @Override
+    public TablaColumnar cargarTablaColumnar(ConsultaJugadores consulta) throws IOException {
+        return leer(() -> delegada.cargarTablaColumnar(consulta));
+    }
+
+    @Override
+    public long contar(ConsultaJugadores consulta) throws IOException {
+        return leer(() -> delegada.contar(consulta));
+    }
+
+    @Override
+    public void recorrerVistas(ConsultaJugadores consulta, ProcesadorVista procesador) throws IOException {
+        leer(() -> {
+            delegada.recorrerVistas(consulta, procesador);
+            return null;
+        });
+    }
+
+    @Override
+    protected void recorrerFiltrado(ConsultaJugadores consulta, ProcesadorJugador procesador) throws IOException {
+        leer(() -> {
+            delegada.recorrerFiltrado(consulta, procesador);
+            return null;
+        });
+    }
+
+    @Override
+    public int agregarJugadores(List<Jugador> jugadores) throws IOException {
+        return escribir(() -> delegada.agregarJugadores(jugadores));
+    }
+
+    @Override
+    protected void anexarJugadores(List<Jugador> jugadores) throws IOException {
+        escribir(() -> {
+            delegada.anexarJugadores(jugadores);
+            return null;
+        });
+    }
+
+    /**
+     * Aplica la transacción con el archivo bloqueado en exclusiva, de modo que la comprobación de los IDs
+     * y los cambios no se intercalan con los de otros procesos.
+     */
+    @Override
+    protected boolean confirmarTransaccion(Transaccion transaccion) throws IOException {
+        return escribir(() -> delegada.confirmarTransaccion(transaccion));
+    }
+
+    @Override
+    public void sumarCampo(int id, CampoJugador campo, int delta) throws IOException {
+        escribir(() -> {
+            delegada.sumarCampo(id, campo, delta);
+            return null;
+        });
+    }
+
+    @Override
+    public int aplicarIncrementos(IncrementosJugadores incrementos) throws IOException {
+        return escribir(() -> delegada.aplicarIncrementos(incrementos));
+    }
+
+    @Override
+    public boolean lecturasConcurrentes() {
+        return delegada.lecturasConcurrentes();
+    }
+
+    /**
+     * Cierra el almacén envuelto y el archivo del cerrojo.
+     *
+     * @throws IOException Si ocurre un error al cerrar el almacén o el cerrojo.
+     */
+    @Override
+    public void cerrar() throws IOException {
+        try {
+            delegada.cerrar();
+        } finally {
+            cerrojo.close();
+        }
+    }
+
+    /**
+     * Ejecuta una lectura con el archivo bloqueado en modo compartido, después de recargar los cambios de otros procesos.
+     */
+    private <T> T leer(CerrojoArchivo.Operacion<T> operacion) throws IOException {
+        return cerrojo.conLectura(() -> {
+            delegada.recargarCambiosExternos();
+            return operacion.ejecutar();
+        });
+    }
+
+    /**
+     * Ejecuta una escritura con el archivo bloqueado en exclusiva, después de recargar los cambios de otros procesos.
+     */
+    private <T> T escribir(CerrojoArchivo.Operacion<T> operacion) throws IOException {
+        return cerrojo.conEscritura(() -> {
+            delegada.recargarCambiosExternos();
+            return operacion.ejecutar();
+        });
+    }
+}
@@ -0,0 +1,415 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * La clase GestionConClasificaciones añade a cualquier GestionFichero clasificaciones de los mejores jugadores
+ * por experiencia, monedas o nivel de vida, que se mantienen en agregarJugador, modificarJugador, eliminarJugador
+ * y en las sumas de sumarCampo y aplicarIncrementos.
+ * Pedir los primeros jugadores de una clasificación no lee el archivo de datos ni ordena el almacén: cuesta
+ * lo mismo que el número de jugadores pedidos.
+ *
+ * Cada ClasificacionTop guarda hasta el doble del tamaño pedido. Si las bajas la dejan con menos jugadores
+ * de los pedidos y el almacén tiene más, se reconstruye con un único recorrido al consultarla.
+ * Como GestionConIndices, las clasificaciones se guardan al cerrar en un archivo junto al de datos con extensión
+ * ".top", que se borra antes de la primera modificación, y se reconstruyen con un recorrido completo al abrir si
+ * ese archivo no existe, su CRC32C no coincide o no corresponde al estado actual del archivo de datos.
+ */
+public class GestionConClasificaciones extends GestionDelegada {
+
+    private static final int MAGIA = 0x4A544F50;
+    private static final int VERSION = 1;
+
+    private final File archivoDatos;
+    private final File archivoClasificaciones;
+    private final int tamaño;
+    private final Map<CampoJugador, ClasificacionTop> clasificaciones = new EnumMap<>(CampoJugador.class);
+    private boolean persistido;
+
+    /**
+     * Constructor de la clase GestionConClasificaciones con clasificaciones por experiencia, monedas y nivel de vida.
+     *
+     * @param delegada  GestionFichero ya abierto sobre el archivo de datos.
+     * @param rutaDatos Ruta del archivo de datos. Las clasificaciones se guardan en la misma ruta con extensión ".top".
+     * @param tamaño    Número máximo de jugadores que se pueden pedir de cada clasificación.
+     * @throws IOException Si ocurre un error al leer el archivo de datos.
+     */
+    public GestionConClasificaciones(GestionFichero delegada, String rutaDatos, int tamaño) throws IOException {
+        this(delegada, rutaDatos, tamaño, CampoJugador.EXPERIENCE, CampoJugador.COINS, CampoJugador.LIFE_LEVEL);
+    }
+
+    /**
+     * Constructor de la clase GestionConClasificaciones.
+     * Carga las clasificaciones guardadas o, si están desactualizadas, las reconstruye recorriendo el archivo de datos.
+     *
+     * @param delegada  GestionFichero ya abierto sobre el archivo de datos.
+     * @param rutaDatos Ruta del archivo de datos. Las clasificaciones se guardan en la misma ruta con extensión ".top".
+     * @param tamaño    Número máximo de jugadores que se pueden pedir de cada clasificación.
+     * @param campos    Campos numéricos por los que se clasifica.
+     * @throws IOException Si ocurre un error al leer el archivo de datos.
+     */
+    public GestionConClasificaciones(GestionFichero delegada, String rutaDatos, int tamaño, CampoJugador... campos) throws IOException {
+        super(delegada);
+        archivoDatos = new File(rutaDatos);
+        archivoClasificaciones = new File(rutaDatos + ".top");
+        this.tamaño = tamaño;
+        for (CampoJugador campo : campos) {
+            clasificaciones.put(campo, new ClasificacionTop(campo, tamaño));
+        }
+        if (!cargarClasificaciones()) {
+            reconstruir(clasificaciones.values());
+        }
+    }
+
+    /**
+     * Devuelve los mejores jugadores según un campo, de mayor a menor valor y, a igual valor, de menor a mayor ID.
+     *
+     * @param campo  Campo de una de las clasificaciones.
+     * @param numero Número de jugadores, como mucho el tamaño de las clasificaciones.
+     * @return Lista con los primeros jugadores, que tiene menos si el almacén tiene menos jugadores.
+     * @throws IOException Si hay que reconstruir la clasificación y ocurre un error al leer el archivo.
+     */
+    public List<Jugador> obtenerClasificacion(CampoJugador campo, int numero) throws IOException {
+        ClasificacionTop clasificacion = clasificaciones.get(campo);
+        if (clasificacion == null) {
+            throw new IllegalArgumentException("No hay clasificación por " + campo);
+        }
+        if (numero < 0 || numero > tamaño) {
+            throw new IllegalArgumentException("Solo se pueden pedir hasta " + tamaño + " jugadores de la clasificación");
+        }
+        if (clasificacion.necesitaReconstruir()) {
+            List<ClasificacionTop> pendientes = new ArrayList<>();
+            for (ClasificacionTop otra : clasificaciones.values()) {
+                if (otra.necesitaReconstruir()) {
+                    pendientes.add(otra);
+                }
+            }
+            reconstruir(pendientes);
+        }
+        return clasificacion.primeros(numero);
+    }
+
+    @Override
+    public Boolean agregarJugador(Jugador jugador) throws IOException {
+        invalidar();
+        Boolean agregado = delegada.agregarJugador(jugador);
+        if (agregado) {
+            clasificar(jugador);
+        }
+        return agregado;
+    }
+
+    /**
+     * Agrega un lote de jugadores comprobando los duplicados en el backend con idsExistentes,
+     * para saber qué jugadores hay que clasificar.
+     *
+     * @param jugadores Lista de jugadores a agregar.
+     * @return Número de jugadores agregados.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    @Override
+    public int agregarJugadores(List<Jugador> jugadores) throws IOException {
+        Set<Integer> ids = new HashSet<>();
+        for (Jugador jugador : jugadores) {
+            ids.add(jugador.getId());
+        }
+        Set<Integer> existentes = ids.isEmpty() ? Set.of() : delegada.idsExistentes(ids);
+        List<Jugador> nuevos = new ArrayList<>();
+        Set<Integer> idsLote = new HashSet<>();
+        for (Jugador jugador : jugadores) {
+            if (!existentes.contains(jugador.getId()) && idsLote.add(jugador.getId())) {
+                nuevos.add(jugador);
+            }
+        }
+        anexarJugadores(nuevos);
+        return nuevos.size();
+    }
+
+    @Override
+    protected void anexarJugadores(List<Jugador> jugadores) throws IOException {
+        if (jugadores.isEmpty()) {
+            return;
+        }
+        invalidar();
+        delegada.anexarJugadores(jugadores);
+        for (Jugador jugador : jugadores) {
+            clasificar(jugador);
+        }
+    }
+
+    @Override
+    public Boolean eliminarJugador(int id) throws IOException {
+        invalidar();
+        Boolean eliminado = delegada.eliminarJugador(id);
+        if (eliminado) {
+            desclasificar(id);
+        }
+        return eliminado;
+    }
+
+    /**
+     * Modifica un jugador y lo vuelve a colocar en las clasificaciones. Solo lee el jugador del backend
+     * si ninguna clasificación permite saber si existe: cuando no está en ninguna y todas están truncadas.
+     *
+     * @param id                ID del jugador a modificar.
+     * @param jugadorModificado Objeto de la clase Jugador con los nuevos datos del jugador.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    @Override
+    public void modificarJugador(int id, Jugador jugadorModificado) throws IOException {
+        invalidar();
+        boolean existe = existe(id);
+        delegada.modificarJugador(id, jugadorModificado);
+        if (existe) {
+            desclasificar(id);
+            desclasificar(jugadorModificado.getId());
+            clasificar(jugadorModificado);
+        }
+    }
+
+    @Override
+    public void sumarCampo(int id, CampoJugador campo, int delta) throws IOException {
+        IncrementosJugadores incrementos = new IncrementosJugadores();
+        incrementos.sumar(id, campo, delta);
+        aplicarIncrementos(incrementos);
+    }
+
+    /**
+     * Aplica las sumas en el backend y vuelve a colocar en las clasificaciones a los jugadores afectados.
+     * Los que ya están en alguna clasificación se recalculan desde ella; los demás solo se leen del backend,
+     * con una única consulta, si ninguna clasificación completa permite saber que no existen.
+     *
+     * @param incrementos Sumas a aplicar.
+     * @return Número de jugadores modificados.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    @Override
+    public int aplicarIncrementos(IncrementosJugadores incrementos) throws IOException {
+        invalidar();
+        Map<Integer, Jugador> clasificados = new HashMap<>();
+        Set<Integer> desconocidos = new HashSet<>();
+        for (int id : incrementos.ids()) {
+            Jugador jugador = clasificado(id);
+            if (jugador != null) {
+                clasificados.put(id, jugador);
+            } else if (!algunaCompleta()) {
+                desconocidos.add(id);
+            }
+        }
+        int modificados = delegada.aplicarIncrementos(incrementos);
+        for (Jugador jugador : clasificados.values()) {
+            desclasificar(jugador.getId());
+            clasificar(incrementos.aplicar(jugador));
+        }
+        if (desconocidos.size() == 1) {
+            Jugador jugador = delegada.obtenerJugador(desconocidos.iterator().next());
+            if (jugador != null) {
+                clasificar(jugador);
+            }
+        } else if (!desconocidos.isEmpty()) {
+            delegada.recorrerFiltrado(new ConsultaJugadores().idsEn(desconocidos), jugador -> {
+                clasificar(jugador);
+                return true;
+            });
+        }
+        return modificados;
+    }
+
+    /**
+     * Aplica una transacción en el backend y actualiza las clasificaciones con el resultado si se aplica.
+     *
+     * @param transaccion Transacción a aplicar.
+     * @return true si se aplicó, false si algún cambio no era válido.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    @Override
+    protected boolean confirmarTransaccion(Transaccion transaccion) throws IOException {
+        invalidar();
+        if (!delegada.confirmarTransaccion(transaccion)) {
+            return false;
+        }
+        for (Transaccion.Cambio cambio : transaccion.cambios()) {
+            if (cambio.debiaExistir()) {
+                desclasificar(cambio.getId());
+            }
+            if (cambio.getResultado() != null) {
+                clasificar(cambio.getResultado());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Cierra el backend y guarda las clasificaciones junto con la huella del archivo de datos ya cerrado.
+     *
+     * @throws IOException Si ocurre un error al cerrar el backend o al guardar las clasificaciones.
+     */
+    @Override
+    public void cerrar() throws IOException {
+        delegada.cerrar();
+        if (!persistido) {
+            guardarClasificaciones();
+        }
+    }
+
+    public int getTamaño() {
+        return tamaño;
+    }
+
+    private void clasificar(Jugador jugador) {
+        for (ClasificacionTop clasificacion : clasificaciones.values()) {
+            clasificacion.agregar(jugador);
+        }
+    }
+
+    private void desclasificar(int id) {
+        for (ClasificacionTop clasificacion : clasificaciones.values()) {
+            clasificacion.quitar(id);
+        }
+    }
+
+    /**
+     * Devuelve el jugador con el ID si está en alguna clasificación, o null.
+     */
+    private Jugador clasificado(int id) {
+        for (ClasificacionTop clasificacion : clasificaciones.values()) {
+            Jugador jugador = clasificacion.obtener(id);
+            if (jugador != null) {
+                return jugador;
+            }
+        }
+        return null;
+    }
+
+    private boolean algunaCompleta() {
+        for (ClasificacionTop clasificacion : clasificaciones.values()) {
+            if (clasificacion.esCompleta()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indica si existe un jugador con el ID, usando las clasificaciones cuando lo permiten: está en alguna,
+     * o alguna contiene a todos los jugadores del almacén.
+     */
+    private boolean existe(int id) throws IOException {
+        for (ClasificacionTop clasificacion : clasificaciones.values()) {
+            if (clasificacion.contiene(id)) {
+                return true;
+            }
+            if (clasificacion.esCompleta()) {
+                return false;
+            }
+        }
+        return delegada.obtenerJugador(id) != null;
+    }
+
+    /**
+     * Reconstruye las clasificaciones indicadas con un único recorrido completo del archivo de datos.
+     */
+    private void reconstruir(Iterable<ClasificacionTop> pendientes) throws IOException {
+        for (ClasificacionTop clasificacion : pendientes) {
+            clasificacion.vaciar();
+        }
+        delegada.recorrerJugadores(jugador -> {
+            for (ClasificacionTop clasificacion : pendientes) {
+                clasificacion.agregar(jugador);
+            }
+            return true;
+        });
+        persistido = false;
+    }
+
+    /**
+     * Borra el archivo de clasificaciones antes de la primera modificación, para que si el programa termina
+     * sin llamar a cerrar() las clasificaciones se reconstruyan en la siguiente apertura.
+     */
+    private void invalidar() {
+        if (persistido) {
+            archivoClasificaciones.delete();
+            persistido = false;
+        }
+    }
+
+    /**
+     * Carga las clasificaciones del archivo si existe, su CRC32C es correcto, su huella coincide con la del
+     * archivo de datos y tiene los mismos campos y el mismo tamaño.
+     *
+     * @return true si las clasificaciones se han cargado, false si hay que reconstruirlas.
+     */
+    private boolean cargarClasificaciones() {
+        if (!archivoClasificaciones.exists()) {
+            return false;
+        }
+        CheckedInputStream comprobada = null;
+        try (DataInputStream entrada = new DataInputStream(comprobada = new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(archivoClasificaciones)), new CRC32C()))) {
+            if (entrada.readInt() != MAGIA || entrada.readInt() != VERSION
+                    || entrada.readLong() != archivoDatos.length() || entrada.readLong() != archivoDatos.lastModified()
+                    || entrada.readInt() != tamaño || entrada.readInt() != clasificaciones.size()) {
+                return false;
+            }
+            for (ClasificacionTop clasificacion : clasificaciones.values()) {
+                if (entrada.readInt() != clasificacion.getCampo().ordinal()) {
+                    vaciar();
+                    return false;
+                }
+                clasificacion.leer(entrada);
+            }
+            if ((int) comprobada.getChecksum().getValue() != entrada.readInt()) {
+                vaciar();
+                return false;
+            }
+            persistido = true;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            vaciar();
+            return false;
+        }
+    }
+
+    private void vaciar() {
+        for (ClasificacionTop clasificacion : clasificaciones.values()) {
+            clasificacion.vaciar();
+        }
+    }
+
+    /**
+     * Guarda las clasificaciones en un archivo temporal, terminado con el CRC32C de su contenido, y lo renombra
+     * sobre el definitivo.
+     */
+    private void guardarClasificaciones() throws IOException {
+        File temporal = new File(archivoClasificaciones.getPath() + ".tmp");
+        CheckedOutputStream comprobada;
+        try (DataOutputStream salida = new DataOutputStream(comprobada = new CheckedOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporal)), new CRC32C()))) {
+            salida.writeInt(MAGIA);
+            salida.writeInt(VERSION);
+            salida.writeLong(archivoDatos.length());
+            salida.writeLong(archivoDatos.lastModified());
+            salida.writeInt(tamaño);
+            salida.writeInt(clasificaciones.size());
+            for (ClasificacionTop clasificacion : clasificaciones.values()) {
+                salida.writeInt(clasificacion.getCampo().ordinal());
+                clasificacion.escribir(salida);
+            }
+            salida.writeInt((int) comprobada.getChecksum().getValue());
+        }
+        Files.move(temporal.toPath(), archivoClasificaciones.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        persistido = true;
+    }
+}
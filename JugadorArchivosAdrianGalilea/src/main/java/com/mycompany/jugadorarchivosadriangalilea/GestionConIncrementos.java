@@ -0,0 +1,301 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * La clase GestionConIncrementos acumula en memoria las sumas de sumarCampo (monedas, experiencia, nivel de vida)
+ * sobre cualquier GestionFichero y las aplica todas juntas con aplicarIncrementos del backend cuando afectan
+ * a suficientes jugadores, al llamar a aplicar, antes de cualquier lectura que no sea por ID y al cerrar.
+ * Las sumas sobre un mismo jugador se combinan, así que para los backends que reescriben el archivo completo
+ * miles de compras y bajas de monedas cuestan una sola reescritura en lugar de una por operación.
+ * GestionAccesoAleatorio no la necesita: ya aplica cada suma escribiendo solo el entero del campo.
+ *
+ * Una suma que desborda el valor guardado de un jugador no se detecta hasta aplicarla. Entonces se descartan
+ * las sumas pendientes de los jugadores que se desbordan, se aplican las demás y se lanza ArithmeticException
+ * con sus IDs, de modo que el error se ve una vez y la capa sigue funcionando.
+ *
+ * obtenerJugador devuelve el jugador con las sumas pendientes aplicadas. Si el proceso termina sin aplicarlas
+ * se pierden; si tienen que sobrevivir hay que usar GestionConRegistro en su lugar, que anota cada suma en su
+ * registro y también aplica los cambios al archivo de datos en bloque. No es segura entre hilos: para usarla
+ * desde varios hilos hay que envolverla con GestionSincronizada.
+ */
+public class GestionConIncrementos extends GestionDelegada {
+
+    private static final int LIMITE_PENDIENTES = 4096;
+
+    private final IncrementosJugadores pendientes = new IncrementosJugadores();
+    private int limitePendientes = LIMITE_PENDIENTES;
+
+    /**
+     * Constructor de la clase GestionConIncrementos.
+     *
+     * @param delegada GestionFichero al que se reenvían las operaciones.
+     */
+    public GestionConIncrementos(GestionFichero delegada) {
+        super(delegada);
+    }
+
+    /**
+     * Cambia el número de jugadores con sumas pendientes a partir del cual se aplican al backend.
+     *
+     * @param limitePendientes Número de jugadores, al menos 1.
+     */
+    public void setLimitePendientes(int limitePendientes) {
+        if (limitePendientes < 1) {
+            throw new IllegalArgumentException("El límite de jugadores pendientes debe ser al menos 1");
+        }
+        this.limitePendientes = limitePendientes;
+    }
+
+    public int getNumeroPendientes() {
+        return pendientes.getNumeroJugadores();
+    }
+
+    /**
+     * Acumula la suma con las pendientes del mismo jugador y las aplica todas si se alcanza el límite.
+     *
+     * @param id    ID del jugador.
+     * @param campo Campo a modificar: EXPERIENCE, LIFE_LEVEL o COINS.
+     * @param delta Cantidad a sumar, negativa para restar.
+     * @throws IOException Si se alcanza el límite y ocurre un error al aplicar las sumas.
+     */
+    @Override
+    public void sumarCampo(int id, CampoJugador campo, int delta) throws IOException {
+        pendientes.sumar(id, campo, delta);
+        if (pendientes.getNumeroJugadores() >= limitePendientes) {
+            aplicar();
+        }
+    }
+
+    /**
+     * Combina las sumas con las pendientes y las aplica todas.
+     *
+     * @param incrementos Sumas a aplicar.
+     * @return Número de jugadores modificados, incluidos los que tenían sumas pendientes.
+     * @throws IOException Si ocurre un error al aplicar las sumas.
+     */
+    @Override
+    public int aplicarIncrementos(IncrementosJugadores incrementos) throws IOException {
+        pendientes.combinar(incrementos);
+        return aplicar();
+    }
+
+    /**
+     * Aplica al backend todas las sumas pendientes. Si alguna se desborda, el backend no aplica ninguna: se buscan
+     * los jugadores que se desbordan con un único recorrido filtrado, se descartan sus sumas y se aplican las demás.
+     * Si el backend falla por otro motivo las sumas siguen pendientes.
+     *
+     * @return Número de jugadores modificados.
+     * @throws IOException Si ocurre un error al aplicar las sumas.
+     * @throws ArithmeticException Si se han descartado las sumas de algún jugador porque se desbordaban;
+     *                             las del resto ya se han aplicado.
+     */
+    public int aplicar() throws IOException {
+        if (pendientes.estaVacio()) {
+            return 0;
+        }
+        int modificados;
+        try {
+            modificados = delegada.aplicarIncrementos(pendientes);
+        } catch (ArithmeticException e) {
+            Set<Integer> desbordados = desbordados();
+            for (int id : desbordados) {
+                pendientes.descartar(id);
+            }
+            try {
+                if (!pendientes.estaVacio()) {
+                    delegada.aplicarIncrementos(pendientes);
+                }
+            } catch (ArithmeticException otro) {
+                pendientes.vaciar();
+                throw otro;
+            }
+            pendientes.vaciar();
+            throw descartadas(desbordados, e);
+        }
+        pendientes.vaciar();
+        return modificados;
+    }
+
+    /**
+     * Busca los jugadores cuyos campos no caben en un int con las sumas pendientes aplicadas.
+     */
+    private Set<Integer> desbordados() throws IOException {
+        Set<Integer> desbordados = new TreeSet<>();
+        delegada.recorrerFiltrado(new ConsultaJugadores().idsEn(new HashSet<>(pendientes.ids())), jugador -> {
+            try {
+                pendientes.aplicar(jugador);
+            } catch (ArithmeticException e) {
+                desbordados.add(jugador.getId());
+            }
+            return true;
+        });
+        return desbordados;
+    }
+
+    private static ArithmeticException descartadas(Set<Integer> ids, ArithmeticException causa) {
+        ArithmeticException error = new ArithmeticException("Se han descartado las sumas pendientes de los jugadores "
+                + ids + " porque no caben en un int");
+        error.initCause(causa);
+        return error;
+    }
+
+    /**
+     * Agrega un jugador. Si se agrega es que no existía, así que las sumas pendientes para su ID,
+     * que se habrían ignorado, se descartan para que no se apliquen al jugador nuevo.
+     */
+    @Override
+    public Boolean agregarJugador(Jugador jugador) throws IOException {
+        Boolean agregado = delegada.agregarJugador(jugador);
+        if (agregado) {
+            pendientes.descartar(jugador.getId());
+        }
+        return agregado;
+    }
+
+    @Override
+    public Boolean eliminarJugador(int id) throws IOException {
+        pendientes.descartar(id);
+        return delegada.eliminarJugador(id);
+    }
+
+    /**
+     * Modifica un jugador. Los datos modificados sustituyen a los anteriores, sumas pendientes incluidas
+     * (obtenerJugador ya las devolvía aplicadas), así que se descartan. Si cambia el ID se aplican antes
+     * todas las sumas pendientes.
+     */
+    @Override
+    public void modificarJugador(int id, Jugador jugadorModificado) throws IOException {
+        if (jugadorModificado.getId() != id) {
+            aplicar();
+        } else {
+            pendientes.descartar(id);
+        }
+        delegada.modificarJugador(id, jugadorModificado);
+    }
+
+    /**
+     * Obtiene un jugador con las sumas pendientes aplicadas. Si no caben en un int se descartan y se lanza
+     * ArithmeticException, como al aplicarlas.
+     */
+    @Override
+    public Jugador obtenerJugador(int id) throws IOException {
+        Jugador jugador = delegada.obtenerJugador(id);
+        if (jugador == null) {
+            return null;
+        }
+        try {
+            return pendientes.aplicar(jugador);
+        } catch (ArithmeticException e) {
+            pendientes.descartar(id);
+            throw descartadas(Set.of(id), e);
+        }
+    }
+
+    @Override
+    public List<Jugador> listarJugadores() throws IOException {
+        aplicar();
+        return delegada.listarJugadores();
+    }
+
+    @Override
+    public void recorrerJugadores(ProcesadorJugador procesador) throws IOException {
+        aplicar();
+        delegada.recorrerJugadores(procesador);
+    }
+
+    @Override
+    public CursorJugadores abrirCursor(String continuacion) throws IOException {
+        aplicar();
+        return delegada.abrirCursor(continuacion);
+    }
+
+    @Override
+    public List<Jugador> consultar(ConsultaJugadores consulta) throws IOException {
+        aplicar();
+        return delegada.consultar(consulta);
+    }
+
+    @Override
+    public List<Jugador> obtenerPorNick(String nick) throws IOException {
+        aplicar();
+        return delegada.obtenerPorNick(nick);
+    }
+
+    @Override
+    public List<Jugador> buscarPorPrefijoNick(String prefijo, int limite) throws IOException {
+        aplicar();
+        return delegada.buscarPorPrefijoNick(prefijo, limite);
+    }
+
+    @Override
+    public TablaColumnar cargarTablaColumnar(ConsultaJugadores consulta) throws IOException {
+        aplicar();
+        return delegada.cargarTablaColumnar(consulta);
+    }
+
+    @Override
+    public long contar(ConsultaJugadores consulta) throws IOException {
+        aplicar();
+        return delegada.contar(consulta);
+    }
+
+    @Override
+    public void recorrerVistas(ConsultaJugadores consulta, ProcesadorVista procesador) throws IOException {
+        aplicar();
+        delegada.recorrerVistas(consulta, procesador);
+    }
+
+    @Override
+    protected void recorrerFiltrado(ConsultaJugadores consulta, ProcesadorJugador procesador) throws IOException {
+        aplicar();
+        delegada.recorrerFiltrado(consulta, procesador);
+    }
+
+    @Override
+    public int agregarJugadores(List<Jugador> jugadores) throws IOException {
+        aplicar();
+        return delegada.agregarJugadores(jugadores);
+    }
+
+    @Override
+    protected void anexarJugadores(List<Jugador> jugadores) throws IOException {
+        aplicar();
+        delegada.anexarJugadores(jugadores);
+    }
+
+    @Override
+    protected boolean confirmarTransaccion(Transaccion transaccion) throws IOException {
+        aplicar();
+        return delegada.confirmarTransaccion(transaccion);
+    }
+
+    /**
+     * Aplica las sumas pendientes y fuerza a disco los cambios del backend.
+     *
+     * @throws IOException Si ocurre un error al aplicar las sumas o al sincronizar.
+     */
+    @Override
+    public void sincronizar() throws IOException {
+        aplicar();
+        delegada.sincronizar();
+    }
+
+    /**
+     * Aplica las sumas pendientes y cierra el backend.
+     *
+     * @throws IOException Si ocurre un error al aplicar las sumas o al cerrar.
+     */
+    @Override
+    public void cerrar() throws IOException {
+        try {
+            aplicar();
+        } finally {
+            delegada.cerrar();
+        }
+    }
+}
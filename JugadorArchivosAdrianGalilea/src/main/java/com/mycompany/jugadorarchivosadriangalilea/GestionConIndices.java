@@ -0,0 +1,525 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * La clase GestionConIndices añade índices secundarios sobre los campos numéricos de los jugadores a cualquier
+ * GestionFichero. Los índices se mantienen en agregarJugador, modificarJugador y eliminarJugador, se guardan
+ * en un archivo junto al de datos al cerrar y se reconstruyen con un recorrido completo al abrir si ese archivo
+ * no existe, su CRC32C no coincide o no corresponde al estado actual del archivo de datos.
+ * Las consultas con rango u orden sobre un campo indexado se resuelven recorriendo solo la parte del índice
+ * afectada; si además necesitan el nick, los registros candidatos se piden al backend en un único recorrido.
+ * Si entre los campos se incluye CampoJugador.NICK se mantiene también un IndiceNick; en ese caso el índice
+ * contiene todos los campos de cada jugador y las búsquedas por ID o por nick se responden sin leer el archivo.
+ */
+public class GestionConIndices extends GestionDelegada {
+
+    private static final int MAGIA = 0x4A494458;
+    private static final int VERSION = 3;
+
+    private final File archivoDatos;
+    private final File archivoIndice;
+    private final Map<CampoJugador, IndiceSecundario> indices = new EnumMap<>(CampoJugador.class);
+    private final Map<Integer, int[]> valores = new HashMap<>();
+    private IndiceNick indiceNick;
+    private boolean persistido;
+
+    /**
+     * Constructor de la clase GestionConIndices.
+     * Carga los índices guardados o, si están desactualizados, los reconstruye recorriendo el archivo de datos.
+     *
+     * @param delegada  GestionFichero ya abierto sobre el archivo de datos.
+     * @param rutaDatos Ruta del archivo de datos. Los índices se guardan en la misma ruta con extensión ".idx".
+     * @param campos    Campos que se indexan. CampoJugador.NICK activa el índice de nicks.
+     * @throws IOException Si ocurre un error al leer el archivo de datos.
+     */
+    public GestionConIndices(GestionFichero delegada, String rutaDatos, CampoJugador... campos) throws IOException {
+        super(delegada);
+        archivoDatos = new File(rutaDatos);
+        archivoIndice = new File(rutaDatos + ".idx");
+        for (CampoJugador campo : campos) {
+            if (campo == CampoJugador.NICK) {
+                indiceNick = new IndiceNick();
+            } else {
+                indices.put(campo, new IndiceSecundario(campo));
+            }
+        }
+        if (!cargarIndices()) {
+            reconstruir();
+        }
+    }
+
+    @Override
+    public Boolean agregarJugador(Jugador jugador) throws IOException {
+        if (valores.containsKey(jugador.getId())) {
+            return false;
+        }
+        invalidar();
+        List<Jugador> lote = new ArrayList<>();
+        lote.add(jugador);
+        delegada.anexarJugadores(lote);
+        indexar(jugador);
+        return true;
+    }
+
+    /**
+     * Agrega un lote de jugadores usando el índice para descartar los duplicados,
+     * sin necesidad de recorrer el archivo de datos.
+     *
+     * @param jugadores Lista de jugadores a agregar.
+     * @return Número de jugadores agregados.
+     * @throws IOException Si ocurre un error al escribir en el archivo.
+     */
+    @Override
+    public int agregarJugadores(List<Jugador> jugadores) throws IOException {
+        List<Jugador> nuevos = new ArrayList<>();
+        Set<Integer> idsLote = new HashSet<>();
+        for (Jugador jugador : jugadores) {
+            if (!valores.containsKey(jugador.getId()) && idsLote.add(jugador.getId())) {
+                nuevos.add(jugador);
+            }
+        }
+        anexarJugadores(nuevos);
+        return nuevos.size();
+    }
+
+    @Override
+    protected void anexarJugadores(List<Jugador> jugadores) throws IOException {
+        if (jugadores.isEmpty()) {
+            return;
+        }
+        invalidar();
+        delegada.anexarJugadores(jugadores);
+        for (Jugador jugador : jugadores) {
+            indexar(jugador);
+        }
+    }
+
+    @Override
+    public Boolean eliminarJugador(int id) throws IOException {
+        invalidar();
+        Boolean eliminado = delegada.eliminarJugador(id);
+        if (eliminado) {
+            desindexar(id);
+        }
+        return eliminado;
+    }
+
+    @Override
+    public void modificarJugador(int id, Jugador jugadorModificado) throws IOException {
+        invalidar();
+        delegada.modificarJugador(id, jugadorModificado);
+        if (valores.containsKey(id)) {
+            desindexar(id);
+            indexar(jugadorModificado);
+        }
+    }
+
+    /**
+     * Aplica una transacción comprobando sus condiciones con el índice, sin leer el archivo de datos,
+     * y actualiza el índice con el resultado si el backend la aplica.
+     *
+     * @param transaccion Transacción a aplicar.
+     * @return true si se aplicó, false si algún cambio no era válido.
+     * @throws IOException Si ocurre un error al escribir en el archivo.
+     */
+    @Override
+    protected boolean confirmarTransaccion(Transaccion transaccion) throws IOException {
+        Set<Integer> existentes = new HashSet<>();
+        for (int id : transaccion.ids()) {
+            if (valores.containsKey(id)) {
+                existentes.add(id);
+            }
+        }
+        if (!transaccion.comprobar(existentes)) {
+            return false;
+        }
+        invalidar();
+        if (!delegada.confirmarTransaccion(transaccion)) {
+            return false;
+        }
+        for (Transaccion.Cambio cambio : transaccion.cambios()) {
+            if (cambio.debiaExistir()) {
+                desindexar(cambio.getId());
+            }
+            if (cambio.getResultado() != null) {
+                indexar(cambio.getResultado());
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void sumarCampo(int id, CampoJugador campo, int delta) throws IOException {
+        IncrementosJugadores incrementos = new IncrementosJugadores();
+        incrementos.sumar(id, campo, delta);
+        aplicarIncrementos(incrementos);
+    }
+
+    /**
+     * Aplica las sumas de los jugadores que están en el índice y actualiza el índice con los nuevos valores,
+     * calculados a partir de los indexados sin volver a leer el archivo.
+     *
+     * @param incrementos Sumas a aplicar.
+     * @return Número de jugadores modificados.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    @Override
+    public int aplicarIncrementos(IncrementosJugadores incrementos) throws IOException {
+        IncrementosJugadores existentes = incrementos.filtrar(valores::containsKey);
+        if (existentes.estaVacio()) {
+            return 0;
+        }
+        invalidar();
+        int modificados = delegada.aplicarIncrementos(existentes);
+        for (int id : existentes.ids()) {
+            int[] t = valores.get(id);
+            Jugador actual = new Jugador(id, indiceNick != null ? indiceNick.nick(id) : null, t[0], t[1], t[2]);
+            desindexar(id);
+            indexar(existentes.aplicar(actual));
+        }
+        return modificados;
+    }
+
+    /**
+     * Obtiene un jugador según su ID. Si el ID no está en el índice se responde sin acceder al archivo.
+     *
+     * @param id ID del jugador que se desea obtener.
+     * @return El jugador encontrado, o null si no existe.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    public Jugador obtenerJugador(int id) throws IOException {
+        if (!valores.containsKey(id)) {
+            return null;
+        }
+        if (indiceNick != null) {
+            return jugadorIndexado(id);
+        }
+        return delegada.obtenerJugador(id);
+    }
+
+    /**
+     * Obtiene los jugadores con un nick exacto usando la tabla hash del índice de nicks, si está activo.
+     *
+     * @param nick Nick buscado.
+     * @return Lista con los jugadores que tienen ese nick.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    public List<Jugador> obtenerPorNick(String nick) throws IOException {
+        if (indiceNick == null) {
+            return delegada.obtenerPorNick(nick);
+        }
+        List<Jugador> resultado = new ArrayList<>();
+        for (int id : indiceNick.ids(nick)) {
+            resultado.add(jugadorIndexado(id));
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca los jugadores cuyo nick empieza por un prefijo usando el árbol ordenado del índice de nicks, si está activo.
+     *
+     * @param prefijo Prefijo buscado.
+     * @param limite  Número máximo de jugadores, o 0 para no limitar.
+     * @return Lista con los jugadores encontrados, ordenados por nick.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    public List<Jugador> buscarPorPrefijoNick(String prefijo, int limite) throws IOException {
+        if (indiceNick == null) {
+            return delegada.buscarPorPrefijoNick(prefijo, limite);
+        }
+        List<Jugador> resultado = new ArrayList<>();
+        for (int id : indiceNick.idsConPrefijo(prefijo, limite)) {
+            resultado.add(jugadorIndexado(id));
+        }
+        return resultado;
+    }
+
+    /**
+     * Ejecuta una consulta usando un índice cuando la consulta tiene un rango sobre un campo indexado,
+     * o un orden con límite sobre él. En otro caso la consulta se delega en el backend.
+     *
+     * @param consulta Consulta a ejecutar.
+     * @return Lista con los jugadores que cumplen la consulta.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    public List<Jugador> consultar(ConsultaJugadores consulta) throws IOException {
+        IndiceSecundario indice = elegirIndice(consulta);
+        if (indice == null) {
+            return delegada.consultar(consulta);
+        }
+        CampoJugador campo = indice.getCampo();
+        boolean enOrden = consulta.getOrden() == campo;
+        boolean cortarEnLimite = enOrden && consulta.getLimite() > 0 && !consulta.filtraNick();
+        Iterator<Integer> ids = indice.idsEnRango(consulta.getMinimo(campo), consulta.getMaximo(campo),
+                enOrden && consulta.isDescendente());
+
+        List<Jugador> candidatos = new ArrayList<>();
+        while (ids.hasNext()) {
+            int id = ids.next();
+            int[] t = valores.get(id);
+            if (!consulta.aceptaNumericos(id, t[0], t[1], t[2])) {
+                continue;
+            }
+            candidatos.add(new Jugador(id, null, t[0], t[1], t[2]));
+            if (cortarEnLimite && candidatos.size() == consulta.getLimite()) {
+                break;
+            }
+        }
+        if (consulta.necesitaNick() && !candidatos.isEmpty()) {
+            candidatos = completar(candidatos);
+        }
+
+        ConsultaJugadores.Resultado resultado = consulta.nuevoResultado();
+        for (Jugador jugador : candidatos) {
+            if (consulta.aceptaNick(jugador.getNick()) && !resultado.procesar(jugador)) {
+                break;
+            }
+        }
+        return resultado.finalizar();
+    }
+
+    /**
+     * Cierra el backend y guarda los índices junto con la huella del archivo de datos ya cerrado.
+     *
+     * @throws IOException Si ocurre un error al cerrar el backend o al guardar los índices.
+     */
+    @Override
+    public void cerrar() throws IOException {
+        delegada.cerrar();
+        if (!persistido) {
+            guardarIndices();
+        }
+    }
+
+    /**
+     * Elige el índice con el que resolver una consulta: el del campo de orden si hay límite,
+     * o el primero de los campos indexados que tenga rango.
+     */
+    private IndiceSecundario elegirIndice(ConsultaJugadores consulta) {
+        if (consulta.getOrden() != null && consulta.getLimite() > 0 && indices.containsKey(consulta.getOrden())) {
+            return indices.get(consulta.getOrden());
+        }
+        for (IndiceSecundario indice : indices.values()) {
+            if (consulta.tieneRango(indice.getCampo())) {
+                return indice;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sustituye los candidatos construidos desde el índice por los jugadores completos del backend,
+     * pidiéndolos en un único recorrido filtrado por ID y conservando el orden de la lista.
+     */
+    private List<Jugador> completar(List<Jugador> candidatos) throws IOException {
+        if (indiceNick != null) {
+            List<Jugador> resultado = new ArrayList<>(candidatos.size());
+            for (Jugador candidato : candidatos) {
+                resultado.add(jugadorIndexado(candidato.getId()));
+            }
+            return resultado;
+        }
+        Set<Integer> ids = new HashSet<>();
+        for (Jugador candidato : candidatos) {
+            ids.add(candidato.getId());
+        }
+        Map<Integer, Jugador> completos = new HashMap<>();
+        delegada.recorrerFiltrado(new ConsultaJugadores().idsEn(ids), jugador -> {
+            completos.put(jugador.getId(), jugador);
+            return completos.size() < ids.size();
+        });
+        List<Jugador> resultado = new ArrayList<>(candidatos.size());
+        for (Jugador candidato : candidatos) {
+            Jugador completo = completos.get(candidato.getId());
+            if (completo != null) {
+                resultado.add(completo);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Construye un jugador completo a partir del índice. Solo es posible si el índice de nicks está activo.
+     */
+    private Jugador jugadorIndexado(int id) {
+        int[] t = valores.get(id);
+        return new Jugador(id, indiceNick.nick(id), t[0], t[1], t[2]);
+    }
+
+    private void indexar(Jugador jugador) {
+        int[] t = {jugador.getExperience(), jugador.getLifeLevel(), jugador.getCoins()};
+        valores.put(jugador.getId(), t);
+        if (indiceNick != null) {
+            indiceNick.agregar(jugador.getId(), jugador.getNick());
+        }
+        for (IndiceSecundario indice : indices.values()) {
+            indice.agregar(valor(indice.getCampo(), jugador.getId(), t), jugador.getId());
+        }
+    }
+
+    private void desindexar(int id) {
+        int[] t = valores.remove(id);
+        if (indiceNick != null) {
+            indiceNick.eliminar(id);
+        }
+        if (t != null) {
+            for (IndiceSecundario indice : indices.values()) {
+                indice.eliminar(valor(indice.getCampo(), id, t), id);
+            }
+        }
+    }
+
+    private static int valor(CampoJugador campo, int id, int[] t) {
+        switch (campo) {
+            case ID:
+                return id;
+            case EXPERIENCE:
+                return t[0];
+            case LIFE_LEVEL:
+                return t[1];
+            default:
+                return t[2];
+        }
+    }
+
+    /**
+     * Reconstruye todos los índices con un recorrido completo del archivo de datos.
+     */
+    private void reconstruir() throws IOException {
+        vaciar();
+        delegada.recorrerJugadores(jugador -> {
+            indexar(jugador);
+            return true;
+        });
+        persistido = false;
+    }
+
+    /**
+     * Borra el archivo de índices antes de la primera modificación, para que si el programa termina
+     * sin llamar a cerrar() los índices se reconstruyan en la siguiente apertura.
+     */
+    private void invalidar() {
+        if (persistido) {
+            archivoIndice.delete();
+            persistido = false;
+        }
+    }
+
+    /**
+     * Carga los índices del archivo si existe, su CRC32C es correcto y su huella coincide con la del archivo de datos.
+     *
+     * @return true si los índices se han cargado, false si hay que reconstruirlos.
+     */
+    private boolean cargarIndices() {
+        if (!archivoIndice.exists()) {
+            return false;
+        }
+        CheckedInputStream comprobada = null;
+        try (DataInputStream entrada = new DataInputStream(comprobada = new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(archivoIndice)), new CRC32C()))) {
+            if (entrada.readInt() != MAGIA || entrada.readInt() != VERSION
+                    || entrada.readLong() != archivoDatos.length() || entrada.readLong() != archivoDatos.lastModified()) {
+                return false;
+            }
+            int numeroCampos = entrada.readInt();
+            Set<CampoJugador> campos = new HashSet<>();
+            for (int i = 0; i < numeroCampos; i++) {
+                campos.add(CampoJugador.values()[entrada.readInt()]);
+            }
+            if (!campos.equals(camposIndexados())) {
+                return false;
+            }
+            int numeroJugadores = entrada.readInt();
+            for (int i = 0; i < numeroJugadores; i++) {
+                int id = entrada.readInt();
+                int experience = entrada.readInt();
+                int lifeLevel = entrada.readInt();
+                int coins = entrada.readInt();
+                String nick = indiceNick != null ? entrada.readUTF() : null;
+                indexar(new Jugador(id, nick, experience, lifeLevel, coins));
+            }
+            if ((int) comprobada.getChecksum().getValue() != entrada.readInt()) {
+                vaciar();
+                return false;
+            }
+            persistido = true;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            vaciar();
+            return false;
+        }
+    }
+
+    private void vaciar() {
+        valores.clear();
+        for (IndiceSecundario indice : indices.values()) {
+            indice.vaciar();
+        }
+        if (indiceNick != null) {
+            indiceNick.vaciar();
+        }
+    }
+
+    /**
+     * Devuelve el conjunto de campos indexados, incluido el nick si su índice está activo.
+     */
+    private Set<CampoJugador> camposIndexados() {
+        Set<CampoJugador> campos = new HashSet<>(indices.keySet());
+        if (indiceNick != null) {
+            campos.add(CampoJugador.NICK);
+        }
+        return campos;
+    }
+
+    /**
+     * Guarda los índices en un archivo temporal, terminado con el CRC32C de su contenido, y lo renombra
+     * sobre el definitivo.
+     */
+    private void guardarIndices() throws IOException {
+        File temporal = new File(archivoIndice.getPath() + ".tmp");
+        CheckedOutputStream comprobada;
+        try (DataOutputStream salida = new DataOutputStream(comprobada = new CheckedOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporal)), new CRC32C()))) {
+            salida.writeInt(MAGIA);
+            salida.writeInt(VERSION);
+            salida.writeLong(archivoDatos.length());
+            salida.writeLong(archivoDatos.lastModified());
+            Set<CampoJugador> campos = camposIndexados();
+            salida.writeInt(campos.size());
+            for (CampoJugador campo : campos) {
+                salida.writeInt(campo.ordinal());
+            }
+            salida.writeInt(valores.size());
+            for (Map.Entry<Integer, int[]> entrada : valores.entrySet()) {
+                salida.writeInt(entrada.getKey());
+                salida.writeInt(entrada.getValue()[0]);
+                salida.writeInt(entrada.getValue()[1]);
+                salida.writeInt(entrada.getValue()[2]);
+                if (indiceNick != null) {
+                    salida.writeUTF(indiceNick.nick(entrada.getKey()));
+                }
+            }
+            salida.writeInt((int) comprobada.getChecksum().getValue());
+        }
+        Files.move(temporal.toPath(), archivoIndice.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        persistido = true;
+    }
+}
@@ -0,0 +1,520 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * La clase GestionConRegistro añade durabilidad a cualquier GestionFichero con un registro de escritura anticipada.
+ * Cada alta, baja o modificación se anota en el registro y la operación termina cuando la entrada está en disco;
+ * el registro agrupa en una sola sincronización las entradas de todos los hilos que escriben a la vez.
+ * Los cambios no se aplican al archivo de datos en cada operación: se guardan en memoria como el último estado
+ * de cada jugador afectado y se aplican en bloque cuando se acumulan suficientes, al llamar a aplicar o al cerrar.
+ * Las lecturas combinan el archivo de datos con esos cambios pendientes. Si el proceso termina sin aplicarlos,
+ * al abrir de nuevo se recuperan del registro y se aplican.
+ * Para que las altas, bajas y modificaciones no tengan que leer el archivo de datos para saber si el jugador existe,
+ * al abrir se recorre una vez y se guardan en memoria los IDs que contiene, que se actualizan al aplicar los cambios.
+ * Todas las operaciones se pueden llamar desde varios hilos.
+ */
+public class GestionConRegistro extends GestionDelegada {
+
+    private static final int UMBRAL_APLICACION = 1024;
+
+    private final Object cerrojo = new Object();
+    private final RegistroEscrituraAnticipada registro;
+    private final Map<Integer, Jugador> pendientes = new LinkedHashMap<>();
+    private final Set<Integer> idsEnDatos;
+    private int umbralAplicacion = UMBRAL_APLICACION;
+
+    /**
+     * Constructor de la clase GestionConRegistro.
+     * Recorre el archivo de datos para anotar los IDs que contiene, abre el registro y, si contiene cambios
+     * de una ejecución anterior que no llegaron a aplicarse, los aplica.
+     *
+     * @param delegada  GestionFichero ya abierto sobre el archivo de datos.
+     * @param rutaDatos Ruta del archivo de datos. El registro se guarda en la misma ruta con extensión ".wal".
+     * @throws IOException Si ocurre un error al abrir el registro o al aplicar los cambios recuperados.
+     */
+    public GestionConRegistro(GestionFichero delegada, String rutaDatos) throws IOException {
+        super(delegada);
+        Set<Integer> ids = new HashSet<>();
+        delegada.recorrerJugadores(jugador -> {
+            ids.add(jugador.getId());
+            return true;
+        });
+        idsEnDatos = ids;
+        registro = new RegistroEscrituraAnticipada(new File(rutaDatos + ".wal"));
+        for (RegistroEscrituraAnticipada.Entrada entrada : registro.getRecuperadas()) {
+            pendientes.put(entrada.getId(), entrada.getJugador());
+        }
+        aplicarPendientes();
+    }
+
+    /**
+     * Cambia el número de jugadores con cambios pendientes a partir del cual se aplican al archivo de datos.
+     *
+     * @param umbralAplicacion Número de jugadores, al menos 1.
+     */
+    public void setUmbralAplicacion(int umbralAplicacion) {
+        if (umbralAplicacion < 1) {
+            throw new IllegalArgumentException("El umbral de aplicación debe ser al menos 1");
+        }
+        this.umbralAplicacion = umbralAplicacion;
+    }
+
+    public RegistroEscrituraAnticipada getRegistro() {
+        return registro;
+    }
+
+    @Override
+    public Boolean agregarJugador(Jugador jugador) throws IOException {
+        long secuencia;
+        synchronized (cerrojo) {
+            if (existe(jugador.getId())) {
+                return false;
+            }
+            secuencia = registro.anotarGuardado(jugador);
+            pendientes.put(jugador.getId(), jugador);
+        }
+        confirmar(secuencia);
+        return true;
+    }
+
+    @Override
+    public Boolean eliminarJugador(int id) throws IOException {
+        long secuencia;
+        synchronized (cerrojo) {
+            if (!existe(id)) {
+                return false;
+            }
+            secuencia = registro.anotarEliminacion(id);
+            pendientes.put(id, null);
+        }
+        confirmar(secuencia);
+        return true;
+    }
+
+    /**
+     * Modifica un jugador anotando sus nuevos datos. Si cambia el ID, la eliminación del ID anterior y el alta
+     * del nuevo se anotan en una sola entrada, para que al recuperar el registro no quede solo la eliminación.
+     */
+    @Override
+    public void modificarJugador(int id, Jugador jugadorModificado) throws IOException {
+        long secuencia;
+        synchronized (cerrojo) {
+            if (!existe(id)) {
+                return;
+            }
+            if (jugadorModificado.getId() != id) {
+                Map<Integer, Jugador> cambios = new LinkedHashMap<>();
+                cambios.put(id, null);
+                cambios.put(jugadorModificado.getId(), jugadorModificado);
+                secuencia = registro.anotarLote(cambios);
+                pendientes.putAll(cambios);
+            } else {
+                secuencia = registro.anotarGuardado(jugadorModificado);
+                pendientes.put(id, jugadorModificado);
+            }
+        }
+        confirmar(secuencia);
+    }
+
+    @Override
+    public Jugador obtenerJugador(int id) throws IOException {
+        synchronized (cerrojo) {
+            if (pendientes.containsKey(id)) {
+                return pendientes.get(id);
+            }
+            return idsEnDatos.contains(id) ? delegada.obtenerJugador(id) : null;
+        }
+    }
+
+    /**
+     * Agrega un lote de jugadores anotándolos en el registro y esperando una sola confirmación para todo el lote.
+     * Los duplicados se comprueban con los cambios pendientes y con los IDs del archivo de datos, sin leerlo.
+     *
+     * @param jugadores Lista de jugadores a agregar.
+     * @return Número de jugadores agregados.
+     * @throws IOException Si ocurre un error al leer el archivo o al escribir el registro.
+     */
+    @Override
+    public int agregarJugadores(List<Jugador> jugadores) throws IOException {
+        List<Jugador> nuevos = new ArrayList<>();
+        long secuencia = 0;
+        synchronized (cerrojo) {
+            Set<Integer> idsLote = new HashSet<>();
+            for (Jugador jugador : jugadores) {
+                int id = jugador.getId();
+                if (!existe(id) && idsLote.add(id)) {
+                    nuevos.add(jugador);
+                }
+            }
+            for (Jugador jugador : nuevos) {
+                secuencia = registro.anotarGuardado(jugador);
+                pendientes.put(jugador.getId(), jugador);
+            }
+        }
+        if (!nuevos.isEmpty()) {
+            confirmar(secuencia);
+        }
+        return nuevos.size();
+    }
+
+    @Override
+    protected void anexarJugadores(List<Jugador> jugadores) throws IOException {
+        if (jugadores.isEmpty()) {
+            return;
+        }
+        long secuencia = 0;
+        synchronized (cerrojo) {
+            for (Jugador jugador : jugadores) {
+                secuencia = registro.anotarGuardado(jugador);
+                pendientes.put(jugador.getId(), jugador);
+            }
+        }
+        confirmar(secuencia);
+    }
+
+    /**
+     * Confirma una transacción anotando todos sus cambios en una sola entrada del registro, que al recuperarse
+     * se aplica entera o no se aplica, y esperando una sola confirmación. Las condiciones se comprueban con los
+     * cambios pendientes y con los IDs del archivo de datos, sin leerlo.
+     *
+     * @param transaccion Transacción a aplicar.
+     * @return true si se aplicó, false si algún cambio no era válido.
+     * @throws IOException Si ocurre un error al leer el archivo o al escribir el registro.
+     */
+    @Override
+    protected boolean confirmarTransaccion(Transaccion transaccion) throws IOException {
+        long secuencia;
+        synchronized (cerrojo) {
+            Set<Integer> existentes = new HashSet<>();
+            for (int id : transaccion.ids()) {
+                if (existe(id)) {
+                    existentes.add(id);
+                }
+            }
+            if (!transaccion.comprobar(existentes)) {
+                return false;
+            }
+            Map<Integer, Jugador> lote = new LinkedHashMap<>();
+            for (Transaccion.Cambio cambio : transaccion.cambios()) {
+                if (cambio.debiaExistir() || cambio.getResultado() != null) {
+                    lote.put(cambio.getId(), cambio.getResultado());
+                }
+            }
+            if (lote.isEmpty()) {
+                return true;
+            }
+            secuencia = registro.anotarLote(lote);
+            pendientes.putAll(lote);
+        }
+        confirmar(secuencia);
+        return true;
+    }
+
+    @Override
+    public void sumarCampo(int id, CampoJugador campo, int delta) throws IOException {
+        IncrementosJugadores incrementos = new IncrementosJugadores();
+        incrementos.sumar(id, campo, delta);
+        aplicarIncrementos(incrementos);
+    }
+
+    /**
+     * Aplica las sumas sobre el último estado de cada jugador con el cerrojo, de modo que dos sumas concurrentes
+     * sobre el mismo jugador no se pierden, y anota los jugadores resultantes como un solo lote, esperando
+     * una sola confirmación. Los jugadores sin cambios pendientes se leen del archivo de datos con una única
+     * consulta, que se omite si ninguno de ellos está en el archivo.
+     *
+     * @param incrementos Sumas a aplicar.
+     * @return Número de jugadores modificados.
+     * @throws IOException Si ocurre un error al leer el archivo o al escribir el registro.
+     */
+    @Override
+    public int aplicarIncrementos(IncrementosJugadores incrementos) throws IOException {
+        long secuencia;
+        Map<Integer, Jugador> lote = new LinkedHashMap<>();
+        synchronized (cerrojo) {
+            Set<Integer> desconocidos = new HashSet<>();
+            for (int id : incrementos.ids()) {
+                if (!pendientes.containsKey(id)) {
+                    if (idsEnDatos.contains(id)) {
+                        desconocidos.add(id);
+                    }
+                } else if (pendientes.get(id) != null) {
+                    lote.put(id, incrementos.aplicar(pendientes.get(id)));
+                }
+            }
+            if (desconocidos.size() == 1) {
+                Jugador jugador = delegada.obtenerJugador(desconocidos.iterator().next());
+                if (jugador != null) {
+                    lote.put(jugador.getId(), incrementos.aplicar(jugador));
+                }
+            } else if (!desconocidos.isEmpty()) {
+                delegada.recorrerFiltrado(new ConsultaJugadores().idsEn(desconocidos), jugador -> {
+                    lote.put(jugador.getId(), incrementos.aplicar(jugador));
+                    return true;
+                });
+            }
+            if (lote.isEmpty()) {
+                return 0;
+            }
+            secuencia = registro.anotarLote(lote);
+            pendientes.putAll(lote);
+        }
+        confirmar(secuencia);
+        return lote.size();
+    }
+
+    @Override
+    public List<Jugador> listarJugadores() throws IOException {
+        synchronized (cerrojo) {
+            if (pendientes.isEmpty()) {
+                return delegada.listarJugadores();
+            }
+            List<Jugador> jugadores = new ArrayList<>();
+            recorrerFiltrado(new ConsultaJugadores(), jugadores::add);
+            return jugadores;
+        }
+    }
+
+    @Override
+    public void recorrerJugadores(ProcesadorJugador procesador) throws IOException {
+        synchronized (cerrojo) {
+            if (pendientes.isEmpty()) {
+                delegada.recorrerJugadores(procesador);
+            } else {
+                recorrerFiltrado(new ConsultaJugadores(), procesador);
+            }
+        }
+    }
+
+    @Override
+    public List<Jugador> consultar(ConsultaJugadores consulta) throws IOException {
+        synchronized (cerrojo) {
+            if (pendientes.isEmpty()) {
+                return delegada.consultar(consulta);
+            }
+            ConsultaJugadores.Resultado resultado = consulta.nuevoResultado();
+            recorrerFiltrado(consulta, resultado);
+            return resultado.finalizar();
+        }
+    }
+
+    @Override
+    public List<Jugador> obtenerPorNick(String nick) throws IOException {
+        synchronized (cerrojo) {
+            if (pendientes.isEmpty()) {
+                return delegada.obtenerPorNick(nick);
+            }
+            return consultar(new ConsultaJugadores().nickIgual(nick));
+        }
+    }
+
+    @Override
+    public List<Jugador> buscarPorPrefijoNick(String prefijo, int limite) throws IOException {
+        synchronized (cerrojo) {
+            if (pendientes.isEmpty()) {
+                return delegada.buscarPorPrefijoNick(prefijo, limite);
+            }
+            return consultar(new ConsultaJugadores().nickEmpiezaPor(prefijo).ordenarPor(CampoJugador.NICK, false).limite(limite));
+        }
+    }
+
+    @Override
+    public TablaColumnar cargarTablaColumnar(ConsultaJugadores consulta) throws IOException {
+        synchronized (cerrojo) {
+            if (pendientes.isEmpty()) {
+                return delegada.cargarTablaColumnar(consulta);
+            }
+            TablaColumnar tabla = new TablaColumnar();
+            recorrerFiltrado(consulta, jugador -> {
+                tabla.agregar(jugador);
+                return true;
+            });
+            tabla.recortar();
+            return tabla;
+        }
+    }
+
+    @Override
+    public long contar(ConsultaJugadores consulta) throws IOException {
+        synchronized (cerrojo) {
+            if (pendientes.isEmpty()) {
+                return delegada.contar(consulta);
+            }
+            long[] cuenta = {0};
+            recorrerFiltrado(consulta, jugador -> {
+                cuenta[0]++;
+                return true;
+            });
+            return cuenta[0];
+        }
+    }
+
+    /**
+     * Abre el cursor del almacén de datos si no hay cambios pendientes; si los hay, recorre la lista
+     * de listarJugadores, que ya los incluye.
+     */
+    @Override
+    public CursorJugadores abrirCursor(String continuacion) throws IOException {
+        synchronized (cerrojo) {
+            if (pendientes.isEmpty()) {
+                return CursorJugadores.sincronizado(delegada.abrirCursor(continuacion), cerrojo);
+            }
+            return CursorJugadores.deLista(listarJugadores(), continuacion);
+        }
+    }
+
+    @Override
+    public void recorrerVistas(ConsultaJugadores consulta, ProcesadorVista procesador) throws IOException {
+        synchronized (cerrojo) {
+            if (pendientes.isEmpty()) {
+                delegada.recorrerVistas(consulta, procesador);
+            } else {
+                recorrerVistasDeJugadores(consulta, procesador);
+            }
+        }
+    }
+
+    /**
+     * Recorre el archivo de datos saltando los jugadores con cambios pendientes y después entrega
+     * el estado pendiente de esos jugadores, si siguen existiendo y cumplen la consulta.
+     *
+     * @param consulta   Consulta con las condiciones de filtrado.
+     * @param procesador Procesador que recibe cada jugador aceptado. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    protected void recorrerFiltrado(ConsultaJugadores consulta, ProcesadorJugador procesador) throws IOException {
+        synchronized (cerrojo) {
+            if (pendientes.isEmpty()) {
+                delegada.recorrerFiltrado(consulta, procesador);
+                return;
+            }
+            boolean[] seguir = {true};
+            delegada.recorrerFiltrado(consulta, jugador -> {
+                if (pendientes.containsKey(jugador.getId())) {
+                    return true;
+                }
+                seguir[0] = procesador.procesar(jugador);
+                return seguir[0];
+            });
+            for (Jugador jugador : new ArrayList<>(pendientes.values())) {
+                if (!seguir[0]) {
+                    return;
+                }
+                if (jugador != null && consulta.acepta(jugador)) {
+                    seguir[0] = procesador.procesar(jugador);
+                }
+            }
+        }
+    }
+
+    /**
+     * Aplica al archivo de datos los cambios pendientes como una sola transacción, lo sincroniza y vacía el registro.
+     * En los backends que reescriben el archivo completo eso supone una sola reescritura para todos los cambios.
+     * Como el registro guarda el estado final de cada jugador, volver a aplicar las mismas entradas
+     * tras una caída a mitad de este proceso deja el mismo resultado.
+     *
+     * @throws IOException Si ocurre un error al escribir en el archivo de datos o en el registro.
+     */
+    public void aplicar() throws IOException {
+        aplicarPendientes();
+    }
+
+    /**
+     * Implementación de aplicar, privada para que el constructor pueda usarla sin llamar a un método
+     * que una subclase podría sobrescribir.
+     */
+    private void aplicarPendientes() throws IOException {
+        synchronized (cerrojo) {
+            if (pendientes.isEmpty()) {
+                return;
+            }
+            Transaccion transaccion = delegada.iniciarTransaccion();
+            for (Map.Entry<Integer, Jugador> cambio : pendientes.entrySet()) {
+                int id = cambio.getKey();
+                Jugador jugador = cambio.getValue();
+                if (jugador == null) {
+                    if (idsEnDatos.contains(id)) {
+                        transaccion.eliminarJugador(id);
+                    }
+                } else if (idsEnDatos.contains(id)) {
+                    transaccion.modificarJugador(id, jugador);
+                } else {
+                    transaccion.agregarJugador(jugador);
+                }
+            }
+            if (!transaccion.confirmar()) {
+                throw new IOException("El archivo de datos ha cambiado mientras se aplicaba el registro");
+            }
+            for (Map.Entry<Integer, Jugador> cambio : pendientes.entrySet()) {
+                if (cambio.getValue() == null) {
+                    idsEnDatos.remove(cambio.getKey());
+                } else {
+                    idsEnDatos.add(cambio.getKey());
+                }
+            }
+            delegada.sincronizar();
+            registro.vaciar();
+            pendientes.clear();
+        }
+    }
+
+    /**
+     * Espera a que todos los cambios anotados estén en disco. No aplica los cambios al archivo de datos:
+     * una vez en el registro ya sobreviven a una caída.
+     *
+     * @throws IOException Si falla la escritura del registro.
+     */
+    @Override
+    public void sincronizar() throws IOException {
+        registro.esperarTodas();
+    }
+
+    /**
+     * Aplica los cambios pendientes y cierra el registro y el archivo de datos.
+     *
+     * @throws IOException Si ocurre un error al aplicar los cambios o al cerrar los archivos.
+     */
+    @Override
+    public void cerrar() throws IOException {
+        try {
+            aplicar();
+        } finally {
+            try {
+                registro.cerrar();
+            } finally {
+                delegada.cerrar();
+            }
+        }
+    }
+
+    /**
+     * Espera a que la entrada anotada sea duradera y, si hay suficientes cambios pendientes, los aplica.
+     */
+    private void confirmar(long secuencia) throws IOException {
+        registro.esperar(secuencia);
+        synchronized (cerrojo) {
+            if (pendientes.size() >= umbralAplicacion) {
+                aplicar();
+            }
+        }
+    }
+
+    /**
+     * Indica si existe un jugador teniendo en cuenta los cambios pendientes, sin leer el archivo de datos.
+     */
+    private boolean existe(int id) {
+        if (pendientes.containsKey(id)) {
+            return pendientes.get(id) != null;
+        }
+        return idsEnDatos.contains(id);
+    }
+}
@@ -0,0 +1,117 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * La clase GestionConTraza anota en una TrazaOperaciones las operaciones por ID que recibe cualquier
+ * GestionFichero, para reproducir después la carga real de la aplicación con GeneradorCarga.
+ * Se anotan las altas, bajas, modificaciones y búsquedas por ID; las consultas con un rango de IDs se anotan
+ * como recorridos desde el primer ID del rango. El resto de consultas no se anotan porque la traza
+ * no puede describirlas.
+ */
+public class GestionConTraza extends GestionDelegada {
+
+    private final TrazaOperaciones traza;
+
+    /**
+     * Constructor de la clase GestionConTraza.
+     *
+     * @param delegada     GestionFichero al que se reenvían las operaciones.
+     * @param archivoTraza Archivo donde se graba la traza. Se vacía si ya existe.
+     * @throws IOException Si no se puede crear el archivo de la traza.
+     */
+    public GestionConTraza(GestionFichero delegada, File archivoTraza) throws IOException {
+        super(delegada);
+        this.traza = new TrazaOperaciones(archivoTraza);
+    }
+
+    @Override
+    public Boolean agregarJugador(Jugador jugador) throws IOException {
+        traza.anotar(OperacionCarga.AGREGAR, jugador.getId());
+        return super.agregarJugador(jugador);
+    }
+
+    @Override
+    public int agregarJugadores(List<Jugador> jugadores) throws IOException {
+        for (Jugador jugador : jugadores) {
+            traza.anotar(OperacionCarga.AGREGAR, jugador.getId());
+        }
+        return super.agregarJugadores(jugadores);
+    }
+
+    @Override
+    public Boolean eliminarJugador(int id) throws IOException {
+        traza.anotar(OperacionCarga.ELIMINAR, id);
+        return super.eliminarJugador(id);
+    }
+
+    @Override
+    public void modificarJugador(int id, Jugador jugadorModificado) throws IOException {
+        traza.anotar(OperacionCarga.MODIFICAR, id);
+        super.modificarJugador(id, jugadorModificado);
+    }
+
+    /**
+     * Anota cada cambio de la transacción como la operación individual equivalente y la aplica.
+     */
+    @Override
+    protected boolean confirmarTransaccion(Transaccion transaccion) throws IOException {
+        for (Transaccion.Cambio cambio : transaccion.cambios()) {
+            if (!cambio.debiaExistir()) {
+                traza.anotar(OperacionCarga.AGREGAR, cambio.getId());
+            } else if (cambio.getResultado() == null) {
+                traza.anotar(OperacionCarga.ELIMINAR, cambio.getId());
+            } else {
+                traza.anotar(OperacionCarga.MODIFICAR, cambio.getId());
+            }
+        }
+        return super.confirmarTransaccion(transaccion);
+    }
+
+    @Override
+    public void sumarCampo(int id, CampoJugador campo, int delta) throws IOException {
+        traza.anotar(OperacionCarga.MODIFICAR, id);
+        super.sumarCampo(id, campo, delta);
+    }
+
+    /**
+     * Anota cada jugador afectado como una modificación y aplica las sumas.
+     */
+    @Override
+    public int aplicarIncrementos(IncrementosJugadores incrementos) throws IOException {
+        for (int id : incrementos.ids()) {
+            traza.anotar(OperacionCarga.MODIFICAR, id);
+        }
+        return super.aplicarIncrementos(incrementos);
+    }
+
+    @Override
+    public Jugador obtenerJugador(int id) throws IOException {
+        traza.anotar(OperacionCarga.OBTENER, id);
+        return super.obtenerJugador(id);
+    }
+
+    @Override
+    public List<Jugador> consultar(ConsultaJugadores consulta) throws IOException {
+        if (consulta.tieneRango(CampoJugador.ID)) {
+            traza.anotar(OperacionCarga.RECORRER, consulta.getMinimo(CampoJugador.ID));
+        }
+        return super.consultar(consulta);
+    }
+
+    /**
+     * Cierra la traza y el GestionFichero envuelto.
+     *
+     * @throws IOException Si ocurre un error al cerrar la traza o el archivo de datos.
+     */
+    @Override
+    public void cerrar() throws IOException {
+        try {
+            traza.cerrar();
+        } finally {
+            super.cerrar();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * La clase GestionDelegada es un GestionFichero que reenvía todas las operaciones a otro GestionFichero.
+ * Sirve de base para las capas que añaden funcionalidad (índices, registro de escritura, etc.) sobre
+ * cualquiera de los formatos de archivo: cada capa solo sobrescribe las operaciones que le interesan.
+ */
+public class GestionDelegada extends GestionFichero {
+
+    protected final GestionFichero delegada;
+
+    /**
+     * Constructor de la clase GestionDelegada.
+     *
+     * @param delegada GestionFichero al que se reenvían las operaciones.
+     */
+    public GestionDelegada(GestionFichero delegada) {
+        this.delegada = delegada;
+    }
+
+    @Override
+    public Boolean agregarJugador(Jugador jugador) throws IOException {
+        return delegada.agregarJugador(jugador);
+    }
+
+    @Override
+    public Boolean eliminarJugador(int id) throws IOException {
+        return delegada.eliminarJugador(id);
+    }
+
+    @Override
+    public void modificarJugador(int id, Jugador jugadorModificado) throws IOException {
+        delegada.modificarJugador(id, jugadorModificado);
+    }
+
+    @Override
+    public Jugador obtenerJugador(int id) throws IOException {
+        return delegada.obtenerJugador(id);
+    }
+
+    @Override
+    public List<Jugador> listarJugadores() throws IOException {
+        return delegada.listarJugadores();
+    }
+
+    @Override
+    public void cerrar() throws IOException {
+        delegada.cerrar();
+    }
+
+    @Override
+    public void recorrerJugadores(ProcesadorJugador procesador) throws IOException {
+        delegada.recorrerJugadores(procesador);
+    }
+
+    @Override
+    public CursorJugadores abrirCursor(String continuacion) throws IOException {
+        return delegada.abrirCursor(continuacion);
+    }
+
+    @Override
+    public List<Jugador> consultar(ConsultaJugadores consulta) throws IOException {
+        return delegada.consultar(consulta);
+    }
+
+    @Override
+    public List<Jugador> obtenerPorNick(String nick) throws IOException {
+        return delegada.obtenerPorNick(nick);
+    }
+
+    @Override
+    public List<Jugador> buscarPorPrefijoNick(String prefijo, int limite) throws IOException {
+        return delegada.buscarPorPrefijoNick(prefijo, limite);
+    }
+
+    @Override
+    public TablaColumnar cargarTablaColumnar(ConsultaJugadores consulta) throws IOException {
+        return delegada.cargarTablaColumnar(consulta);
+    }
+
+    @Override
+    public void sincronizar() throws IOException {
+        delegada.sincronizar();
+    }
+
+    @Override
+    public long contar(ConsultaJugadores consulta) throws IOException {
+        return delegada.contar(consulta);
+    }
+
+    @Override
+    public void recorrerVistas(ConsultaJugadores consulta, ProcesadorVista procesador) throws IOException {
+        delegada.recorrerVistas(consulta, procesador);
+    }
+
+    @Override
+    protected void recorrerFiltrado(ConsultaJugadores consulta, ProcesadorJugador procesador) throws IOException {
+        delegada.recorrerFiltrado(consulta, procesador);
+    }
+
+    @Override
+    public int agregarJugadores(List<Jugador> jugadores) throws IOException {
+        return delegada.agregarJugadores(jugadores);
+    }
+
+    @Override
+    protected void anexarJugadores(List<Jugador> jugadores) throws IOException {
+        delegada.anexarJugadores(jugadores);
+    }
+
+    @Override
+    protected boolean confirmarTransaccion(Transaccion transaccion) throws IOException {
+        return delegada.confirmarTransaccion(transaccion);
+    }
+
+    @Override
+    public void sumarCampo(int id, CampoJugador campo, int delta) throws IOException {
+        delegada.sumarCampo(id, campo, delta);
+    }
+
+    @Override
+    public int aplicarIncrementos(IncrementosJugadores incrementos) throws IOException {
+        return delegada.aplicarIncrementos(incrementos);
+    }
+}
@@ -4,7 +4,11 @@
  */
 package com.mycompany.jugadorarchivosadriangalilea;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 /**
  *
  * @author Vespertino
@@ -21,4 +25,379 @@ public abstract class GestionFichero {
     public abstract List<Jugador> listarJugadores() throws IOException;
 
     public abstract void cerrar() throws IOException;
+
+    /**
+     * Recorre secuencialmente todos los jugadores almacenados, entregándolos uno a uno al procesador.
+     * La implementación por defecto se apoya en listarJugadores; las subclases que pueden leer el archivo
+     * de forma incremental la sobrescriben para no cargar todos los jugadores en memoria.
+     *
+     * @param procesador Procesador que recibe cada jugador. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer el archivo o al procesar un jugador.
+     */
+    public void recorrerJugadores(ProcesadorJugador procesador) throws IOException {
+        for (Jugador jugador : listarJugadores()) {
+            if (!procesador.procesar(jugador)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Abre un cursor que devuelve los jugadores uno a uno bajo demanda, empezando en una posición de continuación.
+     * La implementación por defecto recorre la lista de listarJugadores; los backends que pueden leer el archivo
+     * de forma incremental la sobrescriben para leer solo lo que se va pidiendo.
+     *
+     * @param continuacion Texto de continuación de un cursor o una página anterior, o null para empezar desde el principio.
+     * @return Cursor abierto, que hay que cerrar al terminar.
+     * @throws IOException Si ocurre un error al abrir o leer el archivo.
+     */
+    public CursorJugadores abrirCursor(String continuacion) throws IOException {
+        return CursorJugadores.deLista(listarJugadores(), continuacion);
+    }
+
+    /**
+     * Devuelve un Stream perezoso con todos los jugadores, leído con abrirCursor. Hay que cerrarlo al terminar,
+     * normalmente con un try-with-resources, para liberar el archivo.
+     *
+     * @return Stream de jugadores.
+     * @throws IOException Si ocurre un error al abrir el archivo.
+     */
+    public Stream<Jugador> streamJugadores() throws IOException {
+        return abrirCursor(null).stream();
+    }
+
+    /**
+     * Devuelve una página de jugadores a partir de una posición de continuación, leyendo solo los jugadores
+     * de la página y uno más para saber si quedan.
+     *
+     * @param continuacion Texto de continuación de la página anterior, o null para la primera página.
+     * @param limite       Número máximo de jugadores de la página.
+     * @return La página, con el texto de continuación de la siguiente o null si es la última.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public PaginaJugadores listarPagina(String continuacion, int limite) throws IOException {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El límite de la página debe ser positivo");
+        }
+        try (CursorJugadores cursor = abrirCursor(continuacion)) {
+            List<Jugador> jugadores = new ArrayList<>(Math.min(limite, 1024));
+            String siguiente = cursor.continuacion();
+            Jugador jugador;
+            while ((jugador = cursor.siguiente()) != null) {
+                if (jugadores.size() == limite) {
+                    return new PaginaJugadores(jugadores, siguiente);
+                }
+                jugadores.add(jugador);
+                siguiente = cursor.continuacion();
+            }
+            return new PaginaJugadores(jugadores, null);
+        }
+    }
+
+    /**
+     * Ejecuta una consulta sobre los jugadores almacenados. El filtrado se delega en recorrerFiltrado,
+     * que cada backend implementa dentro de su propio bucle de lectura; el orden, el límite y la proyección
+     * se aplican sobre los jugadores aceptados.
+     *
+     * @param consulta Consulta a ejecutar.
+     * @return Lista con los jugadores que cumplen la consulta.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public List<Jugador> consultar(ConsultaJugadores consulta) throws IOException {
+        ConsultaJugadores.Resultado resultado = consulta.nuevoResultado();
+        recorrerFiltrado(consulta, resultado);
+        return resultado.finalizar();
+    }
+
+    /**
+     * Obtiene los jugadores con un nick exacto. Un mismo nick puede estar repetido en varios jugadores.
+     * La implementación por defecto es una consulta filtrada por nick sobre el recorrido del backend.
+     *
+     * @param nick Nick buscado.
+     * @return Lista con los jugadores que tienen ese nick, vacía si no hay ninguno.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public List<Jugador> obtenerPorNick(String nick) throws IOException {
+        return consultar(new ConsultaJugadores().nickIgual(nick));
+    }
+
+    /**
+     * Busca los jugadores cuyo nick empieza por un prefijo, ordenados por nick, para autocompletar.
+     *
+     * @param prefijo Prefijo buscado.
+     * @param limite  Número máximo de jugadores, o 0 para no limitar.
+     * @return Lista con los jugadores encontrados.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public List<Jugador> buscarPorPrefijoNick(String prefijo, int limite) throws IOException {
+        return consultar(new ConsultaJugadores().nickEmpiezaPor(prefijo).ordenarPor(CampoJugador.NICK, false).limite(limite));
+    }
+
+    /**
+     * Carga en una TablaColumnar los jugadores que cumplen una consulta, sin conservar objetos Jugador.
+     * La implementación por defecto rellena la tabla desde recorrerFiltrado; los backends de registros binarios
+     * la sobrescriben para copiar los campos directamente desde los bytes leídos.
+     *
+     * @param consulta Consulta con las condiciones de filtrado (solo se usan los filtros, no el orden ni el límite).
+     * @return La tabla con los jugadores aceptados.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public TablaColumnar cargarTablaColumnar(ConsultaJugadores consulta) throws IOException {
+        TablaColumnar tabla = new TablaColumnar();
+        recorrerFiltrado(consulta, jugador -> {
+            tabla.agregar(jugador);
+            return true;
+        });
+        tabla.recortar();
+        return tabla;
+    }
+
+    /**
+     * Recorre los jugadores que cumplen las condiciones de la consulta entregando al procesador una vista
+     * reutilizable sobre cada registro en lugar de un Jugador nuevo. Solo se usan los filtros de la consulta,
+     * no el orden, el límite ni la proyección. La implementación por defecto coloca la vista sobre los jugadores
+     * de recorrerFiltrado; los backends de registros binarios la sobrescriben para leer los campos directamente
+     * de los bytes y no crear ningún objeto por registro.
+     *
+     * @param consulta   Consulta con las condiciones de filtrado.
+     * @param procesador Procesador que recibe la vista de cada registro aceptado. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer el archivo o al procesar un registro.
+     */
+    public void recorrerVistas(ConsultaJugadores consulta, ProcesadorVista procesador) throws IOException {
+        recorrerVistasDeJugadores(consulta, procesador);
+    }
+
+    /**
+     * Implementación de recorrerVistas sobre recorrerFiltrado, para las capas que necesitan volver a ella
+     * aunque la clase que extienden la sobrescriba.
+     *
+     * @param consulta   Consulta con las condiciones de filtrado.
+     * @param procesador Procesador que recibe la vista de cada registro aceptado.
+     * @throws IOException Si ocurre un error al leer el archivo o al procesar un registro.
+     */
+    protected final void recorrerVistasDeJugadores(ConsultaJugadores consulta, ProcesadorVista procesador) throws IOException {
+        VistaJugador.DeJugador vista = new VistaJugador.DeJugador();
+        recorrerFiltrado(consulta, jugador -> {
+            vista.posicionar(jugador);
+            return procesador.procesar(vista);
+        });
+    }
+
+    /**
+     * Fuerza a disco todos los cambios hechos hasta el momento, de modo que sobrevivan a una caída del sistema.
+     * La implementación por defecto no hace nada porque los backends que reescriben el archivo completo ya lo
+     * dejan en disco al terminar cada operación; los que modifican el archivo en el sitio o añaden al final
+     * la sobrescriben.
+     *
+     * @throws IOException Si ocurre un error al sincronizar el archivo.
+     */
+    public void sincronizar() throws IOException {
+    }
+
+    /**
+     * Indica si las lecturas pueden hacerse desde otros hilos mientras se ejecuta una escritura, porque cada una
+     * lee su propia instantánea del archivo. GestionSincronizada lo consulta para no serializar las lecturas.
+     * La implementación por defecto devuelve false; las escrituras deben seguir haciéndose de una en una.
+     *
+     * @return true si las lecturas no necesitan excluirse con las escrituras.
+     */
+    public boolean lecturasConcurrentes() {
+        return false;
+    }
+
+    /**
+     * Vuelve a leer del disco lo que el backend guarda en memoria sobre el archivo, para ver los cambios que otro
+     * proceso haya escrito desde la última operación. GestionConBloqueos lo llama cada vez que bloquea el archivo.
+     * La implementación por defecto devuelve false: el backend guarda un estado que no sabe recargar y no se puede
+     * compartir entre procesos.
+     *
+     * @return true si el backend ve ya los cambios de otros procesos.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    protected boolean recargarCambiosExternos() throws IOException {
+        return false;
+    }
+
+    /**
+     * Cuenta los jugadores que cumplen una consulta sin construir la lista de resultados.
+     * La implementación por defecto cuenta sobre recorrerFiltrado; el backend de acceso aleatorio la sobrescribe
+     * para evaluar los rangos por bloques de registros sin decodificar ningún jugador.
+     *
+     * @param consulta Consulta con las condiciones de filtrado (solo se usan los filtros, no el orden ni el límite).
+     * @return Número de jugadores que cumplen la consulta.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public long contar(ConsultaJugadores consulta) throws IOException {
+        long[] cuenta = {0};
+        recorrerFiltrado(consulta, jugador -> {
+            cuenta[0]++;
+            return true;
+        });
+        return cuenta[0];
+    }
+
+    /**
+     * Recorre solo los jugadores que cumplen las condiciones de la consulta.
+     * La implementación por defecto filtra sobre recorrerJugadores; los backends la sobrescriben para evaluar
+     * los campos numéricos antes de construir el objeto Jugador.
+     *
+     * @param consulta   Consulta con las condiciones de filtrado.
+     * @param procesador Procesador que recibe cada jugador aceptado. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer el archivo o al procesar un jugador.
+     */
+    protected void recorrerFiltrado(ConsultaJugadores consulta, ProcesadorJugador procesador) throws IOException {
+        recorrerJugadores(jugador -> !consulta.acepta(jugador) || procesador.procesar(jugador));
+    }
+
+    /**
+     * Agrega un lote de jugadores, ignorando los que ya existan con el mismo ID.
+     * La implementación por defecto llama a agregarJugador por cada jugador; las subclases la sobrescriben
+     * para comprobar los duplicados con un único recorrido y escribir el lote de una sola vez.
+     *
+     * @param jugadores Lista de jugadores a agregar.
+     * @return Número de jugadores agregados.
+     * @throws IOException Si ocurre un error al escribir en el archivo.
+     */
+    public int agregarJugadores(List<Jugador> jugadores) throws IOException {
+        int agregados = 0;
+        for (Jugador jugador : jugadores) {
+            if (agregarJugador(jugador)) {
+                agregados++;
+            }
+        }
+        return agregados;
+    }
+
+    /**
+     * Añade un lote de jugadores al final del almacenamiento sin comprobar si sus IDs ya existen.
+     * Solo debe usarse cuando quien llama garantiza que los IDs son nuevos, por ejemplo al volcar
+     * otro almacén con IDs únicos sobre un archivo vacío.
+     *
+     * @param jugadores Lista de jugadores a añadir.
+     * @throws IOException Si ocurre un error al escribir en el archivo.
+     */
+    protected void anexarJugadores(List<Jugador> jugadores) throws IOException {
+        agregarJugadores(jugadores);
+    }
+
+    /**
+     * Suma una cantidad a las monedas de un jugador. Si el jugador no existe no se hace nada.
+     *
+     * @param id    ID del jugador.
+     * @param delta Monedas a sumar, negativo para restar.
+     * @throws IOException Si ocurre un error al leer o escribir en el almacén.
+     */
+    public void incrementarMonedas(int id, int delta) throws IOException {
+        sumarCampo(id, CampoJugador.COINS, delta);
+    }
+
+    /**
+     * Suma una cantidad a la experiencia de un jugador. Si el jugador no existe no se hace nada.
+     *
+     * @param id    ID del jugador.
+     * @param delta Experiencia a sumar, negativo para restar.
+     * @throws IOException Si ocurre un error al leer o escribir en el almacén.
+     */
+    public void sumarExperiencia(int id, int delta) throws IOException {
+        sumarCampo(id, CampoJugador.EXPERIENCE, delta);
+    }
+
+    /**
+     * Suma una cantidad a un campo numérico de un jugador sin que quien llama tenga que leerlo y modificarlo.
+     * Si el jugador no existe no se hace nada. La implementación por defecto lo aplica con aplicarIncrementos;
+     * el backend de acceso aleatorio la sobrescribe para leer y escribir solo el entero del campo.
+     *
+     * @param id    ID del jugador.
+     * @param campo Campo a modificar: EXPERIENCE, LIFE_LEVEL o COINS.
+     * @param delta Cantidad a sumar, negativa para restar.
+     * @throws IOException Si ocurre un error al leer o escribir en el almacén.
+     */
+    public void sumarCampo(int id, CampoJugador campo, int delta) throws IOException {
+        IncrementosJugadores incrementos = new IncrementosJugadores();
+        incrementos.sumar(id, campo, delta);
+        aplicarIncrementos(incrementos);
+    }
+
+    /**
+     * Aplica a la vez las sumas acumuladas sobre varios jugadores, ignorando los que no existen.
+     * La implementación por defecto lee los jugadores afectados con un único recorrido filtrado y los modifica
+     * en una transacción, de modo que los backends que reescriben el archivo completo lo hacen una sola vez.
+     * Si otro hilo elimina alguno de los jugadores entre la lectura y la confirmación no se aplica nada;
+     * GestionSincronizada lo evita ejecutando la operación con su cerrojo.
+     *
+     * @param incrementos Sumas a aplicar.
+     * @return Número de jugadores modificados.
+     * @throws IOException Si ocurre un error al leer o escribir en el almacén.
+     */
+    public int aplicarIncrementos(IncrementosJugadores incrementos) throws IOException {
+        if (incrementos.estaVacio()) {
+            return 0;
+        }
+        Transaccion transaccion = iniciarTransaccion();
+        recorrerFiltrado(new ConsultaJugadores().idsEn(new HashSet<>(incrementos.ids())), jugador -> {
+            transaccion.modificarJugador(jugador.getId(), incrementos.aplicar(jugador));
+            return true;
+        });
+        int modificados = transaccion.getNumeroCambios();
+        return modificados > 0 && transaccion.confirmar() ? modificados : 0;
+    }
+
+    /**
+     * Inicia una transacción sobre este almacén. Los cambios que se añadan a ella no se aplican hasta
+     * llamar a Transaccion.confirmar.
+     *
+     * @return Transacción vacía.
+     */
+    public Transaccion iniciarTransaccion() {
+        return new Transaccion(this);
+    }
+
+    /**
+     * Aplica los cambios de una transacción si todos son válidos. La implementación por defecto comprueba los IDs
+     * con una única consulta y después aplica las bajas y modificaciones una a una y las altas en un solo lote, así
+     * que un error de escritura a mitad puede dejar aplicada una parte. Los backends que reescriben el archivo
+     * completo la sobrescriben para aplicarla con una sola reescritura atómica.
+     *
+     * @param transaccion Transacción a aplicar, con al menos un cambio.
+     * @return true si se aplicó, false si algún cambio no era válido y no se aplicó nada.
+     * @throws IOException Si ocurre un error al leer o escribir en el almacén.
+     */
+    protected boolean confirmarTransaccion(Transaccion transaccion) throws IOException {
+        if (!transaccion.comprobar(idsExistentes(transaccion.ids()))) {
+            return false;
+        }
+        for (Transaccion.Cambio cambio : transaccion.cambios()) {
+            if (!cambio.debiaExistir()) {
+                continue;
+            }
+            if (cambio.getResultado() == null) {
+                eliminarJugador(cambio.getId());
+            } else {
+                modificarJugador(cambio.getId(), cambio.getResultado());
+            }
+        }
+        List<Jugador> altas = transaccion.altas();
+        if (!altas.isEmpty()) {
+            anexarJugadores(altas);
+        }
+        return true;
+    }
+
+    /**
+     * Devuelve cuáles de los IDs existen en el almacén, con una única consulta.
+     *
+     * @param ids IDs a comprobar.
+     * @return Conjunto con los IDs que existen.
+     * @throws IOException Si ocurre un error al leer el almacén.
+     */
+    protected Set<Integer> idsExistentes(Set<Integer> ids) throws IOException {
+        Set<Integer> existentes = new HashSet<>();
+        if (ids.isEmpty()) {
+            return existentes;
+        }
+        for (Jugador jugador : consultar(new ConsultaJugadores().idsEn(new HashSet<>(ids)).proyectar(CampoJugador.ID))) {
+            existentes.add(jugador.getId());
+        }
+        return existentes;
+    }
 }
@@ -0,0 +1,617 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * La clase GestionHashExtensible extiende de la clase abstracta GestionFichero y guarda los jugadores en un archivo
+ * dispersado por ID con hashing extensible. El archivo se divide en páginas de 4 KiB; cada página es una cubeta con
+ * hasta 72 registros en el mismo formato de 56 bytes que GestionAccesoAleatorio. Un directorio en memoria indica,
+ * para los últimos bits del hash de cada ID, la página de su cubeta, así que agregar, obtener, modificar o eliminar
+ * un jugador lee una sola página y, si cambia, la escribe, sea cual sea el número de jugadores.
+ *
+ * Cuando una cubeta se llena se divide en dos usando un bit más del hash (su profundidad local); si la cubeta ya usaba
+ * tantos bits como el directorio, el directorio dobla su tamaño. Cada cubeta guarda su profundidad local y el patrón
+ * de bits que comparten sus IDs, de modo que el directorio no se guarda: se reconstruye al abrir leyendo la cabecera
+ * de cada página. La división escribe la cubeta nueva antes de reescribir la antigua; si el programa termina entre
+ * las dos escrituras, al abrir se detecta la cubeta antigua por su patrón y se le quitan los registros que ya están
+ * en la nueva.
+ *
+ * Formato: página 0 de cabecera (MAGIA, VERSION, tamaño de página) y, desde la página 1, cubetas con cabecera
+ * (profundidad local, patrón, número de registros) seguida de los registros sin huecos.
+ *
+ * Con un GrupoBuffers las cubetas se leen y modifican en el grupo y llegan al archivo más tarde. Las dos páginas
+ * de una división se siguen escribiendo directamente y en orden, así que el archivo siempre tiene todas sus cubetas
+ * y la reparación al abrir sigue siendo válida; los recorridos por bloques escriben antes las cubetas modificadas.
+ */
+public class GestionHashExtensible extends GestionFichero {
+
+    private static final int MAGIA = 0x4A484558;
+    private static final int VERSION = 1;
+    private static final int TAMAÑO_PAGINA = 4096;
+    private static final int TAMAÑO_CABECERA_CUBETA = 4 * Integer.BYTES;
+    static final int REGISTROS_POR_CUBETA = (TAMAÑO_PAGINA - TAMAÑO_CABECERA_CUBETA) / GestionAccesoAleatorio.TAMAÑO_REGISTRO;
+    private static final int OFFSET_PROFUNDIDAD = 0;
+    private static final int OFFSET_PATRON = Integer.BYTES;
+    private static final int OFFSET_NUMERO = 2 * Integer.BYTES;
+    private static final int PROFUNDIDAD_MAXIMA = 26;
+    private static final int PAGINAS_POR_BLOQUE = 64;
+
+    private final FileChannel canal;
+    private final GrupoBuffers grupo;
+    private final GrupoBuffers.ArchivoPaginado paginado;
+    private final ByteBuffer pagina = ByteBuffer.allocate(TAMAÑO_PAGINA);
+    private int[] directorio;
+    private int profundidadGlobal;
+    private int numeroPaginas;
+
+    /**
+     * Constructor de la clase GestionHashExtensible.
+     * Abre el archivo y reconstruye el directorio a partir de las cabeceras de las cubetas, o crea un archivo
+     * con una cubeta vacía si no existe.
+     *
+     * @param nombreArchivo Nombre del archivo donde se almacenarán los datos de los jugadores.
+     * @throws IOException Si ocurre un error al acceder al archivo o si no tiene el formato esperado.
+     */
+    public GestionHashExtensible(String nombreArchivo) throws IOException {
+        this(nombreArchivo, null);
+    }
+
+    /**
+     * Constructor de la clase GestionHashExtensible que lee y escribe las cubetas a través de un grupo de buffers.
+     *
+     * @param nombreArchivo Nombre del archivo donde se almacenarán los datos de los jugadores.
+     * @param grupo         Grupo de buffers compartido, o null para leer y escribir directamente en el archivo.
+     * @throws IOException Si ocurre un error al acceder al archivo o si no tiene el formato esperado.
+     */
+    public GestionHashExtensible(String nombreArchivo, GrupoBuffers grupo) throws IOException {
+        canal = FileChannel.open(Paths.get(nombreArchivo), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.grupo = grupo;
+        this.paginado = grupo == null ? null : grupo.registrar(canal);
+        try {
+            if (canal.size() == 0) {
+                crear();
+            } else {
+                cargarDirectorio();
+            }
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Agrega un nuevo jugador a su cubeta, dividiéndola antes si está llena.
+     *
+     * @param jugador Objeto de la clase Jugador que representa al jugador a agregar.
+     * @return true si el jugador se agrega correctamente, false si ya existe un jugador con el mismo ID.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    @Override
+    public Boolean agregarJugador(Jugador jugador) throws IOException {
+        int numero = cubetaDe(jugador.getId());
+        leerPagina(numero);
+        if (buscarEnPagina(jugador.getId()) >= 0) {
+            return false;
+        }
+        insertar(numero, jugador);
+        return true;
+    }
+
+    /**
+     * Elimina un jugador de su cubeta moviendo el último registro de la cubeta a su hueco.
+     *
+     * @param id ID del jugador que se desea eliminar.
+     * @return true si el jugador fue eliminado correctamente, false si no existe.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    @Override
+    public Boolean eliminarJugador(int id) throws IOException {
+        int numero = cubetaDe(id);
+        leerPagina(numero);
+        int indice = buscarEnPagina(id);
+        if (indice < 0) {
+            return false;
+        }
+        quitarDePagina(indice);
+        escribirPagina(numero);
+        return true;
+    }
+
+    /**
+     * Modifica un jugador reescribiendo su registro dentro de la cubeta. Si el jugador modificado tiene otro ID,
+     * se elimina el original y se guarda el modificado en la cubeta de su nuevo ID, sustituyendo al jugador
+     * que ya tuviera ese ID.
+     *
+     * @param id                ID del jugador a modificar.
+     * @param jugadorModificado Objeto de la clase Jugador con los nuevos datos del jugador.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    @Override
+    public void modificarJugador(int id, Jugador jugadorModificado) throws IOException {
+        int numero = cubetaDe(id);
+        leerPagina(numero);
+        int indice = buscarEnPagina(id);
+        if (indice < 0) {
+            return;
+        }
+        if (jugadorModificado.getId() == id) {
+            pagina.position(posicionRegistro(indice));
+            GestionAccesoAleatorio.codificarJugador(pagina, jugadorModificado);
+            escribirPagina(numero);
+            return;
+        }
+        quitarDePagina(indice);
+        escribirPagina(numero);
+        numero = cubetaDe(jugadorModificado.getId());
+        leerPagina(numero);
+        indice = buscarEnPagina(jugadorModificado.getId());
+        if (indice >= 0) {
+            pagina.position(posicionRegistro(indice));
+            GestionAccesoAleatorio.codificarJugador(pagina, jugadorModificado);
+            escribirPagina(numero);
+        } else {
+            insertar(numero, jugadorModificado);
+        }
+    }
+
+    /**
+     * Obtiene un jugador leyendo solo la página de su cubeta.
+     *
+     * @param id ID del jugador que se desea obtener.
+     * @return El jugador, o null si no existe.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    public Jugador obtenerJugador(int id) throws IOException {
+        leerPagina(cubetaDe(id));
+        int indice = buscarEnPagina(id);
+        if (indice < 0) {
+            return null;
+        }
+        VistaJugador.RegistroFijo vista = new VistaJugador.RegistroFijo();
+        vista.posicionar(pagina, posicionRegistro(indice));
+        return vista.aJugador();
+    }
+
+    @Override
+    public List<Jugador> listarJugadores() throws IOException {
+        List<Jugador> jugadores = new ArrayList<>();
+        recorrerJugadores(jugador -> {
+            jugadores.add(jugador);
+            return true;
+        });
+        return jugadores;
+    }
+
+    /**
+     * Recorre los jugadores cubeta a cubeta, en el orden de las páginas del archivo y no en el de los IDs.
+     *
+     * @param procesador Procesador que recibe cada jugador. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    public void recorrerJugadores(ProcesadorJugador procesador) throws IOException {
+        recorrerFiltrado(new ConsultaJugadores(), procesador);
+    }
+
+    @Override
+    protected void recorrerFiltrado(ConsultaJugadores consulta, ProcesadorJugador procesador) throws IOException {
+        recorrerVistas(consulta, vista -> procesador.procesar(vista.aJugador()));
+    }
+
+    /**
+     * Recorre las cubetas leyendo bloques de páginas con lecturas posicionales y coloca una única vista
+     * sobre los bytes de cada registro, comprobando los campos numéricos antes que el nick.
+     *
+     * @param consulta   Consulta con las condiciones de filtrado.
+     * @param procesador Procesador que recibe la vista de cada registro aceptado. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    public void recorrerVistas(ConsultaJugadores consulta, ProcesadorVista procesador) throws IOException {
+        VistaJugador.RegistroFijo vista = new VistaJugador.RegistroFijo();
+        boolean filtraNick = consulta.filtraNick();
+        ByteBuffer bloque = ByteBuffer.allocate(TAMAÑO_PAGINA * PAGINAS_POR_BLOQUE);
+        for (int primera = 1; primera < numeroPaginas; primera += PAGINAS_POR_BLOQUE) {
+            int paginas = leerBloque(bloque, primera);
+            for (int p = 0; p < paginas; p++) {
+                int inicio = p * TAMAÑO_PAGINA;
+                int registros = bloque.getInt(inicio + OFFSET_NUMERO);
+                for (int i = 0; i < registros; i++) {
+                    int base = inicio + TAMAÑO_CABECERA_CUBETA + i * GestionAccesoAleatorio.TAMAÑO_REGISTRO;
+                    vista.posicionar(bloque, base);
+                    if (!consulta.aceptaNumericos(vista.getId(), vista.getExperience(), vista.getLifeLevel(), vista.getCoins())
+                            || filtraNick && !consulta.aceptaNick(vista)) {
+                        continue;
+                    }
+                    if (!procesador.procesar(vista)) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Abre un cursor que lee las cubetas por bloques de páginas con lecturas posicionales. La continuación es
+     * la posición del siguiente registro: el número de página por el número de registros de una cubeta más
+     * el registro dentro de la página. Como las bajas mueven registros dentro de su cubeta, un cursor que
+     * continúa después de escrituras puede saltarse o repetir algún jugador de las cubetas modificadas.
+     *
+     * @param continuacion Texto de continuación, o null para empezar por la primera cubeta.
+     * @return Cursor abierto.
+     * @throws IOException Si ocurre un error al acceder al archivo.
+     */
+    @Override
+    public CursorJugadores abrirCursor(String continuacion) throws IOException {
+        long posicion = CursorJugadores.posicion(continuacion);
+        return new CursorJugadores() {
+            private final ByteBuffer bloque = ByteBuffer.allocate(TAMAÑO_PAGINA * PAGINAS_POR_BLOQUE);
+            private final VistaJugador.RegistroFijo vista = new VistaJugador.RegistroFijo();
+            private long paginaActual = Math.max(1, posicion / REGISTROS_POR_CUBETA);
+            private int registro = posicion / REGISTROS_POR_CUBETA == paginaActual ? (int) (posicion % REGISTROS_POR_CUBETA) : 0;
+            private long primeraDelBloque = -1;
+            private int paginasEnBloque;
+
+            @Override
+            public Jugador siguiente() throws IOException {
+                while (paginaActual < numeroPaginas) {
+                    if (primeraDelBloque < 0 || paginaActual >= primeraDelBloque + paginasEnBloque) {
+                        primeraDelBloque = paginaActual;
+                        paginasEnBloque = leerBloque(bloque, (int) paginaActual);
+                        if (paginasEnBloque == 0) {
+                            return null;
+                        }
+                    }
+                    int inicio = (int) (paginaActual - primeraDelBloque) * TAMAÑO_PAGINA;
+                    if (registro < bloque.getInt(inicio + OFFSET_NUMERO)) {
+                        vista.posicionar(bloque, inicio + TAMAÑO_CABECERA_CUBETA + registro++ * GestionAccesoAleatorio.TAMAÑO_REGISTRO);
+                        return vista.aJugador();
+                    }
+                    paginaActual++;
+                    registro = 0;
+                }
+                return null;
+            }
+
+            @Override
+            public String continuacion() {
+                return Long.toString(paginaActual * REGISTROS_POR_CUBETA + registro);
+            }
+        };
+    }
+
+    /**
+     * Comprueba cada ID leyendo solo la página de su cubeta, en lugar de recorrer el archivo.
+     */
+    @Override
+    protected Set<Integer> idsExistentes(Set<Integer> ids) throws IOException {
+        Set<Integer> existentes = new HashSet<>();
+        for (int id : ids) {
+            leerPagina(cubetaDe(id));
+            if (buscarEnPagina(id) >= 0) {
+                existentes.add(id);
+            }
+        }
+        return existentes;
+    }
+
+    /**
+     * Fuerza a disco las cubetas escritas.
+     *
+     * @throws IOException Si ocurre un error al sincronizar el archivo.
+     */
+    @Override
+    public void sincronizar() throws IOException {
+        if (grupo != null) {
+            grupo.escribirModificadas(paginado);
+        }
+        canal.force(false);
+    }
+
+    @Override
+    public void cerrar() throws IOException {
+        try {
+            if (grupo != null) {
+                grupo.olvidar(paginado);
+            }
+        } finally {
+            canal.close();
+        }
+    }
+
+    public int getProfundidadGlobal() {
+        return profundidadGlobal;
+    }
+
+    public int getNumeroCubetas() {
+        return numeroPaginas - 1;
+    }
+
+    /**
+     * Dispersa el ID con la función de mezcla de 32 bits de MurmurHash3, que es biyectiva: IDs distintos tienen
+     * hashes distintos, así que una cubeta siempre acaba dividiéndose, y los IDs consecutivos se reparten
+     * por todas las cubetas.
+     */
+    static int dispersar(int id) {
+        int h = id;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    private int cubetaDe(int id) {
+        return directorio[dispersar(id) & (directorio.length - 1)];
+    }
+
+    /**
+     * Inserta un jugador en la cubeta cargada en la página, dividiéndola tantas veces como haga falta
+     * hasta que la cubeta de su ID tenga sitio.
+     */
+    private void insertar(int numero, Jugador jugador) throws IOException {
+        while (pagina.getInt(OFFSET_NUMERO) == REGISTROS_POR_CUBETA) {
+            dividir(numero);
+            numero = cubetaDe(jugador.getId());
+            leerPagina(numero);
+        }
+        int registros = pagina.getInt(OFFSET_NUMERO);
+        pagina.position(posicionRegistro(registros));
+        GestionAccesoAleatorio.codificarJugador(pagina, jugador);
+        pagina.putInt(OFFSET_NUMERO, registros + 1);
+        escribirPagina(numero);
+    }
+
+    /**
+     * Divide la cubeta cargada en la página: los registros cuyo hash tiene a 1 el bit de la profundidad local
+     * pasan a una cubeta nueva al final del archivo y ambas cubetas aumentan su profundidad. Si la cubeta usaba
+     * tantos bits como el directorio, este dobla su tamaño.
+     */
+    private void dividir(int numero) throws IOException {
+        int profundidad = pagina.getInt(OFFSET_PROFUNDIDAD);
+        int patron = pagina.getInt(OFFSET_PATRON);
+        if (profundidad == profundidadGlobal) {
+            if (profundidadGlobal == PROFUNDIDAD_MAXIMA) {
+                throw new IOException("El directorio de cubetas ha alcanzado su tamaño máximo");
+            }
+            int[] doble = Arrays.copyOf(directorio, directorio.length * 2);
+            System.arraycopy(directorio, 0, doble, directorio.length, directorio.length);
+            directorio = doble;
+            profundidadGlobal++;
+        }
+        int bit = 1 << profundidad;
+        ByteBuffer nueva = ByteBuffer.allocate(TAMAÑO_PAGINA);
+        nueva.putInt(OFFSET_PROFUNDIDAD, profundidad + 1);
+        nueva.putInt(OFFSET_PATRON, patron | bit);
+        int quedan = 0;
+        int pasan = 0;
+        int registros = pagina.getInt(OFFSET_NUMERO);
+        for (int i = 0; i < registros; i++) {
+            int origen = posicionRegistro(i);
+            if ((dispersar(pagina.getInt(origen)) & bit) != 0) {
+                nueva.put(posicionRegistro(pasan++), pagina, origen, GestionAccesoAleatorio.TAMAÑO_REGISTRO);
+            } else {
+                if (quedan != i) {
+                    pagina.put(posicionRegistro(quedan), pagina, origen, GestionAccesoAleatorio.TAMAÑO_REGISTRO);
+                }
+                quedan++;
+            }
+        }
+        nueva.putInt(OFFSET_NUMERO, pasan);
+        pagina.putInt(OFFSET_PROFUNDIDAD, profundidad + 1);
+        pagina.putInt(OFFSET_NUMERO, quedan);
+        int numeroNueva = numeroPaginas;
+        escribir(nueva, numeroNueva);
+        numeroPaginas++;
+        escribir(pagina, numero);
+        for (int ranura = patron | bit; ranura < directorio.length; ranura += bit << 1) {
+            directorio[ranura] = numeroNueva;
+        }
+    }
+
+    private void crear() throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(TAMAÑO_PAGINA);
+        cabecera.putInt(MAGIA).putInt(VERSION).putInt(TAMAÑO_PAGINA);
+        escribir(cabecera, 0);
+        escribir(ByteBuffer.allocate(TAMAÑO_PAGINA), 1);
+        numeroPaginas = 2;
+        profundidadGlobal = 0;
+        directorio = new int[]{1};
+    }
+
+    /**
+     * Reconstruye el directorio a partir de la profundidad local y el patrón de cada cubeta: cada cubeta ocupa
+     * las ranuras cuyos últimos bits coinciden con su patrón, y las más profundas se colocan después para que
+     * ocupen su parte de las ranuras de una cubeta antigua. Una cubeta que ha perdido así parte de sus ranuras
+     * es el resto de una división interrumpida y se repara.
+     */
+    private void cargarDirectorio() throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(3 * Integer.BYTES);
+        leer(cabecera, 0);
+        if (cabecera.getInt(0) != MAGIA || cabecera.getInt(Integer.BYTES) != VERSION || cabecera.getInt(2 * Integer.BYTES) != TAMAÑO_PAGINA) {
+            throw new IOException("El archivo no tiene el formato de hash extensible esperado");
+        }
+        numeroPaginas = (int) (canal.size() / TAMAÑO_PAGINA);
+        if (canal.size() % TAMAÑO_PAGINA != 0) {
+            canal.truncate((long) numeroPaginas * TAMAÑO_PAGINA);
+        }
+        if (numeroPaginas < 2) {
+            throw new IOException("El archivo de hash extensible no tiene cubetas");
+        }
+        int[] profundidades = new int[numeroPaginas];
+        int[] patrones = new int[numeroPaginas];
+        ByteBuffer bloque = ByteBuffer.allocate(TAMAÑO_PAGINA * PAGINAS_POR_BLOQUE);
+        for (int primera = 1; primera < numeroPaginas; primera += PAGINAS_POR_BLOQUE) {
+            int paginas = leerBloque(bloque, primera);
+            for (int p = 0; p < paginas; p++) {
+                int profundidad = bloque.getInt(p * TAMAÑO_PAGINA + OFFSET_PROFUNDIDAD);
+                int patron = bloque.getInt(p * TAMAÑO_PAGINA + OFFSET_PATRON);
+                if (profundidad < 0 || profundidad > PROFUNDIDAD_MAXIMA || (patron & ~((1 << profundidad) - 1)) != 0) {
+                    throw new IOException("Cabecera de cubeta no válida en la página " + (primera + p));
+                }
+                profundidades[primera + p] = profundidad;
+                patrones[primera + p] = patron;
+                profundidadGlobal = Math.max(profundidadGlobal, profundidad);
+            }
+        }
+        directorio = new int[1 << profundidadGlobal];
+        Arrays.fill(directorio, -1);
+        for (int profundidad = 0; profundidad <= profundidadGlobal; profundidad++) {
+            for (int numero = 1; numero < numeroPaginas; numero++) {
+                if (profundidades[numero] == profundidad) {
+                    for (int ranura = patrones[numero]; ranura < directorio.length; ranura += 1 << profundidad) {
+                        directorio[ranura] = numero;
+                    }
+                }
+            }
+        }
+        for (int numero = 1; numero < numeroPaginas; numero++) {
+            reparar(numero, profundidades[numero], patrones[numero]);
+        }
+    }
+
+    /**
+     * Si una cubeta ya no ocupa todas las ranuras de su patrón porque otra más profunda se ha quedado con la mitad,
+     * sube su profundidad hasta la de las ranuras que conserva y quita los registros que ya no le corresponden.
+     */
+    private void reparar(int numero, int profundidad, int patron) throws IOException {
+        int ranuras = 0;
+        for (int ranura = patron; ranura < directorio.length; ranura += 1 << profundidad) {
+            if (directorio[ranura] == numero) {
+                ranuras++;
+            }
+        }
+        if (ranuras == directorio.length >> profundidad) {
+            return;
+        }
+        if (ranuras == 0) {
+            throw new IOException("La cubeta de la página " + numero + " no ocupa ninguna ranura del directorio");
+        }
+        int nuevaProfundidad = profundidad + Integer.numberOfTrailingZeros((directorio.length >> profundidad) / ranuras);
+        int mascara = (1 << nuevaProfundidad) - 1;
+        for (int ranura = patron; ranura < directorio.length; ranura += 1 << nuevaProfundidad) {
+            if (directorio[ranura] != numero) {
+                throw new IOException("La cubeta de la página " + numero + " no se puede reparar");
+            }
+        }
+        leerPagina(numero);
+        int registros = pagina.getInt(OFFSET_NUMERO);
+        int quedan = 0;
+        for (int i = 0; i < registros; i++) {
+            int origen = posicionRegistro(i);
+            if ((dispersar(pagina.getInt(origen)) & mascara) == patron) {
+                if (quedan != i) {
+                    pagina.put(posicionRegistro(quedan), pagina, origen, GestionAccesoAleatorio.TAMAÑO_REGISTRO);
+                }
+                quedan++;
+            }
+        }
+        pagina.putInt(OFFSET_PROFUNDIDAD, nuevaProfundidad);
+        pagina.putInt(OFFSET_NUMERO, quedan);
+        escribirPagina(numero);
+    }
+
+    /**
+     * Busca un ID entre los registros de la cubeta cargada en la página.
+     *
+     * @return Índice del registro dentro de la cubeta, o -1 si no está.
+     */
+    private int buscarEnPagina(int id) {
+        int registros = pagina.getInt(OFFSET_NUMERO);
+        for (int i = 0; i < registros; i++) {
+            if (pagina.getInt(posicionRegistro(i)) == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Quita un registro de la cubeta cargada en la página moviendo el último a su lugar.
+     */
+    private void quitarDePagina(int indice) {
+        int ultimo = pagina.getInt(OFFSET_NUMERO) - 1;
+        if (indice != ultimo) {
+            pagina.put(posicionRegistro(indice), pagina, posicionRegistro(ultimo), GestionAccesoAleatorio.TAMAÑO_REGISTRO);
+        }
+        pagina.putInt(OFFSET_NUMERO, ultimo);
+    }
+
+    private static int posicionRegistro(int indice) {
+        return TAMAÑO_CABECERA_CUBETA + indice * GestionAccesoAleatorio.TAMAÑO_REGISTRO;
+    }
+
+    private void leerPagina(int numero) throws IOException {
+        pagina.clear();
+        if (grupo != null) {
+            try (GrupoBuffers.Pagina enGrupo = grupo.fijar(paginado, numero)) {
+                pagina.put(enGrupo.datos());
+            }
+            return;
+        }
+        leer(pagina, (long) numero * TAMAÑO_PAGINA);
+    }
+
+    private void escribirPagina(int numero) throws IOException {
+        if (grupo != null) {
+            try (GrupoBuffers.Pagina enGrupo = grupo.fijar(paginado, numero)) {
+                enGrupo.datos().put(pagina.duplicate().clear());
+                enGrupo.modificada();
+            }
+            return;
+        }
+        escribir(pagina, numero);
+    }
+
+    /**
+     * Escribe una página directamente en el archivo, actualizando su copia en el grupo si la tiene.
+     */
+    private void escribir(ByteBuffer contenido, int numero) throws IOException {
+        ByteBuffer buffer = contenido.duplicate().clear();
+        long posicion = (long) numero * TAMAÑO_PAGINA;
+        while (buffer.hasRemaining()) {
+            posicion += canal.write(buffer, posicion);
+        }
+        if (grupo != null) {
+            grupo.actualizar(paginado, (long) numero * TAMAÑO_PAGINA, contenido.duplicate().clear());
+        }
+    }
+
+    /**
+     * Lee un bloque de páginas consecutivas a partir de una, sin pasar del final del archivo. Con un grupo de
+     * buffers, escribe antes las cubetas modificadas para que el archivo esté al día.
+     *
+     * @return Número de páginas leídas.
+     */
+    private int leerBloque(ByteBuffer bloque, int primera) throws IOException {
+        int paginas = Math.min(PAGINAS_POR_BLOQUE, numeroPaginas - primera);
+        if (paginas <= 0) {
+            return 0;
+        }
+        if (grupo != null) {
+            grupo.escribirModificadas(paginado);
+        }
+        bloque.clear().limit(paginas * TAMAÑO_PAGINA);
+        leer(bloque, (long) primera * TAMAÑO_PAGINA);
+        return paginas;
+    }
+
+    private void leer(ByteBuffer buffer, long posicion) throws IOException {
+        long inicio = posicion - buffer.position();
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, inicio + buffer.position()) < 0) {
+                throw new IOException("Fin de archivo inesperado al leer la cubeta");
+            }
+        }
+    }
+}
@@ -0,0 +1,806 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * La clase GestionLSM extiende de la clase abstracta GestionFichero y guarda los jugadores en un árbol LSM
+ * (log-structured merge): las escrituras se anotan en un registro de escritura anticipada y se guardan en una tabla
+ * ordenada en memoria; cuando la tabla se llena se vuelca a disco como un tramo ordenado e inmutable (TramoOrdenado)
+ * y el registro se vacía. Ninguna escritura modifica un archivo existente, así que las altas, bajas y modificaciones
+ * cuestan una anotación en el registro, sin leer ni reescribir los datos.
+ *
+ * Una eliminación se guarda como una marca que oculta las versiones anteriores del jugador. Para leer un jugador
+ * se consulta la memoria y después los tramos del más reciente al más antiguo, y la primera versión encontrada es la
+ * vigente; el filtro de Bloom de cada tramo evita leer del disco los tramos que no contienen el ID. Los recorridos
+ * mezclan en orden de ID la memoria y todos los tramos.
+ *
+ * Para que el número de tramos no crezca sin límite, un hilo en segundo plano compacta por niveles de tamaño:
+ * cuando hay cuatro tramos seguidos del mismo nivel los mezcla en uno del nivel siguiente, descartando las versiones
+ * antiguas y, si el grupo incluye el tramo más antiguo, también las marcas de eliminación. La mezcla se hace sin
+ * bloquear las demás operaciones; solo la sustitución de los tramos en la lista es exclusiva.
+ *
+ * Archivos: la ruta es un manifiesto con la lista de tramos vigentes, del más reciente al más antiguo, que se
+ * sustituye de forma atómica; cada tramo se guarda en la ruta con extensión ".t" y su número, y el registro con
+ * extensión ".wal". Los tramos que no figuran en el manifiesto, restos de un volcado o una compactación
+ * interrumpidos, se borran al abrir. Todas las operaciones se pueden llamar desde varios hilos.
+ */
+public class GestionLSM extends GestionFichero {
+
+    private static final int LIMITE_MEMORIA = 65536;
+    private static final int TRAMOS_POR_COMPACTACION = 4;
+    private static final int JUGADORES_POR_PAGINA = 1024;
+
+    private final Object cerrojo = new Object();
+    private final String ruta;
+    private final RegistroEscrituraAnticipada registro;
+    private final ExecutorService compactador;
+    private TreeMap<Integer, Jugador> memoria = new TreeMap<>();
+    private List<TramoOrdenado> tramos = new ArrayList<>();
+    private int siguienteTramo;
+    private int limiteMemoria = LIMITE_MEMORIA;
+    private boolean compactando;
+    private IOException errorCompactacion;
+
+    /**
+     * Constructor de la clase GestionLSM.
+     * Lee el manifiesto y abre sus tramos, o crea un almacén vacío si no existe, y recupera del registro
+     * los cambios que no llegaron a volcarse a un tramo.
+     *
+     * @param ruta Ruta del manifiesto del almacén.
+     * @throws IOException Si ocurre un error al acceder a los archivos o si algún tramo está dañado.
+     */
+    public GestionLSM(String ruta) throws IOException {
+        this.ruta = ruta;
+        File manifiesto = new File(ruta);
+        List<Integer> numeros = new ArrayList<>();
+        if (manifiesto.exists() && manifiesto.length() > 0) {
+            leerManifiesto(manifiesto, numeros);
+        } else {
+            guardarManifiesto();
+        }
+        borrarHuerfanos(numeros);
+        try {
+            for (int numero : numeros) {
+                tramos.add(TramoOrdenado.abrir(archivoTramo(numero)));
+            }
+        } catch (IOException e) {
+            cerrarTramos(tramos);
+            throw e;
+        }
+        registro = new RegistroEscrituraAnticipada(new File(ruta + ".wal"));
+        for (RegistroEscrituraAnticipada.Entrada entrada : registro.getRecuperadas()) {
+            memoria.put(entrada.getId(), entrada.getJugador());
+        }
+        compactador = Executors.newSingleThreadExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "compactador-" + new File(ruta).getName());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        synchronized (cerrojo) {
+            programarCompactacion();
+        }
+    }
+
+    /**
+     * Cambia el número de jugadores de la tabla en memoria a partir del cual se vuelca a un tramo.
+     *
+     * @param limiteMemoria Número de jugadores, al menos 1.
+     */
+    public void setLimiteMemoria(int limiteMemoria) {
+        if (limiteMemoria < 1) {
+            throw new IllegalArgumentException("El límite de memoria debe ser al menos 1");
+        }
+        this.limiteMemoria = limiteMemoria;
+    }
+
+    /**
+     * Devuelve el número de tramos en disco, que las compactaciones mantienen pequeño.
+     *
+     * @return Número de tramos.
+     */
+    public int getNumeroTramos() {
+        synchronized (cerrojo) {
+            return tramos.size();
+        }
+    }
+
+    /**
+     * Agrega un nuevo jugador anotándolo en el registro y en la tabla en memoria.
+     *
+     * @param jugador Objeto de la clase Jugador que representa al jugador a agregar.
+     * @return true si el jugador se agrega correctamente, false si ya existe un jugador con el mismo ID.
+     * @throws IOException Si ocurre un error al leer los tramos o al escribir el registro.
+     */
+    @Override
+    public Boolean agregarJugador(Jugador jugador) throws IOException {
+        long secuencia;
+        synchronized (cerrojo) {
+            if (buscar(jugador.getId()) != null) {
+                return false;
+            }
+            secuencia = registro.anotarGuardado(jugador);
+            memoria.put(jugador.getId(), jugador);
+        }
+        confirmar(secuencia);
+        return true;
+    }
+
+    /**
+     * Elimina un jugador guardando una marca de eliminación que oculta sus versiones en los tramos.
+     *
+     * @param id ID del jugador a eliminar.
+     * @return true si el jugador se elimina correctamente, false si no existe.
+     * @throws IOException Si ocurre un error al leer los tramos o al escribir el registro.
+     */
+    @Override
+    public Boolean eliminarJugador(int id) throws IOException {
+        long secuencia;
+        synchronized (cerrojo) {
+            if (buscar(id) == null) {
+                return false;
+            }
+            secuencia = registro.anotarEliminacion(id);
+            memoria.put(id, null);
+        }
+        confirmar(secuencia);
+        return true;
+    }
+
+    /**
+     * Modifica un jugador guardando su nueva versión, que oculta las anteriores. Si cambia el ID, la eliminación
+     * del anterior y el alta del nuevo se anotan en una sola entrada del registro.
+     *
+     * @param id                ID del jugador a modificar.
+     * @param jugadorModificado Objeto de la clase Jugador con los nuevos datos.
+     * @throws IOException Si ocurre un error al leer los tramos o al escribir el registro.
+     */
+    @Override
+    public void modificarJugador(int id, Jugador jugadorModificado) throws IOException {
+        long secuencia;
+        synchronized (cerrojo) {
+            if (buscar(id) == null) {
+                return;
+            }
+            if (jugadorModificado.getId() != id) {
+                Map<Integer, Jugador> cambios = new LinkedHashMap<>();
+                cambios.put(id, null);
+                cambios.put(jugadorModificado.getId(), jugadorModificado);
+                secuencia = registro.anotarLote(cambios);
+                memoria.putAll(cambios);
+            } else {
+                secuencia = registro.anotarGuardado(jugadorModificado);
+                memoria.put(id, jugadorModificado);
+            }
+        }
+        confirmar(secuencia);
+    }
+
+    /**
+     * Obtiene un jugador consultando la memoria y después los tramos del más reciente al más antiguo.
+     *
+     * @param id ID del jugador.
+     * @return El jugador, o null si no existe.
+     * @throws IOException Si ocurre un error al leer los tramos.
+     */
+    @Override
+    public Jugador obtenerJugador(int id) throws IOException {
+        synchronized (cerrojo) {
+            return buscar(id);
+        }
+    }
+
+    @Override
+    public List<Jugador> listarJugadores() throws IOException {
+        List<Jugador> jugadores = new ArrayList<>();
+        recorrerJugadores(jugador -> {
+            jugadores.add(jugador);
+            return true;
+        });
+        return jugadores;
+    }
+
+    @Override
+    public void recorrerJugadores(ProcesadorJugador procesador) throws IOException {
+        recorrerFiltrado(new ConsultaJugadores(), procesador);
+    }
+
+    /**
+     * Recorre en orden de ID la mezcla de la memoria y los tramos, empezando en el mínimo del rango de IDs
+     * de la consulta si lo tiene y terminando en su máximo.
+     *
+     * @param consulta   Consulta con las condiciones de filtrado.
+     * @param procesador Procesador que recibe cada jugador aceptado. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer los tramos.
+     */
+    @Override
+    protected void recorrerFiltrado(ConsultaJugadores consulta, ProcesadorJugador procesador) throws IOException {
+        boolean conRango = consulta.tieneRango(CampoJugador.ID);
+        int desde = conRango ? consulta.getMinimo(CampoJugador.ID) : Integer.MIN_VALUE;
+        int hasta = conRango ? consulta.getMaximo(CampoJugador.ID) : Integer.MAX_VALUE;
+        synchronized (cerrojo) {
+            try (TramoOrdenado.Recorrido recorrido = recorrerDesde(new TreeMap<>(memoria.tailMap(desde, true)), desde)) {
+                RegistroEscrituraAnticipada.Entrada entrada;
+                while ((entrada = recorrido.siguiente()) != null && entrada.getId() <= hasta) {
+                    Jugador jugador = entrada.getJugador();
+                    if (jugador != null && consulta.acepta(jugador) && !procesador.procesar(jugador)) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Abre un cursor por ID que lee páginas de la mezcla de la memoria y los tramos. Cada página se lee con el
+     * cerrojo y es coherente; entre páginas puede haber escrituras. La continuación es el ID del siguiente jugador.
+     */
+    @Override
+    public CursorJugadores abrirCursor(String continuacion) throws IOException {
+        long desde;
+        try {
+            desde = continuacion == null || continuacion.isEmpty() ? Integer.MIN_VALUE : Long.parseLong(continuacion);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Texto de continuación no válido: " + continuacion);
+        }
+        return new CursorJugadores() {
+            private long siguienteId = desde;
+            private List<Jugador> pagina = List.of();
+            private int actual;
+            private boolean terminado = desde > Integer.MAX_VALUE;
+
+            @Override
+            public Jugador siguiente() throws IOException {
+                if (actual == pagina.size()) {
+                    if (terminado || siguienteId > Integer.MAX_VALUE) {
+                        return null;
+                    }
+                    pagina = leerPagina((int) siguienteId);
+                    actual = 0;
+                    terminado = pagina.size() < JUGADORES_POR_PAGINA;
+                    if (pagina.isEmpty()) {
+                        return null;
+                    }
+                }
+                Jugador jugador = pagina.get(actual++);
+                siguienteId = jugador.getId() + 1L;
+                return jugador;
+            }
+
+            @Override
+            public String continuacion() {
+                return Long.toString(siguienteId);
+            }
+        };
+    }
+
+    /**
+     * Agrega un lote de jugadores comprobando los duplicados con la memoria y los filtros de los tramos,
+     * anotándolos en el registro y esperando una sola confirmación para todo el lote.
+     *
+     * @param jugadores Lista de jugadores a agregar.
+     * @return Número de jugadores agregados.
+     * @throws IOException Si ocurre un error al leer los tramos o al escribir el registro.
+     */
+    @Override
+    public int agregarJugadores(List<Jugador> jugadores) throws IOException {
+        List<Jugador> nuevos = new ArrayList<>();
+        long secuencia = 0;
+        synchronized (cerrojo) {
+            Set<Integer> idsLote = new HashSet<>();
+            for (Jugador jugador : jugadores) {
+                if (idsLote.add(jugador.getId()) && buscar(jugador.getId()) == null) {
+                    nuevos.add(jugador);
+                }
+            }
+            for (Jugador jugador : nuevos) {
+                secuencia = registro.anotarGuardado(jugador);
+                memoria.put(jugador.getId(), jugador);
+            }
+        }
+        if (!nuevos.isEmpty()) {
+            confirmar(secuencia);
+        }
+        return nuevos.size();
+    }
+
+    @Override
+    protected void anexarJugadores(List<Jugador> jugadores) throws IOException {
+        if (jugadores.isEmpty()) {
+            return;
+        }
+        long secuencia = 0;
+        synchronized (cerrojo) {
+            for (Jugador jugador : jugadores) {
+                secuencia = registro.anotarGuardado(jugador);
+                memoria.put(jugador.getId(), jugador);
+            }
+        }
+        confirmar(secuencia);
+    }
+
+    /**
+     * Confirma una transacción anotando todos sus cambios en una sola entrada del registro, que al recuperarse
+     * se aplica entera o no se aplica, y pasándolos después a la tabla en memoria.
+     *
+     * @param transaccion Transacción a aplicar.
+     * @return true si se aplicó, false si algún cambio no era válido.
+     * @throws IOException Si ocurre un error al leer los tramos o al escribir el registro.
+     */
+    @Override
+    protected boolean confirmarTransaccion(Transaccion transaccion) throws IOException {
+        long secuencia;
+        synchronized (cerrojo) {
+            if (!transaccion.comprobar(idsExistentes(transaccion.ids()))) {
+                return false;
+            }
+            Map<Integer, Jugador> lote = new LinkedHashMap<>();
+            for (Transaccion.Cambio cambio : transaccion.cambios()) {
+                if (cambio.debiaExistir() || cambio.getResultado() != null) {
+                    lote.put(cambio.getId(), cambio.getResultado());
+                }
+            }
+            if (lote.isEmpty()) {
+                return true;
+            }
+            secuencia = registro.anotarLote(lote);
+            memoria.putAll(lote);
+        }
+        confirmar(secuencia);
+        return true;
+    }
+
+    /**
+     * Comprueba los IDs con búsquedas puntuales, que con los filtros de Bloom casi nunca leen del disco
+     * los tramos que no contienen el ID.
+     */
+    @Override
+    protected Set<Integer> idsExistentes(Set<Integer> ids) throws IOException {
+        Set<Integer> existentes = new HashSet<>();
+        synchronized (cerrojo) {
+            for (int id : ids) {
+                if (buscar(id) != null) {
+                    existentes.add(id);
+                }
+            }
+        }
+        return existentes;
+    }
+
+    /**
+     * Espera a que todos los cambios anotados estén en el registro en disco. No vuelca la memoria a un tramo:
+     * una vez en el registro ya sobreviven a una caída.
+     *
+     * @throws IOException Si falla la escritura del registro.
+     */
+    @Override
+    public void sincronizar() throws IOException {
+        registro.esperarTodas();
+    }
+
+    /**
+     * Vuelca la memoria a un tramo, espera a que termine la compactación en curso y cierra los tramos y el registro.
+     *
+     * @throws IOException Si ocurre un error al volcar, si falló alguna compactación o al cerrar los archivos.
+     */
+    @Override
+    public void cerrar() throws IOException {
+        try {
+            synchronized (cerrojo) {
+                if (!memoria.isEmpty()) {
+                    volcar();
+                }
+            }
+        } finally {
+            synchronized (cerrojo) {
+                compactador.shutdown();
+            }
+            try {
+                compactador.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                registro.cerrar();
+            } finally {
+                synchronized (cerrojo) {
+                    cerrarTramos(tramos);
+                }
+            }
+        }
+        synchronized (cerrojo) {
+            if (errorCompactacion != null) {
+                throw errorCompactacion;
+            }
+        }
+    }
+
+    /**
+     * Devuelve los bytes que ocupa en disco un almacén: el manifiesto, sus tramos y el registro.
+     *
+     * @param ruta Ruta del manifiesto del almacén.
+     * @return Número de bytes.
+     */
+    public static long tamañoEnDisco(String ruta) {
+        long total = 0;
+        for (File archivo : archivosDe(ruta)) {
+            total += archivo.length();
+        }
+        return total;
+    }
+
+    /**
+     * Borra todos los archivos de un almacén cerrado: el manifiesto, sus tramos y el registro.
+     *
+     * @param ruta Ruta del manifiesto del almacén.
+     */
+    public static void borrar(String ruta) {
+        for (File archivo : archivosDe(ruta)) {
+            archivo.delete();
+        }
+    }
+
+    /**
+     * Espera a que la entrada anotada sea duradera y, si la memoria ha llegado a su límite, la vuelca a un tramo.
+     */
+    private void confirmar(long secuencia) throws IOException {
+        registro.esperar(secuencia);
+        synchronized (cerrojo) {
+            if (memoria.size() >= limiteMemoria) {
+                volcar();
+            }
+        }
+    }
+
+    /**
+     * Busca la versión vigente de un jugador. Debe llamarse con el cerrojo.
+     */
+    private Jugador buscar(int id) throws IOException {
+        if (memoria.containsKey(id)) {
+            return memoria.get(id);
+        }
+        for (TramoOrdenado tramo : tramos) {
+            RegistroEscrituraAnticipada.Entrada entrada = tramo.buscar(id);
+            if (entrada != null) {
+                return entrada.getJugador();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lee con el cerrojo hasta una página de jugadores a partir de un ID.
+     */
+    private List<Jugador> leerPagina(int desde) throws IOException {
+        List<Jugador> pagina = new ArrayList<>(JUGADORES_POR_PAGINA);
+        synchronized (cerrojo) {
+            try (TramoOrdenado.Recorrido recorrido = recorrerDesde(memoria, desde)) {
+                RegistroEscrituraAnticipada.Entrada entrada;
+                while (pagina.size() < JUGADORES_POR_PAGINA && (entrada = recorrido.siguiente()) != null) {
+                    if (!entrada.esEliminacion()) {
+                        pagina.add(entrada.getJugador());
+                    }
+                }
+            }
+        }
+        return pagina;
+    }
+
+    /**
+     * Abre la mezcla de la memoria y todos los tramos a partir de un ID, incluidas las marcas de eliminación.
+     * Debe usarse con el cerrojo. Los recorridos que entregan los jugadores a un procesador pasan una copia
+     * de la memoria, porque el procesador puede escribir en el almacén desde el mismo hilo.
+     */
+    private TramoOrdenado.Recorrido recorrerDesde(TreeMap<Integer, Jugador> memoria, int desde) throws IOException {
+        List<TramoOrdenado.Recorrido> fuentes = new ArrayList<>(tramos.size() + 1);
+        fuentes.add(recorrerMemoria(memoria, desde));
+        try {
+            for (TramoOrdenado tramo : tramos) {
+                fuentes.add(tramo.recorrer(desde));
+            }
+        } catch (IOException e) {
+            new Mezcla(fuentes).close();
+            throw e;
+        }
+        return new Mezcla(fuentes);
+    }
+
+    /**
+     * Escribe la memoria en un tramo de nivel 0, lo añade al manifiesto como el más reciente y vacía el registro.
+     * Si no hay tramos más antiguos, las marcas de eliminación no hacen falta y no se escriben. Debe llamarse
+     * con el cerrojo.
+     */
+    private void volcar() throws IOException {
+        int numero = siguienteTramo++;
+        TramoOrdenado tramo = TramoOrdenado.escribir(archivoTramo(numero), 0, recorrerMemoria(memoria, Integer.MIN_VALUE),
+                memoria.size(), tramos.isEmpty());
+        List<TramoOrdenado> nuevos = new ArrayList<>(tramos.size() + 1);
+        nuevos.add(tramo);
+        nuevos.addAll(tramos);
+        List<TramoOrdenado> anteriores = tramos;
+        tramos = nuevos;
+        try {
+            guardarManifiesto();
+        } catch (IOException e) {
+            tramos = anteriores;
+            tramo.close();
+            tramo.getArchivo().delete();
+            throw e;
+        }
+        registro.vaciar();
+        memoria = new TreeMap<>();
+        programarCompactacion();
+    }
+
+    /**
+     * Si no hay ya una compactación en curso y hay suficientes tramos seguidos del mismo nivel, programa
+     * su compactación en el hilo compactador. Debe llamarse con el cerrojo.
+     */
+    private void programarCompactacion() {
+        if (compactando || errorCompactacion != null || compactador.isShutdown()) {
+            return;
+        }
+        int inicio = 0;
+        for (int i = 1; i <= tramos.size(); i++) {
+            if (i < tramos.size() && tramos.get(i).getNivel() == tramos.get(inicio).getNivel()) {
+                continue;
+            }
+            if (i - inicio >= TRAMOS_POR_COMPACTACION) {
+                List<TramoOrdenado> grupo = new ArrayList<>(tramos.subList(inicio, i));
+                boolean incluyeMasAntiguo = i == tramos.size();
+                int numero = siguienteTramo++;
+                compactando = true;
+                compactador.execute(() -> compactar(grupo, incluyeMasAntiguo, numero));
+                return;
+            }
+            inicio = i;
+        }
+    }
+
+    /**
+     * Mezcla un grupo de tramos seguidos en un tramo del nivel siguiente sin el cerrojo y después, con el cerrojo,
+     * lo pone en la lista en lugar del grupo, guarda el manifiesto y borra los tramos del grupo. Los tramos del grupo
+     * no se cierran mientras dura la mezcla porque solo la compactación los retira. Si falla, el error se guarda
+     * y se lanza al cerrar, y no se programan más compactaciones.
+     */
+    private void compactar(List<TramoOrdenado> grupo, boolean incluyeMasAntiguo, int numero) {
+        File archivo = archivoTramo(numero);
+        try {
+            List<TramoOrdenado.Recorrido> fuentes = new ArrayList<>(grupo.size());
+            int estimacion = 0;
+            for (TramoOrdenado tramo : grupo) {
+                fuentes.add(tramo.recorrer(Integer.MIN_VALUE));
+                estimacion += tramo.getNumeroRegistros();
+            }
+            TramoOrdenado compactado;
+            try (Mezcla mezcla = new Mezcla(fuentes)) {
+                compactado = TramoOrdenado.escribir(archivo, grupo.get(0).getNivel() + 1, mezcla, estimacion, incluyeMasAntiguo);
+            }
+            synchronized (cerrojo) {
+                List<TramoOrdenado> nuevos = new ArrayList<>(tramos.size());
+                for (TramoOrdenado tramo : tramos) {
+                    if (tramo == grupo.get(0) && compactado.getNumeroRegistros() > 0) {
+                        nuevos.add(compactado);
+                    }
+                    if (!grupo.contains(tramo)) {
+                        nuevos.add(tramo);
+                    }
+                }
+                List<TramoOrdenado> anteriores = tramos;
+                tramos = nuevos;
+                try {
+                    guardarManifiesto();
+                } catch (IOException e) {
+                    tramos = anteriores;
+                    compactado.close();
+                    throw e;
+                }
+                if (compactado.getNumeroRegistros() == 0) {
+                    compactado.close();
+                    archivo.delete();
+                }
+                for (TramoOrdenado tramo : grupo) {
+                    tramo.close();
+                    tramo.getArchivo().delete();
+                }
+                compactando = false;
+                programarCompactacion();
+            }
+        } catch (IOException | RuntimeException e) {
+            archivo.delete();
+            synchronized (cerrojo) {
+                compactando = false;
+                errorCompactacion = e instanceof IOException ? (IOException) e : new IOException("Error al compactar", e);
+            }
+        }
+    }
+
+    private File archivoTramo(int numero) {
+        return new File(ruta + ".t" + numero);
+    }
+
+    private void leerManifiesto(File manifiesto, List<Integer> numeros) throws IOException {
+        Properties propiedades = new Properties();
+        try (InputStream entrada = new FileInputStream(manifiesto)) {
+            propiedades.load(entrada);
+        }
+        try {
+            siguienteTramo = Integer.parseInt(propiedades.getProperty("siguiente"));
+            String lista = propiedades.getProperty("tramos", "");
+            for (String numero : lista.split(",")) {
+                if (!numero.isEmpty()) {
+                    numeros.add(Integer.parseInt(numero));
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Manifiesto LSM no válido: " + manifiesto, e);
+        }
+    }
+
+    /**
+     * Guarda el manifiesto con la lista actual de tramos, del más reciente al más antiguo.
+     */
+    private void guardarManifiesto() throws IOException {
+        StringBuilder lista = new StringBuilder();
+        for (TramoOrdenado tramo : tramos) {
+            if (lista.length() > 0) {
+                lista.append(',');
+            }
+            String nombre = tramo.getArchivo().getName();
+            lista.append(nombre.substring(nombre.lastIndexOf(".t") + 2));
+        }
+        Properties propiedades = new Properties();
+        propiedades.setProperty("formato", FormatoFichero.LSM.name());
+        propiedades.setProperty("siguiente", String.valueOf(siguienteTramo));
+        propiedades.setProperty("tramos", lista.toString());
+        EscrituraAtomica.escribir(new File(ruta), salida -> propiedades.store(salida, "Almacén LSM de jugadores"));
+    }
+
+    /**
+     * Borra los tramos que no figuran en el manifiesto.
+     */
+    private void borrarHuerfanos(List<Integer> numeros) {
+        for (File archivo : archivosDe(ruta)) {
+            String sufijo = archivo.getName().substring(new File(ruta).getName().length());
+            if (sufijo.startsWith(".t") && !numeros.contains(Integer.valueOf(sufijo.substring(2)))) {
+                archivo.delete();
+            }
+        }
+    }
+
+    /**
+     * Devuelve los archivos de un almacén: el manifiesto, los tramos (estén o no en el manifiesto) y el registro.
+     */
+    private static List<File> archivosDe(String ruta) {
+        File manifiesto = new File(ruta).getAbsoluteFile();
+        String nombre = manifiesto.getName();
+        List<File> archivos = new ArrayList<>();
+        File[] candidatos = manifiesto.getParentFile().listFiles();
+        if (candidatos == null) {
+            return archivos;
+        }
+        for (File candidato : candidatos) {
+            String sufijo = candidato.getName().startsWith(nombre) ? candidato.getName().substring(nombre.length()) : null;
+            if (sufijo != null && (sufijo.isEmpty() || sufijo.equals(".wal") || sufijo.matches("\\.t\\d+"))) {
+                archivos.add(candidato);
+            }
+        }
+        return archivos;
+    }
+
+    private static void cerrarTramos(List<TramoOrdenado> tramos) throws IOException {
+        IOException error = null;
+        for (TramoOrdenado tramo : tramos) {
+            try {
+                tramo.close();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private static TramoOrdenado.Recorrido recorrerMemoria(TreeMap<Integer, Jugador> memoria, int desde) {
+        Iterator<Map.Entry<Integer, Jugador>> iterador = memoria.tailMap(desde, true).entrySet().iterator();
+        return () -> {
+            if (!iterador.hasNext()) {
+                return null;
+            }
+            Map.Entry<Integer, Jugador> entrada = iterador.next();
+            return new RegistroEscrituraAnticipada.Entrada(entrada.getKey(), entrada.getValue());
+        };
+    }
+
+    /**
+     * Mezcla en orden de ID varias fuentes ordenadas, ordenadas a su vez de la más reciente a la más antigua.
+     * Para cada ID devuelve solo la entrada de la fuente más reciente que lo contiene.
+     */
+    private static final class Mezcla implements TramoOrdenado.Recorrido {
+
+        private final List<TramoOrdenado.Recorrido> fuentes;
+        private final PriorityQueue<Cabeza> cabezas = new PriorityQueue<>();
+        private boolean iniciada;
+
+        Mezcla(List<TramoOrdenado.Recorrido> fuentes) {
+            this.fuentes = fuentes;
+        }
+
+        @Override
+        public RegistroEscrituraAnticipada.Entrada siguiente() throws IOException {
+            if (!iniciada) {
+                iniciada = true;
+                for (int i = 0; i < fuentes.size(); i++) {
+                    avanzar(i);
+                }
+            }
+            Cabeza primera = cabezas.poll();
+            if (primera == null) {
+                return null;
+            }
+            while (!cabezas.isEmpty() && cabezas.peek().entrada.getId() == primera.entrada.getId()) {
+                avanzar(cabezas.poll().fuente);
+            }
+            avanzar(primera.fuente);
+            return primera.entrada;
+        }
+
+        private void avanzar(int fuente) throws IOException {
+            RegistroEscrituraAnticipada.Entrada entrada = fuentes.get(fuente).siguiente();
+            if (entrada != null) {
+                cabezas.add(new Cabeza(entrada, fuente));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException error = null;
+            for (TramoOrdenado.Recorrido fuente : fuentes) {
+                try {
+                    fuente.close();
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    /**
+     * Entrada actual de una fuente de la mezcla. A igual ID va primero la fuente más reciente.
+     */
+    private static final class Cabeza implements Comparable<Cabeza> {
+
+        private final RegistroEscrituraAnticipada.Entrada entrada;
+        private final int fuente;
+
+        Cabeza(RegistroEscrituraAnticipada.Entrada entrada, int fuente) {
+            this.entrada = entrada;
+            this.fuente = fuente;
+        }
+
+        @Override
+        public int compareTo(Cabeza otra) {
+            int porId = Integer.compare(entrada.getId(), otra.entrada.getId());
+            return porId != 0 ? porId : Integer.compare(fuente, otra.fuente);
+        }
+    }
+}
@@ -2,7 +2,9 @@ package com.mycompany.jugadorarchivosadriangalilea;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * La clase GestionObjetos extiende de la clase abstracta GestionFichero y proporciona una implementación
@@ -142,6 +144,66 @@ public class GestionObjetos extends GestionFichero {
         return jugadores;
     }
 
+    /**
+     * Agrega un lote de jugadores leyendo y guardando la lista serializada una sola vez.
+     *
+     * @param jugadores Lista de jugadores a agregar.
+     * @return Número de jugadores agregados.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    @Override
+    public int agregarJugadores(List<Jugador> jugadores) throws IOException {
+        List<Jugador> existentes = listarJugadores();
+        Set<Integer> ids = new HashSet<>();
+        for (Jugador j : existentes) {
+            ids.add(j.getId());
+        }
+        int agregados = 0;
+        for (Jugador jugador : jugadores) {
+            if (ids.add(jugador.getId())) {
+                existentes.add(jugador);
+                agregados++;
+            }
+        }
+        if (agregados > 0) {
+            guardarJugadores(existentes);
+        }
+        return agregados;
+    }
+
+    /**
+     * Añade un lote de jugadores a la lista serializada sin comprobar duplicados.
+     * El formato guarda la lista completa como un único objeto, por lo que el archivo se reescribe una vez por lote
+     * y la lista existente se carga entera en memoria; no se puede añadir en streaming.
+     *
+     * @param jugadores Lista de jugadores a añadir.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    @Override
+    protected void anexarJugadores(List<Jugador> jugadores) throws IOException {
+        List<Jugador> existentes = listarJugadores();
+        existentes.addAll(jugadores);
+        guardarJugadores(existentes);
+    }
+
+    /**
+     * Aplica una transacción leyendo la lista serializada una vez y guardándola una sola vez con todos
+     * los cambios, mediante una única sustitución atómica del archivo.
+     *
+     * @param transaccion Transacción a aplicar.
+     * @return true si se aplicó, false si algún cambio no era válido.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    @Override
+    protected boolean confirmarTransaccion(Transaccion transaccion) throws IOException {
+        List<Jugador> jugadores = transaccion.aplicarA(listarJugadores());
+        if (jugadores == null) {
+            return false;
+        }
+        guardarJugadores(jugadores);
+        return true;
+    }
+
     /**
      * Cierra los recursos asociados a la gestión de archivos.
      * En esta clase no es necesario cerrar recursos específicamente ya que se usan streams locales en cada método.
@@ -153,23 +215,28 @@ public class GestionObjetos extends GestionFichero {
 
     }
 
+    /**
+     * Cada operación lee el archivo entero del disco, así que siempre ve los cambios de otros procesos.
+     */
+    @Override
+    protected boolean recargarCambiosExternos() {
+        return true;
+    }
+
     /**
      * Guarda la lista de jugadores en el archivo usando ObjectOutputStream.
-     * Sobrescribe el contenido del archivo con la lista completa de jugadores.
+     * Sobrescribe el contenido del archivo con la lista completa de jugadores mediante un archivo temporal
+     * que sustituye al original, de modo que una caída durante la escritura no deja el archivo truncado.
      *
      * @param jugadores La lista de jugadores a guardar.
      * @throws IOException Si ocurre un error al escribir en el archivo.
      */
     private void guardarJugadores(List<Jugador> jugadores) throws IOException {
-        ObjectOutputStream objectOutput = null;
-        try {
-            objectOutput = new ObjectOutputStream(new FileOutputStream(archivo));
+        EscrituraAtomica.escribir(archivo, salida -> {
+            ObjectOutputStream objectOutput = new ObjectOutputStream(salida);
             objectOutput.writeObject(jugadores);
-        } finally {
-            if (objectOutput != null) {
-                objectOutput.close();
-            }
-        }
+            objectOutput.flush();
+        });
     }
 }
 
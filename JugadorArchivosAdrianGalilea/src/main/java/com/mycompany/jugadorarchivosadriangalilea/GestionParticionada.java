@@ -0,0 +1,666 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * La clase GestionParticionada reparte los jugadores entre varios archivos (particiones) según un hash de su ID.
+ * Cada partición es un GestionFichero de cualquier formato; las operaciones por ID van a una sola partición y los
+ * listados, recorridos y consultas se lanzan en paralelo sobre todas y se combinan sus resultados. Así cada
+ * reescritura completa de los formatos que reescriben el archivo solo afecta a una fracción de los jugadores
+ * y los recorridos usan varios núcleos.
+ *
+ * En la ruta indicada se guarda un descriptor con el formato, el número de particiones y la generación; las
+ * particiones se guardan en la misma ruta con la extensión ".generación.número". El número de particiones
+ * se cambia sin conexión con reparticionar, que copia los jugadores a una generación nueva y solo entonces
+ * sustituye el descriptor.
+ */
+public class GestionParticionada extends GestionFichero {
+
+    private final String ruta;
+    private final Descriptor descriptor;
+    private final GestionFichero[] particiones;
+    private final ExecutorService ejecutor;
+
+    /**
+     * Constructor de la clase GestionParticionada.
+     * Abre el almacén particionado de la ruta o lo crea si no existe.
+     *
+     * @param ruta           Ruta del descriptor del almacén.
+     * @param formato        Formato de las particiones.
+     * @param numParticiones Número de particiones, al menos 1.
+     * @throws IOException Si ocurre un error al abrir las particiones, o si el almacén existe con otro formato
+     *                     u otro número de particiones.
+     */
+    public GestionParticionada(String ruta, FormatoFichero formato, int numParticiones) throws IOException {
+        this(ruta, crearDescriptor(ruta, formato, numParticiones));
+    }
+
+    private GestionParticionada(String ruta, Descriptor descriptor) throws IOException {
+        this.ruta = ruta;
+        this.descriptor = descriptor;
+        this.particiones = new GestionFichero[descriptor.particiones];
+        try {
+            for (int i = 0; i < particiones.length; i++) {
+                particiones[i] = new GestionSincronizada(descriptor.formato.abrir(rutaParticion(ruta, descriptor.generacion, i)));
+            }
+        } catch (IOException e) {
+            for (GestionFichero particion : particiones) {
+                if (particion != null) {
+                    particion.cerrar();
+                }
+            }
+            throw e;
+        }
+        int hilos = Math.min(particiones.length, Runtime.getRuntime().availableProcessors());
+        this.ejecutor = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "particiones-" + new File(ruta).getName());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Abre un almacén particionado existente con el formato y el número de particiones de su descriptor.
+     *
+     * @param ruta Ruta del descriptor del almacén.
+     * @return El almacén abierto.
+     * @throws IOException Si no existe el descriptor o falla la apertura de alguna partición.
+     */
+    public static GestionParticionada abrir(String ruta) throws IOException {
+        return new GestionParticionada(ruta, leerDescriptor(ruta));
+    }
+
+    /**
+     * Cambia el formato o el número de particiones de un almacén que no esté abierto. Los jugadores se copian
+     * a las particiones de una generación nueva y el descriptor se sustituye de forma atómica al terminar,
+     * de modo que si el proceso se interrumpe el almacén sigue siendo el anterior. Después se borran las
+     * particiones de la generación anterior.
+     *
+     * @param ruta           Ruta del descriptor del almacén.
+     * @param formato        Formato de las particiones nuevas.
+     * @param numParticiones Número de particiones nuevo.
+     * @return Número de jugadores copiados.
+     * @throws IOException Si ocurre un error al leer las particiones anteriores o al escribir las nuevas.
+     */
+    public static long reparticionar(String ruta, FormatoFichero formato, int numParticiones) throws IOException {
+        Descriptor anterior = leerDescriptor(ruta);
+        Descriptor nuevo = new Descriptor(formato, numParticiones, anterior.generacion + 1);
+        for (int i = 0; i < numParticiones; i++) {
+            borrarParticion(ruta, nuevo.generacion, i);
+        }
+        long copiados = 0;
+        GestionParticionada origen = new GestionParticionada(ruta, anterior);
+        try {
+            GestionParticionada destino = new GestionParticionada(ruta, nuevo);
+            try {
+                List<Jugador> lote = new ArrayList<>();
+                for (GestionFichero particion : origen.particiones) {
+                    for (Jugador jugador : particion.listarJugadores()) {
+                        lote.add(jugador);
+                        if (lote.size() == 1000) {
+                            destino.anexarJugadores(lote);
+                            copiados += lote.size();
+                            lote = new ArrayList<>();
+                        }
+                    }
+                }
+                destino.anexarJugadores(lote);
+                copiados += lote.size();
+                destino.sincronizar();
+            } finally {
+                destino.cerrar();
+            }
+        } finally {
+            origen.cerrar();
+        }
+        guardarDescriptor(ruta, nuevo);
+        for (int i = 0; i < anterior.particiones; i++) {
+            borrarParticion(ruta, anterior.generacion, i);
+        }
+        return copiados;
+    }
+
+    public int getNumeroParticiones() {
+        return particiones.length;
+    }
+
+    public FormatoFichero getFormato() {
+        return descriptor.formato;
+    }
+
+    /**
+     * Calcula la partición de un ID. Se mezclan los bits del ID para que los IDs consecutivos se repartan
+     * por igual aunque el número de particiones tenga factores comunes con su distribución.
+     *
+     * @param id             ID del jugador.
+     * @param numParticiones Número de particiones.
+     * @return Número de partición, entre 0 y numParticiones - 1.
+     */
+    static int particion(int id, int numParticiones) {
+        int h = id * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), numParticiones);
+    }
+
+    @Override
+    public Boolean agregarJugador(Jugador jugador) throws IOException {
+        return particionDe(jugador.getId()).agregarJugador(jugador);
+    }
+
+    @Override
+    public Boolean eliminarJugador(int id) throws IOException {
+        return particionDe(id).eliminarJugador(id);
+    }
+
+    /**
+     * Modifica un jugador en su partición. Si el jugador modificado tiene otro ID que corresponde a otra
+     * partición, se escribe primero en la nueva, sustituyendo al jugador que ya tuviera ese ID como hace
+     * el hash extensible, y solo después se elimina de la original: si falla la escritura el jugador sigue
+     * en su partición.
+     *
+     * @param id ID del jugador a modificar.
+     * @param jugadorModificado Objeto de la clase Jugador con los nuevos datos del jugador.
+     * @throws IOException Si ocurre un error al escribir en las particiones.
+     */
+    @Override
+    public void modificarJugador(int id, Jugador jugadorModificado) throws IOException {
+        GestionFichero origen = particionDe(id);
+        GestionFichero destino = particionDe(jugadorModificado.getId());
+        if (origen == destino) {
+            origen.modificarJugador(id, jugadorModificado);
+        } else if (origen.obtenerJugador(id) != null) {
+            if (!destino.agregarJugador(jugadorModificado)) {
+                destino.modificarJugador(jugadorModificado.getId(), jugadorModificado);
+            }
+            origen.eliminarJugador(id);
+        }
+    }
+
+    @Override
+    public Jugador obtenerJugador(int id) throws IOException {
+        return particionDe(id).obtenerJugador(id);
+    }
+
+    @Override
+    public void sumarCampo(int id, CampoJugador campo, int delta) throws IOException {
+        particionDe(id).sumarCampo(id, campo, delta);
+    }
+
+    /**
+     * Reparte las sumas entre las particiones y las aplica todas o ninguna, como las demás implementaciones:
+     * con las particiones afectadas bloqueadas, primero se leen sus jugadores y se comprueba que ninguna suma
+     * se desborda, y solo después se aplican. Se hace desde el hilo que llama y no en paralelo, porque los hilos
+     * del ejecutor no podrían escribir en particiones cuyo cerrojo tiene este hilo.
+     *
+     * @param incrementos Sumas a aplicar.
+     * @return Número de jugadores modificados en todas las particiones.
+     * @throws IOException Si ocurre un error al leer o escribir en alguna partición.
+     * @throws ArithmeticException Si alguna suma se desborda; en ese caso no se aplica ninguna.
+     */
+    @Override
+    public int aplicarIncrementos(IncrementosJugadores incrementos) throws IOException {
+        if (incrementos.estaVacio()) {
+            return 0;
+        }
+        IncrementosJugadores[] propios = new IncrementosJugadores[particiones.length];
+        for (int i = 0; i < particiones.length; i++) {
+            int particion = i;
+            propios[i] = incrementos.filtrar(id -> particion(id, particiones.length) == particion);
+        }
+        return aplicarBloqueadas(propios, 0);
+    }
+
+    /**
+     * Bloquea las particiones afectadas desde la indicada, siempre en orden de partición para que dos llamadas
+     * no se esperen mutuamente, y con todas bloqueadas comprueba y aplica las sumas. Las particiones son
+     * GestionSincronizada, que serializa sus escrituras con su propio monitor.
+     */
+    private int aplicarBloqueadas(IncrementosJugadores[] propios, int desde) throws IOException {
+        if (desde < particiones.length) {
+            if (propios[desde].estaVacio()) {
+                return aplicarBloqueadas(propios, desde + 1);
+            }
+            synchronized (particiones[desde]) {
+                return aplicarBloqueadas(propios, desde + 1);
+            }
+        }
+        for (int i = 0; i < particiones.length; i++) {
+            IncrementosJugadores propio = propios[i];
+            if (!propio.estaVacio()) {
+                particiones[i].recorrerFiltrado(new ConsultaJugadores().idsEn(new HashSet<>(propio.ids())), jugador -> {
+                    propio.aplicar(jugador);
+                    return true;
+                });
+            }
+        }
+        int modificados = 0;
+        for (int i = 0; i < particiones.length; i++) {
+            if (!propios[i].estaVacio()) {
+                modificados += particiones[i].aplicarIncrementos(propios[i]);
+            }
+        }
+        return modificados;
+    }
+
+    /**
+     * Lista los jugadores de todas las particiones, leídas en paralelo.
+     *
+     * @return Lista con los jugadores de todas las particiones, agrupados por partición.
+     * @throws IOException Si ocurre un error al leer alguna partición.
+     */
+    @Override
+    public List<Jugador> listarJugadores() throws IOException {
+        List<Jugador> jugadores = new ArrayList<>();
+        for (List<Jugador> parte : enParalelo(i -> particiones[i].listarJugadores())) {
+            jugadores.addAll(parte);
+        }
+        return jugadores;
+    }
+
+    @Override
+    public void recorrerJugadores(ProcesadorJugador procesador) throws IOException {
+        recorrerFiltrado(new ConsultaJugadores(), procesador);
+    }
+
+    /**
+     * Abre un cursor que recorre las particiones una tras otra con sus propios cursores, así que solo hay
+     * una partición abierta a la vez. La continuación es "partición:continuación dentro de la partición".
+     *
+     * @param continuacion Texto de continuación, o null para empezar por la primera partición.
+     * @return Cursor abierto.
+     * @throws IOException Si ocurre un error al abrir la primera partición.
+     */
+    @Override
+    public CursorJugadores abrirCursor(String continuacion) throws IOException {
+        int inicio = 0;
+        String continuacionParticion = null;
+        if (continuacion != null && !continuacion.isEmpty()) {
+            int separador = continuacion.indexOf(':');
+            try {
+                inicio = Integer.parseInt(continuacion.substring(0, Math.max(separador, 0)));
+            } catch (NumberFormatException e) {
+                inicio = -1;
+            }
+            if (separador < 0 || inicio < 0 || inicio > particiones.length) {
+                throw new IllegalArgumentException("Texto de continuación no válido: " + continuacion);
+            }
+            continuacionParticion = continuacion.substring(separador + 1);
+        }
+        int primera = inicio;
+        String continuacionPrimera = continuacionParticion;
+        return new CursorJugadores() {
+            private int particion = primera;
+            private String pendiente = continuacionPrimera;
+            private CursorJugadores actual;
+
+            @Override
+            public Jugador siguiente() throws IOException {
+                while (particion < particiones.length) {
+                    if (actual == null) {
+                        actual = particiones[particion].abrirCursor(pendiente);
+                        pendiente = null;
+                    }
+                    Jugador jugador = actual.siguiente();
+                    if (jugador != null) {
+                        return jugador;
+                    }
+                    actual.close();
+                    actual = null;
+                    particion++;
+                }
+                return null;
+            }
+
+            @Override
+            public String continuacion() {
+                String dentro = actual != null ? actual.continuacion() : pendiente;
+                return particion + ":" + (dentro == null ? "" : dentro);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (actual != null) {
+                    actual.close();
+                    actual = null;
+                }
+            }
+        };
+    }
+
+    /**
+     * Recorre todas las particiones en paralelo. El procesador recibe los jugadores de uno en uno, aunque
+     * vengan de hilos distintos, y si devuelve false se detienen todos los recorridos.
+     *
+     * @param consulta   Consulta con las condiciones de filtrado.
+     * @param procesador Procesador que recibe cada jugador aceptado. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer alguna partición.
+     */
+    @Override
+    protected void recorrerFiltrado(ConsultaJugadores consulta, ProcesadorJugador procesador) throws IOException {
+        AtomicBoolean detenido = new AtomicBoolean();
+        enParalelo(i -> {
+            particiones[i].recorrerFiltrado(consulta, jugador -> {
+                if (detenido.get()) {
+                    return false;
+                }
+                synchronized (procesador) {
+                    if (detenido.get() || !procesador.procesar(jugador)) {
+                        detenido.set(true);
+                        return false;
+                    }
+                }
+                return true;
+            });
+            return null;
+        });
+    }
+
+    /**
+     * Recorre las vistas de todas las particiones en paralelo, con las mismas reglas que recorrerFiltrado.
+     * Cada partición usa su propia vista; el procesador las recibe de una en una.
+     *
+     * @param consulta   Consulta con las condiciones de filtrado.
+     * @param procesador Procesador que recibe la vista de cada registro aceptado. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer alguna partición.
+     */
+    @Override
+    public void recorrerVistas(ConsultaJugadores consulta, ProcesadorVista procesador) throws IOException {
+        AtomicBoolean detenido = new AtomicBoolean();
+        enParalelo(i -> {
+            particiones[i].recorrerVistas(consulta, vista -> {
+                if (detenido.get()) {
+                    return false;
+                }
+                synchronized (procesador) {
+                    if (detenido.get() || !procesador.procesar(vista)) {
+                        detenido.set(true);
+                        return false;
+                    }
+                }
+                return true;
+            });
+            return null;
+        });
+    }
+
+    @Override
+    public List<Jugador> obtenerPorNick(String nick) throws IOException {
+        List<Jugador> jugadores = new ArrayList<>();
+        for (List<Jugador> parte : enParalelo(i -> particiones[i].obtenerPorNick(nick))) {
+            jugadores.addAll(parte);
+        }
+        return jugadores;
+    }
+
+    /**
+     * Busca por prefijo de nick en todas las particiones y mezcla sus resultados, ya ordenados y limitados
+     * en cada partición, en un único resultado ordenado por nick.
+     *
+     * @param prefijo Prefijo buscado.
+     * @param limite  Número máximo de jugadores, o 0 para no limitar.
+     * @return Lista con los jugadores encontrados.
+     * @throws IOException Si ocurre un error al leer alguna partición.
+     */
+    @Override
+    public List<Jugador> buscarPorPrefijoNick(String prefijo, int limite) throws IOException {
+        List<Jugador> jugadores = new ArrayList<>();
+        for (List<Jugador> parte : enParalelo(i -> particiones[i].buscarPorPrefijoNick(prefijo, limite))) {
+            jugadores.addAll(parte);
+        }
+        jugadores.sort(Comparator.comparing(Jugador::getNick).thenComparingInt(Jugador::getId));
+        return limite > 0 && jugadores.size() > limite ? new ArrayList<>(jugadores.subList(0, limite)) : jugadores;
+    }
+
+    /**
+     * Carga la tabla columnar de cada partición en paralelo y las une copiando sus columnas en bloque.
+     *
+     * @param consulta Consulta con las condiciones de filtrado.
+     * @return La tabla con los jugadores aceptados de todas las particiones.
+     * @throws IOException Si ocurre un error al leer alguna partición.
+     */
+    @Override
+    public TablaColumnar cargarTablaColumnar(ConsultaJugadores consulta) throws IOException {
+        TablaColumnar tabla = new TablaColumnar();
+        for (TablaColumnar parte : enParalelo(i -> particiones[i].cargarTablaColumnar(consulta))) {
+            tabla.anexar(parte);
+        }
+        tabla.recortar();
+        return tabla;
+    }
+
+    @Override
+    public long contar(ConsultaJugadores consulta) throws IOException {
+        long total = 0;
+        for (long parte : enParalelo(i -> particiones[i].contar(consulta))) {
+            total += parte;
+        }
+        return total;
+    }
+
+    /**
+     * Agrega un lote de jugadores repartiéndolo por particiones y agregando cada parte en paralelo.
+     *
+     * @param jugadores Lista de jugadores a agregar.
+     * @return Número de jugadores agregados.
+     * @throws IOException Si ocurre un error al escribir en alguna partición.
+     */
+    @Override
+    public int agregarJugadores(List<Jugador> jugadores) throws IOException {
+        List<List<Jugador>> partes = repartir(jugadores);
+        int total = 0;
+        for (int parte : enParalelo(i -> partes.get(i).isEmpty() ? 0 : particiones[i].agregarJugadores(partes.get(i)))) {
+            total += parte;
+        }
+        return total;
+    }
+
+    @Override
+    protected void anexarJugadores(List<Jugador> jugadores) throws IOException {
+        List<List<Jugador>> partes = repartir(jugadores);
+        enParalelo(i -> {
+            if (!partes.get(i).isEmpty()) {
+                particiones[i].anexarJugadores(partes.get(i));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Reparte una transacción por particiones y confirma cada parte en paralelo, con una sola escritura por
+     * partición. Las condiciones se comprueban antes en todas las particiones, así que un cambio no válido no deja
+     * nada aplicado; la aplicación es atómica dentro de cada partición, pero no entre particiones si falla la
+     * escritura de una de ellas o si otro hilo modifica los mismos jugadores a la vez.
+     *
+     * @param transaccion Transacción a aplicar.
+     * @return true si se aplicó, false si algún cambio no era válido.
+     * @throws IOException Si ocurre un error al escribir en alguna partición, o si una partición rechaza su parte
+     *                     después de haberse aplicado otras.
+     */
+    @Override
+    protected boolean confirmarTransaccion(Transaccion transaccion) throws IOException {
+        if (!transaccion.comprobar(idsExistentes(transaccion.ids()))) {
+            return false;
+        }
+        List<Transaccion> partes = new ArrayList<>(particiones.length);
+        for (GestionFichero particion : particiones) {
+            partes.add(particion.iniciarTransaccion());
+        }
+        for (Transaccion.Cambio cambio : transaccion.cambios()) {
+            partes.get(particion(cambio.getId(), particiones.length)).incluir(cambio);
+        }
+        List<Boolean> confirmadas = enParalelo(i -> partes.get(i).getNumeroCambios() == 0 ? null : partes.get(i).confirmar());
+        if (confirmadas.contains(Boolean.FALSE)) {
+            if (!confirmadas.contains(Boolean.TRUE)) {
+                return false;
+            }
+            throw new IOException("La transacción se ha aplicado solo en algunas particiones");
+        }
+        return true;
+    }
+
+    @Override
+    public void sincronizar() throws IOException {
+        enParalelo(i -> {
+            particiones[i].sincronizar();
+            return null;
+        });
+    }
+
+    /**
+     * Cierra todas las particiones y detiene los hilos del almacén.
+     *
+     * @throws IOException Si ocurre un error al cerrar alguna partición.
+     */
+    @Override
+    public void cerrar() throws IOException {
+        IOException error = null;
+        for (GestionFichero particion : particiones) {
+            try {
+                particion.cerrar();
+            } catch (IOException e) {
+                error = error == null ? e : error;
+            }
+        }
+        ejecutor.shutdown();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private GestionFichero particionDe(int id) {
+        return particiones[particion(id, particiones.length)];
+    }
+
+    private List<List<Jugador>> repartir(List<Jugador> jugadores) {
+        List<List<Jugador>> partes = new ArrayList<>(particiones.length);
+        for (int i = 0; i < particiones.length; i++) {
+            partes.add(new ArrayList<>());
+        }
+        for (Jugador jugador : jugadores) {
+            partes.get(particion(jugador.getId(), particiones.length)).add(jugador);
+        }
+        return partes;
+    }
+
+    /**
+     * Ejecuta una tarea sobre cada partición en los hilos del almacén y devuelve los resultados en orden
+     * de partición. Si alguna tarea falla se lanza su excepción después de esperar a las demás.
+     */
+    private <T> List<T> enParalelo(TareaParticion<T> tarea) throws IOException {
+        List<Future<T>> futuros = new ArrayList<>(particiones.length);
+        for (int i = 0; i < particiones.length; i++) {
+            int indice = i;
+            futuros.add(ejecutor.submit(() -> tarea.ejecutar(indice)));
+        }
+        List<T> resultados = new ArrayList<>(particiones.length);
+        Throwable fallo = null;
+        for (Future<T> futuro : futuros) {
+            try {
+                resultados.add(futuro.get());
+            } catch (ExecutionException e) {
+                fallo = fallo == null ? e.getCause() : fallo;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fallo = fallo == null ? e : fallo;
+            }
+        }
+        if (fallo instanceof IOException) {
+            throw (IOException) fallo;
+        } else if (fallo instanceof RuntimeException) {
+            throw (RuntimeException) fallo;
+        } else if (fallo != null) {
+            throw new IOException("Error en una partición: " + fallo.getMessage(), fallo);
+        }
+        return resultados;
+    }
+
+    private static String rutaParticion(String ruta, int generacion, int particion) {
+        return ruta + "." + generacion + "." + particion;
+    }
+
+    private static void borrarParticion(String ruta, int generacion, int particion) {
+        String archivo = rutaParticion(ruta, generacion, particion);
+        new File(archivo).delete();
+        new File(archivo + ".ids").delete();
+        GestionLSM.borrar(archivo);
+    }
+
+    /**
+     * Lee el descriptor de la ruta si existe y comprueba que coincide con la configuración pedida;
+     * si no existe lo crea.
+     */
+    private static Descriptor crearDescriptor(String ruta, FormatoFichero formato, int numParticiones) throws IOException {
+        if (numParticiones < 1) {
+            throw new IllegalArgumentException("El número de particiones debe ser al menos 1");
+        }
+        if (new File(ruta).exists()) {
+            Descriptor existente = leerDescriptor(ruta);
+            if (existente.formato != formato || existente.particiones != numParticiones) {
+                throw new IOException("El almacén " + ruta + " tiene " + existente.particiones + " particiones en formato "
+                        + existente.formato.getNombre() + "; usa reparticionar para cambiarlo");
+            }
+            return existente;
+        }
+        Descriptor descriptor = new Descriptor(formato, numParticiones, 0);
+        guardarDescriptor(ruta, descriptor);
+        return descriptor;
+    }
+
+    private static Descriptor leerDescriptor(String ruta) throws IOException {
+        Properties propiedades = new Properties();
+        try (InputStream entrada = new FileInputStream(ruta)) {
+            propiedades.load(entrada);
+        }
+        try {
+            return new Descriptor(FormatoFichero.valueOf(propiedades.getProperty("formato")),
+                    Integer.parseInt(propiedades.getProperty("particiones")),
+                    Integer.parseInt(propiedades.getProperty("generacion")));
+        } catch (RuntimeException e) {
+            throw new IOException("Descriptor de particiones no válido: " + ruta, e);
+        }
+    }
+
+    private static void guardarDescriptor(String ruta, Descriptor descriptor) throws IOException {
+        Properties propiedades = new Properties();
+        propiedades.setProperty("formato", descriptor.formato.name());
+        propiedades.setProperty("particiones", String.valueOf(descriptor.particiones));
+        propiedades.setProperty("generacion", String.valueOf(descriptor.generacion));
+        EscrituraAtomica.escribir(new File(ruta), salida -> propiedades.store(salida, "Almacén particionado de jugadores"));
+    }
+
+    /**
+     * Configuración del almacén guardada en el descriptor.
+     */
+    private static final class Descriptor {
+
+        final FormatoFichero formato;
+        final int particiones;
+        final int generacion;
+
+        Descriptor(FormatoFichero formato, int particiones, int generacion) {
+            this.formato = formato;
+            this.particiones = particiones;
+            this.generacion = generacion;
+        }
+    }
+
+    /**
+     * Tarea que se ejecuta sobre una partición.
+     */
+    @FunctionalInterface
+    private interface TareaParticion<T> {
+        T ejecutar(int particion) throws IOException;
+    }
+}
@@ -0,0 +1,182 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * La clase GestionSincronizada serializa todas las operaciones sobre otro GestionFichero, de modo que
+ * varios hilos pueden usarlo a la vez. Los backends de archivo no son seguros entre hilos; GestionParticionada
+ * envuelve cada partición con esta clase para que operaciones concurrentes sobre particiones distintas
+ * avancen en paralelo y las de la misma partición se ejecuten de una en una.
+ *
+ * Si el almacén envuelto lee sobre instantáneas (lecturasConcurrentes), solo se serializan las escrituras:
+ * las lecturas se ejecutan sin el cerrojo, de modo que un listado largo no retrasa las altas ni las espera.
+ */
+public class GestionSincronizada extends GestionDelegada {
+
+    private final boolean lecturasLibres;
+
+    /**
+     * Constructor de la clase GestionSincronizada.
+     *
+     * @param delegada GestionFichero al que se reenvían las operaciones.
+     */
+    public GestionSincronizada(GestionFichero delegada) {
+        super(delegada);
+        lecturasLibres = delegada.lecturasConcurrentes();
+    }
+
+    @Override
+    public synchronized Boolean agregarJugador(Jugador jugador) throws IOException {
+        return super.agregarJugador(jugador);
+    }
+
+    @Override
+    public synchronized Boolean eliminarJugador(int id) throws IOException {
+        return super.eliminarJugador(id);
+    }
+
+    @Override
+    public synchronized void modificarJugador(int id, Jugador jugadorModificado) throws IOException {
+        super.modificarJugador(id, jugadorModificado);
+    }
+
+    @Override
+    public Jugador obtenerJugador(int id) throws IOException {
+        return leer(() -> super.obtenerJugador(id));
+    }
+
+    @Override
+    public List<Jugador> listarJugadores() throws IOException {
+        return leer(() -> super.listarJugadores());
+    }
+
+    @Override
+    public synchronized void cerrar() throws IOException {
+        super.cerrar();
+    }
+
+    @Override
+    public void recorrerJugadores(ProcesadorJugador procesador) throws IOException {
+        leer(() -> {
+            super.recorrerJugadores(procesador);
+            return null;
+        });
+    }
+
+    @Override
+    public List<Jugador> consultar(ConsultaJugadores consulta) throws IOException {
+        return leer(() -> super.consultar(consulta));
+    }
+
+    @Override
+    public List<Jugador> obtenerPorNick(String nick) throws IOException {
+        return leer(() -> super.obtenerPorNick(nick));
+    }
+
+    @Override
+    public List<Jugador> buscarPorPrefijoNick(String prefijo, int limite) throws IOException {
+        return leer(() -> super.buscarPorPrefijoNick(prefijo, limite));
+    }
+
+    @Override
+    public TablaColumnar cargarTablaColumnar(ConsultaJugadores consulta) throws IOException {
+        return leer(() -> super.cargarTablaColumnar(consulta));
+    }
+
+    @Override
+    public synchronized void sincronizar() throws IOException {
+        super.sincronizar();
+    }
+
+    @Override
+    public long contar(ConsultaJugadores consulta) throws IOException {
+        return leer(() -> super.contar(consulta));
+    }
+
+    @Override
+    public void recorrerVistas(ConsultaJugadores consulta, ProcesadorVista procesador) throws IOException {
+        leer(() -> {
+            super.recorrerVistas(consulta, procesador);
+            return null;
+        });
+    }
+
+    /**
+     * Abre el cursor del almacén envuelto y lo devuelve envuelto a su vez, de modo que cada lectura del cursor
+     * se serializa con las demás operaciones. Si el almacén lee sobre instantáneas, el cursor se devuelve tal cual.
+     */
+    @Override
+    public CursorJugadores abrirCursor(String continuacion) throws IOException {
+        if (lecturasLibres) {
+            return super.abrirCursor(continuacion);
+        }
+        synchronized (this) {
+            return CursorJugadores.sincronizado(super.abrirCursor(continuacion), this);
+        }
+    }
+
+    @Override
+    public PaginaJugadores listarPagina(String continuacion, int limite) throws IOException {
+        return leer(() -> super.listarPagina(continuacion, limite));
+    }
+
+    @Override
+    protected void recorrerFiltrado(ConsultaJugadores consulta, ProcesadorJugador procesador) throws IOException {
+        leer(() -> {
+            super.recorrerFiltrado(consulta, procesador);
+            return null;
+        });
+    }
+
+    @Override
+    public synchronized int agregarJugadores(List<Jugador> jugadores) throws IOException {
+        return super.agregarJugadores(jugadores);
+    }
+
+    @Override
+    protected synchronized void anexarJugadores(List<Jugador> jugadores) throws IOException {
+        super.anexarJugadores(jugadores);
+    }
+
+    @Override
+    protected synchronized boolean confirmarTransaccion(Transaccion transaccion) throws IOException {
+        return super.confirmarTransaccion(transaccion);
+    }
+
+    /**
+     * Suma sobre un campo con el cerrojo, de modo que la lectura y la escritura del valor no se intercalan
+     * con las de otros hilos.
+     */
+    @Override
+    public synchronized void sumarCampo(int id, CampoJugador campo, int delta) throws IOException {
+        super.sumarCampo(id, campo, delta);
+    }
+
+    @Override
+    public synchronized int aplicarIncrementos(IncrementosJugadores incrementos) throws IOException {
+        return super.aplicarIncrementos(incrementos);
+    }
+
+    @Override
+    public boolean lecturasConcurrentes() {
+        return lecturasLibres;
+    }
+
+    /**
+     * Ejecuta una lectura con el cerrojo, o sin él si el almacén envuelto lee sobre instantáneas.
+     */
+    private <T> T leer(Lectura<T> lectura) throws IOException {
+        if (lecturasLibres) {
+            return lectura.leer();
+        }
+        synchronized (this) {
+            return lectura.leer();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Lectura<T> {
+        T leer() throws IOException;
+    }
+}
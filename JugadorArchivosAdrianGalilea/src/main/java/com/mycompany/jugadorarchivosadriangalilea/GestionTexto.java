@@ -4,7 +4,9 @@ import com.mycompany.jugadorarchivosadriangalilea.GestionFichero;
 import com.mycompany.jugadorarchivosadriangalilea.Jugador;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * La clase GestionTexto extiende de la clase abstracta GestionFichero y proporciona una implementación
@@ -12,12 +14,14 @@ import java.util.List;
  * Permite realizar operaciones como agregar, eliminar, modificar, obtener y listar jugadores
  * almacenados en un archivo de texto.
  * Cada línea del archivo representa un jugador y se almacena en el indicado en la practica
+ *
+ * Las lecturas se hacen sobre una instantánea del archivo (VersionesArchivo), igual que en GestionBinario:
+ * un recorrido no ve líneas añadidas ni reescrituras posteriores a su inicio, y no las bloquea.
  */
 public class GestionTexto extends GestionFichero {
 
-    private BufferedWriter writer;
-    private BufferedReader reader;
     private File archivo;
+    private final VersionesArchivo versiones;
 
     /**
      * Constructor de la clase GestionTexto.
@@ -31,6 +35,7 @@ public class GestionTexto extends GestionFichero {
         if (!archivo.exists()) {
             archivo.createNewFile();
         }
+        versiones = new VersionesArchivo(archivo);
     }
 
     /**
@@ -49,10 +54,7 @@ public class GestionTexto extends GestionFichero {
                 return false;
             }
         }
-        writer = new BufferedWriter(new FileWriter(archivo, true));
-        writer.write(jugador.toString());
-        writer.newLine();
-        writer.close();
+        anexarJugadores(List.of(jugador));
         return true;
     }
 
@@ -68,16 +70,17 @@ public class GestionTexto extends GestionFichero {
     public Boolean eliminarJugador(int id) throws IOException {
         List<Jugador> jugadores = listarJugadores();
         int noExiste = 0;
-        writer = new BufferedWriter(new FileWriter(archivo, false));
+        List<Jugador> restantes = new ArrayList<>();
         for (Jugador j : jugadores) {
             if (j.getId() != id) {
-                writer.write(j.toString());
-                writer.newLine();
+                restantes.add(j);
             } else {
                 noExiste++;
             }
         }
-        writer.close();
+        if (noExiste != 0) {
+            reescribir(restantes);
+        }
         return noExiste != 0;
     }
 
@@ -92,16 +95,12 @@ public class GestionTexto extends GestionFichero {
     @Override
     public void modificarJugador(int id, Jugador jugadorModificado) throws IOException {
         List<Jugador> jugadores = listarJugadores();
-        writer = new BufferedWriter(new FileWriter(archivo, false));
-        for (Jugador j : jugadores) {
-            if (j.getId() == id) {
-                writer.write(jugadorModificado.toString());
-            } else {
-                writer.write(j.toString());
+        for (int i = 0; i < jugadores.size(); i++) {
+            if (jugadores.get(i).getId() == id) {
+                jugadores.set(i, jugadorModificado);
             }
-            writer.newLine();
         }
-        writer.close();
+        reescribir(jugadores);
     }
 
     /**
@@ -114,16 +113,15 @@ public class GestionTexto extends GestionFichero {
      */
     @Override
     public Jugador obtenerJugador(int id) throws IOException {
-        reader = new BufferedReader(new FileReader(archivo));
-        String linea;
-        while ((linea = reader.readLine()) != null) {
-            Jugador jugador = parsearJugador(linea);
-            if (jugador.getId() == id) {
-                reader.close();
-                return jugador;
+        try (BufferedReader reader = abrirLector()) {
+            String linea;
+            while ((linea = reader.readLine()) != null) {
+                Jugador jugador = parsearJugador(linea);
+                if (jugador.getId() == id) {
+                    return jugador;
+                }
             }
         }
-        reader.close();
         return null;
     }
 
@@ -137,29 +135,235 @@ public class GestionTexto extends GestionFichero {
     @Override
     public List<Jugador> listarJugadores() throws IOException {
         List<Jugador> jugadores = new ArrayList<>();
-        reader = new BufferedReader(new FileReader(archivo));
-        String linea;
-        while ((linea = reader.readLine()) != null) {
-            jugadores.add(parsearJugador(linea));
+        try (BufferedReader reader = abrirLector()) {
+            String linea;
+            while ((linea = reader.readLine()) != null) {
+                jugadores.add(parsearJugador(linea));
+            }
         }
-        reader.close();
         return jugadores;
     }
 
     /**
-     * Cierra las conexiones abiertas con el archivo de texto.
-     * Libera los recursos asociados con BufferedWriter y BufferedReader.
+     * Recorre los jugadores del archivo de texto línea a línea, sin cargarlos todos en memoria.
      *
-     * @throws IOException Si ocurre un error al cerrar el archivo.
+     * @param procesador Procesador que recibe cada jugador. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer el archivo.
      */
     @Override
-    public void cerrar() throws IOException {
-        if (writer != null) {
-            writer.close();
+    public void recorrerJugadores(ProcesadorJugador procesador) throws IOException {
+        try (BufferedReader lector = abrirLector()) {
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                if (!procesador.procesar(parsearJugador(linea))) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Abre un cursor que lee el archivo de texto línea a línea. La continuación es el número de líneas ya leídas;
+     * al reanudar, esas líneas se saltan sin analizarlas.
+     *
+     * @param continuacion Texto de continuación, o null para empezar por la primera línea.
+     * @return Cursor abierto, que lee la instantánea del archivo fijada al abrirlo hasta que se cierra.
+     * @throws IOException Si ocurre un error al abrir o leer el archivo.
+     */
+    @Override
+    public CursorJugadores abrirCursor(String continuacion) throws IOException {
+        long inicio = CursorJugadores.posicion(continuacion);
+        BufferedReader lector = abrirLector();
+        try {
+            for (long i = 0; i < inicio && lector.readLine() != null; i++) {
+            }
+        } catch (IOException e) {
+            lector.close();
+            throw e;
+        }
+        return new CursorJugadores() {
+            private long lineas = inicio;
+
+            @Override
+            public Jugador siguiente() throws IOException {
+                String linea = lector.readLine();
+                if (linea == null) {
+                    return null;
+                }
+                lineas++;
+                return parsearJugador(linea);
+            }
+
+            @Override
+            public String continuacion() {
+                return Long.toString(lineas);
+            }
+
+            @Override
+            public void close() throws IOException {
+                lector.close();
+            }
+        };
+    }
+
+    /**
+     * Recorre el archivo de texto extrayendo primero los campos numéricos de cada línea.
+     * El nick solo se extrae y el Jugador solo se crea cuando la línea cumple los rangos de la consulta.
+     *
+     * @param consulta   Consulta con las condiciones de filtrado.
+     * @param procesador Procesador que recibe cada jugador aceptado. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    protected void recorrerFiltrado(ConsultaJugadores consulta, ProcesadorJugador procesador) throws IOException {
+        try (BufferedReader lector = abrirLector()) {
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                if (!consulta.aceptaNumericos(campoEntero(linea, "USER_ID = "), campoEntero(linea, "EXPERIENCE = "),
+                        campoEntero(linea, "LIFE_LEVEL = "), campoEntero(linea, "COINS = "))) {
+                    continue;
+                }
+                Jugador jugador = parsearJugador(linea);
+                if (consulta.aceptaNick(jugador.getNick()) && !procesador.procesar(jugador)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Agrega un lote de jugadores comprobando los duplicados con un único recorrido del archivo
+     * y añadiendo todas las líneas nuevas con una sola apertura del writer.
+     *
+     * @param jugadores Lista de jugadores a agregar.
+     * @return Número de jugadores agregados.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    @Override
+    public int agregarJugadores(List<Jugador> jugadores) throws IOException {
+        Set<Integer> ids = new HashSet<>();
+        recorrerJugadores(j -> ids.add(j.getId()));
+        List<Jugador> nuevos = new ArrayList<>();
+        for (Jugador jugador : jugadores) {
+            if (ids.add(jugador.getId())) {
+                nuevos.add(jugador);
+            }
+        }
+        anexarJugadores(nuevos);
+        return nuevos.size();
+    }
+
+    /**
+     * Añade un lote de jugadores al final del archivo de texto sin comprobar duplicados.
+     * Las lecturas que se abran después ven el lote completo; las que ya estaban abiertas no ven nada de él.
+     *
+     * @param jugadores Lista de jugadores a añadir.
+     * @throws IOException Si ocurre un error al escribir en el archivo.
+     */
+    @Override
+    protected void anexarJugadores(List<Jugador> jugadores) throws IOException {
+        versiones.anexar(salida -> escribirLineas(salida, jugadores));
+    }
+
+    /**
+     * Aplica una transacción con una sola escritura. Si solo contiene altas, se comprueba en un recorrido que
+     * ninguna existe y se añaden al final; si no, se lee el archivo una vez, se aplican todos los cambios en
+     * memoria y se reescribe con una única sustitución atómica, así que un error deja el archivo como estaba.
+     *
+     * @param transaccion Transacción a aplicar.
+     * @return true si se aplicó, false si algún cambio no era válido.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo de texto.
+     */
+    @Override
+    protected boolean confirmarTransaccion(Transaccion transaccion) throws IOException {
+        if (transaccion.soloAltas()) {
+            boolean[] existe = {false};
+            recorrerJugadores(j -> {
+                existe[0] = transaccion.ids().contains(j.getId());
+                return !existe[0];
+            });
+            if (existe[0]) {
+                return false;
+            }
+            anexarJugadores(transaccion.altas());
+            return true;
         }
-        if (reader != null) {
-            reader.close();
+        List<Jugador> jugadores = transaccion.aplicarA(listarJugadores());
+        if (jugadores == null) {
+            return false;
+        }
+        reescribir(jugadores);
+        return true;
+    }
+
+    /**
+     * Fuerza a disco las líneas añadidas al final del archivo. Las reescrituras completas ya quedan
+     * en disco al terminar cada operación.
+     *
+     * @throws IOException Si ocurre un error al sincronizar el archivo.
+     */
+    @Override
+    public void sincronizar() throws IOException {
+        EscrituraAtomica.sincronizar(archivo);
+    }
+
+    /**
+     * Reescribe el archivo completo con la lista de jugadores en un archivo temporal que después sustituye
+     * al original, de modo que una caída durante la escritura no deja el archivo truncado. Las lecturas abiertas
+     * siguen leyendo la versión anterior hasta que terminan.
+     *
+     * @param jugadores Jugadores que contendrá el archivo.
+     * @throws IOException Si ocurre un error al escribir el archivo.
+     */
+    private void reescribir(List<Jugador> jugadores) throws IOException {
+        versiones.reemplazar(salida -> escribirLineas(salida, jugadores));
+    }
+
+    /**
+     * Escribe una línea por jugador, con el formato de toString() de Jugador, en el flujo recibido.
+     */
+    private static void escribirLineas(OutputStream salida, List<Jugador> jugadores) throws IOException {
+        BufferedWriter escritor = new BufferedWriter(new OutputStreamWriter(salida));
+        for (Jugador j : jugadores) {
+            escritor.write(j.toString());
+            escritor.newLine();
         }
+        escritor.flush();
+    }
+
+    /**
+     * Abre un lector sobre una instantánea del archivo, con la misma codificación con la que se escribe.
+     *
+     * @return Lector que termina en la longitud confirmada al abrirlo.
+     * @throws IOException Si ocurre un error al abrir el archivo.
+     */
+    private BufferedReader abrirLector() throws IOException {
+        return new BufferedReader(new InputStreamReader(versiones.abrirLectura(0)));
+    }
+
+    /**
+     * Cierra las conexiones abiertas con el archivo de texto. Cada operación abre y cierra su propio
+     * lector o escritor, así que no queda ninguno abierto entre operaciones.
+     *
+     * @throws IOException Si ocurre un error al cerrar el archivo.
+     */
+    @Override
+    public void cerrar() throws IOException {
+    }
+
+    @Override
+    public boolean lecturasConcurrentes() {
+        return true;
+    }
+
+    /**
+     * Toma como confirmada la longitud actual del archivo, que incluye lo que otros procesos hayan añadido
+     * o la versión con la que lo hayan sustituido.
+     */
+    @Override
+    protected boolean recargarCambiosExternos() {
+        versiones.recargar();
+        return true;
     }
 
     /**
@@ -179,4 +383,22 @@ public class GestionTexto extends GestionFichero {
         int monedas = Integer.parseInt(datos[4].split(" = ")[1]);
         return new Jugador(id, nick, experiencia, nivelVida, monedas);
     }
+
+    /**
+     * Extrae el valor entero que sigue a una etiqueta en una línea con el formato de toString() de Jugador.
+     * Los campos numéricos se buscan desde el final de la línea para que un nick con texto parecido no los confunda.
+     *
+     * @param linea    Línea de texto que representa a un jugador.
+     * @param etiqueta Etiqueta del campo, incluido el " = ".
+     * @return El valor del campo.
+     */
+    private int campoEntero(String linea, String etiqueta) {
+        int inicio = etiqueta.equals("USER_ID = ") ? linea.indexOf(etiqueta) : linea.lastIndexOf(etiqueta);
+        inicio += etiqueta.length();
+        int fin = inicio;
+        while (fin < linea.length() && (Character.isDigit(linea.charAt(fin)) || linea.charAt(fin) == '-')) {
+            fin++;
+        }
+        return Integer.parseInt(linea.substring(inicio, fin));
+    }
 }
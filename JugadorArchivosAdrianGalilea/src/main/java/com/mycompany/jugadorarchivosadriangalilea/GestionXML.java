@@ -7,10 +7,27 @@ import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.*;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.XMLEvent;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * La clase GestionXML es una implementación de la clase abstracta GestionFichero
@@ -194,6 +211,246 @@ public class GestionXML extends GestionFichero {
         return jugadores;
     }
 
+    /**
+     * Recorre los jugadores del archivo XML con un lector StAX, sin construir el árbol DOM completo.
+     *
+     * @param procesador Procesador que recibe cada jugador. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer el archivo XML.
+     */
+    @Override
+    public void recorrerJugadores(ProcesadorJugador procesador) throws IOException {
+        recorrerFiltrado(new ConsultaJugadores(), procesador);
+    }
+
+    /**
+     * Abre un cursor que lee el archivo XML con un lector StAX, elemento jugador a elemento jugador.
+     * La continuación es el número de jugadores ya leídos; al reanudar, el lector vuelve a recorrer esos elementos
+     * porque un documento XML no puede empezar a leerse por la mitad.
+     *
+     * @param continuacion Texto de continuación, o null para empezar por el primer jugador.
+     * @return Cursor abierto, que mantiene el archivo abierto hasta que se cierra.
+     * @throws IOException Si ocurre un error al abrir o leer el archivo XML.
+     */
+    @Override
+    public CursorJugadores abrirCursor(String continuacion) throws IOException {
+        long inicio = CursorJugadores.posicion(continuacion);
+        ConsultaJugadores todos = new ConsultaJugadores();
+        InputStream entrada = new BufferedInputStream(new FileInputStream(archivoXML));
+        XMLStreamReader lector;
+        try {
+            lector = XMLInputFactory.newInstance().createXMLStreamReader(entrada);
+            for (long i = 0; i < inicio && leerSiguienteJugador(lector, todos) != null; i++) {
+            }
+        } catch (XMLStreamException | RuntimeException e) {
+            entrada.close();
+            throw new IOException("Error al leer el archivo XML: " + e.getMessage(), e);
+        }
+        return new CursorJugadores() {
+            private long leidos = inicio;
+
+            @Override
+            public Jugador siguiente() throws IOException {
+                try {
+                    Jugador jugador = leerSiguienteJugador(lector, todos);
+                    if (jugador != null) {
+                        leidos++;
+                    }
+                    return jugador;
+                } catch (XMLStreamException e) {
+                    throw new IOException("Error al leer el archivo XML: " + e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public String continuacion() {
+                return Long.toString(leidos);
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    lector.close();
+                } catch (XMLStreamException e) {
+                    throw new IOException("Error al cerrar el archivo XML: " + e.getMessage(), e);
+                } finally {
+                    entrada.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Recorre el archivo XML con un lector StAX evaluando la consulta con los valores de texto de cada jugador,
+     * de modo que solo se crean objetos Jugador para los elementos que la cumplen.
+     *
+     * @param consulta   Consulta con las condiciones de filtrado.
+     * @param procesador Procesador que recibe cada jugador aceptado. Si devuelve false el recorrido se detiene.
+     * @throws IOException Si ocurre un error al leer el archivo XML.
+     */
+    @Override
+    protected void recorrerFiltrado(ConsultaJugadores consulta, ProcesadorJugador procesador) throws IOException {
+        try (InputStream entrada = new BufferedInputStream(new FileInputStream(archivoXML))) {
+            XMLStreamReader lector = XMLInputFactory.newInstance().createXMLStreamReader(entrada);
+            try {
+                Jugador jugador;
+                while ((jugador = leerSiguienteJugador(lector, consulta)) != null) {
+                    if (!procesador.procesar(jugador)) {
+                        return;
+                    }
+                }
+            } finally {
+                lector.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Error al leer el archivo XML: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Agrega un lote de jugadores cargando y guardando el documento XML una sola vez.
+     *
+     * @param jugadores Lista de jugadores a agregar.
+     * @return Número de jugadores agregados.
+     * @throws IOException Si ocurre un error al leer o modificar el archivo XML.
+     */
+    @Override
+    public int agregarJugadores(List<Jugador> jugadores) throws IOException {
+        try {
+            Document doc = cargarDocumento();
+            Element raiz = doc.getDocumentElement();
+
+            Set<Integer> ids = new HashSet<>();
+            NodeList nodos = raiz.getElementsByTagName("jugador");
+            for (int i = 0; i < nodos.getLength(); i++) {
+                Element jugadorElement = (Element) nodos.item(i);
+                ids.add(Integer.parseInt(jugadorElement.getElementsByTagName("id").item(0).getTextContent()));
+            }
+
+            int agregados = 0;
+            for (Jugador jugador : jugadores) {
+                if (ids.add(jugador.getId())) {
+                    raiz.appendChild(crearElementoJugador(doc, jugador));
+                    agregados++;
+                }
+            }
+            if (agregados > 0) {
+                guardarDocumento(doc);
+            }
+            return agregados;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error al agregar jugadores al archivo XML: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Añade un lote de jugadores al documento XML sin comprobar duplicados.
+     * El documento no se carga en memoria: el archivo se copia evento a evento con StAX a un temporal,
+     * los jugadores nuevos se escriben justo antes del cierre del elemento raíz y el temporal sustituye
+     * al original, así que la memoria usada depende del tamaño del lote y no del número de jugadores.
+     *
+     * @param jugadores Lista de jugadores a añadir.
+     * @throws IOException Si ocurre un error al leer o modificar el archivo XML.
+     */
+    @Override
+    protected void anexarJugadores(List<Jugador> jugadores) throws IOException {
+        try (InputStream entrada = new BufferedInputStream(new FileInputStream(archivoXML))) {
+            XMLEventReader lector = XMLInputFactory.newInstance().createXMLEventReader(entrada);
+            try {
+                EscrituraAtomica.escribir(archivoXML, salida -> {
+                    try {
+                        copiarAnexando(lector, XMLOutputFactory.newInstance().createXMLEventWriter(salida, "UTF-8"), jugadores);
+                    } catch (XMLStreamException e) {
+                        throw new IOException("Error al añadir jugadores al archivo XML: " + e.getMessage(), e);
+                    }
+                });
+            } finally {
+                lector.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Error al añadir jugadores al archivo XML: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Copia los eventos del documento original al escritor y, al llegar al cierre del elemento raíz,
+     * escribe antes los elementos de los jugadores nuevos.
+     */
+    private void copiarAnexando(XMLEventReader lector, XMLEventWriter escritor, List<Jugador> jugadores) throws XMLStreamException {
+        XMLEventFactory eventos = XMLEventFactory.newInstance();
+        int profundidad = 0;
+        while (lector.hasNext()) {
+            XMLEvent evento = lector.nextEvent();
+            if (evento.isStartDocument()) {
+                escritor.add(eventos.createStartDocument("UTF-8", "1.0"));
+                continue;
+            }
+            if (evento.isStartElement()) {
+                profundidad++;
+            } else if (evento.isEndElement() && --profundidad == 0) {
+                for (Jugador jugador : jugadores) {
+                    escribirElementoJugador(escritor, eventos, jugador);
+                    escritor.add(eventos.createCharacters("\n"));
+                }
+            }
+            escritor.add(evento);
+        }
+        escritor.flush();
+        escritor.close();
+    }
+
+    /**
+     * Aplica una transacción cargando el documento XML una vez, sustituyendo o quitando los elementos de los
+     * jugadores afectados, añadiendo las altas al final y guardándolo una sola vez.
+     *
+     * @param transaccion Transacción a aplicar.
+     * @return true si se aplicó, false si algún cambio no era válido.
+     * @throws IOException Si ocurre un error al leer o modificar el archivo XML.
+     */
+    @Override
+    protected boolean confirmarTransaccion(Transaccion transaccion) throws IOException {
+        try {
+            Document doc = cargarDocumento();
+            Element raiz = doc.getDocumentElement();
+
+            Map<Element, Integer> afectados = new LinkedHashMap<>();
+            NodeList nodos = raiz.getElementsByTagName("jugador");
+            for (int i = 0; i < nodos.getLength(); i++) {
+                Element jugadorElement = (Element) nodos.item(i);
+                int idJugador = Integer.parseInt(jugadorElement.getElementsByTagName("id").item(0).getTextContent());
+                if (transaccion.ids().contains(idJugador)) {
+                    afectados.put(jugadorElement, idJugador);
+                }
+            }
+            if (!transaccion.comprobar(new HashSet<>(afectados.values()))) {
+                return false;
+            }
+
+            Map<Integer, Jugador> resultados = new HashMap<>();
+            for (Transaccion.Cambio cambio : transaccion.cambios()) {
+                resultados.put(cambio.getId(), cambio.getResultado());
+            }
+            for (Map.Entry<Element, Integer> afectado : afectados.entrySet()) {
+                Jugador jugador = resultados.get(afectado.getValue());
+                if (jugador == null) {
+                    raiz.removeChild(afectado.getKey());
+                } else {
+                    raiz.replaceChild(crearElementoJugador(doc, jugador), afectado.getKey());
+                }
+            }
+            for (Jugador jugador : transaccion.altas()) {
+                raiz.appendChild(crearElementoJugador(doc, jugador));
+            }
+            guardarDocumento(doc);
+            return true;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error al aplicar la transacción al archivo XML: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Cierra la conexión con el archivo XML (si es necesario).
      *
@@ -205,6 +462,14 @@ public class GestionXML extends GestionFichero {
 
     }
 
+    /**
+     * Cada operación lee el archivo entero del disco, así que siempre ve los cambios de otros procesos.
+     */
+    @Override
+    protected boolean recargarCambiosExternos() {
+        return true;
+    }
+
     /**
      * Carga el documento XML desde el archivo.
      *
@@ -273,18 +538,49 @@ public class GestionXML extends GestionFichero {
     }
 
     /**
-     * Guarda el documento XML en el archivo.
+     * Escribe con StAX un elemento jugador con la misma estructura que crearElementoJugador.
+     *
+     * @param escritor Escritor de eventos donde se escribe el elemento.
+     * @param eventos  Factoría con la que se crean los eventos.
+     * @param jugador  Objeto Jugador con los datos a almacenar en el elemento.
+     * @throws XMLStreamException Si ocurre un error al escribir.
+     */
+    private void escribirElementoJugador(XMLEventWriter escritor, XMLEventFactory eventos, Jugador jugador) throws XMLStreamException {
+        escritor.add(eventos.createStartElement("", "", "jugador"));
+        escribirCampo(escritor, eventos, "id", String.valueOf(jugador.getId()));
+        escribirCampo(escritor, eventos, "nick", jugador.getNick());
+        escribirCampo(escritor, eventos, "experience", String.valueOf(jugador.getExperience()));
+        escribirCampo(escritor, eventos, "lifeLevel", String.valueOf(jugador.getLifeLevel()));
+        escribirCampo(escritor, eventos, "coins", String.valueOf(jugador.getCoins()));
+        escritor.add(eventos.createEndElement("", "", "jugador"));
+    }
+
+    private void escribirCampo(XMLEventWriter escritor, XMLEventFactory eventos, String nombre, String valor) throws XMLStreamException {
+        escritor.add(eventos.createStartElement("", "", nombre));
+        escritor.add(eventos.createCharacters(valor));
+        escritor.add(eventos.createEndElement("", "", nombre));
+    }
+
+    /**
+     * Guarda el documento XML en el archivo a través de un archivo temporal que sustituye al original,
+     * de modo que una caída durante la escritura no deja el archivo truncado.
      *
      * @param doc Documento XML a guardar.
      * @throws TransformerException Si ocurre un error durante la transformación del documento.
+     * @throws IOException Si ocurre un error al escribir o sustituir el archivo.
      */
-    private void guardarDocumento(Document doc) throws TransformerException {
+    private void guardarDocumento(Document doc) throws TransformerException, IOException {
         TransformerFactory transformerFactory = TransformerFactory.newInstance();
         Transformer transformer = transformerFactory.newTransformer();
         transformer.setOutputProperty(OutputKeys.INDENT, "yes");
         DOMSource source = new DOMSource(doc);
-        StreamResult result = new StreamResult(archivoXML);
-        transformer.transform(source, result);
+        EscrituraAtomica.escribir(archivoXML, salida -> {
+            try {
+                transformer.transform(source, new StreamResult(salida));
+            } catch (TransformerException e) {
+                throw new IOException("Error al escribir el documento XML", e);
+            }
+        });
     }
 
     /**
@@ -301,4 +597,53 @@ public class GestionXML extends GestionFichero {
         int coins = Integer.parseInt(jugadorElement.getElementsByTagName("coins").item(0).getTextContent());
         return new Jugador(id, nick, experience, lifeLevel, coins);
     }
-}
\ No newline at end of file
+
+    /**
+     * Avanza el lector StAX hasta el siguiente elemento jugador que cumple la consulta y extrae sus datos.
+     *
+     * @param lector   Lector StAX posicionado en algún punto del documento.
+     * @param consulta Consulta que deben cumplir los jugadores devueltos.
+     * @return El siguiente jugador del documento que cumple la consulta, o null si no quedan más.
+     * @throws XMLStreamException Si el documento no está bien formado.
+     */
+    private Jugador leerSiguienteJugador(XMLStreamReader lector, ConsultaJugadores consulta) throws XMLStreamException {
+        while (lector.hasNext()) {
+            if (lector.next() == XMLStreamConstants.START_ELEMENT && lector.getLocalName().equals("jugador")) {
+                int id = 0, experience = 0, lifeLevel = 0, coins = 0;
+                String nick = "";
+                while (lector.hasNext()) {
+                    int evento = lector.next();
+                    if (evento == XMLStreamConstants.START_ELEMENT) {
+                        String campo = lector.getLocalName();
+                        String valor = lector.getElementText();
+                        switch (campo) {
+                            case "id":
+                                id = Integer.parseInt(valor.trim());
+                                break;
+                            case "nick":
+                                nick = valor;
+                                break;
+                            case "experience":
+                                experience = Integer.parseInt(valor.trim());
+                                break;
+                            case "lifeLevel":
+                                lifeLevel = Integer.parseInt(valor.trim());
+                                break;
+                            case "coins":
+                                coins = Integer.parseInt(valor.trim());
+                                break;
+                            default:
+                                break;
+                        }
+                    } else if (evento == XMLStreamConstants.END_ELEMENT && lector.getLocalName().equals("jugador")) {
+                        if (consulta.aceptaNumericos(id, experience, lifeLevel, coins) && consulta.aceptaNick(nick)) {
+                            return new Jugador(id, nick, experience, lifeLevel, coins);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+}
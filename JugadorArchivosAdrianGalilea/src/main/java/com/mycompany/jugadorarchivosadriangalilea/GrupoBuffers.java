@@ -0,0 +1,459 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * La clase GrupoBuffers es una caché compartida de páginas de 4 KiB de archivos, con un tope fijo de memoria.
+ * Los almacenes que leen y escriben por páginas (GestionHashExtensible, GestionArbolBMas) y el acceso por ID de
+ * GestionAccesoAleatorio pueden usar el mismo grupo: una página que ya está en el grupo se sirve desde memoria sin
+ * ninguna llamada al sistema, y la memoria total no pasa del tamaño elegido al crear el grupo, sea cual sea el número
+ * de archivos.
+ *
+ * Para usar una página hay que fijarla con fijar, que la carga si no está, y liberarla al terminar (Pagina es
+ * AutoCloseable). Una página fijada no se expulsa. Si se modifica hay que marcarla con modificada; las páginas
+ * modificadas se escriben en su archivo al expulsarlas, al llamar a escribirModificadas u olvidar, y cada segundo
+ * desde un hilo en segundo plano, que copia cada página con el cerrojo y la escribe sin él.
+ * La página a expulsar se elige con el algoritmo del reloj: una manecilla recorre los marcos y expulsa el primero
+ * no fijado que no se ha usado desde la vuelta anterior.
+ *
+ * Todas las operaciones se pueden llamar desde varios hilos.
+ */
+public final class GrupoBuffers implements AutoCloseable {
+
+    public static final int TAMAÑO_PAGINA = 4096;
+    private static final long INTERVALO_ESCRITURA_MS = 1000;
+    private static final int BITS_PAGINA = 40;
+
+    private final ByteBuffer[] marcos;
+    private final long[] claves;
+    private final ArchivoPaginado[] archivos;
+    private final int[] fijaciones;
+    private final boolean[] modificados;
+    private final boolean[] referenciados;
+    private final boolean[] enEscritura;
+    private final Map<Long, Integer> marcoDe = new HashMap<>();
+    private final ScheduledExecutorService escritor;
+    private int manecilla;
+    private int siguienteArchivo;
+    private long aciertos;
+    private long fallos;
+    private long expulsiones;
+    private IOException errorEscritura;
+
+    /**
+     * Crea un grupo con tantas páginas como caben en la memoria indicada, todas reservadas desde el principio.
+     *
+     * @param memoria Memoria total en bytes, al menos una página.
+     * @param directa Si es true las páginas se reservan fuera del heap (ByteBuffer.allocateDirect).
+     */
+    public GrupoBuffers(long memoria, boolean directa) {
+        long paginas = memoria / TAMAÑO_PAGINA;
+        if (paginas < 1 || paginas > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Memoria no válida para el grupo de buffers: " + memoria);
+        }
+        int numero = (int) paginas;
+        marcos = new ByteBuffer[numero];
+        for (int i = 0; i < numero; i++) {
+            marcos[i] = directa ? ByteBuffer.allocateDirect(TAMAÑO_PAGINA) : ByteBuffer.allocate(TAMAÑO_PAGINA);
+        }
+        claves = new long[numero];
+        Arrays.fill(claves, -1);
+        archivos = new ArchivoPaginado[numero];
+        fijaciones = new int[numero];
+        modificados = new boolean[numero];
+        referenciados = new boolean[numero];
+        enEscritura = new boolean[numero];
+        escritor = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "grupo-buffers");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        escritor.scheduleWithFixedDelay(this::escribirEnSegundoPlano, INTERVALO_ESCRITURA_MS, INTERVALO_ESCRITURA_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registra el canal de un archivo para leer y escribir sus páginas a través del grupo.
+     *
+     * @param canal Canal abierto para lectura, y para escritura si se van a modificar páginas.
+     * @return El archivo registrado, que identifica sus páginas en el grupo.
+     */
+    public synchronized ArchivoPaginado registrar(FileChannel canal) {
+        return new ArchivoPaginado(canal, siguienteArchivo++);
+    }
+
+    /**
+     * Fija una página de un archivo, leyéndola del disco si no está en el grupo. Si la página empieza después
+     * del final del archivo, o termina después, la parte que falta se rellena con ceros.
+     *
+     * @param archivo Archivo registrado.
+     * @param numero  Número de página (posición / TAMAÑO_PAGINA).
+     * @return La página fijada, que hay que liberar.
+     * @throws IOException Si ocurre un error al leer la página o al escribir la página expulsada, o si todas
+     *                     las páginas del grupo están fijadas.
+     */
+    public synchronized Pagina fijar(ArchivoPaginado archivo, long numero) throws IOException {
+        long clave = clave(archivo, numero);
+        Integer marco = marcoDe.get(clave);
+        if (marco != null) {
+            aciertos++;
+        } else {
+            fallos++;
+            marco = expulsar();
+            ByteBuffer datos = marcos[marco];
+            datos.clear();
+            long posicion = numero * TAMAÑO_PAGINA;
+            while (datos.hasRemaining()) {
+                int leidos = archivo.canal.read(datos, posicion + datos.position());
+                if (leidos < 0) {
+                    break;
+                }
+            }
+            while (datos.hasRemaining()) {
+                datos.put((byte) 0);
+            }
+            datos.clear();
+            claves[marco] = clave;
+            archivos[marco] = archivo;
+            marcoDe.put(clave, marco);
+        }
+        fijaciones[marco]++;
+        referenciados[marco] = true;
+        return new Pagina(marco, clave);
+    }
+
+    /**
+     * Copia bytes de un archivo a un buffer a través de las páginas del grupo, aunque abarquen varias páginas.
+     *
+     * @param archivo  Archivo registrado.
+     * @param posicion Posición del primer byte en el archivo.
+     * @param destino  Buffer que recibe los bytes entre su posición y su límite.
+     * @throws IOException Si ocurre un error al leer alguna página.
+     */
+    public void leer(ArchivoPaginado archivo, long posicion, ByteBuffer destino) throws IOException {
+        while (destino.hasRemaining()) {
+            int desplazamiento = (int) (posicion % TAMAÑO_PAGINA);
+            int longitud = Math.min(destino.remaining(), TAMAÑO_PAGINA - desplazamiento);
+            try (Pagina pagina = fijar(archivo, posicion / TAMAÑO_PAGINA)) {
+                destino.put(pagina.datos().position(desplazamiento).limit(desplazamiento + longitud));
+            }
+            posicion += longitud;
+        }
+    }
+
+    /**
+     * Copia bytes recién escritos en el archivo a las páginas del grupo que los contienen, si están cargadas,
+     * sin marcarlas como modificadas. Lo usan los almacenes que escriben directamente en el archivo y leen
+     * a través del grupo, para que las páginas en memoria no queden desfasadas.
+     *
+     * @param archivo  Archivo registrado.
+     * @param posicion Posición del primer byte en el archivo.
+     * @param datos    Bytes escritos, entre su posición y su límite.
+     */
+    public synchronized void actualizar(ArchivoPaginado archivo, long posicion, ByteBuffer datos) {
+        ByteBuffer origen = datos.duplicate();
+        while (origen.hasRemaining()) {
+            int desplazamiento = (int) (posicion % TAMAÑO_PAGINA);
+            int longitud = Math.min(origen.remaining(), TAMAÑO_PAGINA - desplazamiento);
+            Integer marco = marcoDe.get(clave(archivo, posicion / TAMAÑO_PAGINA));
+            if (marco != null) {
+                marcos[marco].put(desplazamiento, origen, origen.position(), longitud);
+                if (enEscritura[marco]) {
+                    modificados[marco] = true;
+                }
+            }
+            origen.position(origen.position() + longitud);
+            posicion += longitud;
+        }
+    }
+
+    /**
+     * Escribe en el archivo todas sus páginas modificadas, después de esperar a que termine la escritura en
+     * segundo plano de las que se estén escribiendo, de modo que al volver el archivo está al día.
+     *
+     * @param archivo Archivo registrado.
+     * @throws IOException Si ocurre un error al escribir o si el hilo es interrumpido.
+     */
+    public synchronized void escribirModificadas(ArchivoPaginado archivo) throws IOException {
+        for (int marco = 0; marco < marcos.length; marco++) {
+            if (archivos[marco] != archivo) {
+                continue;
+            }
+            esperarEscritura(marco);
+            if (archivos[marco] == archivo && modificados[marco]) {
+                escribir(marco);
+            }
+        }
+    }
+
+    /**
+     * Escribe las páginas modificadas de un archivo y las quita del grupo, normalmente antes de cerrar su canal.
+     * Espera a que se liberen las páginas del archivo que estén fijadas, incluida la que esté escribiendo
+     * el hilo en segundo plano.
+     *
+     * @param archivo Archivo registrado.
+     * @throws IOException Si ocurre un error al escribir o si el hilo es interrumpido.
+     */
+    public synchronized void olvidar(ArchivoPaginado archivo) throws IOException {
+        quitar(archivo, true);
+    }
+
+    /**
+     * Quita del grupo las páginas de un archivo sin escribirlas, para cuando el archivo se trunca o se
+     * reescribe sin pasar por el grupo.
+     *
+     * @param archivo Archivo registrado.
+     * @throws IOException Si el hilo es interrumpido esperando a que se liberen las páginas.
+     */
+    public synchronized void descartar(ArchivoPaginado archivo) throws IOException {
+        quitar(archivo, false);
+    }
+
+    public synchronized long getAciertos() {
+        return aciertos;
+    }
+
+    public synchronized long getFallos() {
+        return fallos;
+    }
+
+    public synchronized long getExpulsiones() {
+        return expulsiones;
+    }
+
+    public int getNumeroPaginas() {
+        return marcos.length;
+    }
+
+    /**
+     * Detiene el hilo de escritura y escribe todas las páginas modificadas. Los archivos siguen abiertos:
+     * cerrarlos es cosa de sus almacenes.
+     *
+     * @throws IOException Si ocurre un error al escribir o si falló alguna escritura en segundo plano.
+     */
+    @Override
+    public void close() throws IOException {
+        escritor.shutdown();
+        try {
+            escritor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            for (int marco = 0; marco < marcos.length; marco++) {
+                esperarEscritura(marco);
+                if (modificados[marco]) {
+                    escribir(marco);
+                }
+            }
+            if (errorEscritura != null) {
+                throw errorEscritura;
+            }
+        }
+    }
+
+    private void esperarEscritura(int marco) throws IOException {
+        while (enEscritura[marco]) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrumpido esperando a que se escriba una página");
+            }
+        }
+    }
+
+    private void quitar(ArchivoPaginado archivo, boolean escribirModificadas) throws IOException {
+        for (int marco = 0; marco < marcos.length; marco++) {
+            if (archivos[marco] != archivo) {
+                continue;
+            }
+            while (fijaciones[marco] > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrumpido esperando a que se libere una página");
+                }
+            }
+            if (archivos[marco] != archivo) {
+                continue;
+            }
+            if (escribirModificadas && modificados[marco]) {
+                escribir(marco);
+            }
+            vaciarMarco(marco);
+        }
+    }
+
+    /**
+     * Busca un marco libre o expulsa una página con el algoritmo del reloj, escribiéndola antes si está modificada.
+     */
+    private int expulsar() throws IOException {
+        for (int vueltas = 0; vueltas < 2 * marcos.length + 1; vueltas++) {
+            int marco = manecilla;
+            manecilla = (manecilla + 1) % marcos.length;
+            if (claves[marco] < 0) {
+                return marco;
+            }
+            if (fijaciones[marco] > 0) {
+                continue;
+            }
+            if (referenciados[marco]) {
+                referenciados[marco] = false;
+                continue;
+            }
+            if (modificados[marco]) {
+                escribir(marco);
+            }
+            vaciarMarco(marco);
+            expulsiones++;
+            return marco;
+        }
+        throw new IOException("Todas las páginas del grupo de buffers están fijadas");
+    }
+
+    private void vaciarMarco(int marco) {
+        marcoDe.remove(claves[marco]);
+        claves[marco] = -1;
+        archivos[marco] = null;
+        modificados[marco] = false;
+        referenciados[marco] = false;
+    }
+
+    private void escribir(int marco) throws IOException {
+        ByteBuffer datos = marcos[marco].duplicate().clear();
+        escribirEn(archivos[marco].canal, datos, (claves[marco] & ((1L << BITS_PAGINA) - 1)) * TAMAÑO_PAGINA);
+        modificados[marco] = false;
+    }
+
+    /**
+     * Tarea del hilo de escritura: copia con el cerrojo cada página modificada, con la página fijada para que
+     * no se expulse mientras tanto, y la escribe sin el cerrojo. Si la página se vuelve a modificar o se
+     * actualiza durante la escritura, queda marcada para la siguiente pasada.
+     */
+    private void escribirEnSegundoPlano() {
+        ByteBuffer copia = ByteBuffer.allocate(TAMAÑO_PAGINA);
+        for (int marco = 0; marco < marcos.length; marco++) {
+            ArchivoPaginado archivo;
+            long posicion;
+            synchronized (this) {
+                if (!modificados[marco] || errorEscritura != null) {
+                    continue;
+                }
+                archivo = archivos[marco];
+                posicion = (claves[marco] & ((1L << BITS_PAGINA) - 1)) * TAMAÑO_PAGINA;
+                copia.clear();
+                copia.put(marcos[marco].duplicate().clear());
+                copia.flip();
+                modificados[marco] = false;
+                enEscritura[marco] = true;
+                fijaciones[marco]++;
+            }
+            try {
+                escribirEn(archivo.canal, copia, posicion);
+            } catch (IOException e) {
+                synchronized (this) {
+                    modificados[marco] = true;
+                    errorEscritura = e;
+                }
+            } finally {
+                synchronized (this) {
+                    enEscritura[marco] = false;
+                    fijaciones[marco]--;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    private static void escribirEn(FileChannel canal, ByteBuffer datos, long posicion) throws IOException {
+        while (datos.hasRemaining()) {
+            posicion += canal.write(datos, posicion);
+        }
+    }
+
+    private static long clave(ArchivoPaginado archivo, long numero) {
+        if (numero < 0 || numero >= 1L << BITS_PAGINA) {
+            throw new IllegalArgumentException("Número de página fuera de rango: " + numero);
+        }
+        return ((long) archivo.id << BITS_PAGINA) | numero;
+    }
+
+    private synchronized void liberar(int marco, long clave) {
+        if (claves[marco] != clave || fijaciones[marco] == 0) {
+            throw new IllegalStateException("La página ya se había liberado");
+        }
+        fijaciones[marco]--;
+        notifyAll();
+    }
+
+    private synchronized void marcarModificada(int marco, long clave) {
+        if (claves[marco] != clave) {
+            throw new IllegalStateException("La página ya se había liberado");
+        }
+        modificados[marco] = true;
+    }
+
+    /**
+     * Archivo registrado en el grupo.
+     */
+    public static final class ArchivoPaginado {
+
+        private final FileChannel canal;
+        private final int id;
+
+        private ArchivoPaginado(FileChannel canal, int id) {
+            this.canal = canal;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Página fijada en el grupo. Sus datos solo se pueden usar hasta liberarla.
+     */
+    public final class Pagina implements AutoCloseable {
+
+        private final int marco;
+        private final long clave;
+        private boolean liberada;
+
+        private Pagina(int marco, long clave) {
+            this.marco = marco;
+            this.clave = clave;
+        }
+
+        /**
+         * Devuelve una vista de los datos de la página, con posición 0 y límite TAMAÑO_PAGINA.
+         */
+        public ByteBuffer datos() {
+            return marcos[marco].duplicate().clear();
+        }
+
+        /**
+         * Marca la página como modificada para que se escriba en su archivo.
+         */
+        public void modificada() {
+            marcarModificada(marco, clave);
+        }
+
+        /**
+         * Libera la página. Solo tiene efecto la primera vez.
+         */
+        @Override
+        public void close() {
+            if (!liberada) {
+                liberada = true;
+                liberar(marco, clave);
+            }
+        }
+    }
+}
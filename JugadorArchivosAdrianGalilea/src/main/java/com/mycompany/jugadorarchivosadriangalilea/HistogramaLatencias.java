@@ -0,0 +1,95 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+/**
+ * Histograma de latencias en nanosegundos con cubos logarítmicos: cada potencia de dos se divide en 32 cubos,
+ * de modo que cualquier valor se guarda con un error relativo menor del 3 % y el histograma ocupa siempre
+ * lo mismo, sea cual sea el número de medidas. No es seguro entre hilos; cada hilo del generador de carga
+ * tiene el suyo y se combinan al final.
+ */
+public class HistogramaLatencias {
+
+    private static final int BITS_SUBCUBO = 5;
+    private static final int SUBCUBOS = 1 << BITS_SUBCUBO;
+
+    private final long[] cuentas = new long[64 * SUBCUBOS];
+    private long total;
+    private long suma;
+    private long maximo;
+
+    /**
+     * Registra una medida.
+     *
+     * @param nanos Latencia en nanosegundos. Los valores negativos se registran como 0.
+     */
+    public void registrar(long nanos) {
+        long valor = Math.max(0, nanos);
+        cuentas[indice(valor)]++;
+        total++;
+        suma += valor;
+        maximo = Math.max(maximo, valor);
+    }
+
+    /**
+     * Suma a este histograma las medidas de otro.
+     *
+     * @param otro Histograma a sumar.
+     */
+    public void combinar(HistogramaLatencias otro) {
+        for (int i = 0; i < cuentas.length; i++) {
+            cuentas[i] += otro.cuentas[i];
+        }
+        total += otro.total;
+        suma += otro.suma;
+        maximo = Math.max(maximo, otro.maximo);
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getMaximo() {
+        return maximo;
+    }
+
+    public double media() {
+        return total == 0 ? 0 : (double) suma / total;
+    }
+
+    /**
+     * Devuelve el valor por debajo del cual está el porcentaje indicado de las medidas.
+     *
+     * @param porcentaje Percentil, entre 0 y 100.
+     * @return El límite superior del cubo que contiene el percentil, o 0 si no hay medidas.
+     */
+    public long percentil(double porcentaje) {
+        if (total == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(porcentaje / 100 * total));
+        long acumulado = 0;
+        for (int i = 0; i < cuentas.length; i++) {
+            acumulado += cuentas[i];
+            if (acumulado >= objetivo) {
+                return Math.min(limiteSuperior(i), maximo);
+            }
+        }
+        return maximo;
+    }
+
+    private static int indice(long valor) {
+        if (valor < 2 * SUBCUBOS) {
+            return (int) valor;
+        }
+        int desplazamiento = 63 - Long.numberOfLeadingZeros(valor) - BITS_SUBCUBO;
+        return desplazamiento * SUBCUBOS + (int) (valor >>> desplazamiento);
+    }
+
+    private static long limiteSuperior(int indice) {
+        if (indice < 2 * SUBCUBOS) {
+            return indice;
+        }
+        int desplazamiento = indice / SUBCUBOS - 1;
+        long subcubo = indice % SUBCUBOS + SUBCUBOS;
+        return ((subcubo + 1) << desplazamiento) - 1;
+    }
+}
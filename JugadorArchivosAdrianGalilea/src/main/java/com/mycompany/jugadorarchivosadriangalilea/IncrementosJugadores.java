@@ -0,0 +1,141 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * La clase IncrementosJugadores acumula sumas sobre los campos numéricos de varios jugadores (experiencia,
+ * nivel de vida y monedas) para aplicarlas juntas con GestionFichero.aplicarIncrementos. Las sumas sobre
+ * un mismo jugador se combinan en una sola, así que mil compras de un jugador se aplican como una única
+ * modificación.
+ *
+ * No es segura entre hilos.
+ */
+public final class IncrementosJugadores {
+
+    private final Map<Integer, int[]> sumas = new LinkedHashMap<>();
+
+    /**
+     * Acumula una suma sobre un campo de un jugador.
+     *
+     * @param id    ID del jugador.
+     * @param campo Campo a modificar: EXPERIENCE, LIFE_LEVEL o COINS.
+     * @param delta Cantidad a sumar, negativa para restar.
+     * @throws IllegalArgumentException Si el campo no admite sumas.
+     * @throws ArithmeticException      Si la suma acumulada no cabe en un int. En ese caso no se acumula nada.
+     */
+    public void sumar(int id, CampoJugador campo, int delta) {
+        int indice = indice(campo);
+        int[] suma = sumas.get(id);
+        int nueva = Math.addExact(suma == null ? 0 : suma[indice], delta);
+        if (suma == null) {
+            suma = new int[3];
+            sumas.put(id, suma);
+        }
+        suma[indice] = nueva;
+    }
+
+    /**
+     * Añade todas las sumas de otros incrementos a estos. Las sumas combinadas se calculan antes de guardar
+     * ninguna, así que si alguna no cabe en un int estos incrementos quedan como estaban.
+     *
+     * @param otros Incrementos a combinar.
+     * @throws ArithmeticException Si alguna suma combinada no cabe en un int.
+     */
+    public void combinar(IncrementosJugadores otros) {
+        Map<Integer, int[]> combinadas = new LinkedHashMap<>();
+        for (Map.Entry<Integer, int[]> entrada : otros.sumas.entrySet()) {
+            int[] propia = sumas.get(entrada.getKey());
+            int[] suma = new int[3];
+            for (int i = 0; i < suma.length; i++) {
+                suma[i] = Math.addExact(propia == null ? 0 : propia[i], entrada.getValue()[i]);
+            }
+            combinadas.put(entrada.getKey(), suma);
+        }
+        sumas.putAll(combinadas);
+    }
+
+    /**
+     * Devuelve la suma acumulada sobre un campo de un jugador.
+     *
+     * @param id    ID del jugador.
+     * @param campo Campo: EXPERIENCE, LIFE_LEVEL o COINS.
+     * @return La suma acumulada, o 0 si no hay ninguna.
+     */
+    public int getSuma(int id, CampoJugador campo) {
+        int[] suma = sumas.get(id);
+        return suma == null ? 0 : suma[indice(campo)];
+    }
+
+    /**
+     * Devuelve una copia del jugador con las sumas acumuladas para su ID aplicadas.
+     *
+     * @param jugador Jugador original, que no se modifica.
+     * @return Jugador con los campos actualizados.
+     * @throws ArithmeticException Si algún campo no cabe en un int.
+     */
+    public Jugador aplicar(Jugador jugador) {
+        int[] suma = sumas.get(jugador.getId());
+        if (suma == null) {
+            return jugador;
+        }
+        return new Jugador(jugador.getId(), jugador.getNick(),
+                Math.addExact(jugador.getExperience(), suma[0]),
+                Math.addExact(jugador.getLifeLevel(), suma[1]),
+                Math.addExact(jugador.getCoins(), suma[2]));
+    }
+
+    /**
+     * Devuelve unos incrementos con solo las sumas de los IDs aceptados, por ejemplo para repartirlas
+     * entre particiones.
+     */
+    IncrementosJugadores filtrar(IntPredicate acepta) {
+        IncrementosJugadores filtrados = new IncrementosJugadores();
+        for (Map.Entry<Integer, int[]> entrada : sumas.entrySet()) {
+            if (acepta.test(entrada.getKey())) {
+                filtrados.sumas.put(entrada.getKey(), entrada.getValue().clone());
+            }
+        }
+        return filtrados;
+    }
+
+    /**
+     * Descarta las sumas acumuladas para un jugador.
+     *
+     * @param id ID del jugador.
+     */
+    public void descartar(int id) {
+        sumas.remove(id);
+    }
+
+    public Set<Integer> ids() {
+        return sumas.keySet();
+    }
+
+    public boolean estaVacio() {
+        return sumas.isEmpty();
+    }
+
+    public int getNumeroJugadores() {
+        return sumas.size();
+    }
+
+    public void vaciar() {
+        sumas.clear();
+    }
+
+    private static int indice(CampoJugador campo) {
+        switch (campo) {
+            case EXPERIENCE:
+                return 0;
+            case LIFE_LEVEL:
+                return 1;
+            case COINS:
+                return 2;
+            default:
+                throw new IllegalArgumentException("No se puede sumar sobre el campo " + campo);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Índice en memoria del número de registro (posición / TAMAÑO_REGISTRO) de cada ID en un archivo de
+ * GestionAccesoAleatorio, para que las operaciones por ID no recorran el archivo.
+ *
+ * El índice se guarda al cerrar en una instantánea compacta: los IDs ordenados y sus registros, con un CRC32C
+ * del contenido y la longitud y fecha de modificación del archivo de datos. Al abrir, la instantánea se proyecta
+ * en memoria (mmap) y se consulta con búsqueda binaria directamente sobre el archivo, así que abrir un almacén
+ * grande no exige leerlo entero. Los cambios posteriores se guardan aparte en un mapa y se mezclan con la base
+ * al guardar. Solo se reconstruye el índice recorriendo el archivo de datos cuando la instantánea no existe,
+ * está dañada o no corresponde al archivo.
+ *
+ * La cabecera lleva un contador de generación: al abrir se marca la instantánea como en uso pasando la
+ * generación a impar, y al cerrar se escribe una nueva con generación par. Si el programa termina sin cerrar,
+ * la siguiente apertura encuentra una generación impar y reconstruye el índice.
+ */
+final class IndiceIdPosicion {
+
+    private static final int MAGIA = 0x4A494450;
+    private static final int VERSION = 1;
+    private static final int OFFSET_GENERACION = 2 * Integer.BYTES;
+    private static final int TAMAÑO_CABECERA = 2 * Integer.BYTES + 3 * Long.BYTES + 2 * Integer.BYTES;
+    private static final int REGISTROS_POR_BLOQUE = 4096;
+
+    private IntBuffer ids;
+    private IntBuffer registros;
+    private int numBase;
+    private final Map<Integer, Integer> cambios = new HashMap<>();
+    private long generacion;
+
+    private IndiceIdPosicion(IntBuffer ids, IntBuffer registros, int numBase, long generacion) {
+        this.ids = ids;
+        this.registros = registros;
+        this.numBase = numBase;
+        this.generacion = generacion;
+    }
+
+    /**
+     * Abre el índice de un archivo de datos: proyecta la instantánea si es válida o, si no, reconstruye
+     * el índice leyendo los IDs de todos los registros.
+     *
+     * @param instantanea  Archivo de la instantánea.
+     * @param canalDatos   Canal del archivo de datos.
+     * @param archivoDatos Archivo de datos, para comprobar su longitud y fecha de modificación.
+     * @return El índice abierto.
+     * @throws IOException Si ocurre un error al leer el archivo de datos.
+     */
+    static IndiceIdPosicion abrir(File instantanea, FileChannel canalDatos, File archivoDatos) throws IOException {
+        IndiceIdPosicion indice = cargar(instantanea, archivoDatos);
+        return indice != null ? indice : reconstruir(canalDatos, canalDatos.size());
+    }
+
+    /**
+     * Indica si el índice se cargó de una instantánea en lugar de reconstruirse.
+     *
+     * @return true si se usó la instantánea.
+     */
+    boolean esDeInstantanea() {
+        return generacion > 0;
+    }
+
+    /**
+     * Busca el registro de un ID.
+     *
+     * @param id ID buscado.
+     * @return Número de registro, o -1 si el ID no está en el archivo.
+     */
+    int buscar(int id) {
+        Integer cambio = cambios.get(id);
+        if (cambio != null) {
+            return cambio;
+        }
+        int i = buscarEnBase(id);
+        return i >= 0 ? registros.get(i) : -1;
+    }
+
+    /**
+     * Anota que un ID está en un registro. Los IDs no positivos, que el formato usa para los registros
+     * eliminados, no se indexan.
+     */
+    void poner(int id, int registro) {
+        if (id > 0) {
+            cambios.put(id, registro);
+            compactarSiHaceFalta();
+        }
+    }
+
+    void eliminar(int id) {
+        if (buscarEnBase(id) >= 0) {
+            cambios.put(id, -1);
+            compactarSiHaceFalta();
+        } else {
+            cambios.remove(id);
+        }
+    }
+
+    /**
+     * Guarda la instantánea del índice con la huella del archivo de datos ya cerrado.
+     *
+     * @param instantanea  Archivo de la instantánea.
+     * @param archivoDatos Archivo de datos.
+     * @throws IOException Si ocurre un error al escribir la instantánea.
+     */
+    void guardar(File instantanea, File archivoDatos) throws IOException {
+        compactar();
+        long nuevaGeneracion = (generacion | 1) + 1;
+        ByteBuffer cuerpo = ByteBuffer.allocate(numBase * 2 * Integer.BYTES);
+        cuerpo.asIntBuffer().put(ids.duplicate().position(0).limit(numBase));
+        cuerpo.position(numBase * Integer.BYTES);
+        cuerpo.asIntBuffer().put(registros.duplicate().position(0).limit(numBase));
+        CRC32C crc = new CRC32C();
+        crc.update(cuerpo.array(), 0, cuerpo.capacity());
+        EscrituraAtomica.escribir(instantanea, salida -> {
+            DataOutputStream escritor = new DataOutputStream(salida);
+            escritor.writeInt(MAGIA);
+            escritor.writeInt(VERSION);
+            escritor.writeLong(nuevaGeneracion);
+            escritor.writeLong(archivoDatos.length());
+            escritor.writeLong(archivoDatos.lastModified());
+            escritor.writeInt(numBase);
+            escritor.writeInt((int) crc.getValue());
+            escritor.write(cuerpo.array());
+            escritor.flush();
+        });
+        generacion = nuevaGeneracion;
+    }
+
+    /**
+     * Proyecta la instantánea si existe, su CRC es correcto, su generación es par y corresponde a la longitud
+     * y fecha de modificación del archivo de datos. Antes de usarla la marca como en uso.
+     *
+     * @return El índice, o null si hay que reconstruirlo.
+     */
+    private static IndiceIdPosicion cargar(File instantanea, File archivoDatos) {
+        if (!instantanea.exists()) {
+            return null;
+        }
+        try (FileChannel canal = FileChannel.open(instantanea.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (canal.size() < TAMAÑO_CABECERA) {
+                return null;
+            }
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            long generacion = mapa.getLong(OFFSET_GENERACION);
+            int numEntradas = mapa.getInt(TAMAÑO_CABECERA - 2 * Integer.BYTES);
+            if (mapa.getInt(0) != MAGIA || mapa.getInt(Integer.BYTES) != VERSION || generacion <= 0 || (generacion & 1) != 0
+                    || mapa.getLong(OFFSET_GENERACION + Long.BYTES) != archivoDatos.length()
+                    || mapa.getLong(OFFSET_GENERACION + 2 * Long.BYTES) != archivoDatos.lastModified()
+                    || numEntradas < 0 || canal.size() != TAMAÑO_CABECERA + (long) numEntradas * 2 * Integer.BYTES) {
+                return null;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(mapa.duplicate().position(TAMAÑO_CABECERA));
+            if ((int) crc.getValue() != mapa.getInt(TAMAÑO_CABECERA - Integer.BYTES)) {
+                return null;
+            }
+            ByteBuffer marca = ByteBuffer.allocate(Long.BYTES).putLong(0, generacion + 1);
+            canal.write(marca, OFFSET_GENERACION);
+            canal.force(false);
+            IntBuffer ids = mapa.duplicate().position(TAMAÑO_CABECERA).slice().asIntBuffer();
+            IntBuffer registros = mapa.duplicate().position(TAMAÑO_CABECERA + numEntradas * Integer.BYTES).slice().asIntBuffer();
+            return new IndiceIdPosicion(ids, registros, numEntradas, generacion + 1);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reconstruye el índice leyendo por bloques el ID de cada registro del archivo de datos.
+     * Si un ID aparece varias veces se conserva el primer registro, igual que la búsqueda secuencial.
+     */
+    static IndiceIdPosicion reconstruir(FileChannel canal, long longitud) throws IOException {
+        int numRegistros = (int) (longitud / GestionAccesoAleatorio.TAMAÑO_REGISTRO);
+        long[] pares = new long[numRegistros];
+        int numPares = 0;
+        ByteBuffer bloque = ByteBuffer.allocate(GestionAccesoAleatorio.TAMAÑO_REGISTRO * REGISTROS_POR_BLOQUE);
+        int registro = 0;
+        while (registro < numRegistros) {
+            bloque.clear();
+            bloque.limit(Math.min(REGISTROS_POR_BLOQUE, numRegistros - registro) * GestionAccesoAleatorio.TAMAÑO_REGISTRO);
+            long pos = (long) registro * GestionAccesoAleatorio.TAMAÑO_REGISTRO;
+            while (bloque.hasRemaining()) {
+                int leidos = canal.read(bloque, pos + bloque.position());
+                if (leidos < 0) {
+                    throw new IOException("El archivo de datos se ha acortado durante la lectura");
+                }
+            }
+            for (int base = 0; base < bloque.limit(); base += GestionAccesoAleatorio.TAMAÑO_REGISTRO) {
+                int id = bloque.getInt(base);
+                if (id > 0) {
+                    pares[numPares++] = ((long) id << 32) | registro;
+                }
+                registro++;
+            }
+        }
+        Arrays.parallelSort(pares, 0, numPares);
+        int[] ids = new int[numPares];
+        int[] registros = new int[numPares];
+        int numBase = 0;
+        for (int i = 0; i < numPares; i++) {
+            int id = (int) (pares[i] >>> 32);
+            if (numBase == 0 || ids[numBase - 1] != id) {
+                ids[numBase] = id;
+                registros[numBase] = (int) pares[i];
+                numBase++;
+            }
+        }
+        return new IndiceIdPosicion(IntBuffer.wrap(ids), IntBuffer.wrap(registros), numBase, 0);
+    }
+
+    private int buscarEnBase(int id) {
+        int inferior = 0;
+        int superior = numBase - 1;
+        while (inferior <= superior) {
+            int medio = (inferior + superior) >>> 1;
+            int valor = ids.get(medio);
+            if (valor < id) {
+                inferior = medio + 1;
+            } else if (valor > id) {
+                superior = medio - 1;
+            } else {
+                return medio;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Mezcla los cambios con la base cuando ocupan más que una fracción de ella, para que el mapa
+     * de cambios no crezca sin límite en los almacenes que reciben muchas altas.
+     */
+    private void compactarSiHaceFalta() {
+        if (cambios.size() > 65536 && cambios.size() > numBase / 4) {
+            compactar();
+        }
+    }
+
+    /**
+     * Mezcla la base ordenada con los cambios en dos arrays nuevos en memoria.
+     */
+    private void compactar() {
+        if (cambios.isEmpty()) {
+            return;
+        }
+        int[] nuevosIds = new int[cambios.size()];
+        int n = 0;
+        for (int id : cambios.keySet()) {
+            nuevosIds[n++] = id;
+        }
+        Arrays.sort(nuevosIds);
+        int[] ids = new int[numBase + n];
+        int[] registros = new int[numBase + n];
+        int total = 0;
+        int i = 0;
+        int j = 0;
+        while (i < numBase || j < n) {
+            int id;
+            int registro;
+            if (j >= n || (i < numBase && this.ids.get(i) < nuevosIds[j])) {
+                id = this.ids.get(i);
+                registro = this.registros.get(i);
+                i++;
+            } else {
+                id = nuevosIds[j];
+                registro = cambios.get(id);
+                if (i < numBase && this.ids.get(i) == id) {
+                    i++;
+                }
+                j++;
+            }
+            if (registro >= 0) {
+                ids[total] = id;
+                registros[total] = registro;
+                total++;
+            }
+        }
+        this.ids = IntBuffer.wrap(ids);
+        this.registros = IntBuffer.wrap(registros);
+        this.numBase = total;
+        cambios.clear();
+    }
+}
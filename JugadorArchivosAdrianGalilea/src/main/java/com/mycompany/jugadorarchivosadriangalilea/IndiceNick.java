@@ -0,0 +1,115 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * La clase IndiceNick permite buscar jugadores por su nick. Combina una tabla hash para las búsquedas exactas,
+ * en tiempo constante, con un árbol ordenado por nick para las búsquedas por prefijo (autocompletado).
+ * Ambas estructuras comparten los arrays de IDs de cada nick, ya que un mismo nick puede repetirse.
+ */
+public class IndiceNick {
+
+    private static final int[] SIN_IDS = new int[0];
+
+    private final Map<String, int[]> exactos = new HashMap<>();
+    private final TreeMap<String, int[]> ordenados = new TreeMap<>();
+    private final Map<Integer, String> nickPorId = new HashMap<>();
+
+    /**
+     * Añade un jugador al índice. Si el ID ya estaba indexado con otro nick, se sustituye.
+     *
+     * @param id   ID del jugador.
+     * @param nick Nick del jugador.
+     */
+    public void agregar(int id, String nick) {
+        if (nick == null) {
+            nick = "";
+        }
+        eliminar(id);
+        int[] ids = exactos.getOrDefault(nick, SIN_IDS);
+        int[] nuevos = Arrays.copyOf(ids, ids.length + 1);
+        nuevos[ids.length] = id;
+        exactos.put(nick, nuevos);
+        ordenados.put(nick, nuevos);
+        nickPorId.put(id, nick);
+    }
+
+    /**
+     * Elimina un jugador del índice.
+     *
+     * @param id ID del jugador.
+     */
+    public void eliminar(int id) {
+        String nick = nickPorId.remove(id);
+        if (nick == null) {
+            return;
+        }
+        int[] ids = exactos.get(nick);
+        int[] restantes = new int[ids.length - 1];
+        int j = 0;
+        for (int otro : ids) {
+            if (otro != id && j < restantes.length) {
+                restantes[j++] = otro;
+            }
+        }
+        if (restantes.length == 0) {
+            exactos.remove(nick);
+            ordenados.remove(nick);
+        } else {
+            exactos.put(nick, restantes);
+            ordenados.put(nick, restantes);
+        }
+    }
+
+    public void vaciar() {
+        exactos.clear();
+        ordenados.clear();
+        nickPorId.clear();
+    }
+
+    /**
+     * Devuelve el nick indexado para un ID.
+     *
+     * @param id ID del jugador.
+     * @return El nick, o null si el ID no está indexado.
+     */
+    public String nick(int id) {
+        return nickPorId.get(id);
+    }
+
+    /**
+     * Devuelve los IDs de los jugadores con un nick exacto.
+     *
+     * @param nick Nick buscado.
+     * @return Array con los IDs, vacío si no hay ninguno.
+     */
+    public int[] ids(String nick) {
+        return exactos.getOrDefault(nick, SIN_IDS).clone();
+    }
+
+    /**
+     * Devuelve los IDs de los jugadores cuyo nick empieza por el prefijo, ordenados por nick y,
+     * a igualdad de nick, en orden de inserción.
+     *
+     * @param prefijo Prefijo buscado.
+     * @param limite  Número máximo de IDs, o 0 para no limitar.
+     * @return Lista con los IDs encontrados.
+     */
+    public List<Integer> idsConPrefijo(String prefijo, int limite) {
+        List<Integer> resultado = new ArrayList<>();
+        for (int[] ids : ordenados.subMap(prefijo, true, prefijo + Character.MAX_VALUE, true).values()) {
+            for (int id : ids) {
+                if (limite > 0 && resultado.size() == limite) {
+                    return resultado;
+                }
+                resultado.add(id);
+            }
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,92 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * La clase IndiceSecundario mantiene ordenados los pares (valor, id) de un campo numérico de los jugadores.
+ * Cada par se guarda como un único long (valor en los 32 bits altos, id en los bajos), de modo que el orden
+ * natural del conjunto es por valor y, a igualdad de valor, por id. Una búsqueda por rango cuesta O(log n + k).
+ */
+public class IndiceSecundario {
+
+    private final CampoJugador campo;
+    private final TreeSet<Long> entradas = new TreeSet<>();
+
+    /**
+     * Constructor de la clase IndiceSecundario.
+     *
+     * @param campo Campo numérico que se indexa.
+     */
+    public IndiceSecundario(CampoJugador campo) {
+        if (!campo.esNumerico()) {
+            throw new IllegalArgumentException("Solo se pueden indexar campos numéricos: " + campo);
+        }
+        this.campo = campo;
+    }
+
+    public CampoJugador getCampo() {
+        return campo;
+    }
+
+    public int tamaño() {
+        return entradas.size();
+    }
+
+    /**
+     * Añade un par (valor, id) al índice.
+     *
+     * @param valor Valor del campo.
+     * @param id    ID del jugador.
+     */
+    public void agregar(int valor, int id) {
+        entradas.add(clave(valor, id));
+    }
+
+    /**
+     * Elimina un par (valor, id) del índice.
+     *
+     * @param valor Valor del campo.
+     * @param id    ID del jugador.
+     */
+    public void eliminar(int valor, int id) {
+        entradas.remove(clave(valor, id));
+    }
+
+    public void vaciar() {
+        entradas.clear();
+    }
+
+    /**
+     * Devuelve los IDs cuyo valor está en el rango indicado, en orden de valor (y de ID a igualdad de valor).
+     *
+     * @param minimo      Valor mínimo (incluido).
+     * @param maximo      Valor máximo (incluido).
+     * @param descendente true para recorrer de mayor a menor.
+     * @return Iterador sobre los IDs del rango.
+     */
+    public Iterator<Integer> idsEnRango(int minimo, int maximo, boolean descendente) {
+        if (minimo > maximo) {
+            return Collections.emptyIterator();
+        }
+        NavigableSet<Long> rango = entradas.subSet(clave(minimo, 0), true, ((long) maximo << 32) | 0xFFFFFFFFL, true);
+        Iterator<Long> claves = descendente ? rango.descendingIterator() : rango.iterator();
+        return new Iterator<Integer>() {
+            @Override
+            public boolean hasNext() {
+                return claves.hasNext();
+            }
+
+            @Override
+            public Integer next() {
+                return (int) claves.next().longValue();
+            }
+        };
+    }
+
+    private static long clave(int valor, int id) {
+        return ((long) valor << 32) | (id & 0xFFFFFFFFL);
+    }
+}
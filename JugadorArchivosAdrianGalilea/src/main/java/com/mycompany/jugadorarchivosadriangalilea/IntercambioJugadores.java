@@ -0,0 +1,751 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * La clase IntercambioJugadores importa y exporta los jugadores de cualquier GestionFichero en CSV o en JSON Lines
+ * (un objeto JSON por línea), para cargar volcados grandes sin pasar por el alta interactiva.
+ *
+ * La importación es una tubería: un hilo lee el archivo y lo corta en tramos de líneas, varios hilos analizan los
+ * tramos en paralelo y el hilo que llama a importar los recibe en el orden del archivo y los escribe en el almacén.
+ * Entre la lectura y la escritura solo puede haber un número acotado de tramos, así que la memoria usada no
+ * depende del tamaño del archivo (salvo el conjunto compacto de IDs ya vistos, que detecta los duplicados sin
+ * que el almacén tenga que recorrer su archivo en cada lote). Las líneas mal formadas, con ID no positivo o con
+ * un ID que ya existe se copian a un archivo de rechazos precedidas de un comentario con el número de línea y el
+ * motivo; como el importador ignora las líneas que empiezan por '#', ese archivo se puede corregir y volver a importar.
+ *
+ * La exportación recorre el almacén con vistas reutilizables y escribe con un buffer grande, de forma atómica.
+ *
+ * Uso: IntercambioJugadores importar|exportar formato ruta archivo [rechazos], o Main --importar/--exportar
+ * formato ruta archivo [rechazos]. El formato de intercambio se deduce de la extensión (.csv, .jsonl, .json o .ndjson).
+ */
+public class IntercambioJugadores {
+
+    /**
+     * Formatos de intercambio admitidos.
+     */
+    public enum Formato {
+        CSV, JSONL;
+
+        /**
+         * Deduce el formato de la extensión de un archivo.
+         *
+         * @param ruta Ruta del archivo.
+         * @return El formato, o null si la extensión no es conocida.
+         */
+        public static Formato porRuta(String ruta) {
+            String nombre = ruta.toLowerCase(Locale.ROOT);
+            if (nombre.endsWith(".csv")) {
+                return CSV;
+            }
+            if (nombre.endsWith(".jsonl") || nombre.endsWith(".ndjson") || nombre.endsWith(".json")) {
+                return JSONL;
+            }
+            return null;
+        }
+    }
+
+    private static final int TAMAÑO_TRAMO_POR_DEFECTO = 8192;
+    private static final int TAMAÑO_BUFFER = 1 << 20;
+    private static final int LONGITUD_MAXIMA_REGISTRO = 1 << 16;
+    private static final String CABECERA_CSV = "id,nick,experience,lifeLevel,coins";
+    private static final Future<Tramo> FIN = CompletableFuture.completedFuture(null);
+
+    private final GestionFichero gestion;
+    private int hilos = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private int tamañoTramo = TAMAÑO_TRAMO_POR_DEFECTO;
+    private File archivoRechazos;
+    private long leidos;
+    private long rechazados;
+
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    /**
+     * Constructor de la clase IntercambioJugadores.
+     *
+     * @param gestion Almacén del que se exporta o en el que se importa.
+     */
+    public IntercambioJugadores(GestionFichero gestion) {
+        this.gestion = gestion;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4 || !(args[0].equals("importar") || args[0].equals("exportar"))
+                || FormatoFichero.porNombre(args[1]) == null || Formato.porRuta(args[3]) == null) {
+            System.out.println("Uso: IntercambioJugadores importar|exportar formato ruta archivo.csv|archivo.jsonl [rechazos]");
+            System.out.println("Formatos: " + FormatoFichero.descripcionOpciones());
+            return;
+        }
+        GestionFichero gestion = FormatoFichero.porNombre(args[1]).abrir(args[2]);
+        IntercambioJugadores intercambio = new IntercambioJugadores(gestion);
+        File archivo = new File(args[3]);
+        long inicio = System.nanoTime();
+        try {
+            if (args[0].equals("importar")) {
+                intercambio.setArchivoRechazos(new File(args.length > 4 ? args[4] : args[3] + ".rechazos"));
+                long importados = intercambio.importar(archivo, Formato.porRuta(args[3]));
+                System.out.printf("Leídos %d, importados %d, rechazados %d en %.2f s%n", intercambio.getLeidos(),
+                        importados, intercambio.getRechazados(), (System.nanoTime() - inicio) / 1e9);
+            } else {
+                long exportados = intercambio.exportar(archivo, Formato.porRuta(args[3]));
+                System.out.printf("Exportados %d jugadores en %.2f s%n", exportados, (System.nanoTime() - inicio) / 1e9);
+            }
+        } finally {
+            gestion.cerrar();
+        }
+    }
+
+    /**
+     * Establece cuántos hilos analizan los tramos durante la importación.
+     *
+     * @param hilos Número de hilos de análisis.
+     * @return Este objeto, para encadenar llamadas.
+     */
+    public IntercambioJugadores setHilos(int hilos) {
+        if (hilos <= 0) {
+            throw new IllegalArgumentException("El número de hilos debe ser positivo");
+        }
+        this.hilos = hilos;
+        return this;
+    }
+
+    /**
+     * Establece cuántas líneas forman cada tramo de la importación, que también es el tamaño de cada lote
+     * que se escribe en el almacén.
+     *
+     * @param tamañoTramo Número de líneas por tramo.
+     * @return Este objeto, para encadenar llamadas.
+     */
+    public IntercambioJugadores setTamañoTramo(int tamañoTramo) {
+        if (tamañoTramo <= 0) {
+            throw new IllegalArgumentException("El tamaño de tramo debe ser positivo");
+        }
+        this.tamañoTramo = tamañoTramo;
+        return this;
+    }
+
+    /**
+     * Establece el archivo donde se copian las líneas rechazadas. Si es null solo se cuentan.
+     *
+     * @param archivoRechazos Archivo de rechazos, que se sobrescribe en cada importación.
+     * @return Este objeto, para encadenar llamadas.
+     */
+    public IntercambioJugadores setArchivoRechazos(File archivoRechazos) {
+        this.archivoRechazos = archivoRechazos;
+        return this;
+    }
+
+    /**
+     * Número de registros leídos en la última importación, sin contar cabecera, comentarios ni líneas vacías.
+     */
+    public long getLeidos() {
+        return leidos;
+    }
+
+    /**
+     * Número de registros rechazados en la última importación.
+     */
+    public long getRechazados() {
+        return rechazados;
+    }
+
+    /**
+     * Importa los jugadores de un archivo CSV o JSON Lines. Los jugadores cuyo ID ya existe en el almacén
+     * o aparece antes en el archivo se rechazan.
+     *
+     * @param origen  Archivo a importar.
+     * @param formato Formato del archivo.
+     * @return Número de jugadores importados.
+     * @throws IOException Si ocurre un error al leer el archivo, al escribir en el almacén o en el archivo de rechazos.
+     */
+    public long importar(File origen, Formato formato) throws IOException {
+        leidos = 0;
+        rechazados = 0;
+        error.set(null);
+        ConjuntoEnteros ids = new ConjuntoEnteros();
+        gestion.recorrerVistas(new ConsultaJugadores(), vista -> {
+            if (vista.getId() > 0) {
+                ids.añadir(vista.getId());
+            }
+            return true;
+        });
+
+        ExecutorService analizadores = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "importacion-analisis");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        BlockingQueue<Future<Tramo>> pendientes = new ArrayBlockingQueue<>(2 * hilos);
+        Thread lector = new Thread(() -> ejecutar(() -> leer(origen, formato, analizadores, pendientes)), "importacion-lectura");
+        lector.setDaemon(true);
+        lector.start();
+
+        long importados = 0;
+        try (Writer rechazos = archivoRechazos == null ? null : new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(archivoRechazos), StandardCharsets.UTF_8), TAMAÑO_BUFFER)) {
+            Future<Tramo> pendiente;
+            while ((pendiente = tomar(pendientes)) != FIN) {
+                importados += escribir(pendiente.get(), ids, rechazos);
+            }
+        } catch (ExecutionException e) {
+            error.compareAndSet(null, e.getCause());
+        } catch (InterruptedException e) {
+            if (error.get() == null) {
+                Thread.currentThread().interrupt();
+                error.compareAndSet(null, e);
+            }
+        } catch (IOException | RuntimeException e) {
+            error.compareAndSet(null, e);
+        } finally {
+            analizadores.shutdownNow();
+            try {
+                lector.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        Throwable fallo = error.get();
+        if (fallo instanceof IOException) {
+            throw (IOException) fallo;
+        } else if (fallo != null) {
+            throw new IOException("Error durante la importación: " + fallo.getMessage(), fallo);
+        }
+        return importados;
+    }
+
+    /**
+     * Exporta todos los jugadores del almacén a un archivo CSV o JSON Lines. El archivo se escribe de forma
+     * atómica, así que si la exportación falla el destino conserva su contenido anterior.
+     *
+     * @param destino Archivo de destino.
+     * @param formato Formato del archivo.
+     * @return Número de jugadores exportados.
+     * @throws IOException Si ocurre un error al leer el almacén o al escribir el archivo.
+     */
+    public long exportar(File destino, Formato formato) throws IOException {
+        long[] exportados = {0};
+        EscrituraAtomica.escribir(destino, salida -> {
+            Writer escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), TAMAÑO_BUFFER);
+            if (formato == Formato.CSV) {
+                escritor.write(CABECERA_CSV);
+                escritor.write('\n');
+            }
+            StringBuilder linea = new StringBuilder(128);
+            char[][] caracteres = {new char[128]};
+            gestion.recorrerVistas(new ConsultaJugadores(), vista -> {
+                linea.setLength(0);
+                if (formato == Formato.CSV) {
+                    formatearCsv(vista, linea);
+                } else {
+                    formatearJson(vista, linea);
+                }
+                linea.append('\n');
+                if (caracteres[0].length < linea.length()) {
+                    caracteres[0] = new char[linea.length() * 2];
+                }
+                linea.getChars(0, linea.length(), caracteres[0], 0);
+                escritor.write(caracteres[0], 0, linea.length());
+                exportados[0]++;
+                return true;
+            });
+            escritor.flush();
+        });
+        return exportados[0];
+    }
+
+    /**
+     * Etapa de lectura: corta el archivo en tramos de registros y entrega cada uno a los analizadores,
+     * dejando en la cola su resultado futuro en el orden del archivo.
+     */
+    private void leer(File origen, Formato formato, ExecutorService analizadores, BlockingQueue<Future<Tramo>> pendientes) throws Exception {
+        try (BufferedReader lector = new BufferedReader(new InputStreamReader(new FileInputStream(origen), StandardCharsets.UTF_8), TAMAÑO_BUFFER)) {
+            Tramo tramo = new Tramo(formato, tamañoTramo);
+            boolean primero = true;
+            long numeroLinea = 0;
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                numeroLinea++;
+                long inicio = numeroLinea;
+                if (linea.isEmpty() || linea.startsWith("#")) {
+                    continue;
+                }
+                if (formato == Formato.CSV) {
+                    if (primero && linea.regionMatches(true, 0, "id,", 0, 3)) {
+                        primero = false;
+                        continue;
+                    }
+                    while (comillasAbiertas(linea) && linea.length() < LONGITUD_MAXIMA_REGISTRO) {
+                        String siguiente = lector.readLine();
+                        if (siguiente == null) {
+                            break;
+                        }
+                        numeroLinea++;
+                        linea = linea + "\n" + siguiente;
+                    }
+                }
+                primero = false;
+                tramo.añadir(linea, inicio);
+                if (tramo.lleno()) {
+                    Tramo completo = tramo;
+                    poner(pendientes, analizadores.submit(completo::analizar));
+                    tramo = new Tramo(formato, tamañoTramo);
+                }
+            }
+            if (tramo.numLineas > 0) {
+                Tramo completo = tramo;
+                poner(pendientes, analizadores.submit(completo::analizar));
+            }
+        }
+        poner(pendientes, FIN);
+    }
+
+    /**
+     * Etapa de escritura: descarta los IDs repetidos, añade los jugadores del tramo al almacén y copia
+     * los rechazos en el orden del archivo.
+     *
+     * @return Número de jugadores añadidos.
+     */
+    private int escribir(Tramo tramo, ConjuntoEnteros ids, Writer rechazos) throws IOException {
+        List<Jugador> nuevos = new ArrayList<>(tramo.numLineas);
+        for (int i = 0; i < tramo.numLineas; i++) {
+            Jugador jugador = tramo.jugadores[i];
+            String motivo = tramo.motivos[i];
+            if (jugador != null && !ids.añadir(jugador.getId())) {
+                motivo = "el ID " + jugador.getId() + " ya existe";
+            }
+            if (motivo == null) {
+                nuevos.add(jugador);
+                continue;
+            }
+            rechazados++;
+            if (rechazos != null) {
+                rechazos.write("# línea " + tramo.numeros[i] + ": " + motivo + "\n");
+                rechazos.write(tramo.lineas[i]);
+                rechazos.write('\n');
+            }
+        }
+        leidos += tramo.numLineas;
+        if (!nuevos.isEmpty()) {
+            gestion.anexarJugadores(nuevos);
+        }
+        return nuevos.size();
+    }
+
+    private static boolean comillasAbiertas(String linea) {
+        int comillas = 0;
+        for (int i = linea.indexOf('"'); i >= 0; i = linea.indexOf('"', i + 1)) {
+            comillas++;
+        }
+        return (comillas & 1) != 0;
+    }
+
+    /**
+     * Analiza un registro CSV con los campos id, nick, experience, lifeLevel y coins. El nick puede ir entre
+     * comillas dobles, con las comillas interiores duplicadas, si contiene comas, comillas o saltos de línea.
+     */
+    static Jugador analizarCsv(String linea) {
+        String[] campos = new String[5];
+        int numCampos = 0;
+        int i = 0;
+        int longitud = linea.length();
+        while (true) {
+            if (numCampos == campos.length) {
+                throw new IllegalArgumentException("hay más de " + campos.length + " campos");
+            }
+            if (i < longitud && linea.charAt(i) == '"') {
+                StringBuilder campo = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= longitud) {
+                        throw new IllegalArgumentException("comillas sin cerrar");
+                    }
+                    char c = linea.charAt(i++);
+                    if (c != '"') {
+                        campo.append(c);
+                    } else if (i < longitud && linea.charAt(i) == '"') {
+                        campo.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < longitud && linea.charAt(i) != ',') {
+                    throw new IllegalArgumentException("texto después de las comillas de cierre");
+                }
+                campos[numCampos++] = campo.toString();
+            } else {
+                int fin = linea.indexOf(',', i);
+                if (fin < 0) {
+                    fin = longitud;
+                }
+                campos[numCampos++] = linea.substring(i, fin);
+                i = fin;
+            }
+            if (i >= longitud) {
+                break;
+            }
+            i++;
+        }
+        if (numCampos != campos.length) {
+            throw new IllegalArgumentException("se esperaban " + campos.length + " campos y hay " + numCampos);
+        }
+        return new Jugador(entero(campos[0], "id"), campos[1], entero(campos[2], "experience"),
+                entero(campos[3], "lifeLevel"), entero(campos[4], "coins"));
+    }
+
+    private static int entero(String campo, String nombre) {
+        try {
+            return Integer.parseInt(campo.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("el campo " + nombre + " no es un entero: " + campo);
+        }
+    }
+
+    /**
+     * Analiza un objeto JSON de una línea con los campos id, nick, experience, lifeLevel y coins.
+     * Los demás campos se ignoran si su valor es un texto, un número, true, false o null.
+     */
+    static Jugador analizarJson(String linea) {
+        return new LectorJson(linea).leerJugador();
+    }
+
+    private static void formatearCsv(VistaJugador vista, StringBuilder linea) {
+        linea.append(vista.getId()).append(',');
+        int longitud = vista.longitudNick();
+        boolean comillas = longitud > 0 && (vista.caracterNick(0) == ' ' || vista.caracterNick(longitud - 1) == ' ');
+        for (int i = 0; i < longitud && !comillas; i++) {
+            char c = vista.caracterNick(i);
+            comillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (comillas) {
+            linea.append('"');
+        }
+        for (int i = 0; i < longitud; i++) {
+            char c = vista.caracterNick(i);
+            if (c == '"') {
+                linea.append('"');
+            }
+            linea.append(c);
+        }
+        if (comillas) {
+            linea.append('"');
+        }
+        linea.append(',').append(vista.getExperience())
+                .append(',').append(vista.getLifeLevel())
+                .append(',').append(vista.getCoins());
+    }
+
+    private static void formatearJson(VistaJugador vista, StringBuilder linea) {
+        linea.append("{\"id\":").append(vista.getId()).append(",\"nick\":\"");
+        for (int i = 0; i < vista.longitudNick(); i++) {
+            char c = vista.caracterNick(i);
+            switch (c) {
+                case '"':
+                    linea.append("\\\"");
+                    break;
+                case '\\':
+                    linea.append("\\\\");
+                    break;
+                case '\n':
+                    linea.append("\\n");
+                    break;
+                case '\r':
+                    linea.append("\\r");
+                    break;
+                case '\t':
+                    linea.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        linea.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        linea.append(c);
+                    }
+            }
+        }
+        linea.append("\",\"experience\":").append(vista.getExperience())
+                .append(",\"lifeLevel\":").append(vista.getLifeLevel())
+                .append(",\"coins\":").append(vista.getCoins())
+                .append('}');
+    }
+
+    private void poner(BlockingQueue<Future<Tramo>> cola, Future<Tramo> tramo) throws InterruptedException {
+        while (!cola.offer(tramo, 100, TimeUnit.MILLISECONDS)) {
+            if (error.get() != null) {
+                throw new InterruptedException("Importación cancelada");
+            }
+        }
+    }
+
+    private Future<Tramo> tomar(BlockingQueue<Future<Tramo>> cola) throws InterruptedException {
+        Future<Tramo> tramo;
+        while ((tramo = cola.poll(100, TimeUnit.MILLISECONDS)) == null) {
+            if (error.get() != null) {
+                throw new InterruptedException("Importación cancelada");
+            }
+        }
+        return tramo;
+    }
+
+    private void ejecutar(Etapa etapa) {
+        try {
+            etapa.ejecutar();
+        } catch (Throwable e) {
+            error.compareAndSet(null, e);
+        }
+    }
+
+    /**
+     * Etapa de la tubería que puede lanzar excepciones comprobadas.
+     */
+    @FunctionalInterface
+    private interface Etapa {
+        void ejecutar() throws Exception;
+    }
+
+    /**
+     * Tramo de registros consecutivos del archivo. Lo rellena el lector, lo analiza un hilo de análisis,
+     * que deja el jugador o el motivo del rechazo de cada registro, y lo consume el escritor.
+     */
+    private static final class Tramo {
+        private final Formato formato;
+        private final String[] lineas;
+        private final long[] numeros;
+        private final Jugador[] jugadores;
+        private final String[] motivos;
+        private int numLineas;
+
+        private Tramo(Formato formato, int capacidad) {
+            this.formato = formato;
+            this.lineas = new String[capacidad];
+            this.numeros = new long[capacidad];
+            this.jugadores = new Jugador[capacidad];
+            this.motivos = new String[capacidad];
+        }
+
+        private void añadir(String linea, long numero) {
+            lineas[numLineas] = linea;
+            numeros[numLineas] = numero;
+            numLineas++;
+        }
+
+        private boolean lleno() {
+            return numLineas == lineas.length;
+        }
+
+        private Tramo analizar() {
+            for (int i = 0; i < numLineas; i++) {
+                try {
+                    Jugador jugador = formato == Formato.CSV ? analizarCsv(lineas[i]) : analizarJson(lineas[i]);
+                    if (jugador.getId() <= 0) {
+                        throw new IllegalArgumentException("el ID debe ser positivo");
+                    }
+                    jugadores[i] = jugador;
+                } catch (IllegalArgumentException e) {
+                    motivos[i] = e.getMessage();
+                }
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Analizador mínimo de un objeto JSON plano con los campos de un jugador.
+     */
+    private static final class LectorJson {
+        private final String texto;
+        private int pos;
+
+        private LectorJson(String texto) {
+            this.texto = texto;
+        }
+
+        private Jugador leerJugador() {
+            Integer id = null;
+            Integer experience = null;
+            Integer lifeLevel = null;
+            Integer coins = null;
+            String nick = null;
+            esperar('{');
+            if (!consumir('}')) {
+                do {
+                    String clave = leerTexto();
+                    esperar(':');
+                    switch (clave) {
+                        case "id":
+                            id = leerEntero(clave);
+                            break;
+                        case "nick":
+                            nick = leerTexto();
+                            break;
+                        case "experience":
+                            experience = leerEntero(clave);
+                            break;
+                        case "lifeLevel":
+                            lifeLevel = leerEntero(clave);
+                            break;
+                        case "coins":
+                            coins = leerEntero(clave);
+                            break;
+                        default:
+                            saltarValor();
+                    }
+                } while (consumir(','));
+                esperar('}');
+            }
+            saltarEspacios();
+            if (pos != texto.length()) {
+                throw new IllegalArgumentException("texto después del objeto JSON");
+            }
+            if (id == null || nick == null || experience == null || lifeLevel == null || coins == null) {
+                throw new IllegalArgumentException("faltan campos: se necesitan id, nick, experience, lifeLevel y coins");
+            }
+            return new Jugador(id, nick, experience, lifeLevel, coins);
+        }
+
+        private void saltarEspacios() {
+            while (pos < texto.length() && Character.isWhitespace(texto.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private boolean consumir(char c) {
+            saltarEspacios();
+            if (pos < texto.length() && texto.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void esperar(char c) {
+            if (!consumir(c)) {
+                throw new IllegalArgumentException("se esperaba '" + c + "' en la posición " + (pos + 1));
+            }
+        }
+
+        private String leerTexto() {
+            esperar('"');
+            StringBuilder resultado = null;
+            int inicio = pos;
+            while (true) {
+                if (pos >= texto.length()) {
+                    throw new IllegalArgumentException("texto JSON sin cerrar");
+                }
+                char c = texto.charAt(pos++);
+                if (c == '"') {
+                    return resultado == null ? texto.substring(inicio, pos - 1) : resultado.toString();
+                }
+                if (c < 0x20) {
+                    throw new IllegalArgumentException("carácter de control sin escapar en un texto JSON");
+                }
+                if (c != '\\') {
+                    if (resultado != null) {
+                        resultado.append(c);
+                    }
+                    continue;
+                }
+                if (resultado == null) {
+                    resultado = new StringBuilder(texto.substring(inicio, pos - 1));
+                }
+                if (pos >= texto.length()) {
+                    throw new IllegalArgumentException("texto JSON sin cerrar");
+                }
+                char escapado = texto.charAt(pos++);
+                switch (escapado) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        resultado.append(escapado);
+                        break;
+                    case 'b':
+                        resultado.append('\b');
+                        break;
+                    case 'f':
+                        resultado.append('\f');
+                        break;
+                    case 'n':
+                        resultado.append('\n');
+                        break;
+                    case 'r':
+                        resultado.append('\r');
+                        break;
+                    case 't':
+                        resultado.append('\t');
+                        break;
+                    case 'u':
+                        if (pos + 4 > texto.length()) {
+                            throw new IllegalArgumentException("escape \\u incompleto");
+                        }
+                        try {
+                            resultado.append((char) Integer.parseInt(texto.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("escape \\u no válido");
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("escape no válido: \\" + escapado);
+                }
+            }
+        }
+
+        private int leerEntero(String clave) {
+            saltarEspacios();
+            int inicio = pos;
+            if (pos < texto.length() && texto.charAt(pos) == '-') {
+                pos++;
+            }
+            while (pos < texto.length() && Character.isDigit(texto.charAt(pos))) {
+                pos++;
+            }
+            if (pos < texto.length() && (texto.charAt(pos) == '.' || texto.charAt(pos) == 'e' || texto.charAt(pos) == 'E')) {
+                throw new IllegalArgumentException("el campo " + clave + " no es un entero");
+            }
+            try {
+                return Integer.parseInt(texto.substring(inicio, pos));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("el campo " + clave + " no es un entero válido");
+            }
+        }
+
+        private void saltarValor() {
+            saltarEspacios();
+            if (pos >= texto.length()) {
+                throw new IllegalArgumentException("falta un valor");
+            }
+            char c = texto.charAt(pos);
+            if (c == '"') {
+                leerTexto();
+            } else if (c == '{' || c == '[') {
+                throw new IllegalArgumentException("no se admiten valores anidados");
+            } else if (texto.startsWith("true", pos) || texto.startsWith("null", pos)) {
+                pos += 4;
+            } else if (texto.startsWith("false", pos)) {
+                pos += 5;
+            } else {
+                int inicio = pos;
+                while (pos < texto.length() && "+-.eE0123456789".indexOf(texto.charAt(pos)) >= 0) {
+                    pos++;
+                }
+                if (pos == inicio) {
+                    throw new IllegalArgumentException("valor JSON no válido en la posición " + (pos + 1));
+                }
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.mycompany.jugadorarchivosadriangalilea.GestionFichero;
 import com.mycompany.jugadorarchivosadriangalilea.Jugador;
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
 
@@ -15,6 +16,20 @@ public class Main {
     public static void main(String[] args) throws IOException {
         int opcion,comprobacion=0;
         boolean b = false;
+        if (args.length > 0 && args[0].equals("--servidor")) {
+            ServidorJugadores.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--lote")) {
+            ModoLotes.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && (args[0].equals("--importar") || args[0].equals("--exportar"))) {
+            String[] argumentos = args.clone();
+            argumentos[0] = args[0].substring(2);
+            IntercambioJugadores.main(argumentos);
+            return;
+        }
         opcionesPrincipales.configuracion();
         do {
             do {
@@ -52,6 +67,9 @@ public class Main {
                 case 7:
                     opcionesPrincipales.salir();
                     break;
+                case 8:
+                    opcionesPrincipales.convertirFormato();
+                    break;
                 default:
                     System.out.println("Opción no válida");
             }
@@ -0,0 +1,263 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * La clase ModoLotes ejecuta sin preguntas un guion de operaciones sobre un GestionFichero, para los trabajos
+ * de mantenimiento que no pueden usar el menú interactivo. Cada línea del guion es una orden; los campos se
+ * separan con ';' o, si la línea no tiene ninguno, con espacios:
+ * <ul>
+ *     <li>agregar (add) id nick experiencia vida monedas</li>
+ *     <li>eliminar (del) id</li>
+ *     <li>modificar (mod) id nick experiencia vida monedas</li>
+ *     <li>obtener (get) id</li>
+ *     <li>listar (list)</li>
+ * </ul>
+ * Las líneas vacías y las que empiezan por '#' se ignoran.
+ *
+ * Las altas seguidas se agrupan y se escriben con agregarJugadores, y las consultas seguidas se piden de una
+ * vez cuando el almacén es un ClienteJugadores; antes de cualquier otra orden se vacían los grupos pendientes,
+ * así que el resultado es el mismo que ejecutando las órdenes una a una. Los resultados se escriben con un
+ * buffer en la salida, y los errores de cada línea y el resumen de rendimiento en el informe, para que la
+ * salida se pueda redirigir sin mezclarse con ellos.
+ *
+ * Uso: ModoLotes formato ruta [guion], o Main --lote formato ruta [guion]. Sin guion, o con "-", se lee de la
+ * entrada estándar. Con el formato "servidor" la ruta es host:puerto de un ServidorJugadores.
+ */
+public class ModoLotes {
+
+    private static final int TAMAÑO_LOTE = 4096;
+
+    private enum Orden {
+        AGREGAR("add", 6), ELIMINAR("del", 2), MODIFICAR("mod", 6), OBTENER("get", 2), LISTAR("list", 1);
+
+        private final String alias;
+        private final int numeroCampos;
+
+        Orden(String alias, int numeroCampos) {
+            this.alias = alias;
+            this.numeroCampos = numeroCampos;
+        }
+
+        static Orden porNombre(String nombre) {
+            for (Orden orden : values()) {
+                if (orden.name().equalsIgnoreCase(nombre) || orden.alias.equalsIgnoreCase(nombre)) {
+                    return orden;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final GestionFichero gestion;
+    private final PrintWriter salida;
+    private final PrintStream informe;
+    private final long[] ejecutadas = new long[Orden.values().length];
+    private final long[] rechazadas = new long[Orden.values().length];
+    private final List<Jugador> altas = new ArrayList<>();
+    private final int[] consultas = new int[TAMAÑO_LOTE];
+    private int numConsultas;
+    private long errores;
+
+    /**
+     * Constructor de la clase ModoLotes.
+     *
+     * @param gestion Almacén sobre el que se ejecutan las órdenes. No se cierra al terminar.
+     * @param salida  Destino de los resultados de obtener y listar.
+     * @param informe Destino de los errores y del resumen.
+     */
+    public ModoLotes(GestionFichero gestion, PrintWriter salida, PrintStream informe) {
+        this.gestion = gestion;
+        this.salida = salida;
+        this.informe = informe;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || (!args[0].equalsIgnoreCase("servidor") && FormatoFichero.porNombre(args[0]) == null)) {
+            System.out.println("Uso: ModoLotes formato ruta [guion]");
+            System.out.println("Formatos: " + FormatoFichero.descripcionOpciones() + " o servidor (ruta host:puerto)");
+            return;
+        }
+        GestionFichero gestion;
+        if (args[0].equalsIgnoreCase("servidor")) {
+            String[] direccion = args[1].split(":");
+            gestion = new ClienteJugadores(direccion[0], Integer.parseInt(direccion[1]));
+        } else {
+            gestion = FormatoFichero.porNombre(args[0]).abrir(args[1]);
+        }
+        long errores;
+        boolean deArchivo = args.length > 2 && !args[2].equals("-");
+        InputStream origen = deArchivo ? new FileInputStream(args[2]) : System.in;
+        PrintWriter salida = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16));
+        try (BufferedReader guion = new BufferedReader(new InputStreamReader(origen, StandardCharsets.UTF_8), 1 << 16)) {
+            errores = new ModoLotes(gestion, salida, System.err).ejecutar(guion);
+        } finally {
+            salida.flush();
+            gestion.cerrar();
+        }
+        if (errores > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Ejecuta todas las órdenes del guion y escribe el resumen en el informe. Un error en una línea se anota
+     * en el informe y no detiene el guion; un error de entrada/salida del almacén sí lo detiene.
+     *
+     * @param guion Lector del guion.
+     * @return Número de líneas con error.
+     * @throws IOException Si ocurre un error al leer el guion o en el almacén.
+     */
+    public long ejecutar(BufferedReader guion) throws IOException {
+        long inicio = System.nanoTime();
+        String linea;
+        long numeroLinea = 0;
+        while ((linea = guion.readLine()) != null) {
+            numeroLinea++;
+            linea = linea.trim();
+            if (linea.isEmpty() || linea.startsWith("#")) {
+                continue;
+            }
+            try {
+                ejecutarLinea(linea);
+            } catch (IllegalArgumentException e) {
+                errores++;
+                informe.println("Línea " + numeroLinea + ": " + e.getMessage());
+            }
+        }
+        vaciarAltas();
+        vaciarConsultas();
+        salida.flush();
+        imprimirResumen(System.nanoTime() - inicio);
+        return errores;
+    }
+
+    private void ejecutarLinea(String linea) throws IOException {
+        String[] campos = linea.indexOf(';') >= 0 ? linea.split(";", -1) : linea.split("\\s+");
+        Orden orden = Orden.porNombre(campos[0].trim());
+        if (orden == null) {
+            throw new IllegalArgumentException("Orden desconocida: " + campos[0].trim());
+        }
+        if (campos.length != orden.numeroCampos) {
+            throw new IllegalArgumentException(orden.name().toLowerCase(Locale.ROOT) + " necesita "
+                    + (orden.numeroCampos - 1) + " campos y tiene " + (campos.length - 1));
+        }
+        if (orden != Orden.AGREGAR) {
+            vaciarAltas();
+        }
+        if (orden != Orden.OBTENER) {
+            vaciarConsultas();
+        }
+        switch (orden) {
+            case AGREGAR:
+                altas.add(leerJugador(campos));
+                if (altas.size() == TAMAÑO_LOTE) {
+                    vaciarAltas();
+                }
+                break;
+            case ELIMINAR:
+                int id = leerEntero(campos[1], "ID");
+                ejecutadas[orden.ordinal()]++;
+                if (!gestion.eliminarJugador(id)) {
+                    rechazadas[orden.ordinal()]++;
+                }
+                break;
+            case MODIFICAR:
+                Jugador jugador = leerJugador(campos);
+                ejecutadas[orden.ordinal()]++;
+                gestion.modificarJugador(jugador.getId(), jugador);
+                break;
+            case OBTENER:
+                consultas[numConsultas++] = leerEntero(campos[1], "ID");
+                if (numConsultas == TAMAÑO_LOTE) {
+                    vaciarConsultas();
+                }
+                break;
+            case LISTAR:
+                ejecutadas[orden.ordinal()]++;
+                gestion.recorrerJugadores(j -> {
+                    salida.println(j);
+                    return true;
+                });
+                break;
+        }
+    }
+
+    private void vaciarAltas() throws IOException {
+        if (altas.isEmpty()) {
+            return;
+        }
+        int agregados = gestion.agregarJugadores(altas);
+        ejecutadas[Orden.AGREGAR.ordinal()] += altas.size();
+        rechazadas[Orden.AGREGAR.ordinal()] += altas.size() - agregados;
+        altas.clear();
+    }
+
+    private void vaciarConsultas() throws IOException {
+        if (numConsultas == 0) {
+            return;
+        }
+        int[] ids = Arrays.copyOf(consultas, numConsultas);
+        List<Jugador> jugadores;
+        if (gestion instanceof ClienteJugadores) {
+            jugadores = ((ClienteJugadores) gestion).obtenerJugadores(ids);
+        } else {
+            jugadores = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                jugadores.add(gestion.obtenerJugador(id));
+            }
+        }
+        for (int i = 0; i < ids.length; i++) {
+            if (jugadores.get(i) != null) {
+                salida.println(jugadores.get(i));
+            } else {
+                salida.println("No existe el jugador con ID " + ids[i]);
+                rechazadas[Orden.OBTENER.ordinal()]++;
+            }
+        }
+        ejecutadas[Orden.OBTENER.ordinal()] += ids.length;
+        numConsultas = 0;
+    }
+
+    private static Jugador leerJugador(String[] campos) {
+        return new Jugador(leerEntero(campos[1], "ID"), campos[2].trim(), leerEntero(campos[3], "experiencia"),
+                leerEntero(campos[4], "nivel de vida"), leerEntero(campos[5], "monedas"));
+    }
+
+    private static int leerEntero(String campo, String nombre) {
+        try {
+            return Integer.parseInt(campo.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El campo " + nombre + " no es un número: " + campo.trim());
+        }
+    }
+
+    private void imprimirResumen(long nanos) {
+        long total = 0;
+        for (Orden orden : Orden.values()) {
+            total += ejecutadas[orden.ordinal()];
+        }
+        double segundos = nanos / 1e9;
+        informe.printf("%d órdenes en %.3f s (%.0f órdenes/s), %d líneas con error%n",
+                total, segundos, segundos > 0 ? total / segundos : 0, errores);
+        for (Orden orden : Orden.values()) {
+            if (ejecutadas[orden.ordinal()] > 0) {
+                informe.printf("  %-10s %10d  rechazadas %d%n", orden.name().toLowerCase(Locale.ROOT),
+                        ejecutadas[orden.ordinal()], rechazadas[orden.ordinal()]);
+            }
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.mycompany.jugadorarchivosadriangalilea;
 
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.util.List;
 import java.util.Scanner;
 
@@ -33,6 +37,7 @@ public class OpcionesPrincipales {
         System.out.println("5. Listado general");
         System.out.println("6. Configuración");
         System.out.println("7. Salir");
+        System.out.println("8. Convertir a otro formato");
         System.out.print("Seleccione una opción: ");
     }
 
@@ -274,21 +279,27 @@ public class OpcionesPrincipales {
 
     /**
      * Lista la información de todos los jugadores almacenados en el sistema.
+     * Los jugadores se leen con un cursor y se escriben con un buffer a medida que se leen,
+     * sin cargar la lista completa en memoria.
      */
     public static void listarTodosLosJugadores() {
-        try {
-            List<Jugador> jugadores = gestionFichero.listarJugadores();
-            for (Jugador j : jugadores) {
-                System.out.println(j.toString());
+        PrintWriter consola = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16));
+        try (CursorJugadores cursor = gestionFichero.abrirCursor(null)) {
+            Jugador j;
+            while ((j = cursor.siguiente()) != null) {
+                consola.println(j.toString());
             }
+            consola.flush();
             System.out.println("Jugadores listados con éxito.");
         } catch (IOException e) {
+            consola.flush();
             System.out.println("Error al listar jugadores: " + e.getMessage());
         }
     }
 
     /**
      * Configura la forma de gestionar el archivo para almacenar los datos de los jugadores.
+     * Si ya había un archivo configurado se cierra antes, para que guarde sus índices.
      *
      * @return Devuelve una instancia de la clase GestionFichero según la selección del usuario.
      * @throws IOException si ocurre un error durante la operación de configuración del archivo.
@@ -298,7 +309,7 @@ public class OpcionesPrincipales {
         int comprobacion=0;
         do{
             do {
-                System.out.println("Ingresa la manera que quieres escribir a los jugadores: 1 Texto 2 Binario 3 Objeto 4 Aleatorio 5 XML");
+                System.out.println("Ingresa la manera que quieres escribir a los jugadores: " + FormatoFichero.descripcionOpciones());
                 try {
                     comprobacion = Integer.parseInt(scanner.nextLine());
                     b=false;
@@ -314,24 +325,63 @@ public class OpcionesPrincipales {
             System.out.println("Escribe la ruta del archivo a modificar o crear. Si no está creado pon el nombre del archivo + su extensión al final de la ruta");
             String ruta = scanner.nextLine();
 
-            switch (escribir) {
-                case 1:
-                    return gestionFichero = new GestionTexto(ruta);
-                case 2:
-                    return gestionFichero = new GestionBinario(ruta);
-                case 3:
-                    return gestionFichero = new GestionObjetos(ruta);
-                case 4:
-                    return gestionFichero = new GestionAccesoAleatorio(ruta);
-                case 5:
-                    return gestionFichero = new GestionXML(ruta);
-                default:
-                    System.out.println("Opción no válida.");
-
+            FormatoFichero formato = FormatoFichero.porOpcion(escribir);
+            if (formato != null) {
+                if (gestionFichero != null) {
+                    gestionFichero.cerrar();
+                    gestionFichero = null;
+                }
+                return gestionFichero = formato.abrir(ruta);
             }
+            System.out.println("Opción no válida.");
         }while (true);
     }
 
+    /**
+     * Convierte los jugadores del archivo configurado actualmente a otro formato y ruta.
+     * Si la conversión se interrumpe, al repetirla con el mismo destino se reanuda desde el último punto de control.
+     */
+    public static void convertirFormato() {
+        boolean b = false;
+        int comprobacion=0;
+        FormatoFichero formato;
+        do {
+            System.out.println("Ingresa el formato de destino: " + FormatoFichero.descripcionOpciones());
+            try {
+                comprobacion = Integer.parseInt(scanner.nextLine());
+                b = FormatoFichero.porOpcion(comprobacion) == null;
+            } catch (Exception e) {
+                b = true;
+            }
+        } while (b);
+        formato = FormatoFichero.porOpcion(comprobacion);
+        if (formato == FormatoFichero.OBJETO) {
+            System.out.println("Aviso: el formato Objeto guarda una única lista, así que cada lote de la conversión "
+                    + "carga y reescribe todos los jugadores ya convertidos. Con archivos grandes la conversión será lenta "
+                    + "y necesitará memoria para todos ellos.");
+        }
+
+        System.out.println("Escribe la ruta del archivo de destino");
+        String ruta = scanner.nextLine();
+
+        GestionFichero destino = null;
+        try {
+            destino = formato.abrir(ruta);
+            long convertidos = new ConversorFormatos(gestionFichero, destino, new File(ruta + ".conv")).convertir();
+            System.out.println("Conversión completada: " + convertidos + " jugadores escritos.");
+        } catch (IOException e) {
+            System.out.println("Error al convertir el archivo: " + e.getMessage());
+        } finally {
+            if (destino != null) {
+                try {
+                    destino.cerrar();
+                } catch (IOException e) {
+                    System.out.println("Error al cerrar el archivo de destino: " + e.getMessage());
+                }
+            }
+        }
+    }
+
     /**
      * Cierra el programa y libera los recursos utilizados por la gestión de archivos.
      */
@@ -0,0 +1,12 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+/**
+ * Enumeración con los tipos de operación que ejecuta el generador de carga y que se guardan en las trazas.
+ */
+public enum OperacionCarga {
+    OBTENER,
+    MODIFICAR,
+    AGREGAR,
+    ELIMINAR,
+    RECORRER
+}
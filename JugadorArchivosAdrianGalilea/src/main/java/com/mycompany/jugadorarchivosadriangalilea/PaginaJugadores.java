@@ -0,0 +1,41 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.util.List;
+
+/**
+ * Página de jugadores devuelta por GestionFichero.listarPagina, con el texto de continuación
+ * necesario para pedir la página siguiente.
+ */
+public final class PaginaJugadores {
+
+    private final List<Jugador> jugadores;
+    private final String continuacion;
+
+    /**
+     * Constructor de la clase PaginaJugadores.
+     *
+     * @param jugadores    Jugadores de la página.
+     * @param continuacion Texto de continuación de la página siguiente, o null si es la última.
+     */
+    public PaginaJugadores(List<Jugador> jugadores, String continuacion) {
+        this.jugadores = jugadores;
+        this.continuacion = continuacion;
+    }
+
+    public List<Jugador> getJugadores() {
+        return jugadores;
+    }
+
+    /**
+     * Devuelve el texto que hay que pasar a listarPagina para obtener la página siguiente.
+     *
+     * @return El texto de continuación, o null si no hay más páginas.
+     */
+    public String getContinuacion() {
+        return continuacion;
+    }
+
+    public boolean hayMas() {
+        return continuacion != null;
+    }
+}
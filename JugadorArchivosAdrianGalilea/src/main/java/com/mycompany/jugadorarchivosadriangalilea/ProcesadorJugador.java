@@ -0,0 +1,20 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.IOException;
+
+/**
+ * Interfaz funcional que recibe los jugadores de un recorrido secuencial de un GestionFichero.
+ * Permite procesar los registros uno a uno sin necesidad de cargarlos todos en memoria.
+ */
+@FunctionalInterface
+public interface ProcesadorJugador {
+
+    /**
+     * Procesa un jugador leído durante el recorrido.
+     *
+     * @param jugador Jugador leído del archivo.
+     * @return true para continuar con el recorrido, false para detenerlo.
+     * @throws IOException Si ocurre un error al procesar el jugador.
+     */
+    boolean procesar(Jugador jugador) throws IOException;
+}
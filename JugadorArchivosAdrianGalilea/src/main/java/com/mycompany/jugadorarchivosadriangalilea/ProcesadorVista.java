@@ -0,0 +1,21 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.IOException;
+
+/**
+ * Interfaz funcional que recibe las vistas de un recorrido con GestionFichero.recorrerVistas.
+ * La vista se reutiliza para todos los registros, así que solo es válida durante la llamada;
+ * para conservar un jugador hay que materializarlo con VistaJugador.aJugador.
+ */
+@FunctionalInterface
+public interface ProcesadorVista {
+
+    /**
+     * Procesa el registro sobre el que está colocada la vista.
+     *
+     * @param vista Vista del registro actual.
+     * @return true para continuar con el recorrido, false para detenerlo.
+     * @throws IOException Si ocurre un error al procesar el registro.
+     */
+    boolean procesar(VistaJugador vista) throws IOException;
+}
@@ -0,0 +1,95 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Constantes y codificación del protocolo binario que usan ServidorJugadores y ClienteJugadores.
+ *
+ * Al conectar, el cliente envía MAGIA y VERSION y el servidor responde con los mismos valores. Después cada
+ * petición es un byte de operación seguido de sus argumentos, y cada respuesta un byte de estado (OK o ERROR)
+ * seguido del resultado o del mensaje de error. El servidor atiende las peticiones de una conexión en orden,
+ * así que el cliente puede enviar varias seguidas sin esperar las respuestas (pipelining) y leerlas después
+ * en el mismo orden. La conexión se mantiene abierta hasta que el cliente la cierra.
+ *
+ * La respuesta de RECORRER se envía por tramos: varios bloques [número de jugadores][jugadores] terminados
+ * por un bloque de 0 jugadores, y después el estado.
+ */
+final class ProtocoloJugadores {
+
+    static final int MAGIA = 0x4A554752;
+    static final int VERSION = 1;
+
+    static final byte AGREGAR = 1;
+    static final byte ELIMINAR = 2;
+    static final byte MODIFICAR = 3;
+    static final byte OBTENER = 4;
+    static final byte LISTAR = 5;
+    static final byte CONSULTAR = 6;
+    static final byte CONTAR = 7;
+    static final byte OBTENER_POR_NICK = 8;
+    static final byte BUSCAR_PREFIJO = 9;
+    static final byte AGREGAR_LOTE = 10;
+    static final byte SINCRONIZAR = 11;
+    static final byte RECORRER = 12;
+    static final byte LISTAR_PAGINA = 13;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    /** Jugadores por tramo en la respuesta de RECORRER. */
+    static final int JUGADORES_POR_TRAMO = 512;
+
+    private ProtocoloJugadores() {
+    }
+
+    static void escribirJugador(DataOutputStream salida, Jugador jugador) throws IOException {
+        salida.writeInt(jugador.getId());
+        escribirTexto(salida, jugador.getNick());
+        salida.writeInt(jugador.getExperience());
+        salida.writeInt(jugador.getLifeLevel());
+        salida.writeInt(jugador.getCoins());
+    }
+
+    static Jugador leerJugador(DataInputStream entrada) throws IOException {
+        int id = entrada.readInt();
+        String nick = leerTexto(entrada);
+        return new Jugador(id, nick, entrada.readInt(), entrada.readInt(), entrada.readInt());
+    }
+
+    static void escribirLista(DataOutputStream salida, List<Jugador> jugadores) throws IOException {
+        salida.writeInt(jugadores.size());
+        for (Jugador jugador : jugadores) {
+            escribirJugador(salida, jugador);
+        }
+    }
+
+    static List<Jugador> leerLista(DataInputStream entrada) throws IOException {
+        int numJugadores = entrada.readInt();
+        if (numJugadores < 0) {
+            throw new IOException("Número de jugadores no válido: " + numJugadores);
+        }
+        List<Jugador> jugadores = new ArrayList<>(Math.min(numJugadores, 1 << 16));
+        for (int i = 0; i < numJugadores; i++) {
+            jugadores.add(leerJugador(entrada));
+        }
+        return jugadores;
+    }
+
+    /**
+     * Escribe un texto que puede ser null (los nicks no proyectados de una consulta lo son).
+     */
+    static void escribirTexto(DataOutputStream salida, String texto) throws IOException {
+        salida.writeBoolean(texto != null);
+        if (texto != null) {
+            salida.writeUTF(texto);
+        }
+    }
+
+    static String leerTexto(DataInputStream entrada) throws IOException {
+        return entrada.readBoolean() ? entrada.readUTF() : null;
+    }
+}
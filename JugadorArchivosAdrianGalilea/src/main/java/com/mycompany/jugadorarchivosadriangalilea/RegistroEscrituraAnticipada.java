@@ -0,0 +1,406 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * La clase RegistroEscrituraAnticipada es un registro de escritura anticipada (write-ahead log) de cambios
+ * sobre jugadores. Cada cambio se anota como una entrada con su longitud y un CRC32, y un hilo de confirmación
+ * escribe en el archivo todas las entradas acumuladas y las fuerza a disco con una única sincronización,
+ * de modo que los hilos que anotan cambios a la vez comparten el coste de la sincronización (group commit).
+ * Al abrir un registro existente se leen sus entradas válidas para volver a aplicarlas; una entrada incompleta
+ * o con el CRC incorrecto al final del archivo se considera una escritura interrumpida y se descarta.
+ */
+public class RegistroEscrituraAnticipada {
+
+    private static final int MAGIA = 0x4A57414C;
+    private static final int VERSION = 1;
+    private static final int TAMAÑO_CABECERA = 2 * Integer.BYTES;
+    private static final byte GUARDAR = 1;
+    private static final byte ELIMINAR = 2;
+    private static final byte LOTE = 3;
+
+    private final FileChannel canal;
+    private final List<Entrada> recuperadas;
+    private final Thread confirmador;
+    private ByteArrayOutputStream pendientes = new ByteArrayOutputStream();
+    private long posicion;
+    private long ultimaAnotada;
+    private long ultimaDuradera;
+    private boolean escribiendo;
+    private boolean cerrado;
+    private IOException error;
+    private long sincronizaciones;
+
+    /**
+     * Constructor de la clase RegistroEscrituraAnticipada.
+     * Abre o crea el archivo del registro, lee las entradas que contenga y arranca el hilo de confirmación.
+     *
+     * @param archivo Archivo del registro.
+     * @throws IOException Si ocurre un error al abrir el archivo o si no es un registro válido.
+     */
+    public RegistroEscrituraAnticipada(File archivo) throws IOException {
+        canal = FileChannel.open(archivo.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (canal.size() < TAMAÑO_CABECERA) {
+                escribirCabecera();
+                recuperadas = new ArrayList<>();
+            } else {
+                recuperadas = leerEntradas();
+            }
+        } catch (IOException e) {
+            canal.close();
+            throw e;
+        }
+        confirmador = new Thread(this::confirmar, "registro-" + archivo.getName());
+        confirmador.setDaemon(true);
+        confirmador.start();
+    }
+
+    /**
+     * Devuelve las entradas válidas que contenía el registro al abrirlo, en el orden en que se anotaron.
+     *
+     * @return Lista de entradas recuperadas.
+     */
+    public List<Entrada> getRecuperadas() {
+        return recuperadas;
+    }
+
+    /**
+     * Anota que un jugador pasa a tener exactamente los datos indicados, exista o no antes.
+     *
+     * @param jugador Datos del jugador.
+     * @return Número de secuencia de la entrada, para esperar a que sea duradera.
+     * @throws IOException Si el registro está cerrado o falló una escritura anterior.
+     */
+    public long anotarGuardado(Jugador jugador) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        escribirCambio(new DataOutputStream(bytes), jugador.getId(), jugador);
+        return anotar(bytes.toByteArray());
+    }
+
+    /**
+     * Anota que un jugador deja de existir.
+     *
+     * @param id ID del jugador.
+     * @return Número de secuencia de la entrada, para esperar a que sea duradera.
+     * @throws IOException Si el registro está cerrado o falló una escritura anterior.
+     */
+    public long anotarEliminacion(int id) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8);
+        escribirCambio(new DataOutputStream(bytes), id, null);
+        return anotar(bytes.toByteArray());
+    }
+
+    /**
+     * Anota varios cambios en una sola entrada con un único CRC, de modo que al recuperar el registro
+     * se vuelven a aplicar todos o ninguno.
+     *
+     * @param cambios Nuevo estado de cada jugador afectado, o null si deja de existir.
+     * @return Número de secuencia de la entrada, para esperar a que sea duradera.
+     * @throws IOException Si el registro está cerrado o falló una escritura anterior.
+     */
+    public long anotarLote(Map<Integer, Jugador> cambios) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, 32 * cambios.size()));
+        DataOutputStream datos = new DataOutputStream(bytes);
+        datos.writeByte(LOTE);
+        datos.writeInt(cambios.size());
+        for (Map.Entry<Integer, Jugador> cambio : cambios.entrySet()) {
+            escribirCambio(datos, cambio.getKey(), cambio.getValue());
+        }
+        return anotar(bytes.toByteArray());
+    }
+
+    /**
+     * Espera a que una entrada y todas las anteriores estén escritas y forzadas a disco.
+     *
+     * @param secuencia Número de secuencia devuelto al anotar la entrada.
+     * @throws IOException Si falla la escritura del registro o el hilo es interrumpido.
+     */
+    public synchronized void esperar(long secuencia) throws IOException {
+        while (ultimaDuradera < secuencia) {
+            comprobarError();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrumpido esperando la confirmación del registro");
+            }
+        }
+    }
+
+    /**
+     * Espera a que todas las entradas anotadas hasta el momento sean duraderas.
+     *
+     * @throws IOException Si falla la escritura del registro o el hilo es interrumpido.
+     */
+    public synchronized void esperarTodas() throws IOException {
+        esperar(ultimaAnotada);
+    }
+
+    /**
+     * Vacía el registro una vez que sus cambios están aplicados y sincronizados en el almacén base.
+     * Espera antes a que se confirmen las entradas pendientes para no truncar una escritura en curso.
+     *
+     * @throws IOException Si ocurre un error al truncar el archivo.
+     */
+    public synchronized void vaciar() throws IOException {
+        esperarTodas();
+        while (escribiendo) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrumpido esperando la confirmación del registro");
+            }
+        }
+        canal.truncate(TAMAÑO_CABECERA);
+        canal.force(true);
+        posicion = TAMAÑO_CABECERA;
+    }
+
+    /**
+     * Devuelve el número de sincronizaciones a disco hechas por el hilo de confirmación.
+     * Comparado con el número de entradas anotadas indica cuántas entradas comparte cada sincronización.
+     *
+     * @return Número de sincronizaciones.
+     */
+    public synchronized long getSincronizaciones() {
+        return sincronizaciones;
+    }
+
+    /**
+     * Devuelve el número de entradas anotadas desde que se abrió el registro.
+     *
+     * @return Número de entradas.
+     */
+    public synchronized long getEntradas() {
+        return ultimaAnotada;
+    }
+
+    /**
+     * Confirma las entradas pendientes, detiene el hilo de confirmación y cierra el archivo.
+     *
+     * @throws IOException Si ocurre un error al confirmar las entradas o al cerrar el archivo.
+     */
+    public void cerrar() throws IOException {
+        synchronized (this) {
+            if (cerrado) {
+                return;
+            }
+            cerrado = true;
+            notifyAll();
+        }
+        try {
+            confirmador.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        canal.close();
+        synchronized (this) {
+            comprobarError();
+        }
+    }
+
+    /**
+     * Añade una entrada con su longitud y su CRC al buffer de entradas pendientes y despierta al hilo de confirmación.
+     */
+    private synchronized long anotar(byte[] datos) throws IOException {
+        comprobarError();
+        if (cerrado) {
+            throw new IOException("El registro está cerrado");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(datos);
+        DataOutputStream salida = new DataOutputStream(pendientes);
+        salida.writeInt(datos.length);
+        salida.writeInt((int) crc.getValue());
+        salida.write(datos);
+        ultimaAnotada++;
+        notifyAll();
+        return ultimaAnotada;
+    }
+
+    /**
+     * Bucle del hilo de confirmación. Toma todas las entradas acumuladas mientras se escribía el lote anterior,
+     * las escribe al final del archivo y las fuerza a disco con una sola sincronización.
+     */
+    private void confirmar() {
+        while (true) {
+            ByteBuffer lote;
+            long hasta;
+            long pos;
+            synchronized (this) {
+                while (pendientes.size() == 0 && !cerrado) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pendientes.size() == 0) {
+                    return;
+                }
+                lote = ByteBuffer.wrap(pendientes.toByteArray());
+                pendientes = new ByteArrayOutputStream(Math.max(32, lote.capacity()));
+                hasta = ultimaAnotada;
+                pos = posicion;
+                escribiendo = true;
+            }
+            try {
+                while (lote.hasRemaining()) {
+                    pos += canal.write(lote, pos);
+                }
+                canal.force(false);
+                synchronized (this) {
+                    posicion = pos;
+                    ultimaDuradera = hasta;
+                    sincronizaciones++;
+                    escribiendo = false;
+                    notifyAll();
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    error = e;
+                    escribiendo = false;
+                    notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    private void comprobarError() throws IOException {
+        if (error != null) {
+            throw new IOException("Falló la escritura del registro", error);
+        }
+    }
+
+    private void escribirCabecera() throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(TAMAÑO_CABECERA);
+        cabecera.putInt(MAGIA).putInt(VERSION).flip();
+        canal.truncate(0);
+        while (cabecera.hasRemaining()) {
+            canal.write(cabecera, cabecera.position());
+        }
+        canal.force(true);
+        posicion = TAMAÑO_CABECERA;
+    }
+
+    /**
+     * Lee las entradas del registro hasta el final o hasta la primera entrada incompleta o corrupta,
+     * y trunca el archivo en ese punto para que las entradas nuevas se escriban a continuación de las válidas.
+     */
+    private List<Entrada> leerEntradas() throws IOException {
+        ByteBuffer contenido = ByteBuffer.allocate((int) canal.size());
+        while (contenido.hasRemaining()) {
+            if (canal.read(contenido, contenido.position()) < 0) {
+                break;
+            }
+        }
+        contenido.flip();
+        if (contenido.getInt() != MAGIA || contenido.getInt() != VERSION) {
+            throw new IOException("El archivo no es un registro de escritura anticipada válido");
+        }
+        List<Entrada> entradas = new ArrayList<>();
+        CRC32 crc = new CRC32();
+        while (contenido.remaining() >= 2 * Integer.BYTES) {
+            int inicio = contenido.position();
+            int longitud = contenido.getInt();
+            int suma = contenido.getInt();
+            if (longitud <= 0 || longitud > contenido.remaining()) {
+                contenido.position(inicio);
+                break;
+            }
+            byte[] datos = new byte[longitud];
+            contenido.get(datos);
+            crc.reset();
+            crc.update(datos);
+            if ((int) crc.getValue() != suma) {
+                contenido.position(inicio);
+                break;
+            }
+            decodificar(datos, entradas);
+        }
+        posicion = contenido.position();
+        if (posicion < canal.size()) {
+            canal.truncate(posicion);
+            canal.force(true);
+        }
+        return entradas;
+    }
+
+    private static void escribirCambio(DataOutputStream datos, int id, Jugador jugador) throws IOException {
+        if (jugador == null) {
+            datos.writeByte(ELIMINAR);
+            datos.writeInt(id);
+            return;
+        }
+        datos.writeByte(GUARDAR);
+        datos.writeInt(jugador.getId());
+        datos.writeUTF(jugador.getNick());
+        datos.writeInt(jugador.getExperience());
+        datos.writeInt(jugador.getLifeLevel());
+        datos.writeInt(jugador.getCoins());
+    }
+
+    /**
+     * Decodifica una entrada, que puede contener un cambio o un lote de cambios, y añade sus cambios a la lista.
+     */
+    private static void decodificar(byte[] datos, List<Entrada> entradas) throws IOException {
+        DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(datos));
+        byte tipo = entrada.readByte();
+        if (tipo != LOTE) {
+            entradas.add(leerCambio(entrada, tipo));
+            return;
+        }
+        int numeroCambios = entrada.readInt();
+        for (int i = 0; i < numeroCambios; i++) {
+            entradas.add(leerCambio(entrada, entrada.readByte()));
+        }
+    }
+
+    private static Entrada leerCambio(DataInputStream entrada, byte tipo) throws IOException {
+        int id = entrada.readInt();
+        if (tipo == ELIMINAR) {
+            return new Entrada(id, null);
+        }
+        if (tipo != GUARDAR) {
+            throw new IOException("Tipo de entrada desconocido en el registro: " + tipo);
+        }
+        String nick = entrada.readUTF();
+        return new Entrada(id, new Jugador(id, nick, entrada.readInt(), entrada.readInt(), entrada.readInt()));
+    }
+
+    /**
+     * Entrada del registro: el nuevo estado de un jugador, o su eliminación si el jugador es null.
+     */
+    public static final class Entrada {
+
+        private final int id;
+        private final Jugador jugador;
+
+        Entrada(int id, Jugador jugador) {
+            this.id = id;
+            this.jugador = jugador;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public Jugador getJugador() {
+            return jugador;
+        }
+
+        public boolean esEliminacion() {
+            return jugador == null;
+        }
+    }
+}
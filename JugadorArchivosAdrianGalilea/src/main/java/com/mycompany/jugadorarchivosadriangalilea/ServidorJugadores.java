@@ -0,0 +1,355 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * La clase ServidorJugadores sirve las operaciones de un GestionFichero por TCP con el protocolo binario
+ * descrito en ProtocoloJugadores, de modo que varios procesos pueden compartir el mismo almacén de jugadores
+ * usando ClienteJugadores.
+ *
+ * Cada conexión se atiende en su propio hilo: un hilo virtual si la JVM los tiene (Java 21 o superior, o Java 20
+ * con --enable-preview) o un hilo de un pool que crece según haga falta en caso contrario. Las peticiones de una
+ * conexión se atienden en orden y las respuestas solo se envían cuando no quedan más peticiones recibidas, así que
+ * un cliente que encadena varias peticiones recibe todas las respuestas en pocos paquetes. Las operaciones sobre
+ * el almacén se serializan con GestionSincronizada porque los backends de archivo no son seguros entre hilos.
+ *
+ * Uso: ServidorJugadores formato ruta [puerto], o Main --servidor formato ruta [puerto]
+ */
+public class ServidorJugadores {
+
+    /** Puerto por defecto del servidor. */
+    public static final int PUERTO_POR_DEFECTO = 7070;
+
+    private final GestionFichero gestion;
+    private final ServerSocket servidor;
+    private final ExecutorService hilos;
+    private final boolean hilosVirtuales;
+    private final Set<Socket> conexiones = ConcurrentHashMap.newKeySet();
+    private Thread aceptador;
+    private volatile boolean cerrado;
+
+    /**
+     * Constructor de la clase ServidorJugadores. Escucha solo en la interfaz local (localhost).
+     *
+     * @param gestion Almacén de jugadores que se sirve. El servidor no lo cierra.
+     * @param puerto  Puerto de escucha, o 0 para elegir uno libre.
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    public ServidorJugadores(GestionFichero gestion, int puerto) throws IOException {
+        this(gestion, new InetSocketAddress(InetAddress.getLoopbackAddress(), puerto));
+    }
+
+    /**
+     * Constructor de la clase ServidorJugadores.
+     *
+     * @param gestion   Almacén de jugadores que se sirve. El servidor no lo cierra.
+     * @param direccion Dirección y puerto de escucha.
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    public ServidorJugadores(GestionFichero gestion, InetSocketAddress direccion) throws IOException {
+        this.gestion = new GestionSincronizada(gestion);
+        this.servidor = new ServerSocket();
+        servidor.setReuseAddress(true);
+        servidor.bind(direccion);
+        ExecutorService virtuales = crearEjecutorVirtual();
+        this.hilosVirtuales = virtuales != null;
+        this.hilos = virtuales != null ? virtuales : Executors.newCachedThreadPool(tarea -> {
+            Thread hilo = new Thread(tarea, "conexion-jugadores");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || FormatoFichero.porNombre(args[0]) == null) {
+            System.out.println("Uso: ServidorJugadores formato ruta [puerto]");
+            System.out.println("Formatos: " + FormatoFichero.descripcionOpciones());
+            return;
+        }
+        GestionFichero gestion = FormatoFichero.porNombre(args[0]).abrir(args[1]);
+        ServidorJugadores servidor = new ServidorJugadores(gestion, args.length > 2 ? Integer.parseInt(args[2]) : PUERTO_POR_DEFECTO);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                servidor.cerrar();
+                gestion.cerrar();
+            } catch (IOException e) {
+                System.err.println("Error al cerrar el almacén: " + e.getMessage());
+            }
+        }));
+        servidor.iniciar();
+        System.out.println("Sirviendo " + args[1] + " en el puerto " + servidor.getPuerto()
+                + (servidor.usaHilosVirtuales() ? " con hilos virtuales" : ""));
+    }
+
+    /**
+     * Empieza a aceptar conexiones en un hilo propio.
+     */
+    public synchronized void iniciar() {
+        if (aceptador != null) {
+            throw new IllegalStateException("El servidor ya está iniciado");
+        }
+        aceptador = new Thread(this::aceptar, "servidor-jugadores-" + getPuerto());
+        aceptador.start();
+    }
+
+    public int getPuerto() {
+        return servidor.getLocalPort();
+    }
+
+    public boolean usaHilosVirtuales() {
+        return hilosVirtuales;
+    }
+
+    /**
+     * Deja de aceptar conexiones, cierra las abiertas y espera a que terminen las peticiones en curso.
+     * El almacén servido no se cierra.
+     *
+     * @throws IOException Si ocurre un error al cerrar el puerto.
+     */
+    public void cerrar() throws IOException {
+        cerrado = true;
+        servidor.close();
+        for (Socket conexion : conexiones) {
+            conexion.close();
+        }
+        hilos.shutdown();
+        try {
+            hilos.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void aceptar() {
+        while (!cerrado) {
+            try {
+                Socket conexion = servidor.accept();
+                conexion.setTcpNoDelay(true);
+                conexiones.add(conexion);
+                hilos.execute(() -> atender(conexion));
+            } catch (IOException e) {
+                if (!cerrado) {
+                    System.err.println("Error al aceptar una conexión: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Atiende una conexión hasta que el cliente la cierra. Un error del protocolo cierra la conexión;
+     * un error del almacén se devuelve al cliente y la conexión sigue abierta.
+     */
+    private void atender(Socket conexion) {
+        try (conexion) {
+            DataInputStream entrada = new DataInputStream(new BufferedInputStream(conexion.getInputStream()));
+            DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(conexion.getOutputStream()));
+            if (entrada.readInt() != ProtocoloJugadores.MAGIA || entrada.readInt() != ProtocoloJugadores.VERSION) {
+                return;
+            }
+            salida.writeInt(ProtocoloJugadores.MAGIA);
+            salida.writeInt(ProtocoloJugadores.VERSION);
+            salida.flush();
+            int operacion;
+            while ((operacion = entrada.read()) >= 0) {
+                atenderPeticion((byte) operacion, entrada, salida);
+                if (entrada.available() == 0) {
+                    salida.flush();
+                }
+            }
+        } catch (EOFException | SocketException e) {
+            // El cliente cerró la conexión.
+        } catch (IOException e) {
+            if (!cerrado) {
+                System.err.println("Error en la conexión con " + conexion.getRemoteSocketAddress() + ": " + e.getMessage());
+            }
+        } finally {
+            conexiones.remove(conexion);
+        }
+    }
+
+    /**
+     * Lee los argumentos de una petición, la ejecuta sobre el almacén y escribe la respuesta.
+     */
+    private void atenderPeticion(byte operacion, DataInputStream entrada, DataOutputStream salida) throws IOException {
+        switch (operacion) {
+            case ProtocoloJugadores.AGREGAR: {
+                Jugador jugador = ProtocoloJugadores.leerJugador(entrada);
+                responder(salida, s -> s.writeBoolean(gestion.agregarJugador(jugador)));
+                break;
+            }
+            case ProtocoloJugadores.ELIMINAR: {
+                int id = entrada.readInt();
+                responder(salida, s -> s.writeBoolean(gestion.eliminarJugador(id)));
+                break;
+            }
+            case ProtocoloJugadores.MODIFICAR: {
+                int id = entrada.readInt();
+                Jugador jugador = ProtocoloJugadores.leerJugador(entrada);
+                responder(salida, s -> gestion.modificarJugador(id, jugador));
+                break;
+            }
+            case ProtocoloJugadores.OBTENER: {
+                int id = entrada.readInt();
+                responder(salida, s -> {
+                    Jugador jugador = gestion.obtenerJugador(id);
+                    s.writeBoolean(jugador != null);
+                    if (jugador != null) {
+                        ProtocoloJugadores.escribirJugador(s, jugador);
+                    }
+                });
+                break;
+            }
+            case ProtocoloJugadores.LISTAR:
+                responder(salida, s -> ProtocoloJugadores.escribirLista(s, gestion.listarJugadores()));
+                break;
+            case ProtocoloJugadores.CONSULTAR: {
+                ConsultaJugadores consulta = ConsultaJugadores.leer(entrada);
+                responder(salida, s -> ProtocoloJugadores.escribirLista(s, gestion.consultar(consulta)));
+                break;
+            }
+            case ProtocoloJugadores.CONTAR: {
+                ConsultaJugadores consulta = ConsultaJugadores.leer(entrada);
+                responder(salida, s -> s.writeLong(gestion.contar(consulta)));
+                break;
+            }
+            case ProtocoloJugadores.OBTENER_POR_NICK: {
+                String nick = entrada.readUTF();
+                responder(salida, s -> ProtocoloJugadores.escribirLista(s, gestion.obtenerPorNick(nick)));
+                break;
+            }
+            case ProtocoloJugadores.BUSCAR_PREFIJO: {
+                String prefijo = entrada.readUTF();
+                int limite = entrada.readInt();
+                responder(salida, s -> ProtocoloJugadores.escribirLista(s, gestion.buscarPorPrefijoNick(prefijo, limite)));
+                break;
+            }
+            case ProtocoloJugadores.AGREGAR_LOTE: {
+                List<Jugador> jugadores = ProtocoloJugadores.leerLista(entrada);
+                responder(salida, s -> s.writeInt(gestion.agregarJugadores(jugadores)));
+                break;
+            }
+            case ProtocoloJugadores.SINCRONIZAR:
+                responder(salida, s -> gestion.sincronizar());
+                break;
+            case ProtocoloJugadores.RECORRER:
+                recorrer(ConsultaJugadores.leer(entrada), salida);
+                break;
+            case ProtocoloJugadores.LISTAR_PAGINA: {
+                String continuacion = ProtocoloJugadores.leerTexto(entrada);
+                int limite = entrada.readInt();
+                responder(salida, s -> {
+                    PaginaJugadores pagina = gestion.listarPagina(continuacion, limite);
+                    ProtocoloJugadores.escribirLista(s, pagina.getJugadores());
+                    ProtocoloJugadores.escribirTexto(s, pagina.getContinuacion());
+                });
+                break;
+            }
+            default:
+                throw new IOException("Operación desconocida: " + operacion);
+        }
+    }
+
+    /**
+     * Envía los jugadores de un recorrido por tramos a medida que se leen, sin reunirlos todos en memoria,
+     * y después el estado final. Se leen con un cursor, que solo retiene el almacén mientras lee cada jugador:
+     * cada tramo se escribe en la conexión sin él, de modo que un cliente lento no detiene a los demás.
+     * Como en listarPagina, los cambios que hagan otros clientes durante el recorrido pueden verse o no.
+     */
+    private void recorrer(ConsultaJugadores consulta, DataOutputStream salida) throws IOException {
+        Jugador[] tramo = new Jugador[ProtocoloJugadores.JUGADORES_POR_TRAMO];
+        int enTramo = 0;
+        IOException error = null;
+        try (CursorJugadores cursor = gestion.abrirCursor(null)) {
+            Jugador jugador;
+            while ((jugador = cursor.siguiente()) != null) {
+                if (consulta.acepta(jugador)) {
+                    tramo[enTramo++] = jugador;
+                    if (enTramo == tramo.length) {
+                        escribirTramo(salida, tramo, enTramo);
+                        enTramo = 0;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            error = e;
+        } catch (RuntimeException e) {
+            error = new IOException(e.toString(), e);
+        }
+        if (enTramo > 0) {
+            escribirTramo(salida, tramo, enTramo);
+        }
+        salida.writeInt(0);
+        if (error != null) {
+            salida.writeByte(ProtocoloJugadores.ERROR);
+            salida.writeUTF(mensaje(error));
+        } else {
+            salida.writeByte(ProtocoloJugadores.OK);
+        }
+    }
+
+    private static void escribirTramo(DataOutputStream salida, Jugador[] tramo, int numJugadores) throws IOException {
+        salida.writeInt(numJugadores);
+        for (int i = 0; i < numJugadores; i++) {
+            ProtocoloJugadores.escribirJugador(salida, tramo[i]);
+        }
+    }
+
+    /**
+     * Ejecuta una operación sobre el almacén. Su resultado se escribe en un búfer aparte, de modo que si la
+     * operación falla a mitad no queda una respuesta incompleta en la conexión y se envía el error en su lugar.
+     */
+    private void responder(DataOutputStream salida, Operacion operacion) throws IOException {
+        ByteArrayOutputStream resultado = new ByteArrayOutputStream();
+        try {
+            operacion.ejecutar(new DataOutputStream(resultado));
+        } catch (IOException | RuntimeException e) {
+            salida.writeByte(ProtocoloJugadores.ERROR);
+            salida.writeUTF(mensaje(e));
+            return;
+        }
+        salida.writeByte(ProtocoloJugadores.OK);
+        resultado.writeTo(salida);
+    }
+
+    private static String mensaje(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.toString();
+    }
+
+    /**
+     * Crea un ejecutor con un hilo virtual por tarea si la JVM lo permite. Se busca por reflexión porque
+     * el proyecto se compila para Java 20, donde los hilos virtuales son una API en vista previa: llamarla
+     * directamente obligaría a compilar y ejecutar con --enable-preview.
+     */
+    private static ExecutorService crearEjecutorVirtual() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Operación sobre el almacén que escribe su resultado en la salida indicada.
+     */
+    @FunctionalInterface
+    private interface Operacion {
+        void ejecutar(DataOutputStream salida) throws IOException;
+    }
+}
@@ -0,0 +1,332 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * La clase TablaColumnar guarda un conjunto de jugadores en memoria por columnas: un array de int por cada campo
+ * numérico y los nicks empaquetados en un único array de bytes UTF-8 con sus posiciones de inicio.
+ * Evita tener un objeto Jugador y un String por cada jugador, de modo que ocupa unos 16 bytes por fila más
+ * la longitud del nick, y permite calcular agregados (sumas, medias, histogramas) con bucles sobre arrays primitivos.
+ * Los backends la rellenan directamente desde su recorrido con cargarTablaColumnar.
+ */
+public class TablaColumnar {
+
+    private static final int CAPACIDAD_INICIAL = 1024;
+
+    private int filas;
+    private int[] ids;
+    private int[] experiencia;
+    private int[] nivelVida;
+    private int[] monedas;
+    private int[] inicioNick;
+    private byte[] nicks;
+    private int bytesNick;
+
+    /**
+     * Crea una tabla vacía.
+     */
+    public TablaColumnar() {
+        ids = new int[CAPACIDAD_INICIAL];
+        experiencia = new int[CAPACIDAD_INICIAL];
+        nivelVida = new int[CAPACIDAD_INICIAL];
+        monedas = new int[CAPACIDAD_INICIAL];
+        inicioNick = new int[CAPACIDAD_INICIAL + 1];
+        nicks = new byte[CAPACIDAD_INICIAL * 8];
+    }
+
+    public int tamaño() {
+        return filas;
+    }
+
+    /**
+     * Añade una fila con los datos de un jugador.
+     *
+     * @param jugador Jugador a añadir.
+     */
+    public void agregar(Jugador jugador) {
+        agregarFila(jugador.getId(), jugador.getNick(), jugador.getExperience(), jugador.getLifeLevel(), jugador.getCoins());
+    }
+
+    /**
+     * Añade una fila a partir de los valores de sus campos.
+     *
+     * @param id         ID del jugador.
+     * @param nick       Nick del jugador.
+     * @param experience Experiencia.
+     * @param lifeLevel  Nivel de vida.
+     * @param coins      Monedas.
+     */
+    public void agregarFila(int id, String nick, int experience, int lifeLevel, int coins) {
+        byte[] bytes = nick == null ? new byte[0] : nick.getBytes(StandardCharsets.UTF_8);
+        agregarFila(id, bytes, 0, bytes.length, experience, lifeLevel, coins);
+    }
+
+    /**
+     * Añade una fila con el nick ya codificado en UTF-8, sin crear ningún String.
+     *
+     * @param id         ID del jugador.
+     * @param nickUtf8   Buffer con los bytes UTF-8 del nick.
+     * @param desde      Posición del primer byte del nick en el buffer.
+     * @param longitud   Número de bytes del nick.
+     * @param experience Experiencia.
+     * @param lifeLevel  Nivel de vida.
+     * @param coins      Monedas.
+     */
+    public void agregarFila(int id, byte[] nickUtf8, int desde, int longitud, int experience, int lifeLevel, int coins) {
+        asegurarFilas(filas + 1);
+        asegurarBytes(bytesNick + longitud);
+        System.arraycopy(nickUtf8, desde, nicks, bytesNick, longitud);
+        completarFila(id, longitud, experience, lifeLevel, coins);
+    }
+
+    /**
+     * Añade una fila con el nick como array de caracteres. Los nicks ASCII se copian byte a byte sin crear un String.
+     *
+     * @param id         ID del jugador.
+     * @param nick       Caracteres del nick.
+     * @param longitud   Número de caracteres válidos.
+     * @param experience Experiencia.
+     * @param lifeLevel  Nivel de vida.
+     * @param coins      Monedas.
+     */
+    public void agregarFila(int id, char[] nick, int longitud, int experience, int lifeLevel, int coins) {
+        for (int i = 0; i < longitud; i++) {
+            if (nick[i] >= 0x80) {
+                agregarFila(id, new String(nick, 0, longitud), experience, lifeLevel, coins);
+                return;
+            }
+        }
+        asegurarFilas(filas + 1);
+        asegurarBytes(bytesNick + longitud);
+        for (int i = 0; i < longitud; i++) {
+            nicks[bytesNick + i] = (byte) nick[i];
+        }
+        completarFila(id, longitud, experience, lifeLevel, coins);
+    }
+
+    /**
+     * Escribe los campos numéricos de la fila nueva, cuyo nick ya está copiado al final del array de bytes.
+     */
+    private void completarFila(int id, int longitudNick, int experience, int lifeLevel, int coins) {
+        ids[filas] = id;
+        experiencia[filas] = experience;
+        nivelVida[filas] = lifeLevel;
+        monedas[filas] = coins;
+        inicioNick[filas] = bytesNick;
+        bytesNick += longitudNick;
+        filas++;
+        inicioNick[filas] = bytesNick;
+    }
+
+    /**
+     * Añade al final todas las filas de otra tabla copiando sus columnas en bloque.
+     *
+     * @param otra Tabla cuyas filas se añaden.
+     */
+    public void anexar(TablaColumnar otra) {
+        asegurarFilas(filas + otra.filas);
+        asegurarBytes(bytesNick + otra.bytesNick);
+        System.arraycopy(otra.ids, 0, ids, filas, otra.filas);
+        System.arraycopy(otra.experiencia, 0, experiencia, filas, otra.filas);
+        System.arraycopy(otra.nivelVida, 0, nivelVida, filas, otra.filas);
+        System.arraycopy(otra.monedas, 0, monedas, filas, otra.filas);
+        System.arraycopy(otra.nicks, 0, nicks, bytesNick, otra.bytesNick);
+        for (int i = 0; i < otra.filas; i++) {
+            inicioNick[filas + i] = bytesNick + otra.inicioNick[i];
+        }
+        filas += otra.filas;
+        bytesNick += otra.bytesNick;
+        inicioNick[filas] = bytesNick;
+    }
+
+    public int getId(int fila) {
+        return ids[comprobarFila(fila)];
+    }
+
+    public int getExperience(int fila) {
+        return experiencia[comprobarFila(fila)];
+    }
+
+    public int getLifeLevel(int fila) {
+        return nivelVida[comprobarFila(fila)];
+    }
+
+    public int getCoins(int fila) {
+        return monedas[comprobarFila(fila)];
+    }
+
+    public String getNick(int fila) {
+        comprobarFila(fila);
+        return new String(nicks, inicioNick[fila], inicioNick[fila + 1] - inicioNick[fila], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Crea un objeto Jugador con los datos de una fila.
+     *
+     * @param fila Número de fila.
+     * @return El jugador de esa fila.
+     */
+    public Jugador jugador(int fila) {
+        return new Jugador(getId(fila), getNick(fila), getExperience(fila), getLifeLevel(fila), getCoins(fila));
+    }
+
+    /**
+     * Suma los valores de un campo numérico en todas las filas.
+     *
+     * @param campo Campo numérico.
+     * @return La suma, en un long para que no se desborde.
+     */
+    public long suma(CampoJugador campo) {
+        int[] columna = columna(campo);
+        long suma = 0;
+        for (int i = 0; i < filas; i++) {
+            suma += columna[i];
+        }
+        return suma;
+    }
+
+    public long sumaMonedas() {
+        return suma(CampoJugador.COINS);
+    }
+
+    /**
+     * Calcula la media de un campo numérico.
+     *
+     * @param campo Campo numérico.
+     * @return La media, o 0 si la tabla está vacía.
+     */
+    public double media(CampoJugador campo) {
+        return filas == 0 ? 0 : (double) suma(campo) / filas;
+    }
+
+    public double mediaExperiencia() {
+        return media(CampoJugador.EXPERIENCE);
+    }
+
+    /**
+     * Devuelve el valor mínimo de un campo numérico.
+     *
+     * @param campo Campo numérico.
+     * @return El mínimo, o Integer.MAX_VALUE si la tabla está vacía.
+     */
+    public int minimo(CampoJugador campo) {
+        int[] columna = columna(campo);
+        int minimo = Integer.MAX_VALUE;
+        for (int i = 0; i < filas; i++) {
+            minimo = Math.min(minimo, columna[i]);
+        }
+        return minimo;
+    }
+
+    /**
+     * Devuelve el valor máximo de un campo numérico.
+     *
+     * @param campo Campo numérico.
+     * @return El máximo, o Integer.MIN_VALUE si la tabla está vacía.
+     */
+    public int maximo(CampoJugador campo) {
+        int[] columna = columna(campo);
+        int maximo = Integer.MIN_VALUE;
+        for (int i = 0; i < filas; i++) {
+            maximo = Math.max(maximo, columna[i]);
+        }
+        return maximo;
+    }
+
+    /**
+     * Cuenta las filas cuyo campo está dentro de un rango.
+     *
+     * @param campo  Campo numérico.
+     * @param minimo Valor mínimo (incluido).
+     * @param maximo Valor máximo (incluido).
+     * @return Número de filas en el rango.
+     */
+    public int contar(CampoJugador campo, int minimo, int maximo) {
+        int[] columna = columna(campo);
+        int cuenta = 0;
+        for (int i = 0; i < filas; i++) {
+            int v = columna[i];
+            cuenta += (v >= minimo && v <= maximo) ? 1 : 0;
+        }
+        return cuenta;
+    }
+
+    /**
+     * Calcula un histograma de un campo numérico con cubos del mismo ancho entre minimo y maximo.
+     * Los valores fuera del rango no se cuentan.
+     *
+     * @param campo  Campo numérico.
+     * @param minimo Valor mínimo del primer cubo (incluido).
+     * @param maximo Valor máximo del último cubo (incluido).
+     * @param cubos  Número de cubos.
+     * @return Array con el número de filas de cada cubo.
+     */
+    public long[] histograma(CampoJugador campo, int minimo, int maximo, int cubos) {
+        if (cubos <= 0 || minimo > maximo) {
+            throw new IllegalArgumentException("Rango o número de cubos no válido");
+        }
+        int[] columna = columna(campo);
+        long[] resultado = new long[cubos];
+        long ancho = ((long) maximo - minimo) / cubos + 1;
+        for (int i = 0; i < filas; i++) {
+            int v = columna[i];
+            if (v >= minimo && v <= maximo) {
+                resultado[(int) (((long) v - minimo) / ancho)]++;
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Libera la capacidad sobrante de los arrays una vez terminada la carga.
+     */
+    public void recortar() {
+        ids = Arrays.copyOf(ids, filas);
+        experiencia = Arrays.copyOf(experiencia, filas);
+        nivelVida = Arrays.copyOf(nivelVida, filas);
+        monedas = Arrays.copyOf(monedas, filas);
+        inicioNick = Arrays.copyOf(inicioNick, filas + 1);
+        nicks = Arrays.copyOf(nicks, bytesNick);
+    }
+
+    private int[] columna(CampoJugador campo) {
+        switch (campo) {
+            case ID:
+                return ids;
+            case EXPERIENCE:
+                return experiencia;
+            case LIFE_LEVEL:
+                return nivelVida;
+            case COINS:
+                return monedas;
+            default:
+                throw new IllegalArgumentException("El campo " + campo + " no es numérico");
+        }
+    }
+
+    private int comprobarFila(int fila) {
+        if (fila < 0 || fila >= filas) {
+            throw new IndexOutOfBoundsException("Fila " + fila + " fuera de la tabla de " + filas + " filas");
+        }
+        return fila;
+    }
+
+    private void asegurarFilas(int necesarias) {
+        if (necesarias <= ids.length) {
+            return;
+        }
+        int capacidad = Math.max(necesarias, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacidad);
+        experiencia = Arrays.copyOf(experiencia, capacidad);
+        nivelVida = Arrays.copyOf(nivelVida, capacidad);
+        monedas = Arrays.copyOf(monedas, capacidad);
+        inicioNick = Arrays.copyOf(inicioNick, capacidad + 1);
+    }
+
+    private void asegurarBytes(int necesarios) {
+        if (necesarios > nicks.length) {
+            nicks = Arrays.copyOf(nicks, Math.max(necesarios, nicks.length + (nicks.length >> 1)));
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Tramo ordenado e inmutable de GestionLSM: un archivo con los cambios de un conjunto de jugadores ordenados por ID,
+ * cada uno con su estado final o una marca de eliminación. Tras los registros se guarda un índice disperso con el ID
+ * y el desplazamiento de uno de cada 64 registros y un filtro de Bloom con todos los IDs, protegidos por un CRC32C.
+ * Al abrir el tramo solo se cargan en memoria el índice y el filtro; una búsqueda por ID consulta el filtro y, si
+ * el ID puede estar, lee un único bloque de 64 registros.
+ *
+ * Formato: cabecera (magia, versión), registros (id, tipo y, si no es una eliminación, nick en UTF-8 modificado,
+ * experiencia, vida y monedas), índice (número de marcas y pares ID-desplazamiento), filtro de Bloom y pie
+ * (inicio del índice, número de registros, nivel, CRC32C del índice y el filtro, magia).
+ */
+final class TramoOrdenado implements Closeable {
+
+    private static final int MAGIA = 0x4A4C534D;
+    private static final int VERSION = 1;
+    private static final int TAMAÑO_CABECERA = 2 * Integer.BYTES;
+    private static final int TAMAÑO_PIE = Long.BYTES + 4 * Integer.BYTES;
+    private static final int REGISTROS_POR_MARCA = 64;
+    private static final byte GUARDADO = 1;
+    private static final byte ELIMINADO = 0;
+
+    private final File archivo;
+    private final FileChannel canal;
+    private final int nivel;
+    private final int numeroRegistros;
+    private final long inicioIndice;
+    private final int[] idsMarca;
+    private final long[] posicionesMarca;
+    private final FiltroBloom filtro;
+
+    private TramoOrdenado(File archivo, FileChannel canal, int nivel, int numeroRegistros, long inicioIndice,
+                          int[] idsMarca, long[] posicionesMarca, FiltroBloom filtro) {
+        this.archivo = archivo;
+        this.canal = canal;
+        this.nivel = nivel;
+        this.numeroRegistros = numeroRegistros;
+        this.inicioIndice = inicioIndice;
+        this.idsMarca = idsMarca;
+        this.posicionesMarca = posicionesMarca;
+        this.filtro = filtro;
+    }
+
+    /**
+     * Escribe un tramo con las entradas de un recorrido, que deben llegar ordenadas por ID y sin repetir,
+     * lo fuerza a disco y lo abre.
+     *
+     * @param archivo                Archivo del tramo. Si existe se sustituye.
+     * @param nivel                  Nivel del tramo: 0 para los volcados de memoria, uno más que los tramos
+     *                               de los que sale para las compactaciones.
+     * @param entradas               Entradas ordenadas por ID.
+     * @param estimacion             Número aproximado de entradas, para dimensionar el filtro de Bloom.
+     * @param descartarEliminaciones Si es true no se escriben las marcas de eliminación, lo que solo es correcto
+     *                               cuando no hay tramos más antiguos en los que el jugador pueda seguir existiendo.
+     * @return El tramo abierto.
+     * @throws IOException Si ocurre un error al escribir o si las entradas no están ordenadas.
+     */
+    static TramoOrdenado escribir(File archivo, int nivel, Recorrido entradas, int estimacion,
+                                  boolean descartarEliminaciones) throws IOException {
+        FiltroBloom filtro = new FiltroBloom(estimacion);
+        int[] idsMarca = new int[Math.max(1, estimacion / REGISTROS_POR_MARCA + 1)];
+        long[] posicionesMarca = new long[idsMarca.length];
+        int numeroMarcas = 0;
+        int numeroRegistros = 0;
+        long inicioIndice;
+        try (FileOutputStream archivoSalida = new FileOutputStream(archivo)) {
+            Contador contador = new Contador(new BufferedOutputStream(archivoSalida, 1 << 16));
+            DataOutputStream salida = new DataOutputStream(contador);
+            salida.writeInt(MAGIA);
+            salida.writeInt(VERSION);
+            long anterior = Long.MIN_VALUE;
+            RegistroEscrituraAnticipada.Entrada entrada;
+            while ((entrada = entradas.siguiente()) != null) {
+                if (entrada.getId() <= anterior) {
+                    throw new IOException("Las entradas de un tramo deben estar ordenadas por ID");
+                }
+                anterior = entrada.getId();
+                if (descartarEliminaciones && entrada.esEliminacion()) {
+                    continue;
+                }
+                if (numeroRegistros % REGISTROS_POR_MARCA == 0) {
+                    if (numeroMarcas == idsMarca.length) {
+                        idsMarca = Arrays.copyOf(idsMarca, numeroMarcas * 2);
+                        posicionesMarca = Arrays.copyOf(posicionesMarca, numeroMarcas * 2);
+                    }
+                    idsMarca[numeroMarcas] = entrada.getId();
+                    posicionesMarca[numeroMarcas++] = contador.escritos;
+                }
+                escribirEntrada(salida, entrada);
+                filtro.añadir(entrada.getId());
+                numeroRegistros++;
+            }
+            inicioIndice = contador.escritos;
+
+            CRC32C crc = new CRC32C();
+            DataOutputStream metadatos = new DataOutputStream(new CheckedOutputStream(contador, crc));
+            metadatos.writeInt(numeroMarcas);
+            for (int i = 0; i < numeroMarcas; i++) {
+                metadatos.writeInt(idsMarca[i]);
+                metadatos.writeLong(posicionesMarca[i]);
+            }
+            filtro.escribir(metadatos);
+            metadatos.flush();
+            salida.writeLong(inicioIndice);
+            salida.writeInt(numeroRegistros);
+            salida.writeInt(nivel);
+            salida.writeInt((int) crc.getValue());
+            salida.writeInt(MAGIA);
+            salida.flush();
+            archivoSalida.getFD().sync();
+        } catch (IOException | RuntimeException e) {
+            archivo.delete();
+            throw e;
+        }
+        return abrir(archivo);
+    }
+
+    /**
+     * Abre un tramo existente cargando su índice y su filtro de Bloom.
+     *
+     * @param archivo Archivo del tramo.
+     * @return El tramo abierto.
+     * @throws IOException Si ocurre un error al leer el archivo o si no es un tramo válido.
+     */
+    static TramoOrdenado abrir(File archivo) throws IOException {
+        FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ);
+        try {
+            long tamaño = canal.size();
+            if (tamaño < TAMAÑO_CABECERA + TAMAÑO_PIE) {
+                throw new IOException("Tramo incompleto: " + archivo);
+            }
+            ByteBuffer pie = leer(canal, tamaño - TAMAÑO_PIE, TAMAÑO_PIE);
+            long inicioIndice = pie.getLong();
+            int numeroRegistros = pie.getInt();
+            int nivel = pie.getInt();
+            int suma = pie.getInt();
+            if (pie.getInt() != MAGIA || inicioIndice < TAMAÑO_CABECERA || inicioIndice > tamaño - TAMAÑO_PIE) {
+                throw new IOException("El archivo no es un tramo válido: " + archivo);
+            }
+            ByteBuffer cabecera = leer(canal, 0, TAMAÑO_CABECERA);
+            if (cabecera.getInt() != MAGIA || cabecera.getInt() != VERSION) {
+                throw new IOException("El archivo no es un tramo válido: " + archivo);
+            }
+            ByteBuffer metadatos = leer(canal, inicioIndice, (int) (tamaño - TAMAÑO_PIE - inicioIndice));
+            CRC32C crc = new CRC32C();
+            crc.update(metadatos.duplicate());
+            if ((int) crc.getValue() != suma) {
+                throw new IOException("El índice del tramo está dañado: " + archivo);
+            }
+            DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(metadatos.array()));
+            int numeroMarcas = entrada.readInt();
+            int[] idsMarca = new int[numeroMarcas];
+            long[] posicionesMarca = new long[numeroMarcas];
+            for (int i = 0; i < numeroMarcas; i++) {
+                idsMarca[i] = entrada.readInt();
+                posicionesMarca[i] = entrada.readLong();
+            }
+            FiltroBloom filtro = FiltroBloom.leer(entrada);
+            return new TramoOrdenado(archivo, canal, nivel, numeroRegistros, inicioIndice, idsMarca, posicionesMarca, filtro);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Busca el estado de un jugador en el tramo.
+     *
+     * @param id ID del jugador.
+     * @return La entrada del jugador (con jugador null si el tramo lo elimina), o null si el tramo no lo contiene.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    RegistroEscrituraAnticipada.Entrada buscar(int id) throws IOException {
+        if (!filtro.puedeContener(id)) {
+            return null;
+        }
+        int marca = marcaDe(id);
+        if (marca < 0) {
+            return null;
+        }
+        long inicio = posicionesMarca[marca];
+        long fin = marca + 1 < idsMarca.length ? posicionesMarca[marca + 1] : inicioIndice;
+        ByteBuffer bloque = leer(canal, inicio, (int) (fin - inicio));
+        DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(bloque.array()));
+        int registros = Math.min(REGISTROS_POR_MARCA, numeroRegistros - marca * REGISTROS_POR_MARCA);
+        for (int i = 0; i < registros; i++) {
+            RegistroEscrituraAnticipada.Entrada leida = leerEntrada(entrada);
+            if (leida.getId() == id) {
+                return leida;
+            }
+            if (leida.getId() > id) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Abre un recorrido en orden de ID por las entradas del tramo con ID mayor o igual que uno dado. El recorrido
+     * usa su propio stream sobre el archivo, así que puede hacerse a la vez que las búsquedas y que otros recorridos.
+     *
+     * @param desde Primer ID que interesa.
+     * @return Recorrido abierto, que hay que cerrar.
+     * @throws IOException Si ocurre un error al abrir el archivo.
+     */
+    Recorrido recorrer(int desde) throws IOException {
+        int marca = Math.max(0, marcaDe(desde));
+        long inicio = idsMarca.length == 0 ? inicioIndice : posicionesMarca[marca];
+        int restantes = idsMarca.length == 0 ? 0 : numeroRegistros - marca * REGISTROS_POR_MARCA;
+        FileInputStream archivoEntrada = new FileInputStream(archivo);
+        archivoEntrada.getChannel().position(inicio);
+        DataInputStream entrada = new DataInputStream(new BufferedInputStream(archivoEntrada, 1 << 16));
+        return new Recorrido() {
+            private int pendientes = restantes;
+
+            @Override
+            public RegistroEscrituraAnticipada.Entrada siguiente() throws IOException {
+                while (pendientes > 0) {
+                    pendientes--;
+                    RegistroEscrituraAnticipada.Entrada leida = leerEntrada(entrada);
+                    if (leida.getId() >= desde) {
+                        return leida;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public void close() throws IOException {
+                entrada.close();
+            }
+        };
+    }
+
+    int getNivel() {
+        return nivel;
+    }
+
+    int getNumeroRegistros() {
+        return numeroRegistros;
+    }
+
+    File getArchivo() {
+        return archivo;
+    }
+
+    long tamaño() throws IOException {
+        return canal.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    /**
+     * Devuelve la última marca cuyo ID es menor o igual que el buscado, o -1 si el ID es anterior a todas.
+     */
+    private int marcaDe(int id) {
+        int inferior = 0;
+        int superior = idsMarca.length - 1;
+        int resultado = -1;
+        while (inferior <= superior) {
+            int medio = (inferior + superior) >>> 1;
+            if (idsMarca[medio] <= id) {
+                resultado = medio;
+                inferior = medio + 1;
+            } else {
+                superior = medio - 1;
+            }
+        }
+        return resultado;
+    }
+
+    private static void escribirEntrada(DataOutputStream salida, RegistroEscrituraAnticipada.Entrada entrada) throws IOException {
+        salida.writeInt(entrada.getId());
+        if (entrada.esEliminacion()) {
+            salida.writeByte(ELIMINADO);
+            return;
+        }
+        Jugador jugador = entrada.getJugador();
+        salida.writeByte(GUARDADO);
+        salida.writeUTF(jugador.getNick());
+        salida.writeInt(jugador.getExperience());
+        salida.writeInt(jugador.getLifeLevel());
+        salida.writeInt(jugador.getCoins());
+    }
+
+    private static RegistroEscrituraAnticipada.Entrada leerEntrada(DataInputStream entrada) throws IOException {
+        int id = entrada.readInt();
+        byte tipo = entrada.readByte();
+        if (tipo == ELIMINADO) {
+            return new RegistroEscrituraAnticipada.Entrada(id, null);
+        }
+        if (tipo != GUARDADO) {
+            throw new IOException("Tipo de registro desconocido en el tramo: " + tipo);
+        }
+        String nick = entrada.readUTF();
+        return new RegistroEscrituraAnticipada.Entrada(id, new Jugador(id, nick, entrada.readInt(), entrada.readInt(), entrada.readInt()));
+    }
+
+    private static ByteBuffer leer(FileChannel canal, long posicion, int longitud) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(longitud);
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, posicion + buffer.position()) < 0) {
+                throw new IOException("Fin de archivo inesperado en el tramo");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Entradas en orden de ID: las de un tramo, las de la memoria o la mezcla de varias fuentes.
+     */
+    interface Recorrido extends Closeable {
+
+        /**
+         * Devuelve la entrada siguiente, o null si no quedan más.
+         */
+        RegistroEscrituraAnticipada.Entrada siguiente() throws IOException;
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    /**
+     * Cuenta los bytes escritos para conocer el desplazamiento de cada registro sin límite de 2 GB.
+     */
+    private static final class Contador extends FilterOutputStream {
+
+        private long escritos;
+
+        Contador(OutputStream destino) {
+            super(destino);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            escritos++;
+        }
+
+        @Override
+        public void write(byte[] b, int desplazamiento, int longitud) throws IOException {
+            out.write(b, desplazamiento, longitud);
+            escritos += longitud;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * La clase Transaccion agrupa varias altas, bajas y modificaciones sobre un GestionFichero para aplicarlas todas
+ * a la vez con confirmar. Se crea con GestionFichero.iniciarTransaccion. Mientras no se confirma, los cambios solo
+ * están en memoria: el almacén no cambia y obtenerJugador de la transacción ya devuelve el estado con los cambios,
+ * lo que permite, por ejemplo, leer dos jugadores, mover monedas de uno a otro y confirmar.
+ *
+ * Al confirmar se comprueba que cada alta es de un ID que no existe y cada baja o modificación de uno que sí existe;
+ * si alguna comprobación falla no se aplica nada y confirmar devuelve false. Los backends que reescriben el archivo
+ * completo (texto, binario, objetos y XML) aplican todos los cambios en un solo recorrido y una sola sustitución
+ * atómica del archivo, de modo que un error a mitad deja el archivo como estaba. Los demás aplican los cambios uno
+ * a uno después de comprobarlos todos.
+ *
+ * Una transacción no es segura entre hilos y solo se puede confirmar o descartar una vez.
+ */
+public final class Transaccion {
+
+    private final GestionFichero gestion;
+    private final Map<Integer, Cambio> cambios = new LinkedHashMap<>();
+    private boolean valida = true;
+    private boolean terminada;
+
+    Transaccion(GestionFichero gestion) {
+        this.gestion = gestion;
+    }
+
+    /**
+     * Añade a la transacción el alta de un jugador, que al confirmar no debe existir.
+     *
+     * @param jugador Jugador a agregar.
+     */
+    public void agregarJugador(Jugador jugador) {
+        comprobarAbierta();
+        Cambio cambio = cambios.get(jugador.getId());
+        if (cambio == null) {
+            cambios.put(jugador.getId(), new Cambio(jugador.getId(), false, jugador));
+        } else if (cambio.resultado != null) {
+            valida = false;
+        } else {
+            cambio.resultado = jugador;
+        }
+    }
+
+    /**
+     * Añade a la transacción la baja de un jugador, que al confirmar debe existir.
+     *
+     * @param id ID del jugador a eliminar.
+     */
+    public void eliminarJugador(int id) {
+        comprobarAbierta();
+        Cambio cambio = cambios.get(id);
+        if (cambio == null) {
+            cambios.put(id, new Cambio(id, true, null));
+        } else if (cambio.resultado == null) {
+            valida = false;
+        } else {
+            cambio.resultado = null;
+        }
+    }
+
+    /**
+     * Añade a la transacción la modificación de un jugador, que al confirmar debe existir. Si el jugador
+     * modificado tiene otro ID, equivale a eliminar el jugador original y agregar el modificado.
+     *
+     * @param id                ID del jugador a modificar.
+     * @param jugadorModificado Nuevos datos del jugador.
+     */
+    public void modificarJugador(int id, Jugador jugadorModificado) {
+        comprobarAbierta();
+        if (jugadorModificado.getId() != id) {
+            eliminarJugador(id);
+            agregarJugador(jugadorModificado);
+            return;
+        }
+        Cambio cambio = cambios.get(id);
+        if (cambio == null) {
+            cambios.put(id, new Cambio(id, true, jugadorModificado));
+        } else if (cambio.resultado == null) {
+            valida = false;
+        } else {
+            cambio.resultado = jugadorModificado;
+        }
+    }
+
+    /**
+     * Obtiene un jugador tal como quedaría si la transacción se confirmase ahora.
+     *
+     * @param id ID del jugador.
+     * @return El jugador, o null si no existe o la transacción lo elimina.
+     * @throws IOException Si ocurre un error al leer el almacén.
+     */
+    public Jugador obtenerJugador(int id) throws IOException {
+        Cambio cambio = cambios.get(id);
+        return cambio != null ? cambio.resultado : gestion.obtenerJugador(id);
+    }
+
+    /**
+     * Aplica todos los cambios de la transacción, o ninguno.
+     *
+     * @return true si se aplicaron, false si algún cambio no era válido y no se aplicó nada.
+     * @throws IOException Si ocurre un error al escribir en el almacén.
+     */
+    public boolean confirmar() throws IOException {
+        comprobarAbierta();
+        terminada = true;
+        if (!valida) {
+            return false;
+        }
+        return cambios.isEmpty() || gestion.confirmarTransaccion(this);
+    }
+
+    /**
+     * Descarta los cambios de la transacción sin aplicarlos.
+     */
+    public void descartar() {
+        terminada = true;
+        cambios.clear();
+    }
+
+    public int getNumeroCambios() {
+        return cambios.size();
+    }
+
+    private void comprobarAbierta() {
+        if (terminada) {
+            throw new IllegalStateException("La transacción ya se confirmó o se descartó");
+        }
+    }
+
+    /**
+     * Devuelve los cambios de la transacción, uno por ID, en el orden en que se añadieron.
+     */
+    Collection<Cambio> cambios() {
+        return cambios.values();
+    }
+
+    Set<Integer> ids() {
+        return cambios.keySet();
+    }
+
+    /**
+     * Añade un cambio ya resuelto de otra transacción, para repartirla entre varios almacenes.
+     */
+    void incluir(Cambio cambio) {
+        cambios.put(cambio.id, new Cambio(cambio.id, cambio.debiaExistir, cambio.resultado));
+    }
+
+    /**
+     * Comprueba las condiciones de todos los cambios.
+     *
+     * @param existentes IDs de la transacción que existen en el almacén.
+     * @return true si todos los cambios se pueden aplicar.
+     */
+    boolean comprobar(Set<Integer> existentes) {
+        for (Cambio cambio : cambios.values()) {
+            if (cambio.debiaExistir != existentes.contains(cambio.id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indica si la transacción solo contiene altas, que los backends pueden añadir al final del archivo
+     * en lugar de reescribirlo.
+     */
+    boolean soloAltas() {
+        for (Cambio cambio : cambios.values()) {
+            if (cambio.debiaExistir) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Devuelve los jugadores que la transacción agrega, en orden.
+     */
+    List<Jugador> altas() {
+        List<Jugador> altas = new ArrayList<>();
+        for (Cambio cambio : cambios.values()) {
+            if (!cambio.debiaExistir && cambio.resultado != null) {
+                altas.add(cambio.resultado);
+            }
+        }
+        return altas;
+    }
+
+    /**
+     * Aplica la transacción a la lista completa de jugadores de un archivo, conservando el orden: los jugadores
+     * modificados quedan en su sitio, los eliminados se quitan y las altas se añaden al final.
+     *
+     * @param jugadores Contenido actual del archivo.
+     * @return El contenido nuevo, o null si algún cambio no se puede aplicar.
+     */
+    List<Jugador> aplicarA(List<Jugador> jugadores) {
+        List<Jugador> resultado = new ArrayList<>(jugadores.size() + cambios.size());
+        Set<Integer> encontrados = new HashSet<>();
+        for (Jugador jugador : jugadores) {
+            Cambio cambio = cambios.get(jugador.getId());
+            if (cambio == null) {
+                resultado.add(jugador);
+                continue;
+            }
+            if (!cambio.debiaExistir) {
+                return null;
+            }
+            encontrados.add(cambio.id);
+            if (cambio.resultado != null) {
+                resultado.add(cambio.resultado);
+            }
+        }
+        for (Cambio cambio : cambios.values()) {
+            if (cambio.debiaExistir && !encontrados.contains(cambio.id)) {
+                return null;
+            }
+        }
+        resultado.addAll(altas());
+        return resultado;
+    }
+
+    /**
+     * Efecto neto de la transacción sobre un ID: si el jugador debía existir antes y cómo queda después
+     * (null si queda eliminado o no llega a existir).
+     */
+    static final class Cambio {
+
+        private final int id;
+        private final boolean debiaExistir;
+        private Jugador resultado;
+
+        private Cambio(int id, boolean debiaExistir, Jugador resultado) {
+            this.id = id;
+            this.debiaExistir = debiaExistir;
+            this.resultado = resultado;
+        }
+
+        int getId() {
+            return id;
+        }
+
+        boolean debiaExistir() {
+            return debiaExistir;
+        }
+
+        Jugador getResultado() {
+            return resultado;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * La clase TrazaOperaciones graba en un archivo de texto las operaciones que recibe un almacén, una por línea
+ * con el formato "nanosegundos desde el inicio;OPERACION;id", para reproducirlas después con GeneradorCarga.
+ * La escriben GestionConTraza, con las operaciones reales de la aplicación, y el propio generador de carga.
+ */
+public class TrazaOperaciones {
+
+    private final BufferedWriter escritor;
+    private final long inicio = System.nanoTime();
+
+    /**
+     * Constructor de la clase TrazaOperaciones. Crea el archivo o lo vacía si ya existe.
+     *
+     * @param archivo Archivo de la traza.
+     * @throws IOException Si no se puede crear el archivo.
+     */
+    public TrazaOperaciones(File archivo) throws IOException {
+        escritor = new BufferedWriter(new FileWriter(archivo, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Anota una operación con el instante actual.
+     *
+     * @param operacion Tipo de operación.
+     * @param id        ID del jugador al que afecta la operación.
+     * @throws IOException Si ocurre un error al escribir en el archivo.
+     */
+    public synchronized void anotar(OperacionCarga operacion, int id) throws IOException {
+        escritor.write(Long.toString(System.nanoTime() - inicio));
+        escritor.write(';');
+        escritor.write(operacion.name());
+        escritor.write(';');
+        escritor.write(Integer.toString(id));
+        escritor.newLine();
+    }
+
+    public synchronized void cerrar() throws IOException {
+        escritor.close();
+    }
+
+    /**
+     * Lee todas las operaciones de una traza.
+     *
+     * @param archivo Archivo de la traza.
+     * @return Lista de pasos en el orden del archivo.
+     * @throws IOException Si ocurre un error al leer el archivo o alguna línea no es válida.
+     */
+    public static List<Paso> leer(File archivo) throws IOException {
+        List<Paso> pasos = new ArrayList<>();
+        try (BufferedReader lector = new BufferedReader(new FileReader(archivo, StandardCharsets.UTF_8))) {
+            String linea;
+            int numLinea = 0;
+            while ((linea = lector.readLine()) != null) {
+                numLinea++;
+                if (linea.isBlank()) {
+                    continue;
+                }
+                String[] partes = linea.split(";");
+                try {
+                    pasos.add(new Paso(Long.parseLong(partes[0]), OperacionCarga.valueOf(partes[1]), Integer.parseInt(partes[2])));
+                } catch (RuntimeException e) {
+                    throw new IOException("Línea " + numLinea + " no válida en la traza " + archivo + ": " + linea, e);
+                }
+            }
+        }
+        return pasos;
+    }
+
+    /**
+     * Operación leída de una traza.
+     */
+    public static final class Paso {
+
+        private final long desfase;
+        private final OperacionCarga operacion;
+        private final int id;
+
+        public Paso(long desfase, OperacionCarga operacion, int id) {
+            this.desfase = desfase;
+            this.operacion = operacion;
+            this.id = id;
+        }
+
+        /**
+         * Nanosegundos desde el inicio de la traza hasta la operación.
+         *
+         * @return El desfase de la operación.
+         */
+        public long getDesfase() {
+            return desfase;
+        }
+
+        public OperacionCarga getOperacion() {
+            return operacion;
+        }
+
+        public int getId() {
+            return id;
+        }
+    }
+}
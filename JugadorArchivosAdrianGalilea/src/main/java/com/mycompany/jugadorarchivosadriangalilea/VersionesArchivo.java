@@ -0,0 +1,183 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Versiones de un archivo que solo cambia añadiendo datos al final o sustituyéndose entero, como los de
+ * GestionBinario y GestionTexto, para que cada lectura vea una instantánea coherente del archivo sin bloquear
+ * a las escrituras ni esperar por ellas.
+ *
+ * Abrir una lectura fija una instantánea: se abre el archivo y se anota la longitud confirmada en ese momento,
+ * y la lectura no pasa de ella. Lo que se añade después queda más allá de esa longitud, así que la lectura no ve
+ * un lote a medias ni un registro escrito a medias. Las reescrituras generan una versión nueva en un archivo
+ * temporal y la colocan con un renombrado atómico; la lectura conserva abierta la versión anterior, que el sistema
+ * mantiene hasta que se cierra, y sigue viéndola completa. Solo el renombrado, la publicación de la longitud y la
+ * apertura de una lectura se hacen con el cerrojo, que se mantiene durante microsegundos.
+ *
+ * Las escrituras deben llegar de una en una; las lecturas pueden hacerse desde cualquier número de hilos a la vez.
+ * Los canales se abren con FileChannel, que en Windows permite renombrar sobre un archivo abierto. Lo que otro
+ * proceso añada o sustituya después de abrirlo no se ve hasta llamar a recargar, que GestionConBloqueos llama con el
+ * archivo bloqueado entre procesos.
+ */
+final class VersionesArchivo {
+
+    private static final int TAMAÑO_BUFFER = 1 << 16;
+
+    private final File archivo;
+    private long longitudConfirmada;
+
+    /**
+     * Constructor de la clase VersionesArchivo. La versión inicial es el archivo tal como está en disco.
+     *
+     * @param archivo Archivo de datos, que debe existir.
+     */
+    VersionesArchivo(File archivo) {
+        this.archivo = archivo;
+        this.longitudConfirmada = archivo.length();
+    }
+
+    /**
+     * Fija una instantánea del archivo y devuelve un flujo con buffer que la lee desde una posición.
+     * Cerrar el flujo libera la instantánea.
+     *
+     * @param desde Desplazamiento en bytes desde el que se lee.
+     * @return Flujo que termina en la longitud confirmada al abrirlo.
+     * @throws IOException Si ocurre un error al abrir el archivo.
+     */
+    InputStream abrirLectura(long desde) throws IOException {
+        FileChannel canal;
+        long longitud;
+        synchronized (this) {
+            canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ);
+            longitud = longitudConfirmada;
+        }
+        return new BufferedInputStream(new LecturaInstantanea(canal, desde, longitud), TAMAÑO_BUFFER);
+    }
+
+    /**
+     * Añade datos al final del archivo y los hace visibles a las lecturas que se abran después, todos a la vez.
+     * Si una escritura anterior falló a medias, lo que dejó tras la longitud confirmada se descarta antes; si falla
+     * esta, se intenta descartar al momento para que recargar no lo tome por datos.
+     *
+     * @param escritor Escritor que genera los datos añadidos.
+     * @throws IOException Si ocurre un error al escribir; en ese caso no se confirma nada.
+     */
+    void anexar(EscrituraAtomica.Escritor escritor) throws IOException {
+        long inicio;
+        synchronized (this) {
+            inicio = longitudConfirmada;
+        }
+        long longitud;
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.WRITE)) {
+            canal.truncate(inicio);
+            canal.position(inicio);
+            try {
+                OutputStream salida = new BufferedOutputStream(Channels.newOutputStream(canal), TAMAÑO_BUFFER);
+                escritor.escribir(salida);
+                salida.flush();
+                longitud = canal.position();
+            } catch (IOException | RuntimeException e) {
+                try {
+                    canal.truncate(inicio);
+                } catch (IOException suprimida) {
+                    e.addSuppressed(suprimida);
+                }
+                throw e;
+            }
+        }
+        synchronized (this) {
+            longitudConfirmada = longitud;
+        }
+    }
+
+    /**
+     * Toma como confirmada la longitud que tiene ahora el archivo en disco. Solo se debe llamar cuando ningún
+     * proceso está escribiendo en él, porque un lote a medias quedaría confirmado.
+     */
+    synchronized void recargar() {
+        longitudConfirmada = archivo.length();
+    }
+
+    /**
+     * Sustituye el archivo por una versión nueva. El contenido se escribe en un temporal sin cerrojo, de modo que
+     * las lecturas que se abran mientras tanto siguen viendo la versión actual.
+     *
+     * @param escritor Escritor que genera el contenido completo de la versión nueva.
+     * @throws IOException Si ocurre un error al escribir o al renombrar.
+     */
+    void reemplazar(EscrituraAtomica.Escritor escritor) throws IOException {
+        File temporal = EscrituraAtomica.escribirTemporal(archivo, escritor);
+        long longitud = temporal.length();
+        synchronized (this) {
+            EscrituraAtomica.sustituir(temporal, archivo);
+            longitudConfirmada = longitud;
+        }
+        EscrituraAtomica.sincronizarDirectorio(archivo);
+    }
+
+    /**
+     * Flujo sobre una instantánea: lee con lecturas posicionales del canal y termina en la longitud fijada,
+     * aunque el archivo haya crecido después.
+     */
+    private static final class LecturaInstantanea extends InputStream {
+
+        private final FileChannel canal;
+        private final long longitud;
+        private long posicion;
+
+        LecturaInstantanea(FileChannel canal, long desde, long longitud) {
+            this.canal = canal;
+            this.posicion = desde;
+            this.longitud = longitud;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] uno = new byte[1];
+            return read(uno, 0, 1) == 1 ? uno[0] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] destino, int desplazamiento, int cantidad) throws IOException {
+            if (cantidad == 0) {
+                return 0;
+            }
+            if (posicion >= longitud) {
+                return -1;
+            }
+            int aLeer = (int) Math.min(cantidad, longitud - posicion);
+            int leidos = canal.read(ByteBuffer.wrap(destino, desplazamiento, aLeer), posicion);
+            if (leidos < 0) {
+                return -1;
+            }
+            posicion += leidos;
+            return leidos;
+        }
+
+        @Override
+        public long skip(long n) {
+            long saltados = Math.max(0, Math.min(n, longitud - posicion));
+            posicion += saltados;
+            return saltados;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, longitud - posicion));
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+    }
+}
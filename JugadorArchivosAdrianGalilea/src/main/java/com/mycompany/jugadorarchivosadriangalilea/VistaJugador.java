@@ -0,0 +1,325 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * La clase VistaJugador es una vista reutilizable sobre el registro de un jugador, que lee los campos
+ * directamente de los bytes del registro en lugar de crear un objeto Jugador y un String por registro.
+ * Los recorridos con GestionFichero.recorrerVistas colocan la misma vista sobre cada registro, de modo que
+ * un recorrido que solo filtra o agrega campos numéricos no genera basura por registro. El nick se puede
+ * comparar carácter a carácter sin crear un String; getNick y aJugador sí crean objetos y solo deben
+ * usarse con los registros que interesan.
+ */
+public abstract class VistaJugador {
+
+    public abstract int getId();
+
+    public abstract int getExperience();
+
+    public abstract int getLifeLevel();
+
+    public abstract int getCoins();
+
+    /**
+     * Número de caracteres del nick.
+     *
+     * @return La longitud del nick.
+     */
+    public abstract int longitudNick();
+
+    /**
+     * Carácter del nick en una posición, sin crear el String del nick.
+     *
+     * @param indice Posición del carácter, entre 0 y longitudNick() - 1.
+     * @return El carácter.
+     */
+    public abstract char caracterNick(int indice);
+
+    /**
+     * Devuelve el nick como String. Se decodifica la primera vez que se pide para cada registro.
+     *
+     * @return El nick del registro.
+     */
+    public abstract String getNick();
+
+    /**
+     * Crea un Jugador independiente de la vista con los datos del registro actual.
+     *
+     * @return Un jugador nuevo.
+     */
+    public Jugador aJugador() {
+        return new Jugador(getId(), getNick(), getExperience(), getLifeLevel(), getCoins());
+    }
+
+    /**
+     * Compara el nick con un texto sin crear el String del nick.
+     *
+     * @param texto Texto a comparar.
+     * @return true si el nick es igual al texto.
+     */
+    public boolean nickIgual(String texto) {
+        return longitudNick() == texto.length() && coincide(texto, 0);
+    }
+
+    /**
+     * Indica si el nick empieza por un prefijo sin crear el String del nick.
+     *
+     * @param prefijo Prefijo buscado.
+     * @return true si el nick empieza por el prefijo.
+     */
+    public boolean nickEmpiezaPor(String prefijo) {
+        return longitudNick() >= prefijo.length() && coincide(prefijo, 0);
+    }
+
+    /**
+     * Indica si el nick contiene un texto sin crear el String del nick.
+     *
+     * @param texto Texto buscado.
+     * @return true si el texto aparece en el nick.
+     */
+    public boolean nickContiene(String texto) {
+        for (int desde = 0; desde + texto.length() <= longitudNick(); desde++) {
+            if (coincide(texto, desde)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return aJugador().toString();
+    }
+
+    private boolean coincide(String texto, int desde) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (caracterNick(desde + i) != texto.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Vista sobre un registro de tamaño fijo de GestionAccesoAleatorio dentro de un bloque leído del archivo.
+     * El nick ocupa TAMAÑO_NICK caracteres UTF-16 rellenos con espacios o ceros, que se recortan igual que
+     * con String.trim.
+     */
+    static final class RegistroFijo extends VistaJugador {
+
+        private ByteBuffer bloque;
+        private int base;
+        private int inicioNick = -1;
+        private int finNick;
+        private String nick;
+
+        /**
+         * Coloca la vista sobre el registro que empieza en la posición indicada del bloque.
+         */
+        void posicionar(ByteBuffer bloque, int base) {
+            this.bloque = bloque;
+            this.base = base;
+            this.inicioNick = -1;
+            this.nick = null;
+        }
+
+        @Override
+        public int getId() {
+            return bloque.getInt(base);
+        }
+
+        @Override
+        public int getExperience() {
+            return bloque.getInt(base + GestionAccesoAleatorio.OFFSET_EXPERIENCE);
+        }
+
+        @Override
+        public int getLifeLevel() {
+            return bloque.getInt(base + GestionAccesoAleatorio.OFFSET_LIFE_LEVEL);
+        }
+
+        @Override
+        public int getCoins() {
+            return bloque.getInt(base + GestionAccesoAleatorio.OFFSET_COINS);
+        }
+
+        @Override
+        public int longitudNick() {
+            recortarNick();
+            return finNick - inicioNick;
+        }
+
+        @Override
+        public char caracterNick(int indice) {
+            recortarNick();
+            return caracter(inicioNick + indice);
+        }
+
+        @Override
+        public String getNick() {
+            if (nick == null) {
+                recortarNick();
+                char[] caracteres = new char[finNick - inicioNick];
+                for (int i = 0; i < caracteres.length; i++) {
+                    caracteres[i] = caracter(inicioNick + i);
+                }
+                nick = new String(caracteres);
+            }
+            return nick;
+        }
+
+        private char caracter(int posicion) {
+            return bloque.getChar(base + Integer.BYTES + posicion * Character.BYTES);
+        }
+
+        private void recortarNick() {
+            if (inicioNick >= 0) {
+                return;
+            }
+            int inicio = 0;
+            int fin = GestionAccesoAleatorio.TAMAÑO_NICK;
+            while (inicio < fin && caracter(inicio) <= ' ') {
+                inicio++;
+            }
+            while (fin > inicio && caracter(fin - 1) <= ' ') {
+                fin--;
+            }
+            inicioNick = inicio;
+            finNick = fin;
+        }
+    }
+
+    /**
+     * Vista sobre un registro de GestionBinario leído del stream. Los campos numéricos se leen como primitivos
+     * y los bytes del nick se guardan en un array reutilizado; si son ASCII, que es lo habitual, los caracteres
+     * se leen directamente de esos bytes y si no el nick se decodifica al colocar la vista.
+     */
+    static final class RegistroBinario extends VistaJugador {
+
+        private int id;
+        private int experience;
+        private int lifeLevel;
+        private int coins;
+        private byte[] bytesNick = new byte[64];
+        private int longitudBytes;
+        private String nick;
+        private boolean ascii;
+
+        /**
+         * Devuelve el array donde el lector debe copiar los bytes del nick, ampliado si hace falta.
+         */
+        byte[] bufferNick(int longitud) {
+            if (bytesNick.length < longitud) {
+                bytesNick = new byte[longitud];
+            }
+            return bytesNick;
+        }
+
+        /**
+         * Coloca la vista sobre el registro leído, con los bytes del nick ya copiados en bufferNick.
+         *
+         * @throws IOException Si los bytes del nick no son UTF-8 modificado válido.
+         */
+        void posicionar(int id, int longitudBytes, int experience, int lifeLevel, int coins) throws IOException {
+            this.id = id;
+            this.longitudBytes = longitudBytes;
+            this.experience = experience;
+            this.lifeLevel = lifeLevel;
+            this.coins = coins;
+            this.ascii = GestionBinario.esAscii(bytesNick, longitudBytes);
+            this.nick = ascii ? null : GestionBinario.decodificarNick(bytesNick, longitudBytes);
+        }
+
+        @Override
+        public int getId() {
+            return id;
+        }
+
+        @Override
+        public int getExperience() {
+            return experience;
+        }
+
+        @Override
+        public int getLifeLevel() {
+            return lifeLevel;
+        }
+
+        @Override
+        public int getCoins() {
+            return coins;
+        }
+
+        @Override
+        public int longitudNick() {
+            return ascii ? longitudBytes : nick.length();
+        }
+
+        @Override
+        public char caracterNick(int indice) {
+            return ascii ? (char) bytesNick[indice] : nick.charAt(indice);
+        }
+
+        @Override
+        public String getNick() {
+            if (nick == null) {
+                nick = new String(bytesNick, 0, longitudBytes, StandardCharsets.ISO_8859_1);
+            }
+            return nick;
+        }
+    }
+
+    /**
+     * Vista sobre un Jugador ya construido, para los backends que no leen registros binarios.
+     */
+    static final class DeJugador extends VistaJugador {
+
+        private Jugador jugador;
+
+        void posicionar(Jugador jugador) {
+            this.jugador = jugador;
+        }
+
+        @Override
+        public int getId() {
+            return jugador.getId();
+        }
+
+        @Override
+        public int getExperience() {
+            return jugador.getExperience();
+        }
+
+        @Override
+        public int getLifeLevel() {
+            return jugador.getLifeLevel();
+        }
+
+        @Override
+        public int getCoins() {
+            return jugador.getCoins();
+        }
+
+        @Override
+        public int longitudNick() {
+            return jugador.getNick() == null ? 0 : jugador.getNick().length();
+        }
+
+        @Override
+        public char caracterNick(int indice) {
+            return jugador.getNick().charAt(indice);
+        }
+
+        @Override
+        public String getNick() {
+            return jugador.getNick();
+        }
+
+        @Override
+        public Jugador aJugador() {
+            return jugador;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del árbol B+ en disco: inserciones en desorden que dividen hojas e internos, eliminaciones
+ * y la construcción a partir de entradas ordenadas con cargarOrdenado.
+ */
+class ArbolBMasTest {
+
+    private static final int TAMAÑO_VALOR = 56;
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void insertarEnDesordenDejaLasClavesOrdenadasYConsultables() throws IOException {
+        File archivo = directorio.resolve("arbol.bpt").toFile();
+        int total = 40000;
+        List<Integer> claves = new ArrayList<>();
+        for (int clave = 1; clave <= total; clave++) {
+            claves.add(clave);
+        }
+        Collections.shuffle(claves, new Random(42));
+        try (ArbolBMas arbol = ArbolBMas.abrir(archivo, TAMAÑO_VALOR)) {
+            for (int clave : claves) {
+                assertTrue(arbol.insertar(clave, valor(clave)));
+            }
+            assertFalse(arbol.insertar(claves.get(0), valor(0)), "Una clave repetida no debe insertarse");
+            assertTrue(arbol.getAltura() >= 3, "Con tantas claves deben haberse dividido también los internos");
+            comprobarClaves(arbol, 1, total, 1);
+        }
+
+        try (ArbolBMas arbol = ArbolBMas.abrir(archivo, TAMAÑO_VALOR)) {
+            comprobarClaves(arbol, 1, total, 1);
+            assertEquals(101, contar(arbol, 500, 600));
+        }
+    }
+
+    @Test
+    void eliminarQuitaLasClavesYPermiteVolverAInsertarlas() throws IOException {
+        File archivo = directorio.resolve("arbol.bpt").toFile();
+        try (ArbolBMas arbol = ArbolBMas.abrir(archivo, TAMAÑO_VALOR)) {
+            for (int clave = 1; clave <= 5000; clave++) {
+                arbol.insertar(clave, valor(clave));
+            }
+            for (int clave = 1; clave <= 5000; clave += 2) {
+                assertTrue(arbol.eliminar(clave));
+            }
+            assertFalse(arbol.eliminar(1));
+            comprobarClaves(arbol, 2, 5000, 2);
+            for (int clave = 1; clave <= 5000; clave += 2) {
+                assertTrue(arbol.insertar(clave, valor(clave)));
+            }
+            comprobarClaves(arbol, 1, 5000, 1);
+        }
+    }
+
+    @Test
+    void cargarOrdenadoConstruyeUnArbolEnElQueSeSigueInsertando() throws IOException {
+        File archivo = directorio.resolve("arbol.bpt").toFile();
+        int total = 30000;
+        try (ArbolBMas arbol = ArbolBMas.abrir(archivo, TAMAÑO_VALOR)) {
+            int[] siguiente = {1};
+            long cargadas = arbol.cargarOrdenado(entrada -> {
+                if (siguiente[0] > 2 * total) {
+                    return false;
+                }
+                entrada.putInt(siguiente[0]).put(valor(siguiente[0]));
+                siguiente[0] += 2;
+                return true;
+            });
+            assertEquals(total, cargadas);
+            assertTrue(arbol.getAltura() >= 2);
+            comprobarClaves(arbol, 1, 2 * total - 1, 2);
+            for (int clave = 2; clave <= 2 * total; clave += 2) {
+                assertTrue(arbol.insertar(clave, valor(clave)));
+            }
+        }
+
+        try (ArbolBMas arbol = ArbolBMas.abrir(archivo, TAMAÑO_VALOR)) {
+            comprobarClaves(arbol, 1, 2 * total, 1);
+        }
+    }
+
+    @Test
+    void cargarOrdenadoRechazaClavesNoCrecientesYDejaElArbolVacio() throws IOException {
+        File archivo = directorio.resolve("arbol.bpt").toFile();
+        try (ArbolBMas arbol = ArbolBMas.abrir(archivo, TAMAÑO_VALOR)) {
+            int[] claves = {1, 2, 3, 3};
+            int[] indice = {0};
+            assertThrows(IOException.class, () -> arbol.cargarOrdenado(entrada -> {
+                if (indice[0] == claves.length) {
+                    return false;
+                }
+                entrada.putInt(claves[indice[0]]).put(valor(claves[indice[0]++]));
+                return true;
+            }));
+            assertTrue(arbol.estaVacio());
+            assertTrue(arbol.insertar(3, valor(3)));
+            comprobarClaves(arbol, 3, 3, 1);
+        }
+    }
+
+    @Test
+    void cargarOrdenadoSoloAdmiteUnArbolVacio() throws IOException {
+        File archivo = directorio.resolve("arbol.bpt").toFile();
+        try (ArbolBMas arbol = ArbolBMas.abrir(archivo, TAMAÑO_VALOR)) {
+            arbol.insertar(1, valor(1));
+            assertThrows(IOException.class, () -> arbol.cargarOrdenado(entrada -> false));
+            comprobarClaves(arbol, 1, 1, 1);
+        }
+    }
+
+    /**
+     * Comprueba que el árbol contiene exactamente las claves desde, desde + paso, ... hasta, en orden y con sus
+     * valores, tanto recorriéndolo como buscándolas una a una.
+     */
+    private static void comprobarClaves(ArbolBMas arbol, int desde, int hasta, int paso) throws IOException {
+        int[] esperada = {desde};
+        arbol.recorrer(Integer.MIN_VALUE, Integer.MAX_VALUE, (pagina, posicionValor) -> {
+            assertEquals(esperada[0], pagina.getInt(posicionValor - Integer.BYTES));
+            assertEquals(esperada[0], pagina.getInt(posicionValor));
+            esperada[0] += paso;
+            return true;
+        });
+        assertEquals(hasta + paso, esperada[0], "El recorrido debe terminar en la última clave");
+        ByteBuffer valor = ByteBuffer.allocate(TAMAÑO_VALOR);
+        for (int clave = desde; clave <= hasta; clave += paso) {
+            valor.clear();
+            assertTrue(arbol.buscar(clave, valor), "Falta la clave " + clave);
+            assertEquals(clave, valor.getInt(0));
+        }
+        if (paso > 1) {
+            assertFalse(arbol.buscar(desde + 1, ByteBuffer.allocate(TAMAÑO_VALOR)));
+        }
+    }
+
+    private static long contar(ArbolBMas arbol, int desde, int hasta) throws IOException {
+        long[] cuenta = {0};
+        arbol.recorrer(desde, hasta, (pagina, posicionValor) -> {
+            cuenta[0]++;
+            return true;
+        });
+        return cuenta[0];
+    }
+
+    private static ByteBuffer valor(int clave) {
+        ByteBuffer valor = ByteBuffer.allocate(TAMAÑO_VALOR);
+        valor.putInt(0, clave);
+        return valor;
+    }
+}
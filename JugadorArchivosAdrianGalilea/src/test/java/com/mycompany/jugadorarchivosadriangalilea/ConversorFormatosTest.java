@@ -0,0 +1,85 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de ConversorFormatos y de la escritura por lotes sin comprobar duplicados que usa en el destino,
+ * en especial la de GestionXML, que copia el documento en streaming en lugar de cargarlo.
+ */
+class ConversorFormatosTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void anexarEnXmlConservaElDocumentoYEscapaLosNicks() throws IOException {
+        String ruta = directorio.resolve("jugadores.xml").toString();
+        GestionXML gestion = new GestionXML(ruta);
+        gestion.anexarJugadores(List.of(new Jugador(1, "a<&>\"ñ", 1, 2, 3)));
+        gestion.anexarJugadores(List.of(new Jugador(2, "dos", 4, 5, 6), new Jugador(3, "tres", 7, 8, 9)));
+        assertTrue(gestion.agregarJugador(new Jugador(4, "cuatro", 0, 0, 0)));
+        assertTrue(gestion.eliminarJugador(2));
+        gestion.anexarJugadores(List.of(new Jugador(5, "cinco", 1, 1, 1)));
+        gestion.cerrar();
+
+        gestion = new GestionXML(ruta);
+        List<Jugador> jugadores = gestion.listarJugadores();
+        assertEquals(4, jugadores.size());
+        assertEquals("a<&>\"ñ", gestion.obtenerJugador(1).getNick());
+        assertEquals(3, gestion.obtenerJugador(1).getCoins());
+        assertNull(gestion.obtenerJugador(2));
+        assertEquals(List.of(1, 3, 4, 5), ids(jugadores));
+        gestion.cerrar();
+    }
+
+    @Test
+    void convierteTodosLosJugadoresPorLotes() throws IOException {
+        GestionFichero origen = FormatoFichero.BINARIO.abrir(directorio.resolve("origen.bin").toString());
+        List<Jugador> jugadores = new ArrayList<>();
+        for (int id = 1; id <= 2500; id++) {
+            jugadores.add(new Jugador(id, "n" + id, id, id, id));
+        }
+        origen.agregarJugadores(jugadores);
+        String rutaDestino = directorio.resolve("destino.xml").toString();
+        File puntoControl = new File(rutaDestino + ".conv");
+        GestionFichero destino = FormatoFichero.XML.abrir(rutaDestino);
+
+        assertEquals(2500, new ConversorFormatos(origen, destino, puntoControl).setTamañoLote(300).convertir());
+        assertFalse(puntoControl.exists());
+        assertEquals(2500, destino.listarJugadores().size());
+        assertEquals("n1234", destino.obtenerJugador(1234).getNick());
+        destino.cerrar();
+        origen.cerrar();
+    }
+
+    @Test
+    void rechazaUnDestinoConJugadoresSinPuntoDeControl() throws IOException {
+        GestionFichero origen = FormatoFichero.BINARIO.abrir(directorio.resolve("origen.bin").toString());
+        origen.agregarJugador(new Jugador(1, "uno", 1, 1, 1));
+        String rutaDestino = directorio.resolve("destino.xml").toString();
+        GestionFichero destino = FormatoFichero.XML.abrir(rutaDestino);
+        destino.agregarJugador(new Jugador(1, "ya estaba", 0, 0, 0));
+
+        assertThrows(IOException.class, () -> new ConversorFormatos(origen, destino, new File(rutaDestino + ".conv")).convertir());
+        assertEquals(1, destino.listarJugadores().size());
+        assertEquals("ya estaba", destino.obtenerJugador(1).getNick());
+        destino.cerrar();
+        origen.cerrar();
+    }
+
+    private static List<Integer> ids(List<Jugador> jugadores) {
+        List<Integer> ids = new ArrayList<>();
+        for (Jugador jugador : jugadores) {
+            ids.add(jugador.getId());
+        }
+        return ids;
+    }
+}
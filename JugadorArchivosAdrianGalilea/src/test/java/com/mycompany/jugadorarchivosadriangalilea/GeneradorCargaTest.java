@@ -0,0 +1,40 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de GeneradorCarga.
+ */
+class GeneradorCargaTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void laMezclaPorDefectoEsDeLecturaSinLlamarAMezcla() throws IOException {
+        GestionFichero gestion = new GestionSincronizada(FormatoFichero.ALEATORIO.abrir(directorio.resolve("carga.dat").toString()));
+        GeneradorCarga generador = new GeneradorCarga(gestion) {
+            @Override
+            public GeneradorCarga mezcla(String mezcla) {
+                throw new AssertionError("El constructor no debe llamar a un método sobrescrito");
+            }
+        };
+        generador.jugadores(200).operaciones(2000).salida(new PrintStream(OutputStream.nullOutputStream()));
+        assertEquals(200, generador.precargar());
+
+        Map<OperacionCarga, HistogramaLatencias> resultado = generador.ejecutar();
+        long obtener = resultado.get(OperacionCarga.OBTENER).getTotal();
+        long modificar = resultado.get(OperacionCarga.MODIFICAR).getTotal();
+        assertEquals(2000, obtener + modificar, "La mezcla de lectura solo obtiene y modifica");
+        assertTrue(obtener > modificar * 5, "La mezcla de lectura es sobre todo de lecturas");
+        gestion.cerrar();
+    }
+}
@@ -0,0 +1,70 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de GestionConIncrementos e IncrementosJugadores cuando una suma no cabe en un int.
+ */
+class GestionConIncrementosTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void descartaSoloLasSumasQueDesbordanYSigueFuncionando() throws IOException {
+        String ruta = directorio.resolve("jugadores.bin").toString();
+        GestionConIncrementos gestion = new GestionConIncrementos(FormatoFichero.BINARIO.abrir(ruta));
+        gestion.agregarJugador(new Jugador(1, "lleno", 0, 0, Integer.MAX_VALUE - 1));
+        gestion.agregarJugador(new Jugador(2, "normal", 0, 0, 5));
+        gestion.sumarCampo(1, CampoJugador.COINS, 5);
+        gestion.sumarCampo(2, CampoJugador.COINS, 5);
+
+        ArithmeticException error = assertThrows(ArithmeticException.class, gestion::listarJugadores);
+        assertTrue(error.getMessage().contains("[1]"), error.getMessage());
+        assertEquals(0, gestion.getNumeroPendientes());
+        assertEquals(2, gestion.listarJugadores().size(), "Tras el error la capa debe seguir funcionando");
+        assertEquals(Integer.MAX_VALUE - 1, gestion.obtenerJugador(1).getCoins());
+        assertEquals(10, gestion.obtenerJugador(2).getCoins());
+
+        gestion.sumarCampo(1, CampoJugador.COINS, 10);
+        gestion.sumarCampo(2, CampoJugador.COINS, 1);
+        assertThrows(ArithmeticException.class, () -> gestion.obtenerJugador(1));
+        assertEquals(Integer.MAX_VALUE - 1, gestion.obtenerJugador(1).getCoins());
+        gestion.cerrar();
+
+        GestionFichero datos = FormatoFichero.BINARIO.abrir(ruta);
+        assertEquals(11, datos.obtenerJugador(2).getCoins());
+        datos.cerrar();
+    }
+
+    @Test
+    void combinarNoModificaNadaSiAlgunaSumaDesborda() {
+        IncrementosJugadores incrementos = new IncrementosJugadores();
+        incrementos.sumar(1, CampoJugador.COINS, 1);
+        incrementos.sumar(2, CampoJugador.COINS, Integer.MAX_VALUE);
+        IncrementosJugadores otros = new IncrementosJugadores();
+        otros.sumar(1, CampoJugador.COINS, 1);
+        otros.sumar(2, CampoJugador.COINS, 1);
+        otros.sumar(3, CampoJugador.EXPERIENCE, 1);
+
+        assertThrows(ArithmeticException.class, () -> incrementos.combinar(otros));
+        assertEquals(1, incrementos.getSuma(1, CampoJugador.COINS));
+        assertEquals(Integer.MAX_VALUE, incrementos.getSuma(2, CampoJugador.COINS));
+        assertEquals(2, incrementos.getNumeroJugadores());
+    }
+
+    @Test
+    void sumarNoAcumulaNadaSiLaSumaDesborda() {
+        IncrementosJugadores incrementos = new IncrementosJugadores();
+        incrementos.sumar(1, CampoJugador.COINS, Integer.MAX_VALUE);
+        assertThrows(ArithmeticException.class, () -> incrementos.sumar(1, CampoJugador.COINS, 1));
+        assertEquals(Integer.MAX_VALUE, incrementos.getSuma(1, CampoJugador.COINS));
+        assertThrows(IllegalArgumentException.class, () -> incrementos.sumar(2, CampoJugador.NICK, 1));
+        assertFalse(incrementos.ids().contains(2));
+    }
+}
@@ -0,0 +1,185 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de GestionConRegistro. Una caída se simula copiando el archivo de datos y el registro mientras
+ * el almacén sigue abierto, cuando los cambios ya están en el registro pero no en el archivo de datos.
+ */
+class GestionConRegistroTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void recuperaDelRegistroLosCambiosNoAplicados() throws IOException {
+        String ruta = crearDatos("datos.bin", new Jugador(1, "uno", 1, 1, 1), new Jugador(2, "dos", 2, 2, 2),
+                new Jugador(3, "tres", 3, 3, 3));
+        GestionConRegistro gestion = new GestionConRegistro(FormatoFichero.BINARIO.abrir(ruta), ruta);
+        gestion.setUmbralAplicacion(1000);
+        assertTrue(gestion.agregarJugador(new Jugador(4, "cuatro", 4, 4, 4)));
+        assertTrue(gestion.eliminarJugador(2));
+        gestion.modificarJugador(3, new Jugador(3, "tres bis", 30, 30, 30));
+        gestion.sumarCampo(4, CampoJugador.COINS, 10);
+        String copia = simularCaida(ruta, "copia.bin");
+        gestion.cerrar();
+
+        GestionConRegistro recuperada = new GestionConRegistro(FormatoFichero.BINARIO.abrir(copia), copia);
+        assertEquals(4, recuperada.getRegistro().getRecuperadas().size());
+        recuperada.cerrar();
+
+        GestionFichero datos = FormatoFichero.BINARIO.abrir(copia);
+        assertEquals("uno", datos.obtenerJugador(1).getNick());
+        assertNull(datos.obtenerJugador(2));
+        assertEquals("tres bis", datos.obtenerJugador(3).getNick());
+        assertEquals(14, datos.obtenerJugador(4).getCoins());
+        assertEquals(3, datos.listarJugadores().size());
+        datos.cerrar();
+    }
+
+    @Test
+    void unCambioDeIdSeRecuperaEnteroONoSeRecupera() throws IOException {
+        String ruta = crearDatos("datos.bin", new Jugador(1, "uno", 1, 1, 1));
+        GestionConRegistro gestion = new GestionConRegistro(FormatoFichero.BINARIO.abrir(ruta), ruta);
+        gestion.setUmbralAplicacion(1000);
+        gestion.modificarJugador(1, new Jugador(5, "cinco", 5, 5, 5));
+        String completa = simularCaida(ruta, "completa.bin");
+        String rota = simularCaida(ruta, "rota.bin");
+        gestion.cerrar();
+        try (RandomAccessFile registro = new RandomAccessFile(rota + ".wal", "rw")) {
+            registro.setLength(registro.length() - 1);
+        }
+
+        GestionConRegistro recuperada = new GestionConRegistro(FormatoFichero.BINARIO.abrir(completa), completa);
+        assertNull(recuperada.obtenerJugador(1));
+        assertEquals("cinco", recuperada.obtenerJugador(5).getNick());
+        recuperada.cerrar();
+
+        recuperada = new GestionConRegistro(FormatoFichero.BINARIO.abrir(rota), rota);
+        assertEquals("uno", recuperada.obtenerJugador(1).getNick(), "Sin el alta del ID nuevo no debe aplicarse la baja del anterior");
+        assertNull(recuperada.obtenerJugador(5));
+        recuperada.cerrar();
+    }
+
+    @Test
+    void compruebaSiUnJugadorExisteSinLeerElArchivoDeDatos() throws IOException {
+        String ruta = crearDatos("datos.txt", new Jugador(1, "uno", 1, 1, 1), new Jugador(2, "dos", 2, 2, 2));
+        LecturasContadas contadas = new LecturasContadas(FormatoFichero.TEXTO.abrir(ruta));
+        GestionConRegistro gestion = new GestionConRegistro(contadas, ruta);
+        gestion.setUmbralAplicacion(1000);
+        contadas.lecturas = 0;
+
+        assertFalse(gestion.agregarJugador(new Jugador(1, "repetido", 0, 0, 0)));
+        assertTrue(gestion.agregarJugador(new Jugador(3, "tres", 3, 3, 3)));
+        assertFalse(gestion.eliminarJugador(9));
+        assertTrue(gestion.eliminarJugador(2));
+        gestion.modificarJugador(7, new Jugador(7, "no existe", 0, 0, 0));
+        gestion.modificarJugador(1, new Jugador(1, "uno bis", 1, 1, 1));
+        assertEquals(1, gestion.agregarJugadores(List.of(new Jugador(1, "repetido", 0, 0, 0), new Jugador(4, "cuatro", 4, 4, 4))));
+        Transaccion transaccion = gestion.iniciarTransaccion();
+        transaccion.eliminarJugador(4);
+        transaccion.agregarJugador(new Jugador(2, "dos otra vez", 2, 2, 2));
+        assertTrue(transaccion.confirmar());
+        assertEquals(0, contadas.lecturas, "Las altas, bajas y modificaciones no deben leer el archivo de datos");
+
+        gestion.aplicar();
+        assertFalse(gestion.agregarJugador(new Jugador(3, "repetido", 0, 0, 0)));
+        assertFalse(gestion.eliminarJugador(4));
+        gestion.cerrar();
+
+        GestionFichero datos = FormatoFichero.TEXTO.abrir(ruta);
+        assertEquals("uno bis", datos.obtenerJugador(1).getNick());
+        assertEquals("dos otra vez", datos.obtenerJugador(2).getNick());
+        assertEquals("tres", datos.obtenerJugador(3).getNick());
+        assertNull(datos.obtenerJugador(4));
+        datos.cerrar();
+    }
+
+    @Test
+    void elConstructorAplicaLoRecuperadoSinLlamarAUnAplicarSobrescrito() throws IOException {
+        String ruta = crearDatos("datos.bin", new Jugador(1, "uno", 1, 1, 1));
+        RegistroEscrituraAnticipada registro = new RegistroEscrituraAnticipada(new File(ruta + ".wal"));
+        registro.anotarEliminacion(1);
+        registro.esperar(registro.anotarGuardado(new Jugador(2, "dos", 2, 2, 2)));
+        registro.cerrar();
+
+        GestionConRegistro gestion = new GestionConRegistro(FormatoFichero.BINARIO.abrir(ruta), ruta) {
+            @Override
+            public void aplicar() {
+                throw new AssertionError("El constructor no debe llamar a un método sobrescrito");
+            }
+        };
+        assertEquals(0, gestion.getRegistro().getEntradas());
+        gestion.getRegistro().cerrar();
+        gestion.delegada.cerrar();
+
+        GestionFichero datos = FormatoFichero.BINARIO.abrir(ruta);
+        assertNull(datos.obtenerJugador(1));
+        assertEquals("dos", datos.obtenerJugador(2).getNick());
+        datos.cerrar();
+    }
+
+    private String crearDatos(String nombre, Jugador... jugadores) throws IOException {
+        String ruta = directorio.resolve(nombre).toString();
+        GestionFichero datos = FormatoFichero.porNombre(nombre.endsWith(".txt") ? "texto" : "binario").abrir(ruta);
+        datos.agregarJugadores(List.of(jugadores));
+        datos.cerrar();
+        return ruta;
+    }
+
+    /**
+     * Copia el archivo de datos y el registro con otro nombre, como quedarían si el proceso terminase ahora.
+     */
+    private String simularCaida(String ruta, String nombre) throws IOException {
+        Path copia = directorio.resolve(nombre);
+        Files.copy(Path.of(ruta), copia);
+        Files.copy(Path.of(ruta + ".wal"), Path.of(copia + ".wal"));
+        return copia.toString();
+    }
+
+    /**
+     * Cuenta las lecturas de jugadores que llegan al archivo de datos.
+     */
+    private static class LecturasContadas extends GestionDelegada {
+
+        int lecturas;
+
+        LecturasContadas(GestionFichero delegada) {
+            super(delegada);
+        }
+
+        @Override
+        public Jugador obtenerJugador(int id) throws IOException {
+            lecturas++;
+            return super.obtenerJugador(id);
+        }
+
+        @Override
+        protected Set<Integer> idsExistentes(Set<Integer> ids) throws IOException {
+            lecturas++;
+            return super.idsExistentes(ids);
+        }
+
+        @Override
+        protected void recorrerFiltrado(ConsultaJugadores consulta, ProcesadorJugador procesador) throws IOException {
+            lecturas++;
+            super.recorrerFiltrado(consulta, procesador);
+        }
+
+        @Override
+        public void recorrerJugadores(ProcesadorJugador procesador) throws IOException {
+            lecturas++;
+            super.recorrerJugadores(procesador);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de GestionHashExtensible: las divisiones de cubetas conservan todos los jugadores y, al abrir,
+ * el directorio se reconstruye y repara las divisiones que quedaron a medias.
+ */
+class GestionHashExtensibleTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void conservaLosJugadoresTrasMuchasDivisionesYAlReabrir() throws IOException {
+        String ruta = directorio.resolve("datos.hash").toString();
+        int total = GestionHashExtensible.REGISTROS_POR_CUBETA * 40;
+        GestionHashExtensible gestion = new GestionHashExtensible(ruta);
+        for (int id = 1; id <= total; id++) {
+            assertTrue(gestion.agregarJugador(new Jugador(id, "n" + id, id, id, id)));
+        }
+        assertFalse(gestion.agregarJugador(new Jugador(7, "repetido", 0, 0, 0)));
+        for (int id = 1; id <= total; id += 3) {
+            assertTrue(gestion.eliminarJugador(id));
+        }
+        gestion.cerrar();
+
+        gestion = new GestionHashExtensible(ruta);
+        for (int id = 1; id <= total; id++) {
+            Jugador jugador = gestion.obtenerJugador(id);
+            if (id % 3 == 1) {
+                assertNull(jugador);
+            } else {
+                assertEquals("n" + id, jugador.getNick());
+            }
+        }
+        assertEquals(total - (total + 2) / 3, gestion.listarJugadores().size());
+        gestion.cerrar();
+    }
+
+    @Test
+    void reparaUnaDivisionInterrumpidaAlAbrir() throws IOException {
+        Path ruta = directorio.resolve("datos.hash");
+        int llena = GestionHashExtensible.REGISTROS_POR_CUBETA;
+        GestionHashExtensible gestion = new GestionHashExtensible(ruta.toString());
+        for (int id = 1; id <= llena; id++) {
+            gestion.agregarJugador(new Jugador(id, "n" + id, id, id, id));
+        }
+        gestion.cerrar();
+        byte[] antes = Files.readAllBytes(ruta);
+        int tamañoPagina = antes.length / 2;
+
+        gestion = new GestionHashExtensible(ruta.toString());
+        gestion.agregarJugador(new Jugador(llena + 1, "extra", 0, 0, 0));
+        gestion.cerrar();
+        byte[] despues = Files.readAllBytes(ruta);
+        assertEquals(3 * tamañoPagina, despues.length, "El alta debe dividir la única cubeta");
+
+        // La cubeta nueva llegó al disco, pero la antigua conserva todos sus registros y su profundidad.
+        byte[] interrumpido = Arrays.copyOf(antes, 3 * tamañoPagina);
+        System.arraycopy(despues, 2 * tamañoPagina, interrumpido, 2 * tamañoPagina, tamañoPagina);
+        Files.write(ruta, interrumpido);
+
+        gestion = new GestionHashExtensible(ruta.toString());
+        List<Jugador> jugadores = gestion.listarJugadores();
+        Set<Integer> ids = new HashSet<>();
+        for (Jugador jugador : jugadores) {
+            assertTrue(ids.add(jugador.getId()), "El jugador " + jugador.getId() + " aparece dos veces");
+        }
+        for (int id = 1; id <= llena; id++) {
+            assertTrue(ids.contains(id), "Falta el jugador " + id);
+            assertEquals("n" + id, gestion.obtenerJugador(id).getNick());
+        }
+        for (int id = 1; id <= llena; id++) {
+            assertTrue(gestion.eliminarJugador(id));
+            assertNull(gestion.obtenerJugador(id), "El jugador " + id + " sigue apareciendo tras eliminarlo");
+        }
+        gestion.cerrar();
+
+        gestion = new GestionHashExtensible(ruta.toString());
+        assertEquals(ids.contains(llena + 1) ? 1 : 0, gestion.listarJugadores().size());
+        gestion.cerrar();
+    }
+}
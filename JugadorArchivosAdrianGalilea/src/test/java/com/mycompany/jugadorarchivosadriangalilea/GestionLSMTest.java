@@ -0,0 +1,117 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de GestionLSM: volcados y compactaciones conservan la última versión de cada jugador, el manifiesto
+ * permite reabrir el almacén y el registro recupera los cambios que no llegaron a volcarse.
+ */
+class GestionLSMTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void losVolcadosYLasCompactacionesConservanLaUltimaVersion() throws IOException {
+        String ruta = directorio.resolve("jugadores.lsm").toString();
+        int total = 3000;
+        GestionLSM gestion = new GestionLSM(ruta);
+        gestion.setLimiteMemoria(50);
+        for (int id = 1; id <= total; id++) {
+            assertTrue(gestion.agregarJugador(new Jugador(id, "n" + id, id, 0, 0)));
+        }
+        for (int id = 2; id <= total; id += 2) {
+            gestion.modificarJugador(id, new Jugador(id, "par" + id, id, 1, 0));
+        }
+        for (int id = 5; id <= total; id += 5) {
+            assertTrue(gestion.eliminarJugador(id));
+        }
+        assertFalse(gestion.agregarJugador(new Jugador(2, "repetido", 0, 0, 0)));
+        gestion.cerrar();
+
+        gestion = new GestionLSM(ruta);
+        assertTrue(gestion.getNumeroTramos() < total / 50, "Las compactaciones deben reducir el número de tramos");
+        comprobar(gestion, total);
+        gestion.cerrar();
+    }
+
+    @Test
+    void borraAlAbrirLosTramosQueNoFiguranEnElManifiesto() throws IOException {
+        String ruta = directorio.resolve("jugadores.lsm").toString();
+        GestionLSM gestion = new GestionLSM(ruta);
+        gestion.agregarJugador(new Jugador(1, "uno", 1, 1, 1));
+        gestion.cerrar();
+        File huerfano = new File(ruta + ".t999");
+        Files.write(huerfano.toPath(), new byte[]{1, 2, 3});
+
+        gestion = new GestionLSM(ruta);
+        assertFalse(huerfano.exists());
+        assertEquals("uno", gestion.obtenerJugador(1).getNick());
+        gestion.cerrar();
+    }
+
+    @Test
+    void unCambioDeIdSeRecuperaDelRegistroEnteroONoSeRecupera() throws IOException {
+        String ruta = directorio.resolve("jugadores.lsm").toString();
+        GestionLSM gestion = new GestionLSM(ruta);
+        gestion.agregarJugador(new Jugador(1, "uno", 1, 1, 1));
+        gestion.cerrar();
+
+        gestion = new GestionLSM(ruta);
+        gestion.modificarJugador(1, new Jugador(5, "cinco", 5, 5, 5));
+        String completa = simularCaida("jugadores.lsm", "completa.lsm");
+        String rota = simularCaida("jugadores.lsm", "rota.lsm");
+        gestion.cerrar();
+        try (RandomAccessFile registro = new RandomAccessFile(rota + ".wal", "rw")) {
+            registro.setLength(registro.length() - 1);
+        }
+
+        GestionLSM recuperada = new GestionLSM(completa);
+        assertNull(recuperada.obtenerJugador(1));
+        assertEquals("cinco", recuperada.obtenerJugador(5).getNick());
+        recuperada.cerrar();
+
+        recuperada = new GestionLSM(rota);
+        assertEquals("uno", recuperada.obtenerJugador(1).getNick(), "Sin el alta del ID nuevo no debe aplicarse la baja del anterior");
+        assertNull(recuperada.obtenerJugador(5));
+        recuperada.cerrar();
+    }
+
+    private static void comprobar(GestionLSM gestion, int total) throws IOException {
+        for (int id = 1; id <= total; id++) {
+            Jugador jugador = gestion.obtenerJugador(id);
+            if (id % 5 == 0) {
+                assertNull(jugador, "El jugador " + id + " se había eliminado");
+            } else {
+                assertEquals(id % 2 == 0 ? "par" + id : "n" + id, jugador.getNick());
+            }
+        }
+        int[] anterior = {0};
+        gestion.recorrerJugadores(jugador -> {
+            assertTrue(jugador.getId() > anterior[0], "El recorrido debe ir en orden de ID y sin repetidos");
+            anterior[0] = jugador.getId();
+            return true;
+        });
+        assertEquals(total - total / 5, gestion.listarJugadores().size());
+    }
+
+    /**
+     * Copia el manifiesto, los tramos y el registro de un almacén abierto con otro nombre, como quedarían
+     * si el proceso terminase ahora.
+     */
+    private String simularCaida(String nombre, String copia) throws IOException {
+        File[] archivos = directorio.toFile().listFiles((carpeta, archivo) -> archivo.startsWith(nombre));
+        for (File archivo : archivos) {
+            Files.copy(archivo.toPath(), directorio.resolve(copia + archivo.getName().substring(nombre.length())));
+        }
+        return directorio.resolve(copia).toString();
+    }
+}
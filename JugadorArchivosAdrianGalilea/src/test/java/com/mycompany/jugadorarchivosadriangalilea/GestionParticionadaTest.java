@@ -0,0 +1,70 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de GestionParticionada en las operaciones que afectan a más de una partición.
+ */
+class GestionParticionadaTest {
+
+    private static final int PARTICIONES = 4;
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void cambiarElIdAUnoExistenteDeOtraParticionNoPierdeAlJugador() throws IOException {
+        GestionParticionada gestion = abrir();
+        int origen = 1;
+        int destino = idDeOtraParticion(origen);
+        gestion.agregarJugador(new Jugador(origen, "origen", 1, 1, 1));
+        gestion.agregarJugador(new Jugador(destino, "destino", 2, 2, 2));
+
+        gestion.modificarJugador(origen, new Jugador(destino, "modificado", 9, 9, 9));
+
+        assertNull(gestion.obtenerJugador(origen));
+        assertEquals("modificado", gestion.obtenerJugador(destino).getNick());
+        List<Jugador> jugadores = gestion.listarJugadores();
+        assertEquals(1, jugadores.size());
+        gestion.cerrar();
+    }
+
+    @Test
+    void aplicarIncrementosEsTodoONadaEntreParticiones() throws IOException {
+        GestionParticionada gestion = abrir();
+        int normal = 1;
+        int lleno = idDeOtraParticion(normal);
+        gestion.agregarJugador(new Jugador(normal, "normal", 0, 0, 2));
+        gestion.agregarJugador(new Jugador(lleno, "lleno", 0, 0, Integer.MAX_VALUE));
+        IncrementosJugadores incrementos = new IncrementosJugadores();
+        incrementos.sumar(normal, CampoJugador.COINS, 100);
+        incrementos.sumar(lleno, CampoJugador.COINS, 100);
+
+        assertThrows(ArithmeticException.class, () -> gestion.aplicarIncrementos(incrementos));
+        assertEquals(2, gestion.obtenerJugador(normal).getCoins(), "No debe aplicarse ninguna suma si una desborda");
+        assertEquals(Integer.MAX_VALUE, gestion.obtenerJugador(lleno).getCoins());
+
+        incrementos.descartar(lleno);
+        assertEquals(1, gestion.aplicarIncrementos(incrementos));
+        assertEquals(102, gestion.obtenerJugador(normal).getCoins());
+        gestion.cerrar();
+    }
+
+    private GestionParticionada abrir() throws IOException {
+        return new GestionParticionada(directorio.resolve("jugadores").toString(), FormatoFichero.BINARIO, PARTICIONES);
+    }
+
+    private static int idDeOtraParticion(int id) {
+        int otro = id + 1;
+        while (GestionParticionada.particion(otro, PARTICIONES) == GestionParticionada.particion(id, PARTICIONES)) {
+            otro++;
+        }
+        return otro;
+    }
+}
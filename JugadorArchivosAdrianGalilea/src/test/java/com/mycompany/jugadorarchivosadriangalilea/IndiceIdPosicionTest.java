@@ -0,0 +1,136 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la instantánea del índice de GestionAccesoAleatorio: se usa al abrir tras un cierre limpio y se
+ * descarta, reconstruyendo el índice, si el almacén no se cerró, si está dañada o si no corresponde al archivo.
+ */
+class IndiceIdPosicionTest {
+
+    private static final int TOTAL = 5000;
+
+    @TempDir
+    Path directorio;
+
+    private File datos;
+    private File instantanea;
+
+    @BeforeEach
+    void crearAlmacen() throws IOException {
+        datos = directorio.resolve("jugadores.dat").toFile();
+        instantanea = new File(datos.getPath() + ".ids");
+        GestionAccesoAleatorio gestion = new GestionAccesoAleatorio(datos.getPath());
+        for (int id = 1; id <= TOTAL; id++) {
+            gestion.agregarJugador(new Jugador(id, "n" + id, id, id, id));
+        }
+        for (int id = 3; id <= TOTAL; id += 3) {
+            gestion.eliminarJugador(id);
+        }
+        gestion.cerrar();
+    }
+
+    @Test
+    void usaLaInstantaneaTrasUnCierreLimpio() throws IOException {
+        try (FileChannel canal = abrirDatos()) {
+            IndiceIdPosicion indice = IndiceIdPosicion.abrir(instantanea, canal, datos);
+            assertTrue(indice.esDeInstantanea());
+            assertEquals(-1, indice.buscar(3), "Un jugador eliminado no debe estar en el índice");
+            assertEquals(1, indice.buscar(2));
+            comprobarIgualQueReconstruido(indice, canal);
+        }
+    }
+
+    @Test
+    void reconstruyeElIndiceSiElAlmacenNoSeCerro() throws IOException {
+        try (FileChannel canal = abrirDatos()) {
+            assertTrue(IndiceIdPosicion.abrir(instantanea, canal, datos).esDeInstantanea());
+            IndiceIdPosicion indice = IndiceIdPosicion.abrir(instantanea, canal, datos);
+            assertFalse(indice.esDeInstantanea(), "Una instantánea en uso no es fiable tras una caída");
+            comprobarIgualQueReconstruido(indice, canal);
+        }
+    }
+
+    @Test
+    void reconstruyeElIndiceSiLaInstantaneaEstaDañada() throws IOException {
+        try (RandomAccessFile archivo = new RandomAccessFile(instantanea, "rw")) {
+            archivo.seek(archivo.length() - 5);
+            int byteOriginal = archivo.read();
+            archivo.seek(archivo.length() - 5);
+            archivo.write(byteOriginal ^ 0x40);
+        }
+        try (FileChannel canal = abrirDatos()) {
+            IndiceIdPosicion indice = IndiceIdPosicion.abrir(instantanea, canal, datos);
+            assertFalse(indice.esDeInstantanea());
+            comprobarIgualQueReconstruido(indice, canal);
+        }
+    }
+
+    @Test
+    void reconstruyeElIndiceSiElArchivoDeDatosHaCambiado() throws IOException {
+        GestionAccesoAleatorio otra = new GestionAccesoAleatorio(datos.getPath());
+        otra.agregarJugador(new Jugador(TOTAL + 1, "nuevo", 0, 0, 0));
+        otra.cerrar();
+        File copiaInstantanea = directorio.resolve("vieja.ids").toFile();
+        try (FileChannel canal = abrirDatos()) {
+            IndiceIdPosicion vigente = IndiceIdPosicion.abrir(instantanea, canal, datos);
+            assertTrue(vigente.esDeInstantanea());
+            vigente.guardar(copiaInstantanea, datos);
+        }
+        try (RandomAccessFile archivo = new RandomAccessFile(datos, "rw")) {
+            archivo.seek(0);
+            archivo.writeInt(-1);
+        }
+        assertTrue(datos.setLastModified(datos.lastModified() + 2000));
+        try (FileChannel canal = abrirDatos()) {
+            IndiceIdPosicion indice = IndiceIdPosicion.abrir(copiaInstantanea, canal, datos);
+            assertFalse(indice.esDeInstantanea(), "La instantánea no corresponde a la fecha del archivo de datos");
+            assertEquals(-1, indice.buscar(1));
+            assertTrue(indice.buscar(TOTAL + 1) >= 0);
+            comprobarIgualQueReconstruido(indice, canal);
+        }
+    }
+
+    @Test
+    void guardaLosCambiosHechosSobreLaInstantanea() throws IOException {
+        try (FileChannel canal = abrirDatos()) {
+            IndiceIdPosicion indice = IndiceIdPosicion.abrir(instantanea, canal, datos);
+            indice.eliminar(1);
+            indice.poner(TOTAL + 10, 7);
+            assertEquals(-1, indice.buscar(1));
+            assertEquals(7, indice.buscar(TOTAL + 10));
+            indice.guardar(instantanea, datos);
+        }
+        try (FileChannel canal = abrirDatos()) {
+            IndiceIdPosicion indice = IndiceIdPosicion.abrir(instantanea, canal, datos);
+            assertTrue(indice.esDeInstantanea());
+            assertEquals(-1, indice.buscar(1));
+            assertEquals(7, indice.buscar(TOTAL + 10));
+            assertEquals(1, indice.buscar(2));
+        }
+    }
+
+    private FileChannel abrirDatos() throws IOException {
+        return FileChannel.open(datos.toPath(), StandardOpenOption.READ);
+    }
+
+    /**
+     * Comprueba que el índice da para cada ID el mismo registro que un índice reconstruido desde el archivo.
+     */
+    private static void comprobarIgualQueReconstruido(IndiceIdPosicion indice, FileChannel canal) throws IOException {
+        IndiceIdPosicion reconstruido = IndiceIdPosicion.reconstruir(canal, canal.size());
+        for (int id = 1; id <= TOTAL + 1; id++) {
+            assertEquals(reconstruido.buscar(id), indice.buscar(id), "Registro del ID " + id);
+        }
+    }
+}
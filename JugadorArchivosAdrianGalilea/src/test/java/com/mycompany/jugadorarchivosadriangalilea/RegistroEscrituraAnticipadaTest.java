@@ -0,0 +1,129 @@
+package com.mycompany.jugadorarchivosadriangalilea;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del registro de escritura anticipada: las entradas anotadas se recuperan al volver a abrirlo
+ * y una entrada final incompleta o dañada se descarta sin perder las anteriores.
+ */
+class RegistroEscrituraAnticipadaTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void recuperaLasEntradasEnElOrdenEnQueSeAnotaron() throws IOException {
+        File archivo = directorio.resolve("datos.wal").toFile();
+        RegistroEscrituraAnticipada registro = new RegistroEscrituraAnticipada(archivo);
+        registro.anotarGuardado(new Jugador(1, "uno", 10, 20, 30));
+        registro.anotarEliminacion(2);
+        Map<Integer, Jugador> lote = new LinkedHashMap<>();
+        lote.put(3, null);
+        lote.put(4, new Jugador(4, "cuatro", 1, 2, 3));
+        registro.esperar(registro.anotarLote(lote));
+        assertEquals(3, registro.getEntradas());
+        registro.cerrar();
+
+        RegistroEscrituraAnticipada reabierto = new RegistroEscrituraAnticipada(archivo);
+        List<RegistroEscrituraAnticipada.Entrada> entradas = reabierto.getRecuperadas();
+        reabierto.cerrar();
+
+        assertEquals(4, entradas.size());
+        comprobarGuardado(entradas.get(0), new Jugador(1, "uno", 10, 20, 30));
+        assertEquals(2, entradas.get(1).getId());
+        assertTrue(entradas.get(1).esEliminacion());
+        assertEquals(3, entradas.get(2).getId());
+        assertTrue(entradas.get(2).esEliminacion());
+        comprobarGuardado(entradas.get(3), new Jugador(4, "cuatro", 1, 2, 3));
+    }
+
+    @Test
+    void descartaUnaEntradaFinalIncompletaYSigueEscribiendoTrasLasValidas() throws IOException {
+        File archivo = directorio.resolve("datos.wal").toFile();
+        RegistroEscrituraAnticipada registro = new RegistroEscrituraAnticipada(archivo);
+        registro.anotarGuardado(new Jugador(1, "uno", 1, 1, 1));
+        registro.esperar(registro.anotarGuardado(new Jugador(2, "dos", 2, 2, 2)));
+        registro.cerrar();
+        long longitudValida = archivo.length();
+
+        registro = new RegistroEscrituraAnticipada(archivo);
+        registro.esperar(registro.anotarGuardado(new Jugador(3, "tres", 3, 3, 3)));
+        registro.cerrar();
+        try (RandomAccessFile datos = new RandomAccessFile(archivo, "rw")) {
+            datos.setLength(datos.length() - 3);
+        }
+
+        registro = new RegistroEscrituraAnticipada(archivo);
+        assertEquals(2, registro.getRecuperadas().size());
+        assertEquals(longitudValida, archivo.length(), "El registro debe truncarse tras la última entrada válida");
+        registro.esperar(registro.anotarGuardado(new Jugador(5, "cinco", 5, 5, 5)));
+        registro.cerrar();
+
+        registro = new RegistroEscrituraAnticipada(archivo);
+        List<RegistroEscrituraAnticipada.Entrada> entradas = registro.getRecuperadas();
+        registro.cerrar();
+        assertEquals(3, entradas.size());
+        assertEquals(1, entradas.get(0).getId());
+        assertEquals(2, entradas.get(1).getId());
+        comprobarGuardado(entradas.get(2), new Jugador(5, "cinco", 5, 5, 5));
+    }
+
+    @Test
+    void descartaUnaEntradaFinalConElCrcIncorrecto() throws IOException {
+        File archivo = directorio.resolve("datos.wal").toFile();
+        RegistroEscrituraAnticipada registro = new RegistroEscrituraAnticipada(archivo);
+        registro.anotarGuardado(new Jugador(1, "uno", 1, 1, 1));
+        registro.esperar(registro.anotarGuardado(new Jugador(2, "dos", 2, 2, 2)));
+        registro.cerrar();
+        try (RandomAccessFile datos = new RandomAccessFile(archivo, "rw")) {
+            datos.seek(datos.length() - 1);
+            int ultimo = datos.read();
+            datos.seek(datos.length() - 1);
+            datos.write(ultimo ^ 0xFF);
+        }
+
+        registro = new RegistroEscrituraAnticipada(archivo);
+        List<RegistroEscrituraAnticipada.Entrada> entradas = registro.getRecuperadas();
+        registro.cerrar();
+        assertEquals(1, entradas.size());
+        assertEquals(1, entradas.get(0).getId());
+    }
+
+    @Test
+    void vaciarDejaElRegistroSinEntradas() throws IOException {
+        File archivo = directorio.resolve("datos.wal").toFile();
+        RegistroEscrituraAnticipada registro = new RegistroEscrituraAnticipada(archivo);
+        registro.anotarGuardado(new Jugador(1, "uno", 1, 1, 1));
+        registro.vaciar();
+        registro.cerrar();
+
+        registro = new RegistroEscrituraAnticipada(archivo);
+        assertTrue(registro.getRecuperadas().isEmpty());
+        registro.cerrar();
+    }
+
+    @Test
+    void rechazaUnArchivoQueNoEsUnRegistro() throws IOException {
+        File archivo = directorio.resolve("datos.wal").toFile();
+        try (RandomAccessFile datos = new RandomAccessFile(archivo, "rw")) {
+            datos.writeLong(0x0123456789ABCDEFL);
+        }
+        assertThrows(IOException.class, () -> new RegistroEscrituraAnticipada(archivo));
+    }
+
+    private static void comprobarGuardado(RegistroEscrituraAnticipada.Entrada entrada, Jugador esperado) {
+        assertFalse(entrada.esEliminacion());
+        assertEquals(esperado.getId(), entrada.getId());
+        assertEquals(esperado.toString(), entrada.getJugador().toString());
+    }
+}